@@ -0,0 +1,174 @@
+/**
+ *  FrozenBayesClassifier
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.bayes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * An immutable naive Bayes classifier compiled from a trained classifier. The features are numbered by a term
+ * dictionary and the logarithms of the weighed feature probabilities are stored in a dense matrix with one row
+ * of category values for each feature. A classification is one pass over the features which adds up the rows of
+ * the known features; unknown features have the same probability in all categories and are skipped.
+ * Sums of logarithms do not underflow on long texts like the products of the BayesClassifier do.
+ * The classifier can be used concurrently without synchronization.
+ *
+ * @param <K> The category class.
+ */
+public class FrozenBayesClassifier<K> {
+
+    private final Map<String, Integer> dictionary;
+    private final List<K> categories;
+    private final double[] logPrior;
+    private final float[] logProbability; // [feature * categories + category]
+
+    /**
+     * compile a trained classifier. Later training of the classifier does not change the frozen classifier.
+     * @param classifier the trained classifier
+     */
+    public FrozenBayesClassifier(final Classifier<String, K> classifier) {
+        this.categories = new ArrayList<>(classifier.getCategories());
+        final int c = this.categories.size();
+        this.logPrior = new double[c];
+        final double total = classifier.getCategoriesTotal();
+        for (int j = 0; j < c; j++) this.logPrior[j] = Math.log(classifier.categoryCount(this.categories.get(j)) / total);
+        final List<String> features = new ArrayList<>(classifier.getFeatures());
+        this.dictionary = new HashMap<>(features.size() * 4 / 3 + 1);
+        this.logProbability = new float[features.size() * c];
+        for (int i = 0; i < features.size(); i++) {
+            final String feature = features.get(i);
+            this.dictionary.put(feature, i);
+            for (int j = 0; j < c; j++) {
+                this.logProbability[i * c + j] = (float) Math.log(classifier.featureWeighedAverage(feature, this.categories.get(j)));
+            }
+        }
+    }
+
+    /**
+     * @return the categories in the order of the score arrays
+     */
+    public List<K> getCategories() {
+        return this.categories;
+    }
+
+    /**
+     * @return the number of features in the dictionary
+     */
+    public int size() {
+        return this.dictionary.size();
+    }
+
+    /**
+     * compute the logarithm of the (unnormalized) probability of each category
+     * @param features the tokens of a text
+     * @param scores the target for the scores, one for each category
+     */
+    public void scores(final Collection<String> features, final double[] scores) {
+        final int c = this.logPrior.length;
+        System.arraycopy(this.logPrior, 0, scores, 0, c);
+        for (final String feature: features) {
+            final Integer i = this.dictionary.get(feature);
+            if (i == null) continue;
+            final int row = i.intValue() * c;
+            for (int j = 0; j < c; j++) scores[j] += this.logProbability[row + j];
+        }
+    }
+
+    /**
+     * classify a text
+     * @param features the tokens of a text
+     * @return the most probable category with its probability among all categories, or null if no category is known
+     */
+    public Classification<String, K> classify(final Collection<String> features) {
+        return classify(features, new double[this.logPrior.length]);
+    }
+
+    /**
+     * classify many texts; the score array is shared by all classifications
+     * @param documents the tokens of each text
+     * @return the classification of each text
+     */
+    public List<Classification<String, K>> classify(final List<? extends Collection<String>> documents) {
+        final double[] scores = new double[this.logPrior.length];
+        final List<Classification<String, K>> classifications = new ArrayList<>(documents.size());
+        for (final Collection<String> features: documents) classifications.add(classify(features, scores));
+        return classifications;
+    }
+
+    private Classification<String, K> classify(final Collection<String> features, final double[] scores) {
+        if (scores.length == 0) return null;
+        scores(features, scores);
+        int best = 0;
+        for (int j = 1; j < scores.length; j++) if (scores[j] > scores[best]) best = j;
+        // the probability of the best category is normalized against all categories
+        double sum = 0.0d;
+        for (int j = 0; j < scores.length; j++) sum += Math.exp(scores[j] - scores[best]);
+        return new Classification<String, K>(features, this.categories.get(best), (float) (1.0d / sum));
+    }
+
+    /**
+     * compare the classification speed and the results of a BayesClassifier and the frozen classifier
+     * with random texts. The BayesClassifier results of long texts are random when the float products underflow.
+     */
+    public static void main(final String[] args) {
+        final int categoryCount = 8, vocabulary = 20000, examples = 2000, texts = 2000, length = 50;
+        final Random random = new Random(1);
+        final BayesClassifier<String, String> bayes = new BayesClassifier<>();
+        bayes.setMemoryCapacity(examples);
+        for (int e = 0; e < examples; e++) {
+            final int category = e % categoryCount;
+            final List<String> features = new ArrayList<>();
+            // each category prefers its own part of the vocabulary
+            for (int i = 0; i < length; i++) features.add("w" + (random.nextBoolean() ? category * vocabulary / categoryCount + random.nextInt(vocabulary / categoryCount) : random.nextInt(vocabulary)));
+            bayes.learn("c" + category, features);
+        }
+        final List<List<String>> documents = new ArrayList<>();
+        for (int t = 0; t < texts; t++) {
+            final int category = t % categoryCount;
+            final List<String> features = new ArrayList<>();
+            for (int i = 0; i < length; i++) features.add("w" + (random.nextBoolean() ? category * vocabulary / categoryCount + random.nextInt(vocabulary / categoryCount) : random.nextInt(vocabulary)));
+            documents.add(features);
+        }
+        long start = System.currentTimeMillis();
+        final FrozenBayesClassifier<String> frozen = new FrozenBayesClassifier<>(bayes);
+        System.out.println("freeze: " + (System.currentTimeMillis() - start) + " ms, " + frozen.size() + " features");
+        for (int round = 0; round < 3; round++) {
+            start = System.currentTimeMillis();
+            final List<String> b = new ArrayList<>();
+            for (final List<String> features: documents) b.add(bayes.classify(features).getCategory());
+            final long bayesTime = System.currentTimeMillis() - start;
+            start = System.currentTimeMillis();
+            final List<Classification<String, String>> f = frozen.classify(documents);
+            final long frozenTime = System.currentTimeMillis() - start;
+            int same = 0, bayesCorrect = 0, frozenCorrect = 0;
+            for (int t = 0; t < texts; t++) {
+                final String category = "c" + (t % categoryCount);
+                if (b.get(t).equals(f.get(t).getCategory())) same++;
+                if (b.get(t).equals(category)) bayesCorrect++;
+                if (f.get(t).getCategory().equals(category)) frozenCorrect++;
+            }
+            System.out.println("bayes: " + bayesTime + " ms, " + bayesCorrect + " correct; frozen: " + frozenTime + " ms, " + frozenCorrect + " correct; same result: " + same + "/" + texts);
+        }
+    }
+}
@@ -28,7 +28,6 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
-import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -39,7 +38,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPInputStream;
 
-import net.yacy.cora.sorting.OrderedScoreMap;
+import net.yacy.cora.sorting.ConcurrentHeavyHitters;
 import net.yacy.cora.util.StringBuilderComparator;
 import net.yacy.grid.tools.Logger;
 
@@ -52,7 +51,8 @@ public class WordCache {
     // common word cache
     private static final int commonWordsMaxSize = 20000;  // maximum size of common word cache
     private static final int commonWordsMinLength = 5;    // words must have that length at minimum
-    private static OrderedScoreMap<StringBuilder> commonWords = new OrderedScoreMap<StringBuilder>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
+    private static final int commonWordsSketchWidth = 1 << 16; // counters for each row of the count-min sketch of the less common words
+    private static final ConcurrentHeavyHitters commonWords = new ConcurrentHeavyHitters(commonWordsMaxSize, commonWordsSketchWidth);
 
     // dictionaries
     private final File dictionaryPath;
@@ -204,7 +204,7 @@ public class WordCache {
     }
 
     /**
-     * add a word to the generic dictionary
+     * add a word to the generic dictionary; this can be called concurrently without a lock
      * @param word
      */
     public static void learn(final StringBuilder word) {
@@ -215,9 +215,6 @@ public class WordCache {
             return;
         }
         commonWords.inc(word);
-        if (!(commonWords.sizeSmaller(commonWordsMaxSize))) {
-            commonWords.shrinkToMaxSize(commonWordsMaxSize / 2);
-        }
     }
 
     public static void learn(Collection<String> wordset) {
@@ -267,17 +264,13 @@ public class WordCache {
         }
         final SortedMap<StringBuilder, AtomicInteger> u = commonWords.tailMap(string);
         StringBuilder vv;
-        try {
-            for (final Map.Entry<StringBuilder, AtomicInteger> v: u.entrySet()) {
-                vv = v.getKey();
-                if (StringBuilderComparator.CASE_INSENSITIVE_ORDER.startsWith(vv, string) && vv.length() > string.length()) {
-                    ret.add(vv);
-                } else {
-                    break;
-                }
+        for (final Map.Entry<StringBuilder, AtomicInteger> v: u.entrySet()) {
+            vv = v.getKey();
+            if (StringBuilderComparator.CASE_INSENSITIVE_ORDER.startsWith(vv, string) && vv.length() > string.length()) {
+                ret.add(vv);
+            } else {
+                break;
             }
-        } catch (final ConcurrentModificationException e) {
-            Logger.warn(this.getClass(), e);
         }
         return ret;
     }
@@ -0,0 +1,288 @@
+/**
+ *  CollectionMatcher
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled set of collection definitions. Collections are given as a map from collection name to a
+ * regular expression which must match the full url. Instead of testing every pattern against every url,
+ * the literal prefix of each pattern (i.e. "http://www.example.com/") is stored in a prefix tree and only
+ * those patterns whose prefix matches the url are evaluated. Patterns which are a plain literal, a
+ * "contains" expression like ".*literal.*" or the catch-all ".*" are decided without the regex engine.
+ * A matcher is immutable and can be shared between threads; it should be compiled once for each crawl.
+ */
+public class CollectionMatcher {
+
+    private static final char ANY = '\uFFFF'; // a non-character which stands for the regex wildcard '.' within a prefix
+
+    private static final byte KIND_ALL = 0;      // ".*", matches everything
+    private static final byte KIND_LITERAL = 1;  // no meta characters at all, url must be equal
+    private static final byte KIND_CONTAINS = 2; // ".*literal.*", url must contain the literal
+    private static final byte KIND_PREFIX = 3;   // regex with a literal prefix, indexed in the prefix tree
+    private static final byte KIND_REGEX = 4;    // regex without usable prefix, always evaluated
+
+    private final String definition;
+    private final String[] names;
+    private final Pattern[] patterns;
+    private final byte[] kinds;
+    private final String[] literals;
+    private final BitSet unindexed;
+    private final Node root;
+
+    private static class Node {
+        private final Map<Character, Node> next = new HashMap<>();
+        private Node any = null;
+        private int[] hits = new int[0];
+
+        private Node child(final char c) {
+            if (c == ANY) {
+                if (this.any == null) this.any = new Node();
+                return this.any;
+            }
+            Node n = this.next.get(c);
+            if (n == null) {
+                n = new Node();
+                this.next.put(c, n);
+            }
+            return n;
+        }
+
+        private void addHit(final int i) {
+            final int[] h = new int[this.hits.length + 1];
+            System.arraycopy(this.hits, 0, h, 0, this.hits.length);
+            h[this.hits.length] = i;
+            this.hits = h;
+        }
+    }
+
+    /**
+     * compile a set of collections
+     * @param definition the original collection definition string, used to identify the matcher, may be null
+     * @param collections a map from collection name to url pattern as produced by WebMapping.collectionParser
+     */
+    public CollectionMatcher(final String definition, final Map<String, Pattern> collections) {
+        this.definition = definition == null ? "" : definition;
+        final int size = collections == null ? 0 : collections.size();
+        this.names = new String[size];
+        this.patterns = new Pattern[size];
+        this.kinds = new byte[size];
+        this.literals = new String[size];
+        this.unindexed = new BitSet(size);
+        this.root = new Node();
+        if (size == 0) return;
+        int i = 0;
+        for (final Map.Entry<String, Pattern> e: collections.entrySet()) {
+            final Pattern pattern = e.getValue();
+            final String regex = pattern.pattern();
+            this.names[i] = e.getKey();
+            this.patterns[i] = pattern;
+            final boolean plain = (pattern.flags() & ~Pattern.UNICODE_CASE) == 0; // flags like CASE_INSENSITIVE disable all shortcuts
+            final StringBuilder prefix = new StringBuilder();
+            if (plain && regex.equals(".*")) {
+                this.kinds[i] = KIND_ALL;
+                this.unindexed.set(i);
+            } else if (plain && literalPrefix(regex, 0, regex.length(), prefix) == regex.length() && prefix.indexOf(String.valueOf(ANY)) < 0) {
+                this.kinds[i] = KIND_LITERAL;
+                this.literals[i] = prefix.toString();
+                this.unindexed.set(i);
+            } else if (plain && regex.length() > 4 && regex.startsWith(".*") && regex.endsWith(".*") && !regex.endsWith("\\.*") &&
+                    literalPrefix(regex, 2, regex.length() - 2, prefix) == regex.length() - 2 && prefix.length() > 0 && prefix.indexOf(String.valueOf(ANY)) < 0) {
+                this.kinds[i] = KIND_CONTAINS;
+                this.literals[i] = prefix.toString();
+                this.unindexed.set(i);
+            } else {
+                prefix.setLength(0);
+                if (plain && !hasTopLevelAlternation(regex)) literalPrefix(regex, 0, regex.length(), prefix);
+                if (prefix.length() > 0) {
+                    this.kinds[i] = KIND_PREFIX;
+                    Node node = this.root;
+                    for (int j = 0; j < prefix.length(); j++) node = node.child(prefix.charAt(j));
+                    node.addHit(i);
+                } else {
+                    this.kinds[i] = KIND_REGEX;
+                    this.unindexed.set(i);
+                }
+            }
+            i++;
+        }
+    }
+
+    /**
+     * @return the definition string which was used to create this matcher
+     */
+    public String getDefinition() {
+        return this.definition;
+    }
+
+    public boolean isEmpty() {
+        return this.names.length == 0;
+    }
+
+    public int size() {
+        return this.names.length;
+    }
+
+    /**
+     * compute all collections which match the given url
+     * @param url the normalized url string
+     * @return the collection names in the same order as in the collection definition
+     */
+    public List<String> match(final String url) {
+        final List<String> cs = new ArrayList<>(2);
+        if (this.names.length == 0) return cs;
+
+        // collect candidates from the prefix tree; the active node list is small because only '.' wildcards branch.
+        // The two node lists are allocated once for each call and swapped after each character.
+        final BitSet candidates = (BitSet) this.unindexed.clone();
+        Node[] active = new Node[4], successors = new Node[4];
+        active[0] = this.root;
+        int activeCount = 1;
+        for (int p = 0; p < url.length() && activeCount > 0; p++) {
+            final char c = url.charAt(p);
+            int successorCount = 0;
+            for (int a = 0; a < activeCount; a++) {
+                final Node node = active[a];
+                final Node n = node.next.get(c);
+                if (n != null) {
+                    for (final int h: n.hits) candidates.set(h);
+                    if (successorCount == successors.length) successors = Arrays.copyOf(successors, successorCount * 2);
+                    successors[successorCount++] = n;
+                }
+                if (node.any != null && c != '\n' && c != '\r') {
+                    for (final int h: node.any.hits) candidates.set(h);
+                    if (successorCount == successors.length) successors = Arrays.copyOf(successors, successorCount * 2);
+                    successors[successorCount++] = node.any;
+                }
+            }
+            final Node[] t = active;
+            active = successors;
+            successors = t;
+            activeCount = successorCount;
+        }
+
+        // evaluate only the candidates
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            final boolean matches;
+            switch (this.kinds[i]) {
+                case KIND_ALL: matches = true; break;
+                case KIND_LITERAL: matches = url.equals(this.literals[i]); break;
+                case KIND_CONTAINS: matches = url.indexOf(this.literals[i]) >= 0; break;
+                default: matches = this.patterns[i].matcher(url).matches();
+            }
+            if (matches) cs.add(this.names[i]);
+        }
+        return cs;
+    }
+
+    /**
+     * parse the literal prefix of a regular expression. Unescaped '.' characters are written as ANY.
+     * The parser stops at the first meta character; an atom which is followed by a quantifier is not part of the prefix.
+     * @param regex the regular expression
+     * @param start the first position to parse
+     * @param end the position after the last character to parse
+     * @param prefix the target for the prefix
+     * @return the position where parsing stopped; this is equal to end if the whole range is a literal
+     */
+    private static int literalPrefix(final String regex, final int start, final int end, final StringBuilder prefix) {
+        int i = start;
+        if (i == 0 && i < end && regex.charAt(i) == '^') i++;
+        while (i < end) {
+            final int atomPos = i;
+            final int atomLen = prefix.length();
+            final char c = regex.charAt(i);
+            if (Character.isSurrogate(c)) return atomPos;
+            if (c == '\\') {
+                if (i + 1 >= end) return atomPos;
+                final char d = regex.charAt(i + 1);
+                if (Character.isLetterOrDigit(d) || Character.isSurrogate(d)) return atomPos; // character classes, \Q, back references
+                prefix.append(d);
+                i += 2;
+            } else if (c == '.') {
+                prefix.append(ANY);
+                i++;
+            } else if ("[](){}*+?^$|".indexOf(c) >= 0) {
+                return atomPos;
+            } else {
+                prefix.append(c);
+                i++;
+            }
+            if (i < end && "*+?{".indexOf(regex.charAt(i)) >= 0) {
+                prefix.setLength(atomLen);
+                return atomPos;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * check if a regular expression contains an alternation which is not enclosed in a group;
+     * in that case the prefix of the first alternative is not a prefix of the whole expression
+     */
+    private static boolean hasTopLevelAlternation(final String regex) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {i++; continue;}
+            if (inClass) {
+                if (c == ']') inClass = false;
+                continue;
+            }
+            if (c == '[') inClass = true;
+            else if (c == '(') depth++;
+            else if (c == ')') depth--;
+            else if (c == '|' && depth == 0) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return this.definition;
+    }
+
+    public static void main(final String[] args) {
+        final Map<String, Pattern> collections = new LinkedHashMap<>();
+        collections.put("all", Pattern.compile(".*"));
+        collections.put("yacy", Pattern.compile("https?://yacy.net/.*"));
+        collections.put("yacyhttps", Pattern.compile("https://yacy\\.net/.*"));
+        collections.put("wiki", Pattern.compile(".*wiki.*"));
+        collections.put("home", Pattern.compile("https://yacy.net/"));
+        collections.put("alt", Pattern.compile("http://a.org/.*|https://yacy.net/.*"));
+        collections.put("pdf", Pattern.compile(".*\\.pdf"));
+        final CollectionMatcher matcher = new CollectionMatcher("test", collections);
+        final String[] urls = new String[]{"https://yacy.net/", "http://yacy.net/wiki/", "https://yacy.net/doc.pdf", "https://example.org/"};
+        for (final String url: urls) {
+            final List<String> reference = new ArrayList<>();
+            for (final Map.Entry<String, Pattern> e: collections.entrySet()) {
+                if (e.getValue().matcher(url).matches()) reference.add(e.getKey());
+            }
+            System.out.println(url + " -> " + matcher.match(url) + (reference.equals(matcher.match(url)) ? "" : " ERROR, expected " + reference));
+        }
+    }
+}
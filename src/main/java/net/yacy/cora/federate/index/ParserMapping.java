@@ -0,0 +1,86 @@
+/**
+ *  ParserMapping
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.index;
+
+/**
+ * Index fields which are written by the parser in addition to the fields of WebMapping.
+ * The type of a field is given by the suffix of its name, as in WebMapping.
+ * Dynamic fields carry a name part, i.e. the name of a vocabulary; their field name is
+ * the enum name with that part inserted before the suffix.
+ */
+public enum ParserMapping {
+
+    // autotagging
+    vocabulary_sxt(true, true, "tags of the autotagging vocabulary <name>, field name vocabulary_<name>_sxt"),
+    vocabulary_i(true, false, "number of tags of the autotagging vocabulary <name>, field name vocabulary_<name>_i"),
+
+    // template detection
+    text_boilerplate_val(false, true, "start and end positions of the text blocks in text_t which appear in several documents of the host"),
+    inboundlinks_boilerplate_val(false, true, "positions of the links in inboundlinks_sxt which appear in several documents of the host"),
+    outboundlinks_boilerplate_val(false, true, "positions of the links in outboundlinks_sxt which appear in several documents of the host");
+
+    private final boolean dynamic, multiValued;
+    private final String comment;
+
+    private ParserMapping(final boolean dynamic, final boolean multiValued, final String comment) {
+        this.dynamic = dynamic;
+        this.multiValued = multiValued;
+        this.comment = comment;
+    }
+
+    public boolean isDynamic() {
+        return this.dynamic;
+    }
+
+    public boolean isMultiValued() {
+        return this.multiValued;
+    }
+
+    public String getComment() {
+        return this.comment;
+    }
+
+    /**
+     * @return the name of the field in the index; dynamic fields have no name without a name part
+     */
+    public String getFieldName() {
+        if (this.dynamic) throw new UnsupportedOperationException(name() + " is a dynamic field");
+        return name();
+    }
+
+    /**
+     * @param part the name part of a dynamic field
+     * @return the name of the field in the index
+     */
+    public String getFieldName(final String part) {
+        if (!this.dynamic) throw new UnsupportedOperationException(name() + " is not a dynamic field");
+        final String name = name();
+        final int p = name.lastIndexOf('_');
+        return name.substring(0, p + 1) + part + name.substring(p);
+    }
+
+    /**
+     * @return the type suffix of the field name, i.e. "_sxt"
+     */
+    public String getSuffix() {
+        final String name = name();
+        return name.substring(name.lastIndexOf('_'));
+    }
+}
@@ -37,7 +37,6 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -45,9 +44,11 @@ import org.json.JSONObject;
 import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.protocol.ResponseHeader;
-import net.yacy.document.DateDetection;
 import net.yacy.document.Document;
+import net.yacy.document.LibraryProvider;
 import net.yacy.document.SentenceReader;
+import net.yacy.document.TextAnalyzer;
+import net.yacy.document.URLTable;
 import net.yacy.document.parser.htmlParser;
 import net.yacy.document.parser.html.ImageEntry;
 import net.yacy.document.parser.html.Scraper;
@@ -123,19 +124,18 @@ public class WebConfiguration implements Serializable {
         }
     }
 
-    public static boolean enrichSubgraph(final Subgraph subgraph, final MultiProtocolURL source_url, final AnchorURL target_url) {
-        final String text = target_url.getTextProperty(); // the text between the <a></a> tag
-        final String source_host = source_url.getHost();
-        final String target_host = target_url.getHost();
-        final boolean inbound =
-                (source_host == null && target_host == null) ||
-                (source_host != null && target_host != null &&
-                 (target_host.equals(source_host) ||
-                  target_host.equals("www." + source_host) ||
-                  source_host.equals("www." + target_host))); // well, not everybody defines 'outbound' that way but however, thats used here.
+    /**
+     * add a link to the subgraph, using the url properties of the document
+     * @param subgraph the subgraph
+     * @param urlTable the url table of the source document
+     * @param target_url the link
+     * @return true if the link is inbound
+     */
+    public static boolean enrichSubgraph(final Subgraph subgraph, final URLTable urlTable, final AnchorURL target_url) {
+        final boolean inbound = urlTable.isSameSite(target_url); // well, not everybody defines 'outbound' that way but however, thats used here.
         final int ioidx = inbound ? 0 : 1;
-        subgraph.urls[ioidx].add(target_url.toNormalform(true));
-        subgraph.urlAnchorTexts[ioidx].add(text);
+        subgraph.urls[ioidx].add(LibraryProvider.urlRewriter.apply(urlTable.normalform(target_url, true)));
+        subgraph.urlAnchorTexts[ioidx].add(target_url.getTextProperty()); // the text between the <a></a> tag
         return inbound;
     }
 
@@ -197,11 +197,12 @@ public class WebConfiguration implements Serializable {
     }
 
     public static JSONObject yacy2solr(
-            final Map<String, Pattern> collections, final ResponseHeader responseHeader,
+            final CollectionMatcher collections, final ResponseHeader responseHeader,
             final Document document, final MultiProtocolURL referrerURL, final String language, final boolean setUnique,
             final int timezoneOffset) {
         // we use the SolrCell design as index schema
         final MultiProtocolURL digestURL = document.dc_source();
+        final URLTable urlTable = document.getURLTable();
         final JSONObject doc = new JSONObject(true);
         final String url = addURIAttributes(doc, digestURL);
         add(doc, WebMapping.content_type, new String[]{document.dc_format()}); // content_type (mime) is defined a schema field and we rely on it in some queries like imagequery (makes it mandatory, no need to check)
@@ -211,14 +212,11 @@ public class WebConfiguration implements Serializable {
         final int crawldepth = document.getDepth();
         add(doc, WebMapping.crawldepth_i, crawldepth);
 
-        if (collections != null && collections.size() > 0) {
-            final List<String> cs = new ArrayList<String>();
-            for (final Map.Entry<String, Pattern> e: collections.entrySet()) {
-                if (e.getValue().matcher(url).matches()) cs.add(e.getKey());
-            }
-            add(doc, WebMapping.collection_sxt, cs);
+        if (collections != null && !collections.isEmpty()) {
+            add(doc, WebMapping.collection_sxt, collections.match(url));
         }
 
+        final TextAnalyzer analyzer = TextAnalyzer.get();
         final List<String> titles = document.titles();
         add(doc, WebMapping.title, titles);
         add(doc, WebMapping.title_count_i, titles.size());
@@ -227,7 +225,7 @@ public class WebConfiguration implements Serializable {
         add(doc, WebMapping.title_chars_val, cv);
 
         cv = new ArrayList<Integer>(titles.size());
-        for (final String s: titles) cv.add(Integer.valueOf(CommonPattern.SPACES.split(s).length));
+        for (final String s: titles) cv.add(Integer.valueOf(analyzer.analyze(s, false).words()));
         add(doc, WebMapping.title_words_val, cv);
 
         final String[] descriptions = document.dc_description();
@@ -239,7 +237,7 @@ public class WebConfiguration implements Serializable {
         add(doc, WebMapping.description_chars_val, cv);
 
         cv = new ArrayList<Integer>(descriptions.length);
-        for (final String s: descriptions) cv.add(Integer.valueOf(CommonPattern.SPACES.split(s).length));
+        for (final String s: descriptions) cv.add(Integer.valueOf(analyzer.analyze(s, false).words()));
         add(doc, WebMapping.description_words_val, cv);
 
         String author = document.dc_creator();
@@ -256,7 +254,10 @@ public class WebConfiguration implements Serializable {
 
         String content = document.getTextString();
 
-        final LinkedHashSet<Date> dates_in_content = DateDetection.parse(content, timezoneOffset);
+        // one pass over the content for the word count and the date candidates
+        analyzer.analyze(content, true);
+        int contentwc = analyzer.words();
+        final LinkedHashSet<Date> dates_in_content = analyzer.dates();
 
         add(doc, WebMapping.dates_in_content_count_i, dates_in_content.size());
 
@@ -265,6 +266,13 @@ public class WebConfiguration implements Serializable {
         final String keywords = document.dc_subject(' ');
         add(doc, WebMapping.keywords, keywords);
 
+        // autotagging vocabularies
+        for (final Map.Entry<String, Set<String>> facet: document.getGenericFacets().entrySet()) {
+            if (facet.getValue().isEmpty()) continue;
+            doc.put(ParserMapping.vocabulary_sxt.getFieldName(facet.getKey()), new JSONArray(facet.getValue()));
+            doc.put(ParserMapping.vocabulary_i.getFieldName(facet.getKey()), (long) facet.getValue().size());
+        }
+
         // unique-fields; these values must be corrected during postprocessing. (the following logic is !^ (not-xor) but I prefer to write it that way as it is)
         add(doc, WebMapping.http_unique_b, setUnique || UNIQUE_HEURISTIC_PREFER_HTTPS ? digestURL.isHTTPS() : digestURL.isHTTP()); // this must be corrected afterwards during storage!
         add(doc, WebMapping.www_unique_b, setUnique || host != null && (UNIQUE_HEURISTIC_PREFER_WWWPREFIX ? host.startsWith("www.") : !host.startsWith("www."))); // this must be corrected afterwards during storage!
@@ -394,7 +402,7 @@ public class WebConfiguration implements Serializable {
             if (articles.size() > 0) add(doc, WebMapping.article_txt, articles);
 
             // images
-            processImages(doc, inboundLinks, outboundLinks, images);
+            processImages(doc, urlTable, inboundLinks, outboundLinks, images);
 
             // style sheets
             final Map<MultiProtocolURL, String> csss = html.getCSS();
@@ -402,7 +410,7 @@ public class WebConfiguration implements Serializable {
             final String[] css_url = new String[csss.size()];
             c = 0;
             for (final Map.Entry<MultiProtocolURL, String> entry: csss.entrySet()) {
-                final String cssurl = entry.getKey().toNormalform(false);
+                final String cssurl = urlTable.normalform(entry.getKey(), false);
                 inboundLinks.remove(entry.getKey());
                 outboundLinks.remove(entry.getKey());
                 css_tag[c] =
@@ -416,26 +424,12 @@ public class WebConfiguration implements Serializable {
             if (css_url.length > 0) add(doc, WebMapping.css_url_sxt, css_url);
 
             // Scripts
-            final Set<AnchorURL> scriptss = html.getScript();
-            final String[] scripts = new String[scriptss.size()];
-            c = 0;
-            for (final AnchorURL u: scriptss) {
-                inboundLinks.remove(u);
-                outboundLinks.remove(u);
-                scripts[c++] = u.toNormalform(false);
-            }
+            final String[] scripts = removeLinks(html.getScript(), urlTable, inboundLinks, outboundLinks);
             add(doc, WebMapping.scriptscount_i, scripts.length);
             if (scripts.length > 0) add(doc, WebMapping.scripts_sxt, scripts);
 
             // Frames
-            final Set<AnchorURL> framess = html.getFrames();
-            final String[] frames = new String[framess.size()];
-            c = 0;
-            for (final AnchorURL u: framess) {
-                inboundLinks.remove(u);
-                outboundLinks.remove(u);
-                frames[c++] = u.toNormalform(false);
-            }
+            final String[] frames = removeLinks(html.getFrames(), urlTable, inboundLinks, outboundLinks);
             add(doc, WebMapping.framesscount_i, frames.length);
             if (frames.length > 0) {
                 add(doc, WebMapping.frames_sxt, frames);
@@ -443,14 +437,7 @@ public class WebConfiguration implements Serializable {
             }
 
             // IFrames
-            final Set<AnchorURL> iframess = html.getIFrames();
-            final String[] iframes = new String[iframess.size()];
-            c = 0;
-            for (final AnchorURL u: iframess) {
-                inboundLinks.remove(u);
-                outboundLinks.remove(u);
-                iframes[c++] = u.toNormalform(false);
-            }
+            final String[] iframes = removeLinks(html.getIFrames(), urlTable, inboundLinks, outboundLinks);
             add(doc, WebMapping.iframesscount_i, iframes.length);
             if (iframes.length > 0) {
                 add(doc, WebMapping.iframes_sxt, iframes);
@@ -458,23 +445,7 @@ public class WebConfiguration implements Serializable {
             }
 
             // canonical tag
-            canonical = html.getCanonical();
-            // if there is no canonical in the html then look into the http header:
-            if (canonical == null && responseHeader != null) {
-                String link = responseHeader.get("Link", null);
-                int p;
-                if (link != null && ((p = link.indexOf("rel=\"canonical\"")) > 0)) {
-                    link = link.substring(0, p).trim();
-                    p = link.indexOf('<');
-                    final int q = link.lastIndexOf('>');
-                    if (p >= 0 && q > 0) {
-                        link = link.substring(p + 1, q);
-                        try {
-                            canonical = new MultiProtocolURL(link);
-                        } catch (final MalformedURLException e) {}
-                    }
-                }
-            }
+            canonical = getCanonical(html, responseHeader);
             if (canonical != null) {
                 inboundLinks.remove(canonical);
                 outboundLinks.remove(canonical);
@@ -526,7 +497,7 @@ public class WebConfiguration implements Serializable {
             c = 0;
             for (final Map.Entry<String, MultiProtocolURL> e: html.getHreflang().entrySet()) {
                 ccs[c] = e.getKey();
-                urls[c] = e.getValue().toNormalform(true);
+                urls[c] = urlTable.normalform(e.getValue(), true);
                 c++;
             }
             add(doc, WebMapping.hreflang_cc_sxt, ccs);
@@ -538,7 +509,7 @@ public class WebConfiguration implements Serializable {
             c = 0;
             for (final Map.Entry<String, MultiProtocolURL> e: html.getNavigation().entrySet()) {
                 navs[c] = e.getKey();
-                urls[c] = e.getValue().toNormalform(true);
+                urls[c] = urlTable.normalform(e.getValue(), true);
                 c++;
             }
             add(doc, WebMapping.navigation_type_sxt, navs);
@@ -546,7 +517,7 @@ public class WebConfiguration implements Serializable {
 
             // publisher url as defined in http://support.google.com/plus/answer/1713826?hl=de
             if (html.getPublisherLink() != null) {
-                add(doc, WebMapping.publisher_url_s, html.getPublisherLink().toNormalform(true));
+                add(doc, WebMapping.publisher_url_s, urlTable.normalform(html.getPublisherLink(), true));
             }
         }
 
@@ -574,37 +545,15 @@ public class WebConfiguration implements Serializable {
 
             add(doc, WebMapping.images_text_t, content); // the content may contain the exif data from the image parser
             content = digestURL.toTokens(); // remove all other entry but the url tokens
+            contentwc = analyzer.analyze(content, false).words();
         }
 
         // content (must be written after special parser data, since this can influence the content)
         add(doc, WebMapping.text_t, content);
-        if (content.length() == 0) {
-            add(doc, WebMapping.wordcount_i, 0);
-        } else {
-            int contentwc = 1;
-            for (int i = content.length() - 1; i >= 0; i--) if (content.charAt(i) == ' ') contentwc++;
-            add(doc, WebMapping.wordcount_i, contentwc);
-        }
+        add(doc, WebMapping.wordcount_i, contentwc);
 
-        // statistics about the links
-        add(doc, WebMapping.linkscount_i, inboundLinks.size() + outboundLinks.size());
-        add(doc, WebMapping.linksnofollowcount_i, document.inboundLinkNofollowCount() + document.outboundLinkNofollowCount());
-        add(doc, WebMapping.inboundlinkscount_i, inboundLinks.size());
-        add(doc, WebMapping.inboundlinksnofollowcount_i, document.inboundLinkNofollowCount());
-        add(doc, WebMapping.outboundlinkscount_i, outboundLinks.size());
-        add(doc, WebMapping.outboundlinksnofollowcount_i, document.outboundLinkNofollowCount());
-
-        // create a subgraph
-        final Subgraph subgraph = new Subgraph(inboundLinks.size(), outboundLinks.size());
-        for (final AnchorURL target_url: document.getHyperlinks().keySet()) {
-            enrichSubgraph(subgraph, digestURL, target_url);
-        }
-
-        // attach the subgraph content
-        add(doc, WebMapping.inboundlinks_sxt, subgraph.urls[0]);
-        add(doc, WebMapping.inboundlinks_anchortext_txt, subgraph.urlAnchorTexts[0]);
-        add(doc, WebMapping.outboundlinks_sxt, subgraph.urls[1]);
-        add(doc, WebMapping.outboundlinks_anchortext_txt, subgraph.urlAnchorTexts[1]);
+        // statistics about the links and the subgraph
+        addLinks(doc, document, urlTable, inboundLinks, outboundLinks);
 
         // charset
         add(doc, WebMapping.charset_s, document.getCharset());
@@ -643,16 +592,162 @@ public class WebConfiguration implements Serializable {
         return doc;
     }
 
+    /**
+     * Light version of yacy2solr for non-canonical documents. Such documents are not written to the web index,
+     * they are only used for the crawler status and the link graph. Therefore only the url attributes, the canonical
+     * link and the graph attributes are computed; text, dates, html fields and linked data are omitted.
+     * Link counts and the subgraph are computed in the same way as in yacy2solr.
+     * @param collections
+     * @param responseHeader
+     * @param document
+     * @return a json document which contains all graph attributes
+     */
+    public static JSONObject yacy2graph(final CollectionMatcher collections, final ResponseHeader responseHeader, final Document document) {
+        final MultiProtocolURL digestURL = document.dc_source();
+        final URLTable urlTable = document.getURLTable();
+        final JSONObject doc = new JSONObject(true);
+        final String url = addURIAttributes(doc, digestURL);
+        add(doc, WebMapping.content_type, new String[]{document.dc_format()});
+        add(doc, WebMapping.crawldepth_i, document.getDepth());
+
+        if (collections != null && !collections.isEmpty()) {
+            add(doc, WebMapping.collection_sxt, collections.match(url));
+        }
+        add(doc, WebMapping.title, document.titles());
+
+        final LinkedHashMap<MultiProtocolURL,String> inboundLinks = document.inboundLinks();
+        final LinkedHashMap<MultiProtocolURL,String> outboundLinks = document.outboundLinks();
+        final Object scraper = document.getScraperObject();
+        if (scraper instanceof Scraper) {
+            final Scraper html = (Scraper) scraper;
+
+            // remove all links from inbound/outbound links which are not anchors, as done in yacy2solr
+            processImages(doc, urlTable, inboundLinks, outboundLinks, html.getImages());
+            for (final MultiProtocolURL u: html.getCSS().keySet()) {
+                inboundLinks.remove(u);
+                outboundLinks.remove(u);
+            }
+            removeLinks(html.getScript(), urlTable, inboundLinks, outboundLinks);
+            final String[] frames = removeLinks(html.getFrames(), urlTable, inboundLinks, outboundLinks);
+            add(doc, WebMapping.framesscount_i, frames.length);
+            if (frames.length > 0) add(doc, WebMapping.frames_sxt, frames);
+            final String[] iframes = removeLinks(html.getIFrames(), urlTable, inboundLinks, outboundLinks);
+            add(doc, WebMapping.iframesscount_i, iframes.length);
+            if (iframes.length > 0) add(doc, WebMapping.iframes_sxt, iframes);
+
+            final MultiProtocolURL canonical = getCanonical(html, responseHeader);
+            if (canonical != null) {
+                inboundLinks.remove(canonical);
+                outboundLinks.remove(canonical);
+                add(doc, WebMapping.canonical_s, canonical.toNormalform(false));
+                add(doc, WebMapping.canonical_equal_sku_b, canonical.equals(digestURL));
+            }
+
+            final String refresh = html.getRefreshPath();
+            if (refresh != null && refresh.length() > 0) try {
+                final MultiProtocolURL refreshURL = refresh.startsWith("http") ? new MultiProtocolURL(refresh) : new MultiProtocolURL(digestURL, refresh);
+                inboundLinks.remove(refreshURL);
+                outboundLinks.remove(refreshURL);
+            } catch (final MalformedURLException e) {}
+
+            for (final MultiProtocolURL u: html.getFlash()) {
+                inboundLinks.remove(u);
+                outboundLinks.remove(u);
+            }
+        }
+
+        addLinks(doc, document, urlTable, inboundLinks, outboundLinks);
+        add(doc, WebMapping.httpstatus_i, responseHeader == null ? 200 : responseHeader.getStatusCode());
+        return doc;
+    }
+
+    /**
+     * get the canonical url of a html document. This is taken from the link tag in the html head
+     * or, if that does not exist, from the Link property of the http response header.
+     * @param html the scraper of the document
+     * @param responseHeader the http response header, may be null
+     * @return the canonical url or null if the document does not declare one
+     */
+    public static MultiProtocolURL getCanonical(final Scraper html, final ResponseHeader responseHeader) {
+        MultiProtocolURL canonical = html.getCanonical();
+        // if there is no canonical in the html then look into the http header:
+        if (canonical == null && responseHeader != null) {
+            String link = responseHeader.get("Link", null);
+            int p;
+            if (link != null && ((p = link.indexOf("rel=\"canonical\"")) > 0)) {
+                link = link.substring(0, p).trim();
+                p = link.indexOf('<');
+                final int q = link.lastIndexOf('>');
+                if (p >= 0 && q > 0) {
+                    link = link.substring(p + 1, q);
+                    try {
+                        canonical = new MultiProtocolURL(link);
+                    } catch (final MalformedURLException e) {}
+                }
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * check if a document has a canonical url which is not the document url itself.
+     * This is the same test which is used to omit documents from indexing: the url_s value is compared with canonical_s.
+     * @param document
+     * @param responseHeader the http response header, may be null
+     * @return true if the document is not canonical and shall not be indexed
+     */
+    public static boolean isNonCanonical(final Document document, final ResponseHeader responseHeader) {
+        final Object scraper = document.getScraperObject();
+        if (!(scraper instanceof Scraper)) return false;
+        final MultiProtocolURL canonical = getCanonical((Scraper) scraper, responseHeader);
+        return canonical != null && !document.dc_source().toNormalform(true).equals(canonical.toNormalform(false));
+    }
+
+    private static String[] removeLinks(final Collection<AnchorURL> links, final URLTable urlTable,
+            final LinkedHashMap<MultiProtocolURL, String> inboundLinks, final LinkedHashMap<MultiProtocolURL, String> outboundLinks) {
+        final String[] urls = new String[links.size()];
+        int c = 0;
+        for (final AnchorURL u: links) {
+            inboundLinks.remove(u);
+            outboundLinks.remove(u);
+            urls[c++] = LibraryProvider.urlRewriter.apply(urlTable.normalform(u, false));
+        }
+        return urls;
+    }
+
+    private static void addLinks(final JSONObject doc, final Document document, final URLTable urlTable,
+            final LinkedHashMap<MultiProtocolURL, String> inboundLinks, final LinkedHashMap<MultiProtocolURL, String> outboundLinks) {
+        // statistics about the links
+        add(doc, WebMapping.linkscount_i, inboundLinks.size() + outboundLinks.size());
+        add(doc, WebMapping.linksnofollowcount_i, document.inboundLinkNofollowCount() + document.outboundLinkNofollowCount());
+        add(doc, WebMapping.inboundlinkscount_i, inboundLinks.size());
+        add(doc, WebMapping.inboundlinksnofollowcount_i, document.inboundLinkNofollowCount());
+        add(doc, WebMapping.outboundlinkscount_i, outboundLinks.size());
+        add(doc, WebMapping.outboundlinksnofollowcount_i, document.outboundLinkNofollowCount());
+
+        // create a subgraph
+        final Subgraph subgraph = new Subgraph(inboundLinks.size(), outboundLinks.size());
+        for (final AnchorURL target_url: document.getHyperlinks().keySet()) {
+            enrichSubgraph(subgraph, urlTable, target_url);
+        }
+
+        // attach the subgraph content
+        add(doc, WebMapping.inboundlinks_sxt, subgraph.urls[0]);
+        add(doc, WebMapping.inboundlinks_anchortext_txt, subgraph.urlAnchorTexts[0]);
+        add(doc, WebMapping.outboundlinks_sxt, subgraph.urls[1]);
+        add(doc, WebMapping.outboundlinks_anchortext_txt, subgraph.urlAnchorTexts[1]);
+    }
+
     /**
      * Add images metadata to Solr doc when corresponding schema attributes are enabled.
      * Remove images urls from inboudLinks and outboundLinks.
      * @param doc solr document to fill
-     * @param allAttr all attributes are enabled
+     * @param urlTable the url table of the document
      * @param inboundLinks all document inbound links
      * @param outboundLinks all document outbound links
      * @param images document images
      */
-    private static void processImages(final JSONObject doc, final LinkedHashMap<MultiProtocolURL, String> inboundLinks,
+    private static void processImages(final JSONObject doc, final URLTable urlTable, final LinkedHashMap<MultiProtocolURL, String> inboundLinks,
             final LinkedHashMap<MultiProtocolURL, String> outboundLinks, final List<ImageEntry> images) {
         final ArrayList<String> imgurls = new ArrayList<String>(images.size());
         final Integer[] imgheights = new Integer[images.size()];
@@ -670,9 +765,9 @@ public class WebConfiguration implements Serializable {
             imgheights[i] = ie.height();
             imgwidths[i] = ie.width();
             imgpixels[i] = ie.height() < 0 || ie.width() < 0 ? -1 : ie.height() * ie.width();
-            imgurls.add(uri.toNormalform(true));
+            imgurls.add(LibraryProvider.urlRewriter.apply(urlTable.normalform(uri, true)));
             imgalts[i] = ie.alt();
-            for (final String it: CommonPattern.SPACE.split(uri.toTokens())) images_text_map.add(it);
+            for (final String it: CommonPattern.SPACE.split(urlTable.tokens(uri))) images_text_map.add(it);
             if (ie.alt() != null && ie.alt().length() > 0) {
                 final SentenceReader sr = new SentenceReader(ie.alt());
                 while (sr.hasNext()) images_text_map.add(sr.next().toString());
@@ -22,19 +22,23 @@
 
 package net.yacy.cora.geo;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.zip.ZipEntry;
@@ -43,6 +47,7 @@ import java.util.zip.ZipFile;
 import net.yacy.cora.document.WordCache;
 import net.yacy.grid.tools.CommonPattern;
 import net.yacy.grid.tools.Logger;
+import net.yacy.kelondro.util.FileUtils;
 
 /**
  * The main 'geoname' table has the following fields :
@@ -70,20 +75,36 @@ import net.yacy.grid.tools.Logger;
 */
 public class GeonamesLocation implements Locations {
 
-    private final Map<Integer, GeoLocation> id2loc;
-    private final TreeMap<String, List<Integer>> name2ids;
+    private static final int SNAPSHOT_MAGIC = 0x59474e53; // "YGNS"
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private LocationIndex index;
     private final File file;
     public GeonamesLocation(final File file, final WordCache dymLib, final long minPopulation) {
         // this is a processing of the cities1000.zip file from http://download.geonames.org/export/dump/
 
         this.file = file;
-        this.id2loc = new HashMap<Integer, GeoLocation>();
-        this.name2ids =
-            new TreeMap<String, List<Integer>>(String.CASE_INSENSITIVE_ORDER);
+        final LocationIndex.Builder builder = new LocationIndex.Builder();
+        this.index = builder.build();
 
         if ( file == null || !file.exists() ) {
             return;
         }
+
+        // try to load a snapshot which was written from the same source with the same parameters
+        final File snapshot = new File(file.getParentFile(), file.getName() + (minPopulation > 0 ? "." + minPopulation : "") + ".snapshot");
+        final long fingerprint = fingerprint(file, dymLib, minPopulation);
+        if ( snapshot.exists() ) {
+            try {
+                final long start = System.currentTimeMillis();
+                this.index = readSnapshot(snapshot, fingerprint);
+                Logger.info(this.getClass(), "loaded snapshot " + snapshot.getName() + " with " + this.index.size() + " locations in " + (System.currentTimeMillis() - start) + " milliseconds");
+                return;
+            } catch (final IOException e ) {
+                Logger.info(this.getClass(), "snapshot " + snapshot.getName() + " not usable, parsing source: " + e.getMessage());
+            }
+        }
+
         BufferedReader reader;
         try {
             final ZipFile zf = new ZipFile(file);
@@ -104,34 +125,35 @@ public class GeonamesLocation implements Locations {
                 fields = CommonPattern.TAB.split(line);
                 final long population = Long.parseLong(fields[14]);
                 if (minPopulation > 0 && population < minPopulation) continue;
-                final Integer geonameid = Integer.valueOf(fields[0]);
+                final int geonameid = Integer.parseInt(fields[0]);
                 locnames = new HashSet<String>();
                 locnames.add(fields[1]);
                 locnames.add(fields[2]);
                 for ( final String s : CommonPattern.COMMA.split(fields[3]) ) {
                     locnames.add(s);
                 }
-                final GeoLocation c =
-                    new GeoLocation(Float.parseFloat(fields[4]), Float.parseFloat(fields[5]), fields[1]);
-                c.setPopulation((int) Long.parseLong(fields[14]));
-                this.id2loc.put(geonameid, c);
+                final int location = builder.addLocation(geonameid, Float.parseFloat(fields[4]), Float.parseFloat(fields[5]), (int) population, fields[1]);
                 for ( final String name : locnames ) {
                     if (dymLib != null && dymLib.contains(new StringBuilder(name))) continue;
                     if (name.length() < OverarchingLocation.MINIMUM_NAME_LENGTH) continue;
-                    List<Integer> locs = this.name2ids.get(name);
-                    if ( locs == null ) {
-                        locs = new ArrayList<Integer>(1);
-                    }
-                    locs.add(geonameid);
-                    this.name2ids.put(name, locs);
+                    builder.addName(name, location);
                 }
             }
             zf.close();
+            this.index = builder.build();
         } catch (final IOException e ) {
             Logger.warn(this.getClass(), e);
             return;
         }
 
+        // write a snapshot for the next start
+        try {
+            writeSnapshot(snapshot, fingerprint);
+        } catch (final IOException e ) {
+            Logger.warn(this.getClass(), "could not write snapshot " + snapshot.getAbsolutePath(), e);
+            FileUtils.deletedelete(snapshot);
+        }
+
         // when an error occurs after this line, just accept it and work on
 /* parse this fields:
 ---------------------------------------------------
@@ -158,14 +180,62 @@ public class GeonamesLocation implements Locations {
 
     }
 
+    /**
+     * the fingerprint identifies the source and all parameters which have an influence on the parsed content.
+     * The dymLib is used to exclude location names which are also ordinary words, therefore its size is part of the fingerprint.
+     */
+    private static long fingerprint(final File file, final WordCache dymLib, final long minPopulation) {
+        long f = file.length();
+        f = 31 * f + file.lastModified();
+        f = 31 * f + minPopulation;
+        f = 31 * f + (dymLib == null ? -1 : dymLib.size());
+        return f;
+    }
+
+    /**
+     * Write the location index into a snapshot file. The file has the following format (big endian):
+     * magic, version, fingerprint and the arrays of the index, see LocationIndex.write
+     */
+    private void writeSnapshot(final File snapshot, final long fingerprint) throws IOException {
+        final File tmp = new File(snapshot.getParentFile(), snapshot.getName() + ".tmp");
+        final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 65536));
+        try {
+            os.writeInt(SNAPSHOT_MAGIC);
+            os.writeInt(SNAPSHOT_VERSION);
+            os.writeLong(fingerprint);
+            this.index.write(os);
+        } finally {
+            os.close();
+        }
+        if ( !tmp.renameTo(snapshot) ) throw new IOException("cannot rename " + tmp.getName());
+    }
+
+    /**
+     * read a snapshot from a memory-mapped file
+     * @throws IOException if the snapshot is broken or the fingerprint does not match
+     */
+    private static LocationIndex readSnapshot(final File snapshot, final long fingerprint) throws IOException {
+        final FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ);
+        try {
+            final MappedByteBuffer bb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if ( bb.getInt() != SNAPSHOT_MAGIC || bb.getInt() != SNAPSHOT_VERSION ) throw new IOException("wrong snapshot format");
+            if ( bb.getLong() != fingerprint ) throw new IOException("snapshot is outdated");
+            return LocationIndex.read(bb);
+        } catch (final BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e ) {
+            throw new IOException("broken snapshot", e);
+        } finally {
+            channel.close();
+        }
+    }
+
     @Override
     public int size() {
-        return this.id2loc.size();
+        return this.index.size();
     }
 
 	@Override
 	public boolean isEmpty() {
-		return this.id2loc.isEmpty();
+		return this.index.size() == 0;
 	}
 
 	/**
@@ -179,23 +249,22 @@ public class GeonamesLocation implements Locations {
         if (s0.length() < l1) {
         	return false;
         }
-        return s0.substring(0, l1).equalsIgnoreCase(s1);
+        return s0.regionMatches(true, 0, s1, 0, l1);
 	}
 
     @Override
     public TreeSet<GeoLocation> find(final String anyname, final boolean locationexact) {
+        final LocationIndex index = this.index;
         final Set<Integer> r = new HashSet<Integer>();
-        List<Integer> c;
         if ( locationexact ) {
-            c = this.name2ids.get(anyname);
-            if ( c != null ) {
-                r.addAll(c);
+            final int n = index.find(anyname);
+            if ( n >= 0 ) {
+                for (int p = index.postingStart(n); p < index.postingEnd(n); p++) r.add(index.posting(p));
             }
         } else {
-            final SortedMap<String, List<Integer>> cities = this.name2ids.tailMap(anyname);
-            for ( final Map.Entry<String, List<Integer>> e : cities.entrySet() ) {
-                if (this.caseIncensitiveStartsWith(e.getKey(), anyname) ) {
-                    r.addAll(e.getValue());
+            for (int n = index.lowerBound(anyname); n < index.nameCount(); n++) {
+                if (this.caseIncensitiveStartsWith(index.name(n), anyname) ) {
+                    for (int p = index.postingStart(n); p < index.postingEnd(n); p++) r.add(index.posting(p));
                 } else {
                     break;
                 }
@@ -203,10 +272,7 @@ public class GeonamesLocation implements Locations {
         }
         final TreeSet<GeoLocation> a = new TreeSet<GeoLocation>();
         for ( final Integer e : r ) {
-            final GeoLocation w = this.id2loc.get(e);
-            if ( w != null ) {
-                a.add(w);
-            }
+            a.add(index.location(e.intValue()));
         }
         return a;
     }
@@ -217,8 +283,9 @@ public class GeonamesLocation implements Locations {
      */
     @Override
     public Set<String> locationNames() {
-        final Set<String> locations = new HashSet<String>();
-        locations.addAll(this.name2ids.keySet());
+        final LocationIndex index = this.index;
+        final Set<String> locations = new HashSet<String>(index.nameCount() * 4 / 3 + 1);
+        for (int n = 0; n < index.nameCount(); n++) locations.add(index.name(n));
         return locations;
     }
 
@@ -228,8 +295,9 @@ public class GeonamesLocation implements Locations {
         if ( s.isEmpty() ) {
             return a;
         }
-        final SortedMap<String, List<Integer>> tail = this.name2ids.tailMap(s);
-        for ( final String name : tail.keySet() ) {
+        final LocationIndex index = this.index;
+        for (int n = index.lowerBound(s); n < index.nameCount(); n++) {
+            final String name = index.name(n);
             if (this.caseIncensitiveStartsWith(name, s) ) {
                 a.add(name);
             } else {
@@ -245,15 +313,7 @@ public class GeonamesLocation implements Locations {
         if ( s.length() == 0 ) {
             return a;
         }
-        final String sString = s.toString();
-        final SortedMap<String, List<Integer>> tail = this.name2ids.tailMap(sString);
-        for ( final String name : tail.keySet() ) {
-            if (this.caseIncensitiveStartsWith(name, sString) ) {
-                a.add(new StringBuilder(name));
-            } else {
-                break;
-            }
-        }
+        for (final String name: recommend(s.toString())) a.add(new StringBuilder(name));
         return a;
     }
 
@@ -274,4 +334,32 @@ public class GeonamesLocation implements Locations {
         }
         return nickname().equals(((Locations) other).nickname());
     }
+
+    /**
+     * compare the heap footprint of the location index with the footprint of the former structures,
+     * a HashMap from Integer ids to GeoLocation objects and a case-insensitive TreeMap from names to lists of ids
+     * @param args the path to a geonames zip file, i.e. conf/libraries/source/cities15000.zip
+     */
+    public static void main(final String[] args) {
+        final Runtime rt = Runtime.getRuntime();
+        final GeonamesLocation geonames = new GeonamesLocation(new File(args[0]), null, -1);
+        final LocationIndex index = geonames.index;
+        System.out.println("locations: " + index.size() + ", names: " + index.nameCount());
+        System.out.println("location index:         " + (index.heapSize() / 1024) + " KB");
+
+        System.gc();
+        final long before = rt.totalMemory() - rt.freeMemory();
+        final Map<Integer, GeoLocation> id2loc = new HashMap<>();
+        final TreeMap<String, java.util.List<Integer>> name2ids = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < index.size(); i++) id2loc.put(Integer.valueOf(index.id(i)), index.location(i));
+        for (int n = 0; n < index.nameCount(); n++) {
+            final java.util.List<Integer> ids = new java.util.ArrayList<>(1);
+            for (int p = index.postingStart(n); p < index.postingEnd(n); p++) ids.add(Integer.valueOf(index.id(index.posting(p))));
+            name2ids.put(index.name(n), ids);
+        }
+        System.gc();
+        final long after = rt.totalMemory() - rt.freeMemory();
+        System.out.println("HashMap/TreeMap (heap): " + ((after - before) / 1024) + " KB for " + id2loc.size() + " locations and " + name2ids.size() + " names");
+        System.out.println(geonames.find("Frankfurt am Main", true));
+    }
 }
@@ -0,0 +1,307 @@
+/**
+ *  LocationIndex
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.geo;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact, read-only index of locations and location names, backed by primitive arrays.
+ * Locations are stored as parallel arrays of id, latitude, longitude, population and name.
+ * Location names are stored as one UTF-8 byte array with offsets, sorted in case-insensitive order
+ * and deduplicated; each name points to a range in a posting array of location indexes.
+ * This replaces a HashMap of GeoLocation objects and a TreeMap of name lists, which need many
+ * times more heap because of boxed keys, entry objects and list objects.
+ */
+public class LocationIndex {
+
+    // locations
+    private final int[] ids;
+    private final float[] lat, lon;
+    private final int[] population;
+    private final byte[] locationNames;
+    private final int[] locationNameOffsets; // size + 1 entries
+
+    // names
+    private final byte[] names;
+    private final int[] nameOffsets; // nameCount + 1 entries
+    private final int[] postingOffsets; // nameCount + 1 entries
+    private final int[] postings;
+
+    private LocationIndex(
+            final int[] ids, final float[] lat, final float[] lon, final int[] population, final byte[] locationNames, final int[] locationNameOffsets,
+            final byte[] names, final int[] nameOffsets, final int[] postingOffsets, final int[] postings) {
+        this.ids = ids;
+        this.lat = lat;
+        this.lon = lon;
+        this.population = population;
+        this.locationNames = locationNames;
+        this.locationNameOffsets = locationNameOffsets;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+    }
+
+    /**
+     * collects locations and names; the builder needs temporary memory which is released after build()
+     */
+    public static class Builder {
+        private int count = 0;
+        private int[] ids = new int[1024];
+        private float[] lat = new float[1024], lon = new float[1024];
+        private int[] population = new int[1024];
+        private final List<String> locationNames = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private int[] nameLocations = new int[1024];
+
+        /**
+         * add a location
+         * @return the location index which must be used for addName
+         */
+        public int addLocation(final int id, final float lat, final float lon, final int population, final String name) {
+            if (this.count == this.ids.length) {
+                final int l = this.count * 2;
+                this.ids = Arrays.copyOf(this.ids, l);
+                this.lat = Arrays.copyOf(this.lat, l);
+                this.lon = Arrays.copyOf(this.lon, l);
+                this.population = Arrays.copyOf(this.population, l);
+            }
+            this.ids[this.count] = id;
+            this.lat[this.count] = lat;
+            this.lon[this.count] = lon;
+            this.population[this.count] = population;
+            this.locationNames.add(name == null ? "" : name);
+            return this.count++;
+        }
+
+        /**
+         * add a name for a location
+         * @param name the name; names which differ only in case are treated as the same name, the first spelling is kept
+         * @param location the location index as returned by addLocation
+         */
+        public void addName(final String name, final int location) {
+            final int n = this.names.size();
+            if (n == this.nameLocations.length) this.nameLocations = Arrays.copyOf(this.nameLocations, n * 2);
+            this.nameLocations[n] = location;
+            this.names.add(name);
+        }
+
+        public LocationIndex build() {
+            // sort name entries; the sort is stable, therefore the first spelling of a name and the posting order are kept
+            final Integer[] order = new Integer[this.names.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(this.names.get(a), this.names.get(b)));
+
+            final BlobWriter nameBlob = new BlobWriter(order.length);
+            final int[] postingOffsets = new int[order.length + 1];
+            final int[] postings = new int[order.length];
+            int p = 0, n = 0;
+            String last = null;
+            for (final Integer o: order) {
+                final String name = this.names.get(o);
+                final int location = this.nameLocations[o];
+                if (last == null || !last.equalsIgnoreCase(name)) {
+                    nameBlob.add(name);
+                    postingOffsets[n++] = p;
+                    last = name;
+                } else if (postings[p - 1] == location) {
+                    continue; // same location with a name which differs only in case
+                }
+                postings[p++] = location;
+            }
+            postingOffsets[n] = p;
+
+            final BlobWriter locationBlob = new BlobWriter(this.count);
+            for (final String name: this.locationNames) locationBlob.add(name);
+            return new LocationIndex(
+                    Arrays.copyOf(this.ids, this.count), Arrays.copyOf(this.lat, this.count), Arrays.copyOf(this.lon, this.count),
+                    Arrays.copyOf(this.population, this.count), locationBlob.bytes(), locationBlob.offsets(),
+                    nameBlob.bytes(), nameBlob.offsets(), Arrays.copyOf(postingOffsets, n + 1), Arrays.copyOf(postings, p));
+        }
+    }
+
+    private static class BlobWriter {
+        private byte[] b = new byte[4096];
+        private int len = 0;
+        private int[] offsets;
+        private int count = 0;
+        private BlobWriter(final int capacity) {
+            this.offsets = new int[capacity + 1];
+        }
+        private void add(final String s) {
+            final byte[] sb = s.getBytes(StandardCharsets.UTF_8);
+            if (this.len + sb.length > this.b.length) this.b = Arrays.copyOf(this.b, Math.max(this.b.length * 2, this.len + sb.length));
+            System.arraycopy(sb, 0, this.b, this.len, sb.length);
+            this.offsets[this.count++] = this.len;
+            this.len += sb.length;
+        }
+        private byte[] bytes() {
+            return Arrays.copyOf(this.b, this.len);
+        }
+        private int[] offsets() {
+            this.offsets[this.count] = this.len;
+            return Arrays.copyOf(this.offsets, this.count + 1);
+        }
+    }
+
+    /**
+     * @return the number of locations
+     */
+    public int size() {
+        return this.ids.length;
+    }
+
+    /**
+     * @return the number of distinct location names
+     */
+    public int nameCount() {
+        return this.nameOffsets.length - 1;
+    }
+
+    public String name(final int nameIndex) {
+        return new String(this.names, this.nameOffsets[nameIndex], this.nameOffsets[nameIndex + 1] - this.nameOffsets[nameIndex], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return a new GeoLocation object for the location with the given location index
+     */
+    public GeoLocation location(final int location) {
+        final GeoLocation c = new GeoLocation(this.lat[location], this.lon[location],
+                new String(this.locationNames, this.locationNameOffsets[location], this.locationNameOffsets[location + 1] - this.locationNameOffsets[location], StandardCharsets.UTF_8));
+        c.setPopulation(this.population[location]);
+        return c;
+    }
+
+    public int id(final int location) {
+        return this.ids[location];
+    }
+
+    /**
+     * @return the first posting position of the name, use with postingEnd and posting
+     */
+    public int postingStart(final int nameIndex) {
+        return this.postingOffsets[nameIndex];
+    }
+
+    public int postingEnd(final int nameIndex) {
+        return this.postingOffsets[nameIndex + 1];
+    }
+
+    /**
+     * @return the location index at the given posting position
+     */
+    public int posting(final int position) {
+        return this.postings[position];
+    }
+
+    /**
+     * find the first name which is not smaller than the given string in case-insensitive order
+     * @return a name index, nameCount() if all names are smaller
+     */
+    public int lowerBound(final String s) {
+        int lo = 0, hi = nameCount();
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(name(mid), s) < 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * exact lookup of a name, case-insensitive
+     * @return the name index or -1 if the name does not exist
+     */
+    public int find(final String name) {
+        final int i = lowerBound(name);
+        return i < nameCount() && name(i).equalsIgnoreCase(name) ? i : -1;
+    }
+
+    /**
+     * @return the number of heap bytes which are used by the arrays of this index
+     */
+    public long heapSize() {
+        return 16L * 10 + 4L * this.ids.length + 4L * this.lat.length + 4L * this.lon.length + 4L * this.population.length +
+                this.locationNames.length + 4L * this.locationNameOffsets.length +
+                this.names.length + 4L * this.nameOffsets.length + 4L * this.postingOffsets.length + 4L * this.postings.length;
+    }
+
+    /**
+     * write all arrays of the index, each with a length prefix
+     */
+    public void write(final DataOutputStream os) throws IOException {
+        writeInts(os, this.ids);
+        os.writeInt(this.lat.length); for (final float f: this.lat) os.writeFloat(f);
+        os.writeInt(this.lon.length); for (final float f: this.lon) os.writeFloat(f);
+        writeInts(os, this.population);
+        os.writeInt(this.locationNames.length); os.write(this.locationNames);
+        writeInts(os, this.locationNameOffsets);
+        os.writeInt(this.names.length); os.write(this.names);
+        writeInts(os, this.nameOffsets);
+        writeInts(os, this.postingOffsets);
+        writeInts(os, this.postings);
+    }
+
+    private static void writeInts(final DataOutputStream os, final int[] a) throws IOException {
+        os.writeInt(a.length);
+        for (final int i: a) os.writeInt(i);
+    }
+
+    /**
+     * read an index which was written with write(); the buffer position is moved behind the index
+     * @throws IOException if the content is not consistent
+     */
+    public static LocationIndex read(final ByteBuffer bb) throws IOException {
+        final int[] ids = readInts(bb);
+        final float[] lat = new float[bb.getInt()];
+        bb.asFloatBuffer().get(lat); bb.position(bb.position() + 4 * lat.length);
+        final float[] lon = new float[bb.getInt()];
+        bb.asFloatBuffer().get(lon); bb.position(bb.position() + 4 * lon.length);
+        final int[] population = readInts(bb);
+        final byte[] locationNames = new byte[bb.getInt()];
+        bb.get(locationNames);
+        final int[] locationNameOffsets = readInts(bb);
+        final byte[] names = new byte[bb.getInt()];
+        bb.get(names);
+        final int[] nameOffsets = readInts(bb);
+        final int[] postingOffsets = readInts(bb);
+        final int[] postings = readInts(bb);
+        final int n = ids.length, m = nameOffsets.length - 1;
+        if (lat.length != n || lon.length != n || population.length != n || locationNameOffsets.length != n + 1 ||
+            m < 0 || postingOffsets.length != m + 1 ||
+            locationNameOffsets[n] != locationNames.length || nameOffsets[m] != names.length || postingOffsets[m] != postings.length) {
+            throw new IOException("inconsistent location index");
+        }
+        for (final int p: postings) if (p < 0 || p >= n) throw new IOException("inconsistent location index");
+        return new LocationIndex(ids, lat, lon, population, locationNames, locationNameOffsets, names, nameOffsets, postingOffsets, postings);
+    }
+
+    private static int[] readInts(final ByteBuffer bb) {
+        final int[] a = new int[bb.getInt()];
+        bb.asIntBuffer().get(a);
+        bb.position(bb.position() + 4 * a.length);
+        return a;
+    }
+}
@@ -22,8 +22,10 @@
 
 package net.yacy.cora.geo;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -32,12 +34,14 @@ public class OverarchingLocation implements Locations {
 
     public static int MINIMUM_NAME_LENGTH = 4;
     private final Map<String, Locations> services;
+    private volatile Locations[] active; // non-empty services; a copy which can be iterated without locking
 
     /**
      * create a new overarching localization object
      */
     public OverarchingLocation() {
         this.services = new HashMap<String, Locations>();
+        this.active = new Locations[0];
     }
 
     /**
@@ -45,16 +49,26 @@ public class OverarchingLocation implements Locations {
      * @param nickname the nickname of the service
      * @param service the service
      */
-    public void activateLocation(final String nickname, final Locations service) {
+    public synchronized void activateLocation(final String nickname, final Locations service) {
         this.services.put(nickname, service);
+        updateActive();
     }
 
     /**
      * remove a localization service
      * @param nickname
      */
-    public void deactivateLocalization(final String nickname) {
+    public synchronized void deactivateLocalization(final String nickname) {
         this.services.remove(nickname);
+        updateActive();
+    }
+
+    private void updateActive() {
+        final List<Locations> a = new ArrayList<Locations>(this.services.size());
+        for (final Locations service: this.services.values()) {
+            if (!service.isEmpty()) a.add(service);
+        }
+        this.active = a.toArray(new Locations[a.size()]);
     }
 
     /**
@@ -64,7 +78,7 @@ public class OverarchingLocation implements Locations {
     @Override
     public int size() {
         int locations = 0;
-        for (final Locations service: this.services.values()) {
+        for (final Locations service: this.active) {
             locations += service.size();
         }
         return locations;
@@ -72,10 +86,7 @@ public class OverarchingLocation implements Locations {
 
 	@Override
 	public boolean isEmpty() {
-        for (final Locations service: this.services.values()) {
-        	if (!service.isEmpty()) return false;
-        }
-        return true;
+        return this.active.length == 0;
 	}
 
     /**
@@ -86,8 +97,10 @@ public class OverarchingLocation implements Locations {
      */
     @Override
     public TreeSet<GeoLocation> find(final String anyname, final boolean locationexact) {
+        final Locations[] a = this.active;
+        if (a.length == 1) return a[0].find(anyname, locationexact);
         final TreeSet<GeoLocation> locations = new TreeSet<GeoLocation>();
-        for (final Locations service: this.services.values()) {
+        for (final Locations service: a) {
             locations.addAll(service.find(anyname, locationexact));
         }
         return locations;
@@ -99,8 +112,10 @@ public class OverarchingLocation implements Locations {
      */
     @Override
     public Set<String> locationNames() {
+        final Locations[] a = this.active;
+        if (a.length == 1) return a[0].locationNames();
         final Set<String> locations = new HashSet<String>();
-        for (final Locations service: this.services.values()) {
+        for (final Locations service: a) {
             locations.addAll(service.locationNames());
         }
         return locations;
@@ -117,7 +132,7 @@ public class OverarchingLocation implements Locations {
         if (s.isEmpty()) {
             return recommendations;
         }
-        for (final Locations service: this.services.values()) {
+        for (final Locations service: this.active) {
             recommendations.addAll(service.recommend(s));
         }
         return recommendations;
@@ -134,7 +149,7 @@ public class OverarchingLocation implements Locations {
         if (s.length() == 0) {
             return recommendations;
         }
-        for (final Locations service: this.services.values()) {
+        for (final Locations service: this.active) {
             recommendations.addAll(service.recommend(s));
         }
         return recommendations;
@@ -0,0 +1,578 @@
+/**
+ *  LanguageIdentifier
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.language.identification;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * Language identification with character n-gram profiles.
+ * A text is read as a sequence of lower-case letters where every run of other characters is one word boundary;
+ * all n-grams with n = 1..3 are scored with the log-probabilities of each language profile (a naive Bayes classifier).
+ * Profiles contain only the most frequent n-grams of each language; they are held in one open addressing table
+ * from the packed n-gram to a row of log-probabilities, so the identification does not create objects per n-gram.
+ * Only a bounded prefix of the text is read.
+ *
+ * The profile file is a gzipped text file with one line for each language:
+ * the language code, the number of n-grams in the training text for n = 1, 2, 3 and the n-gram counts as gram=count,
+ * all separated by tab characters. A word boundary within an n-gram is written as '_'.
+ * A profile file can be created with the main method from training texts.
+ */
+public class LanguageIdentifier {
+
+    /** number of characters of a text which are used for identification */
+    public static int PREFIX_LENGTH = 4096;
+
+    /** the confidence is computed as if the text had at most this number of n-grams, otherwise it would always be close to 1 for long texts */
+    public static final int CONFIDENCE_NGRAMS = 24;
+
+    /** texts with less n-grams than this which are known in any profile are not identified */
+    public static final int MIN_NGRAMS = 8;
+
+    /** the identification stops early if the log-likelihood of the best language exceeds that of all others by this margin */
+    public static final double DECISIVE_MARGIN = 200.0d;
+
+    private static final char BOUNDARY = ' ';
+
+    private final String[] languages;
+    private final long[] keys;     // packed n-grams, 0 is empty
+    private final int[] rows;      // row index for each key
+    private final float[] logp;    // rows * languages.length log-probabilities
+
+    /**
+     * the result of an identification
+     */
+    public static class Result {
+        private final String language;
+        private final double confidence;
+        private final String[] languages;
+        private final double[] posterior;
+        private Result(final String[] languages, final double[] posterior, final int best) {
+            this.language = languages[best];
+            this.confidence = posterior[best];
+            this.languages = languages;
+            this.posterior = posterior;
+        }
+        /**
+         * @return the language code (ISO 639-1)
+         */
+        public String getLanguage() {
+            return this.language;
+        }
+        /**
+         * @return the posterior probability of the language, a value between 0 and 1
+         */
+        public double getConfidence() {
+            return this.confidence;
+        }
+        /**
+         * @param language a language code (ISO 639-1)
+         * @return the posterior probability of the given language, or -1 if there is no profile for the language
+         */
+        public double getConfidence(final String language) {
+            for (int i = 0; i < this.languages.length; i++) if (this.languages[i].equals(language)) return this.posterior[i];
+            return -1.0d;
+        }
+        @Override
+        public String toString() {
+            return this.language + ":" + ((int) (this.confidence * 1000)) / 1000.0d;
+        }
+    }
+
+    /**
+     * create an empty identifier which does not identify any language
+     */
+    public LanguageIdentifier() {
+        this.languages = new String[0];
+        this.keys = new long[1];
+        this.rows = new int[1];
+        this.logp = new float[0];
+    }
+
+    /**
+     * load profiles
+     * @param profiles a profile file as written with writeProfiles
+     * @throws IOException if the file cannot be read or has a wrong format
+     */
+    public LanguageIdentifier(final File profiles) throws IOException {
+        final List<String> languageList = new ArrayList<>();
+        final List<long[]> totals = new ArrayList<>();
+        final List<Map<Long, Long>> counts = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(profiles)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.length() == 0 || line.charAt(0) == '#') continue;
+                final String[] a = line.split("\t");
+                if (a.length < 4) throw new IOException("bad profile line for " + a[0]);
+                final long[] t = new long[]{Long.parseLong(a[1]), Long.parseLong(a[2]), Long.parseLong(a[3])};
+                final Map<Long, Long> c = new HashMap<>();
+                for (int i = 4; i < a.length; i++) {
+                    final int p = a[i].lastIndexOf('=');
+                    if (p < 1 || p > 3) throw new IOException("bad profile entry " + a[i] + " for " + a[0]);
+                    c.put(pack(a[i].substring(0, p).replace('_', BOUNDARY)), Long.parseLong(a[i].substring(p + 1)));
+                }
+                languageList.add(a[0]);
+                totals.add(t);
+                counts.add(c);
+            }
+        } catch (final NumberFormatException e) {
+            throw new IOException(e.getMessage());
+        }
+        this.languages = languageList.toArray(new String[languageList.size()]);
+        final int l = this.languages.length;
+
+        // the probability of an n-gram which is not in a profile is below the probability of the least frequent n-gram of the profile
+        final float[][] floor = new float[l][3];
+        for (int i = 0; i < l; i++) {
+            final long[] min = new long[]{Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+            for (final Map.Entry<Long, Long> e: counts.get(i).entrySet()) {
+                final int n = order(e.getKey()) - 1;
+                min[n] = Math.min(min[n], e.getValue());
+            }
+            for (int n = 0; n < 3; n++) {
+                final long total = Math.max(1, totals.get(i)[n]);
+                floor[i][n] = (float) Math.log(0.5d * (min[n] == Long.MAX_VALUE ? 1 : min[n]) / total);
+            }
+        }
+
+        // one row for each n-gram which appears in any profile
+        final Map<Long, Integer> rowIndex = new HashMap<>();
+        for (final Map<Long, Long> c: counts) for (final Long key: c.keySet()) if (!rowIndex.containsKey(key)) rowIndex.put(key, rowIndex.size());
+        this.logp = new float[rowIndex.size() * l];
+        int s = 16;
+        while (s < rowIndex.size() * 2) s <<= 1;
+        this.keys = new long[s];
+        this.rows = new int[s];
+        for (final Map.Entry<Long, Integer> e: rowIndex.entrySet()) {
+            final long key = e.getKey();
+            final int row = e.getValue();
+            final int n = order(key) - 1;
+            for (int i = 0; i < l; i++) {
+                final Long c = counts.get(i).get(key);
+                this.logp[row * l + i] = c == null ? floor[i][n] : (float) Math.log((double) c / Math.max(1, totals.get(i)[n]));
+            }
+            int slot = mix(key) & (s - 1);
+            while (this.keys[slot] != 0) slot = (slot + 1) & (s - 1);
+            this.keys[slot] = key;
+            this.rows[slot] = row;
+        }
+    }
+
+    private static long pack(final String gram) {
+        long key = 0;
+        for (int i = 0; i < gram.length(); i++) key = (key << 16) | gram.charAt(i);
+        return key;
+    }
+
+    private static String unpack(long key) {
+        final StringBuilder sb = new StringBuilder(3);
+        while (key != 0) {
+            sb.insert(0, (char) (key & 0xffff));
+            key >>>= 16;
+        }
+        return sb.toString();
+    }
+
+    private static int order(final long key) {
+        return key >>> 32 != 0 ? 3 : key >>> 16 != 0 ? 2 : 1;
+    }
+
+    private static int mix(final long key) {
+        final long k = key * 0x9E3779B97F4A7C15L;
+        return (int) (k >>> 32);
+    }
+
+    private int row(final long key) {
+        int slot = mix(key) & (this.keys.length - 1);
+        long k;
+        while ((k = this.keys[slot]) != 0) {
+            if (k == key) return this.rows[slot];
+            slot = (slot + 1) & (this.keys.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * the n-gram reader: calls gram() for each n-gram of the text prefix
+     */
+    private static abstract class NGramReader {
+        /**
+         * @return false if reading shall stop
+         */
+        protected abstract boolean gram(long key);
+        protected void read(final CharSequence text, final int limit) {
+            final int len = Math.min(text.length(), limit);
+            char c1 = BOUNDARY, c2 = 0;
+            for (int i = 0; i <= len; i++) {
+                char c = i < len ? text.charAt(i) : BOUNDARY;
+                c = Character.isLetter(c) ? Character.toLowerCase(c) : BOUNDARY;
+                if (c == BOUNDARY && c1 == BOUNDARY) continue;
+                if (c != BOUNDARY && !gram(c)) return;
+                if (!gram(((long) c1 << 16) | c)) return;
+                if (c2 != 0 && !gram(((long) c2 << 32) | ((long) c1 << 16) | c)) return;
+                c2 = c1;
+                c1 = c;
+            }
+        }
+    }
+
+    /**
+     * identify the language of a text
+     * @param text the text; only the first PREFIX_LENGTH characters are read with charAt, so a TextBuffer is not copied
+     * @return the most probable language and its confidence, or null if there are no profiles or the text is too short
+     */
+    public Result identify(final CharSequence text) {
+        final int l = this.languages.length;
+        if (l == 0 || text == null) return null;
+        final double[] score = new double[l];
+        final int[] count = new int[1];
+        new NGramReader() {
+            @Override
+            protected boolean gram(final long key) {
+                final int row = row(key);
+                if (row < 0) return true;
+                final int p = row * l;
+                for (int i = 0; i < l; i++) score[i] += LanguageIdentifier.this.logp[p + i];
+                return (++count[0] & 127) != 0 || margin(score) < DECISIVE_MARGIN;
+            }
+        }.read(text, PREFIX_LENGTH);
+        if (count[0] < MIN_NGRAMS) return null;
+
+        // posterior with a uniform prior, computed with the evidence of at most CONFIDENCE_NGRAMS n-grams
+        int best = 0;
+        for (int i = 1; i < l; i++) if (score[i] > score[best]) best = i;
+        final double scale = Math.min(1.0d, (double) CONFIDENCE_NGRAMS / count[0]);
+        final double[] posterior = new double[l];
+        double sum = 0.0d;
+        for (int i = 0; i < l; i++) sum += posterior[i] = Math.exp((score[i] - score[best]) * scale);
+        for (int i = 0; i < l; i++) posterior[i] /= sum;
+        return new Result(this.languages, posterior, best);
+    }
+
+    private static double margin(final double[] score) {
+        double best = Double.NEGATIVE_INFINITY, second = Double.NEGATIVE_INFINITY;
+        for (final double s: score) {
+            if (s > best) {second = best; best = s;} else if (s > second) second = s;
+        }
+        return best - second;
+    }
+
+    /**
+     * identify the language of a text
+     * @param text the text; only the first PREFIX_LENGTH characters are used
+     * @param threshold the minimum confidence
+     * @return the language code or null if the language cannot be identified with the given confidence
+     */
+    public String language(final CharSequence text, final double threshold) {
+        final Result result = identify(text);
+        return result == null || result.confidence < threshold ? null : result.language;
+    }
+
+    /**
+     * choose the language of a document from the language which is declared in its metadata and the identified language.
+     * The profiles are trained on software message catalogs, not on web pages (see conf/libraries/language/README.md),
+     * therefore a declared language is replaced only if the identified language is much more probable; a declared
+     * language without a profile is always kept.
+     * @param text the text; only the first PREFIX_LENGTH characters are used
+     * @param declared the declared language code or null
+     * @param threshold the minimum confidence of an identified language
+     * @param ratio the minimum ratio of the confidence of the identified language to the confidence of a declared language
+     * @return the declared or the identified language, or null if no language is declared and none can be identified with the given confidence
+     */
+    public String language(final CharSequence text, final String declared, final double threshold, final double ratio) {
+        final Result result = identify(text);
+        if (result == null || result.confidence < threshold) return declared;
+        if (declared == null || declared.equals(result.language)) return result.language;
+        final double declaredConfidence = result.getConfidence(declared);
+        return declaredConfidence < 0.0d || result.confidence < ratio * declaredConfidence ? declared : result.language;
+    }
+
+    /**
+     * @return the codes of all languages which can be identified
+     */
+    public String[] getLanguages() {
+        return this.languages.clone();
+    }
+
+    public boolean isEmpty() {
+        return this.languages.length == 0;
+    }
+
+    /**
+     * @return the number of heap bytes which are used by the profile tables
+     */
+    public long heapSize() {
+        return 8L * this.keys.length + 4L * this.rows.length + 4L * this.logp.length;
+    }
+
+    /**
+     * create a profile file from training texts
+     * @param target the profile file, gzipped
+     * @param training a map from language code to a training text file
+     * @param size the maximum number of n-grams in each profile, for each n
+     * @throws IOException
+     */
+    public static void writeProfiles(final File target, final Map<String, File> training, final int size) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(target)), StandardCharsets.UTF_8)) {
+            writer.write("# language\tn-grams n=1\tn=2\tn=3\tgram=count ...\n");
+            for (final Map.Entry<String, File> e: training.entrySet()) {
+                final Map<Long, long[]> counts = new HashMap<>();
+                final long[] totals = new long[3];
+                new NGramReader() {
+                    @Override
+                    protected boolean gram(final long key) {
+                        long[] c = counts.get(key);
+                        if (c == null) {
+                            c = new long[1];
+                            counts.put(key, c);
+                        }
+                        c[0]++;
+                        totals[order(key) - 1]++;
+                        return true;
+                    }
+                }.read(new String(FileUtils.read(e.getValue()), StandardCharsets.UTF_8), Integer.MAX_VALUE);
+                writer.write(e.getKey() + "\t" + totals[0] + "\t" + totals[1] + "\t" + totals[2]);
+                for (int n = 1; n <= 3; n++) {
+                    final List<Map.Entry<Long, long[]>> grams = new ArrayList<>();
+                    for (final Map.Entry<Long, long[]> g: counts.entrySet()) if (order(g.getKey()) == n && g.getValue()[0] > 1) grams.add(g);
+                    grams.sort((a, b) -> a.getValue()[0] == b.getValue()[0] ? Long.compare(a.getKey(), b.getKey()) : Long.compare(b.getValue()[0], a.getValue()[0]));
+                    for (int i = 0; i < Math.min(size, grams.size()); i++) {
+                        writer.write("\t" + unpack(grams.get(i).getKey()).replace(BOUNDARY, '_') + "=" + grams.get(i).getValue()[0]);
+                    }
+                }
+                writer.write("\n");
+            }
+        }
+    }
+
+    /** text in message catalogs which is not natural language: format directives, options, variables, markup, urls, mail addresses and paths */
+    private static final Pattern CATALOG_NOISE = Pattern.compile(
+            "%[-#0 +'I]*[0-9*]*(?:\\.[0-9*]+)?(?:hh|h|ll|l|L|q|j|z|t)?[a-zA-Z%]|--?[a-zA-Z][\\w-]*|\\$\\{?\\w+\\}?|<[^>]*>|&\\w+;|\\\\[nt]|https?://\\S+|\\S+@\\S+|\\S*[/_=\\\\]\\S*",
+            Pattern.UNICODE_CHARACTER_CLASS);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+", Pattern.UNICODE_CHARACTER_CLASS);
+
+    /**
+     * create training and test texts from the gettext message catalogs (.mo files) of a locale directory like /usr/share/locale.
+     * For each two-letter language, the translated messages of all catalogs except the iso_* code lists are collected;
+     * the original messages of all catalogs are the english text. Every tenth message is written to the test text, the
+     * others to the training text. Languages with less than minChars characters are left out.
+     * @param locales the locale directory with one directory for each locale, each containing LC_MESSAGES/*.mo
+     * @param train the target directory for the training texts, one file per language named like de.txt
+     * @param test the target directory for the test texts
+     * @param minChars the minimum number of characters of a language
+     * @throws IOException
+     */
+    public static void writeCatalogTexts(final File locales, final File train, final File test, final int minChars) throws IOException {
+        final Map<String, Set<String>> texts = new TreeMap<>();
+        final Set<String> english = new TreeSet<>();
+        final String[] localeNames = locales.list();
+        if (localeNames == null) throw new IOException("cannot read " + locales);
+        Arrays.sort(localeNames);
+        for (final String locale: localeNames) {
+            final File dir = new File(new File(locales, locale), "LC_MESSAGES");
+            final String[] catalogs = dir.list();
+            if (catalogs == null) continue;
+            final int at = locale.indexOf('@');
+            if (at >= 0 && at < locale.length() - 1) continue; // variants like sr@latin
+            final String code = locale.split("[_@.]", 2)[0];
+            if (code.length() != 2) continue;
+            Arrays.sort(catalogs);
+            for (final String catalog: catalogs) {
+                if (!catalog.endsWith(".mo") || catalog.startsWith("iso_")) continue;
+                try {
+                    for (final String[] message: readCatalog(new File(dir, catalog))) {
+                        final String original = CATALOG_NOISE.matcher(message[0]).replaceAll(" ").trim();
+                        for (final String s: message[1].split("\0")) {
+                            final String t = clean(s);
+                            if (t.codePointCount(0, t.length()) > 3 && !t.equals(original)) {
+                                Set<String> l = texts.get(code);
+                                if (l == null) {
+                                    l = new LinkedHashSet<>();
+                                    texts.put(code, l);
+                                }
+                                l.add(t);
+                            }
+                        }
+                        for (final String s: message[0].split("\0")) {
+                            final String t = clean(s);
+                            if (t.codePointCount(0, t.length()) > 3) english.add(t);
+                        }
+                    }
+                } catch (final IOException | RuntimeException e) {
+                    System.out.println(catalog + ": " + e.getMessage());
+                }
+            }
+        }
+        texts.put("en", english);
+        if (!train.isDirectory() && !train.mkdirs()) throw new IOException("cannot create " + train);
+        if (!test.isDirectory() && !test.mkdirs()) throw new IOException("cannot create " + test);
+        for (final Map.Entry<String, Set<String>> e: texts.entrySet()) {
+            long chars = 0;
+            for (final String s: e.getValue()) chars += s.codePointCount(0, s.length());
+            if (chars < minChars) continue;
+            try (Writer trainWriter = new OutputStreamWriter(new FileOutputStream(new File(train, e.getKey() + ".txt")), StandardCharsets.UTF_8);
+                 Writer testWriter = new OutputStreamWriter(new FileOutputStream(new File(test, e.getKey() + ".txt")), StandardCharsets.UTF_8)) {
+                int i = 0, trainCount = 0, testCount = 0;
+                for (final String s: e.getValue()) {
+                    if (i++ % 10 == 0) {
+                        if (testCount++ > 0) testWriter.write('\n');
+                        testWriter.write(s);
+                    } else {
+                        if (trainCount++ > 0) trainWriter.write('\n');
+                        trainWriter.write(s);
+                    }
+                }
+            }
+            System.out.println(e.getKey() + ": " + e.getValue().size() + " messages, " + chars + " chars");
+        }
+    }
+
+    private static String clean(final String message) {
+        return WHITESPACE.matcher(CATALOG_NOISE.matcher(message).replaceAll(" ")).replaceAll(" ").trim();
+    }
+
+    /**
+     * read a gettext message catalog
+     * @param mo the .mo file
+     * @return pairs of original and translated message; messages which are not UTF-8 encoded and the header are left out
+     * @throws IOException
+     */
+    private static List<String[]> readCatalog(final File mo) throws IOException {
+        final ByteBuffer b = ByteBuffer.wrap(FileUtils.read(mo));
+        final List<String[]> messages = new ArrayList<>();
+        if (b.capacity() < 28) return messages;
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        if (b.getInt(0) != 0x950412de) b.order(ByteOrder.BIG_ENDIAN);
+        final int n = b.getInt(8), originals = b.getInt(12), translations = b.getInt(16);
+        for (int i = 0; i < n; i++) {
+            final int ol = b.getInt(originals + 8 * i), oo = b.getInt(originals + 8 * i + 4);
+            final int tl = b.getInt(translations + 8 * i), to = b.getInt(translations + 8 * i + 4);
+            if (ol == 0) continue;
+            try {
+                final String t = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(b.array(), to, tl)).toString();
+                final String o = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(b.array(), oo, ol)).toString();
+                messages.add(new String[]{o, t});
+            } catch (final CharacterCodingException e) {
+                continue;
+            }
+        }
+        return messages;
+    }
+
+    private static Map<String, File> languageFiles(final String[] args, final int start) {
+        final Map<String, File> files = new TreeMap<>();
+        for (int i = start; i < args.length; i++) {
+            final File f = new File(args[i]);
+            final String name = f.getName();
+            files.put(name.indexOf('.') < 0 ? name : name.substring(0, name.indexOf('.')), f);
+        }
+        return files;
+    }
+
+    /**
+     * create training texts, create profiles or run an accuracy and throughput benchmark. Text files must be named by their language, like de.txt
+     * texts: java LanguageIdentifier texts &lt;locale directory&gt; &lt;training directory&gt; &lt;test directory&gt;
+     * build: java LanguageIdentifier build &lt;profile file&gt; &lt;n-grams per profile&gt; &lt;training files&gt;
+     * test:  java LanguageIdentifier test &lt;profile file&gt; &lt;snippet length&gt; &lt;threshold&gt; &lt;test files&gt;
+     * The test splits each file into snippets of the given length at line ends and identifies each snippet.
+     */
+    public static void main(final String[] args) {
+        try {
+            if (args[0].equals("texts")) {
+                writeCatalogTexts(new File(args[1]), new File(args[2]), new File(args[3]), 20000);
+                return;
+            }
+            if (args[0].equals("build")) {
+                writeProfiles(new File(args[1]), languageFiles(args, 3), Integer.parseInt(args[2]));
+                return;
+            }
+            final LanguageIdentifier identifier = new LanguageIdentifier(new File(args[1]));
+            final int snippetLength = Integer.parseInt(args[2]);
+            final double threshold = Double.parseDouble(args[3]);
+            System.out.println(identifier.languages.length + " languages, " + identifier.logp.length / Math.max(1, identifier.languages.length) + " n-grams, " + identifier.heapSize() / 1024 + " KB");
+            int correct = 0, wrong = 0, confidentCorrect = 0, confidentWrong = 0;
+            long chars = 0, time = 0;
+            final Map<String, Integer> errors = new LinkedHashMap<>();
+            for (int i = 0; i < 10000; i++) identifier.identify("warm up the identification with a text which has enough n-grams " + i);
+            for (final Map.Entry<String, File> e: languageFiles(args, 4).entrySet()) {
+                final String[] lines = new String(FileUtils.read(e.getValue()), StandardCharsets.UTF_8).split("\n");
+                final StringBuilder snippet = new StringBuilder();
+                int lc = 0, lw = 0;
+                for (int i = 0; i < lines.length; i++) {
+                    if (snippet.length() > 0) snippet.append(' ');
+                    snippet.append(lines[i]);
+                    if (snippet.length() < snippetLength && i < lines.length - 1) continue;
+                    final String s = snippet.length() > snippetLength ? snippet.substring(0, snippetLength) : snippet.toString();
+                    snippet.setLength(0);
+                    final long start = System.nanoTime();
+                    final Result result = identifier.identify(s);
+                    time += System.nanoTime() - start;
+                    chars += s.length();
+                    if (result == null) continue;
+                    final boolean ok = result.language.equals(e.getKey());
+                    if (ok) {correct++; lc++;} else {
+                        wrong++; lw++;
+                        final String key = e.getKey() + "->" + result.language;
+                        errors.put(key, errors.containsKey(key) ? errors.get(key) + 1 : 1);
+                    }
+                    if (result.confidence >= threshold) {
+                        if (ok) confidentCorrect++; else confidentWrong++;
+                    }
+                }
+                System.out.println(e.getKey() + ": " + lc + " correct, " + lw + " wrong");
+            }
+            final int total = correct + wrong;
+            System.out.println("accuracy: " + (1000 * correct / Math.max(1, total)) / 10.0d + "% of " + total + " snippets of " + snippetLength + " chars");
+            System.out.println("with threshold " + threshold + ": precision " + (1000 * confidentCorrect / Math.max(1, confidentCorrect + confidentWrong)) / 10.0d +
+                    "%, coverage " + (1000 * (confidentCorrect + confidentWrong) / Math.max(1, total)) / 10.0d + "%");
+            System.out.println("throughput: " + (chars * 1000 / Math.max(1, time)) + " MB/s, " + (time / Math.max(1, total) / 1000.0d) + " microseconds per snippet");
+            final List<Map.Entry<String, Integer>> el = new ArrayList<>(errors.entrySet());
+            el.sort((a, b) -> b.getValue() - a.getValue());
+            System.out.println("most frequent errors: " + el.subList(0, Math.min(20, el.size())));
+        } catch (final IOException | ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,454 @@
+/**
+ *  AutotaggingAutomaton
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.language.synonyms;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.yacy.cora.lod.vocabulary.Tagging;
+import net.yacy.document.LibraryProvider;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * A compiled dictionary of all synonyms of a set of tagging vocabularies.
+ * Synonyms are split into words and stored in a trie where each edge is one normalized word.
+ * A text is tagged in one scan: words are normalized while they are read and looked up in a word table
+ * without creating objects, and each word advances the set of active trie states. Every synonym which
+ * ends at a word is reported, including synonyms which overlap with others (like "new york" and "york").
+ * Words are runs of letters and digits, they are normalized in the same way as Tagging.normalizeTerm does it
+ * (lower case, german umlaute). The automaton is immutable and can be shared between threads.
+ */
+public class AutotaggingAutomaton {
+
+    /** words longer than this are not part of the dictionary and never match */
+    public static final int MAX_WORD_LENGTH = 100;
+
+    private final String[] vocabularies; // vocabulary names
+    private final String[] terms;        // print names of the tags
+
+    // word dictionary: normalized words in one char array and an open addressing table of word ids
+    private final char[] wordChars;
+    private final int[] wordOffsets;     // word count + 1 entries
+    private final int[] wordTable;       // word id + 1, 0 is empty
+
+    // trie: open addressing table from (node, word id) to child node, node 0 is the root
+    private final long[] edgeKeys;       // -1 is empty
+    private final int[] edgeValues;
+    private final int[] hitOffsets;      // node count + 1 entries
+    private final int[] hitVocabulary, hitTerm;
+    private final int maxWords;
+    private final int entries;
+
+    /**
+     * compile a set of vocabularies
+     * @param vocabularies the tagging vocabularies
+     */
+    public AutotaggingAutomaton(final Collection<Tagging> vocabularies) {
+        final List<String> vocabularyNames = new ArrayList<>();
+        final Map<String, Integer> termIds = new HashMap<>();
+        final List<String> termList = new ArrayList<>();
+        final Map<String, Integer> wordIds = new HashMap<>();
+        final List<String> wordList = new ArrayList<>();
+        final Map<Long, Integer> edges = new HashMap<>();
+        final List<Set<Long>> hits = new ArrayList<>();
+        hits.add(null); // the root
+        final WordBuffer wb = new WordBuffer();
+        final List<String> words = new ArrayList<>();
+        int maxw = 0, count = 0;
+        for (final Tagging vocabulary: vocabularies) {
+            final int v = vocabularyNames.size();
+            vocabularyNames.add(vocabulary.getName());
+            synonymloop: for (final String synonym: vocabulary.tags()) {
+                final Tagging.Metatag tag = vocabulary.getMetatagFromSynonym(synonym);
+                if (tag == null) continue;
+
+                // split the synonym into normalized words
+                words.clear();
+                for (int i = 0; i <= synonym.length(); i++) {
+                    final char c = i < synonym.length() ? synonym.charAt(i) : ' ';
+                    if (Character.isLetterOrDigit(c)) {
+                        wb.add(c);
+                    } else if (wb.len > 0) {
+                        if (wb.len > MAX_WORD_LENGTH) {
+                            wb.reset();
+                            continue synonymloop;
+                        }
+                        words.add(new String(wb.b, 0, wb.len));
+                        wb.reset();
+                    }
+                }
+                if (words.isEmpty()) continue;
+
+                // walk the trie and create missing nodes
+                int node = 0;
+                for (final String word: words) {
+                    Integer w = wordIds.get(word);
+                    if (w == null) {
+                        w = wordList.size();
+                        wordIds.put(word, w);
+                        wordList.add(word);
+                    }
+                    final Long key = edgeKey(node, w);
+                    Integer child = edges.get(key);
+                    if (child == null) {
+                        child = hits.size();
+                        hits.add(null);
+                        edges.put(key, child);
+                    }
+                    node = child;
+                }
+                Integer t = termIds.get(tag.getObject());
+                if (t == null) {
+                    t = termList.size();
+                    termIds.put(tag.getObject(), t);
+                    termList.add(tag.getObject());
+                }
+                Set<Long> h = hits.get(node);
+                if (h == null) {
+                    h = new LinkedHashSet<>(2);
+                    hits.set(node, h);
+                }
+                if (h.add(((long) v << 32) | t)) count++;
+                maxw = Math.max(maxw, words.size());
+            }
+        }
+        this.vocabularies = vocabularyNames.toArray(new String[vocabularyNames.size()]);
+        this.terms = termList.toArray(new String[termList.size()]);
+        this.maxWords = maxw;
+        this.entries = count;
+
+        // words
+        int chars = 0;
+        for (final String word: wordList) chars += word.length();
+        this.wordChars = new char[chars];
+        this.wordOffsets = new int[wordList.size() + 1];
+        this.wordTable = new int[tableSize(wordList.size())];
+        int p = 0;
+        for (int w = 0; w < wordList.size(); w++) {
+            final String word = wordList.get(w);
+            word.getChars(0, word.length(), this.wordChars, p);
+            this.wordOffsets[w] = p;
+            p += word.length();
+            int h = 0;
+            for (int i = 0; i < word.length(); i++) h = 31 * h + word.charAt(i);
+            int slot = mix(h) & (this.wordTable.length - 1);
+            while (this.wordTable[slot] != 0) slot = (slot + 1) & (this.wordTable.length - 1);
+            this.wordTable[slot] = w + 1;
+        }
+        this.wordOffsets[wordList.size()] = p;
+
+        // edges
+        this.edgeKeys = new long[tableSize(edges.size())];
+        this.edgeValues = new int[this.edgeKeys.length];
+        Arrays.fill(this.edgeKeys, -1L);
+        for (final Map.Entry<Long, Integer> e: edges.entrySet()) {
+            final long key = e.getKey();
+            int slot = mix(key) & (this.edgeKeys.length - 1);
+            while (this.edgeKeys[slot] != -1L) slot = (slot + 1) & (this.edgeKeys.length - 1);
+            this.edgeKeys[slot] = key;
+            this.edgeValues[slot] = e.getValue();
+        }
+
+        // hits
+        this.hitOffsets = new int[hits.size() + 1];
+        this.hitVocabulary = new int[count];
+        this.hitTerm = new int[count];
+        p = 0;
+        for (int n = 0; n < hits.size(); n++) {
+            this.hitOffsets[n] = p;
+            final Set<Long> h = hits.get(n);
+            if (h == null) continue;
+            for (final long vt: h) {
+                this.hitVocabulary[p] = (int) (vt >>> 32);
+                this.hitTerm[p] = (int) vt;
+                p++;
+            }
+        }
+        this.hitOffsets[hits.size()] = p;
+    }
+
+    private static long edgeKey(final int node, final int word) {
+        return ((long) node << 32) | word;
+    }
+
+    private static int tableSize(final int n) {
+        int s = 16;
+        while (s < n * 2) s <<= 1;
+        return s;
+    }
+
+    private static int mix(final int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private static int mix(final long key) {
+        final long k = key * 0x9E3779B97F4A7C15L;
+        return (int) (k >>> 32);
+    }
+
+    /**
+     * a buffer for one normalized word; the hash is computed while the word is read
+     */
+    private static class WordBuffer {
+        private char[] b = new char[32];
+        private int len = 0;
+        private int hash = 0;
+
+        private void add(final char c) {
+            final char lc = Character.toLowerCase(c);
+            switch (lc) {
+                case '\u00E4': put('a'); put('e'); break;
+                case '\u00F6': put('o'); put('e'); break;
+                case '\u00FC': put('u'); put('e'); break;
+                case '\u00DF': put('s'); put('s'); break;
+                default: put(lc);
+            }
+        }
+
+        private void put(final char c) {
+            if (this.len == this.b.length) {
+                if (this.len > MAX_WORD_LENGTH) {this.len++; return;} // too long anyway, only count
+                this.b = Arrays.copyOf(this.b, this.len * 2);
+            }
+            this.b[this.len++] = c;
+            this.hash = 31 * this.hash + c;
+        }
+
+        private void reset() {
+            this.len = 0;
+            this.hash = 0;
+        }
+    }
+
+    private int word(final WordBuffer wb) {
+        if (wb.len > MAX_WORD_LENGTH) return -1;
+        int slot = mix(wb.hash) & (this.wordTable.length - 1);
+        int w;
+        wordloop: while ((w = this.wordTable[slot]) != 0) {
+            w--;
+            final int s = this.wordOffsets[w];
+            if (this.wordOffsets[w + 1] - s == wb.len) {
+                for (int i = 0; i < wb.len; i++) if (this.wordChars[s + i] != wb.b[i]) {
+                    slot = (slot + 1) & (this.wordTable.length - 1);
+                    continue wordloop;
+                }
+                return w;
+            }
+            slot = (slot + 1) & (this.wordTable.length - 1);
+        }
+        return -1;
+    }
+
+    private int child(final int node, final int word) {
+        final long key = edgeKey(node, word);
+        int slot = mix(key) & (this.edgeKeys.length - 1);
+        long k;
+        while ((k = this.edgeKeys[slot]) != -1L) {
+            if (k == key) return this.edgeValues[slot];
+            slot = (slot + 1) & (this.edgeKeys.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * tag a text
+     * @param text the text
+     * @param tags a map from vocabulary name to a set of tag print names; the tags of the text are added to this map
+     * @return the tags map
+     */
+    public Map<String, Set<String>> tag(final CharSequence text, final Map<String, Set<String>> tags) {
+        if (this.entries == 0 || text == null) return tags;
+        final Scan scan = new Scan(tags);
+        final int len = text.length();
+        for (int i = 0; i < len; i++) scan.next(text.charAt(i));
+        scan.next(' ');
+        return tags;
+    }
+
+    /**
+     * tag a text which is read from a reader; the text is not copied into a string
+     * @param text the text
+     * @param tags a map from vocabulary name to a set of tag print names; the tags of the text are added to this map
+     * @return the tags map
+     * @throws IOException if the reader fails
+     */
+    public Map<String, Set<String>> tag(final Reader text, final Map<String, Set<String>> tags) throws IOException {
+        if (this.entries == 0 || text == null) return tags;
+        final Scan scan = new Scan(tags);
+        final char[] buffer = new char[4096];
+        int n;
+        while ((n = text.read(buffer, 0, buffer.length)) >= 0) {
+            for (int i = 0; i < n; i++) scan.next(buffer[i]);
+        }
+        scan.next(' ');
+        return tags;
+    }
+
+    /**
+     * the state of one scan of a text: the current word and the active nodes of the trie
+     */
+    private class Scan {
+        private final Map<String, Set<String>> tags;
+        private final WordBuffer wb = new WordBuffer();
+        private int[] active = new int[AutotaggingAutomaton.this.maxWords + 1], next = new int[AutotaggingAutomaton.this.maxWords + 1];
+        private int activeCount = 0;
+
+        private Scan(final Map<String, Set<String>> tags) {
+            this.tags = tags;
+        }
+
+        private void next(final char c) {
+            if (Character.isLetterOrDigit(c)) {
+                this.wb.add(c);
+                return;
+            }
+            if (this.wb.len == 0) return;
+
+            // a word is complete: advance all active states and the root
+            final int w = word(this.wb);
+            this.wb.reset();
+            if (w < 0) {
+                this.activeCount = 0;
+                return;
+            }
+            int nextCount = 0;
+            for (int a = 0; a <= this.activeCount; a++) {
+                final int node = child(a < this.activeCount ? this.active[a] : 0, w);
+                if (node < 0) continue;
+                if (nextCount < this.next.length) this.next[nextCount++] = node;
+                for (int h = AutotaggingAutomaton.this.hitOffsets[node]; h < AutotaggingAutomaton.this.hitOffsets[node + 1]; h++) {
+                    final String vocabulary = AutotaggingAutomaton.this.vocabularies[AutotaggingAutomaton.this.hitVocabulary[h]];
+                    Set<String> t = this.tags.get(vocabulary);
+                    if (t == null) {
+                        t = new LinkedHashSet<>();
+                        this.tags.put(vocabulary, t);
+                    }
+                    t.add(AutotaggingAutomaton.this.terms[AutotaggingAutomaton.this.hitTerm[h]]);
+                }
+            }
+            final int[] x = this.active; this.active = this.next; this.next = x;
+            this.activeCount = nextCount;
+        }
+    }
+
+    /**
+     * tag a text
+     * @param text the text
+     * @return a map from vocabulary name to the set of tag print names which appear in the text
+     */
+    public Map<String, Set<String>> tag(final CharSequence text) {
+        return tag(text, new LinkedHashMap<String, Set<String>>());
+    }
+
+    /**
+     * @return the number of synonyms in the automaton
+     */
+    public int size() {
+        return this.entries;
+    }
+
+    public boolean isEmpty() {
+        return this.entries == 0;
+    }
+
+    /**
+     * @return the maximum number of words of a synonym
+     */
+    public int getMaxWords() {
+        return this.maxWords;
+    }
+
+    /**
+     * @return the number of distinct normalized words in all synonyms
+     */
+    public int wordCount() {
+        return this.wordOffsets.length - 1;
+    }
+
+    /**
+     * @return the number of heap bytes which are used by the arrays of the automaton, not counting the term strings
+     */
+    public long heapSize() {
+        return 16L * 9 + 2L * this.wordChars.length + 4L * this.wordOffsets.length + 4L * this.wordTable.length +
+                8L * this.edgeKeys.length + 4L * this.edgeValues.length + 4L * this.hitOffsets.length +
+                4L * this.hitVocabulary.length + 4L * this.hitTerm.length + 8L * this.terms.length;
+    }
+
+    /**
+     * benchmark the automaton against the per-term lookup with AutotaggingLibrary.getTagFromTerm
+     * @param args the libraries path (i.e. conf/libraries) followed by a list of text or html files
+     */
+    public static void main(final String[] args) {
+        LibraryProvider.initialize(new File(args[0]));
+        final AutotaggingLibrary library = LibraryProvider.autotagging;
+        long start = System.nanoTime();
+        final AutotaggingAutomaton automaton = new AutotaggingAutomaton(library.getVocabularies());
+        System.out.println("compiled " + automaton.size() + " synonyms, " + automaton.wordCount() + " words, max " + automaton.getMaxWords() +
+                " words per synonym in " + (System.nanoTime() - start) / 1000000 + " milliseconds, " + automaton.heapSize() / 1024 + " KB");
+        final Set<String> vocabularyNames = library.getVocabularyNames();
+        final int rounds = 20;
+        for (int a = 1; a < args.length; a++) {
+            try {
+                final String text = new String(FileUtils.read(new File(args[a])), StandardCharsets.UTF_8);
+                Map<String, Set<String>> tags = null;
+                start = System.nanoTime();
+                for (int r = 0; r < rounds; r++) tags = automaton.tag(text);
+                final long automatonTime = (System.nanoTime() - start) / rounds;
+
+                // reference: look up all compounds of up to getMaxWordsInTerm words which end at each word
+                final Set<Tagging.Metatag> reference = new HashSet<>();
+                final int maxWords = library.getMaxWordsInTerm();
+                start = System.nanoTime();
+                for (int r = 0; r < rounds; r++) {
+                    reference.clear();
+                    final String[] words = text.split("[^\\p{L}\\p{N}]+");
+                    for (int i = 0; i < words.length; i++) {
+                        final StringBuilder sb = new StringBuilder();
+                        for (int j = i; j >= 0 && j > i - maxWords; j--) {
+                            sb.insert(0, ' ').insert(0, words[j]);
+                            final Tagging.Metatag tag = library.getTagFromTerm(vocabularyNames, sb.toString());
+                            if (tag != null) reference.add(tag);
+                        }
+                    }
+                }
+                final long referenceTime = (System.nanoTime() - start) / rounds;
+                int count = 0;
+                for (final Set<String> t: tags.values()) count += t.size();
+                System.out.println(args[a] + ": " + text.length() + " chars, automaton " + count + " tags in " + automatonTime / 1000 + " microseconds (" +
+                        (text.length() * 1000L / Math.max(1, automatonTime)) + " MB/s), per-term lookup " + reference.size() + " tags in " + referenceTime / 1000 + " microseconds");
+                System.out.println("  " + tags);
+            } catch (final IOException e) {
+                System.out.println(args[a] + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ package net.yacy.cora.language.synonyms;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
@@ -45,6 +46,9 @@ public class AutotaggingLibrary {
     private final File autotaggingPath;
     private final Map<String, Tagging> vocabularies; // mapping from vocabulary name to the tagging vocabulary
     private final Map<String, Object> allTags;
+    private static final AutotaggingAutomaton EMPTY = new AutotaggingAutomaton(new ArrayList<Tagging>(0));
+
+    private volatile AutotaggingAutomaton automaton; // compiled from all vocabularies with compile(), empty after a change of the vocabularies
 
     /**
      * create a Autotagging object:
@@ -59,6 +63,7 @@ public class AutotaggingLibrary {
         this.vocabularies = new ConcurrentHashMap<String, Tagging>();
         this.autotaggingPath = autotaggingPath;
         this.allTags = new ConcurrentHashMap<String, Object>();
+        this.automaton = EMPTY;
         if (this.autotaggingPath == null || !this.autotaggingPath.exists()) {
             return;
         }
@@ -87,6 +92,7 @@ public class AutotaggingLibrary {
 
     public void deleteVocabulary(String name) {
         Tagging v = this.vocabularies.remove(name);
+        this.automaton = EMPTY;
         if (v == null || v.getFile() == null) return;
         v.getFile().delete();
     }
@@ -112,6 +118,7 @@ public class AutotaggingLibrary {
 
     public void addVocabulary(Tagging voc) {
         this.vocabularies.put(voc.getName(), voc);
+        this.automaton = EMPTY;
         for (String t: voc.tags()) {
             this.allTags.put(t, PRESENT);
         }
@@ -125,6 +132,7 @@ public class AutotaggingLibrary {
         } catch (final IOException e) {
         }
         this.vocabularies.put("Locations", voc);
+        this.automaton = EMPTY;
         for (String t: voc.tags()) {
             this.allTags.put(t, PRESENT);
         }
@@ -132,6 +140,7 @@ public class AutotaggingLibrary {
 
     public void removePlaces() {
         this.vocabularies.remove("Locations");
+        this.automaton = EMPTY;
     }
 
     public int size() {
@@ -142,13 +151,33 @@ public class AutotaggingLibrary {
     	return this.vocabularies.isEmpty();
     }
 
+    /**
+     * compile all vocabularies into the automaton which is returned by getAutomaton().
+     * This must be called after the vocabularies are loaded or changed; LibraryProvider does this at the end of the initialization.
+     * @return the compiled vocabularies
+     */
+    public synchronized AutotaggingAutomaton compile() {
+        final long start = System.currentTimeMillis();
+        final AutotaggingAutomaton a = new AutotaggingAutomaton(this.vocabularies.values());
+        this.automaton = a;
+        Logger.info(this.getClass(), "compiled autotagging automaton with " + a.size() + " synonyms in " + (System.currentTimeMillis() - start) + " milliseconds");
+        return a;
+    }
+
+    /**
+     * get the automaton which tags texts with all vocabularies in one scan.
+     * @return the vocabularies as compiled by the last call of compile(); an empty automaton if the vocabularies changed since then
+     */
+    public AutotaggingAutomaton getAutomaton() {
+        return this.automaton;
+    }
+
     /**
      * maximum number of compound tags (number of words in one tag)
-     * @return
+     * @return the maximum number of words in one synonym of the compiled vocabularies, at least 1
      */
     public int getMaxWordsInTerm() {
-    	//TODO: calculate from database
-    	return 4;
+        return Math.max(1, this.automaton.getMaxWords());
     }
 
     public Tagging.Metatag getTagFromTerm(Set<String> vocabularies, String term) {
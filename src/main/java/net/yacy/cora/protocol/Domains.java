@@ -47,13 +47,14 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import com.google.common.net.InetAddresses;
-import com.google.common.util.concurrent.UncheckedTimeoutException;
 
 import net.yacy.cora.plugin.ClassProvider;
 import net.yacy.cora.storage.ConcurrentARC;
@@ -61,7 +62,6 @@ import net.yacy.cora.storage.KeyList;
 import net.yacy.grid.tools.ARC;
 import net.yacy.grid.tools.CommonPattern;
 import net.yacy.grid.tools.Logger;
-import net.yacy.kelondro.util.NamePrefixThreadFactory;
 
 public class Domains {
 
@@ -722,9 +722,6 @@ public class Domains {
 
     public static synchronized void close() {
         if (globalHosts != null) try {globalHosts.close();} catch (final IOException e) {Logger.warn(e);}
-        if(getByNameService != null) {
-        	getByNameService.shutdownNow();
-        }
     }
 
     /**
@@ -793,7 +790,8 @@ public class Domains {
         cacheHit_Insert++;
     }
 
-    final private static ExecutorService getByNameService = Executors.newCachedThreadPool(new NamePrefixThreadFactory("InetAddress.getByName"));
+    /** time-out for a dns lookup in milliseconds */
+    public static long DNS_TIMEOUT = 3000;
 
     /**
      * strip off any parts of an url, address string (containing host/ip:port) or raw IPs/Hosts,
@@ -939,12 +937,20 @@ public class Domains {
                 }
                 Thread.currentThread().setName(oldName);
                 if (ip == null) try {
-                    //ip = timeLimiter.callWithTimeout(() -> InetAddress.getByName(host), 3000L, TimeUnit.MILLISECONDS);
-                    ip = InetAddress.getByName(host); // this makes the DNS request to backbone
-                } catch (final UncheckedTimeoutException e) {
-                	// in case of a timeout - maybe cause of massive requests - do not fill NAME_CACHE_MISS
-                	LOOKUP_SYNC.remove(host);
-                    return null;
+                    // this makes the DNS request to backbone
+                    ip = new TimeoutRequest<InetAddress>(new Callable<InetAddress>() {
+                        @Override
+                        public InetAddress call() throws UnknownHostException {
+                            return InetAddress.getByName(host);
+                        }
+                    }).call(DNS_TIMEOUT);
+                } catch (final ExecutionException e) {
+                    if (e.getCause() instanceof TimeoutException || e.getCause() instanceof RejectedExecutionException) {
+                        // in case of a timeout - maybe cause of massive requests - do not fill NAME_CACHE_MISS
+                        LOOKUP_SYNC.remove(host);
+                        return null;
+                    }
+                    throw e.getCause();
                 }
                 //.out.println("DNSLOOKUP-*LOOKUP* " + host + ", time = " + (System.currentTimeMillis() - t) + "ms");
             } catch (final Throwable e) {
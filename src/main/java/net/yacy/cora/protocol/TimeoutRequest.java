@@ -29,18 +29,23 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jcifs.smb.SmbException;
 import jcifs.smb.SmbFile;
-import net.yacy.grid.tools.Logger;
+import net.yacy.cora.util.HashedWheelTimer;
 import net.yacy.kelondro.util.NamePrefixThreadFactory;
 
 /**
@@ -49,11 +54,116 @@ import net.yacy.kelondro.util.NamePrefixThreadFactory;
  * time-out value. Using this class all network operations may be timed out.
  * This class provides also some static methods that give already solutions for typical
  * network operations that should be timed-out, like dns resolving and reverse domain name resolving.
+ * Timed calls run on bounded pools of worker threads and one timer cancels (interrupts) a call when its timeout
+ * expires; the time a call waits for a worker thread counts to its timeout. Tasks which are submitted with a
+ * deadline, i.e. pdf page ranges, and blocking lookups (dns, ping, smb) have their own pools, so that lookups
+ * do not wait behind long tasks.
  */
 public class TimeoutRequest<E> {
 
     public static boolean enable = true; // for tests
 
+    /** maximum number of threads which execute submitted tasks; this must be set before the first call */
+    public static int THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+    /** maximum number of threads which execute blocking lookups; this must be set before the first call */
+    public static int LOOKUP_THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+    /** maximum number of timed calls which wait for a worker thread in each pool; further calls are rejected */
+    public static int QUEUE_SIZE = 4096;
+
+    private static final HashedWheelTimer timer = new HashedWheelTimer("TimeoutRequest.timer", 10, 512);
+    private static volatile ThreadPoolExecutor workers = null, lookups = null;
+    private static final AtomicLong submitted = new AtomicLong(0), timeouts = new AtomicLong(0), rejected = new AtomicLong(0);
+
+    private static synchronized ThreadPoolExecutor workers() {
+        if (workers == null) workers = pool(THREADS, "TimeoutRequest");
+        return workers;
+    }
+
+    private static synchronized ThreadPoolExecutor lookups() {
+        if (lookups == null) lookups = pool(LOOKUP_THREADS, "TimeoutRequest.lookup");
+        return lookups;
+    }
+
+    private static ThreadPoolExecutor pool(final int threads, final String name) {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new NamePrefixThreadFactory(name));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * a task which removes its timeout from the timer when it is done
+     */
+    private static class TimedTask<E> extends FutureTask<E> {
+        private volatile HashedWheelTimer.Timeout timeout = null;
+
+        private TimedTask(final Callable<E> call) {
+            super(call);
+        }
+
+        @Override
+        protected void done() {
+            final HashedWheelTimer.Timeout t = this.timeout;
+            if (t != null) t.cancel();
+        }
+    }
+
+    /**
+     * run a call on the shared worker pool with a timeout. When the timeout expires before the call is finished,
+     * the future is cancelled and the thread which executes the call is interrupted. This is meant for tasks
+     * with a deadline; blocking lookups are done with call(long) on their own pool.
+     * @param call the call
+     * @param timeout the timeout in milliseconds, including the time the call waits for a worker thread
+     * @return the future of the call
+     * @throws RejectedExecutionException if too many calls wait for a worker thread
+     */
+    public static <E> Future<E> submit(final Callable<E> call, final long timeout) throws RejectedExecutionException {
+        return submit(call, timeout, workers());
+    }
+
+    private static <E> Future<E> submit(final Callable<E> call, final long timeout, final ThreadPoolExecutor pool) throws RejectedExecutionException {
+        final TimedTask<E> task = new TimedTask<>(call);
+        final HashedWheelTimer.Timeout t = timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (task.cancel(true)) timeouts.incrementAndGet();
+            }
+        }, timeout);
+        task.timeout = t;
+        try {
+            pool.execute(task);
+        } catch (final RejectedExecutionException e) {
+            t.cancel();
+            rejected.incrementAndGet();
+            throw e;
+        }
+        submitted.incrementAndGet();
+        return task;
+    }
+
+    /**
+     * @return the number of timed calls, fired timeouts, rejected calls and the usage of the worker threads;
+     * pools which are not created yet are reported with zero threads
+     */
+    public static Map<String, Long> getStatistics() {
+        final Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("submitted", submitted.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("rejected", rejected.get());
+        stats.put("pending", timer.pending());
+        poolStatistics(stats, "", workers);
+        poolStatistics(stats, "lookup.", lookups);
+        return stats;
+    }
+
+    private static void poolStatistics(final Map<String, Long> stats, final String prefix, final ThreadPoolExecutor pool) {
+        stats.put(prefix + "threads", pool == null ? 0L : (long) pool.getPoolSize());
+        stats.put(prefix + "active", pool == null ? 0L : (long) pool.getActiveCount());
+        stats.put(prefix + "largest", pool == null ? 0L : (long) pool.getLargestPoolSize());
+        stats.put(prefix + "queued", pool == null ? 0L : (long) pool.getQueue().size());
+    }
+
     private final Callable<E> call;
 
     /**
@@ -64,10 +174,11 @@ public class TimeoutRequest<E> {
     }
 
     /**
-     * call the method using a time-out
+     * call the method using a time-out on the pool for blocking lookups
      * @param timeout
      * @return
-     * @throws ExecutionException
+     * @throws ExecutionException with a TimeoutException as cause if the time-out expired,
+     * with a RejectedExecutionException as cause if too many calls are waiting
      */
     public E call(final long timeout) throws ExecutionException {
         if (!enable) {try {
@@ -76,39 +187,20 @@ public class TimeoutRequest<E> {
             throw new ExecutionException(e1);
         }
         }
-		final ExecutorService service = Executors
-				.newSingleThreadExecutor(new NamePrefixThreadFactory("TimeoutRequest"));
+        final Future<E> taskFuture;
         try {
-            final Future<E> taskFuture = service.submit(this.call);
-            final Runnable t = new Runnable() {
-                @Override
-                public void run() { taskFuture.cancel(true); }
-            };
-            service.execute(t);
-            service.shutdown();
-            try {
-                return taskFuture.get(timeout, TimeUnit.MILLISECONDS);
-            } catch (final CancellationException e) {
-                // callable was interrupted
-                throw new ExecutionException(e);
-            } catch (final InterruptedException e) {
-                // service was shutdown
-                throw new ExecutionException(e);
-            } catch (final ExecutionException e) {
-                // callable failed unexpectedly
-                throw e;
-            } catch (final TimeoutException e) {
-                // time-out
-                throw new ExecutionException(e);
-            }
-        } catch (final OutOfMemoryError e) {
-            Logger.warn(this.getClass(), "OutOfMemoryError / retry follows", e);
-            // in case that no memory is there to create a new native thread
-            try {
-                return this.call.call();
-            } catch (final Exception e1) {
-                throw new ExecutionException(e1);
-            }
+            taskFuture = submit(this.call, timeout, lookups());
+        } catch (final RejectedExecutionException e) {
+            throw new ExecutionException(e);
+        }
+        try {
+            return taskFuture.get(); // the timer cancels the task when the time-out expires
+        } catch (final CancellationException e) {
+            // time-out
+            throw new ExecutionException(new TimeoutException("time-out after " + timeout + " milliseconds"));
+        } catch (final InterruptedException e) {
+            taskFuture.cancel(true);
+            throw new ExecutionException(e);
         }
     }
 
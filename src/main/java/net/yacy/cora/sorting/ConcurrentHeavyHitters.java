@@ -0,0 +1,370 @@
+/**
+ *  ConcurrentHeavyHitters
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.sorting;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.yacy.cora.util.StringBuilderComparator;
+
+/**
+ * The most frequent words of a word stream, counted concurrently without a global lock.
+ * The heavy hitters are kept in a hash map for counting and in a sorted map which can be searched by prefix;
+ * both maps share one atomic counter for each word.
+ * All other words are counted in a count-min sketch, a matrix of atomic counters with one row for each hash
+ * function; the estimated count of a word is the minimum of its counters, it may be too high but never too low.
+ * The columns are computed from two independent hashes of the word, so words with the same String.hashCode,
+ * which is frequent for short words, do not share their counters in all rows.
+ * A word which is not in the map enters it at once, like a new word of an OrderedScoreMap, so a word which was
+ * learned recently can be found with tailMap until the next shrink; its count is the estimate of the sketch, which
+ * includes the counts of the word since it was removed by an earlier shrink. When the map reaches its maximum size,
+ * one thread removes the words with the lowest counts down to the half of the maximum size, the others go on counting.
+ * The frequent words do not touch the sketch, so the threads do not compete for the same sketch counters.
+ * Words are compared case-insensitive, like with the StringBuilderComparator.CASE_INSENSITIVE_ORDER.
+ */
+public class ConcurrentHeavyHitters {
+
+    private static final int DEPTH = 4; // number of hash functions
+    private static final int AGE_LIMIT = 1 << 30; // all counts are halved when a count reaches this limit
+
+    private final int maxSize;
+    private final int width, mask;
+    private final AtomicIntegerArray sketch; // [row * width + column]
+    private final ConcurrentHashMap<String, AtomicInteger> counts; // the heavy hitters by their case-folded word
+    private final ConcurrentSkipListMap<StringBuilder, AtomicInteger> heavy;
+    private final AtomicInteger heavySize; // the size of the skip list map is not a constant-time operation
+    private final ReentrantLock shrinkLock;
+
+    /**
+     * @param maxSize the maximum number of heavy hitters
+     * @param width the number of counters of each sketch row, rounded up to a power of two
+     */
+    public ConcurrentHeavyHitters(final int maxSize, final int width) {
+        this.maxSize = maxSize;
+        int w = 1;
+        while (w < width) w <<= 1;
+        this.width = w;
+        this.mask = w - 1;
+        this.sketch = new AtomicIntegerArray(DEPTH * w);
+        this.counts = new ConcurrentHashMap<>(maxSize * 4 / 3 + 1);
+        this.heavy = new ConcurrentSkipListMap<>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
+        this.heavySize = new AtomicInteger(0);
+        this.shrinkLock = new ReentrantLock();
+    }
+
+    /**
+     * count a word
+     * @param word the word; it is copied if it becomes a heavy hitter, the caller may change it afterwards
+     */
+    public void inc(final StringBuilder word) {
+        final String key = fold(word);
+        final AtomicInteger score = this.counts.get(key);
+        if (score != null) {
+            if (score.incrementAndGet() >= AGE_LIMIT) age();
+            return;
+        }
+        final int hash = mix(key.hashCode()), hash2 = fnv(key) | 1;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            final int count = this.sketch.incrementAndGet(row * this.width + (mix(hash + row * hash2) & this.mask));
+            if (count < estimate) estimate = count;
+        }
+        if (estimate >= AGE_LIMIT) age();
+        final AtomicInteger newScore = new AtomicInteger(estimate);
+        if (this.counts.putIfAbsent(key, newScore) == null) {
+            this.heavy.put(new StringBuilder(word), newScore);
+            if (this.heavySize.incrementAndGet() >= this.maxSize) shrink();
+        } else {
+            inc(word); // another thread has admitted the word concurrently
+        }
+    }
+
+    /**
+     * remove the words with the lowest counts until at most the half of the maximum size is left.
+     * Only one thread shrinks at a time; if another thread is already shrinking, the call returns at once.
+     */
+    private void shrink() {
+        if (!this.shrinkLock.tryLock()) return;
+        try {
+            if (this.heavySize.get() < this.maxSize) return;
+
+            // find the lowest count which is kept, so that at most the half of the maximum size remains
+            int[] scores = new int[this.maxSize + this.maxSize / 4];
+            int n = 0;
+            for (final AtomicInteger score: this.counts.values()) {
+                if (n == scores.length) scores = Arrays.copyOf(scores, n * 2);
+                scores[n++] = score.get();
+            }
+            Arrays.sort(scores, 0, n);
+            final int keep = this.maxSize / 2;
+            int minScore = n <= keep ? 0 : scores[n - keep - 1] + 1;
+
+            // remove all words below that count, as OrderedScoreMap.shrinkToMaxSize does
+            int removed = 0;
+            final Iterator<Map.Entry<StringBuilder, AtomicInteger>> i = this.heavy.entrySet().iterator();
+            while (i.hasNext()) {
+                final Map.Entry<StringBuilder, AtomicInteger> entry = i.next();
+                if (entry.getValue().get() < minScore) {
+                    i.remove();
+                    this.counts.remove(fold(entry.getKey()));
+                    removed++;
+                }
+            }
+            this.heavySize.addAndGet(-removed);
+        } finally {
+            this.shrinkLock.unlock();
+        }
+    }
+
+    /**
+     * halve all counts before they overflow. Several threads may reach the limit at the same time,
+     * the counts are halved only by the first one.
+     */
+    private void age() {
+        this.shrinkLock.lock();
+        try {
+            boolean limit = false;
+            for (int j = 0; j < this.sketch.length() && !limit; j++) limit = this.sketch.get(j) >= AGE_LIMIT;
+            for (final AtomicInteger score: this.counts.values()) {if (limit) break; limit = score.get() >= AGE_LIMIT;}
+            if (!limit) return;
+            for (int j = 0; j < this.sketch.length(); j++) {
+                int v;
+                do {v = this.sketch.get(j);} while (v > 1 && !this.sketch.compareAndSet(j, v, v >>> 1));
+            }
+            for (final AtomicInteger score: this.counts.values()) {
+                int v;
+                do {v = score.get();} while (v > 1 && !score.compareAndSet(v, v >>> 1));
+            }
+        } finally {
+            this.shrinkLock.unlock();
+        }
+    }
+
+    /**
+     * @return the word in a form which is equal for all words which are equal for the case-insensitive comparator
+     */
+    private static String fold(final StringBuilder word) {
+        final char[] c = new char[word.length()];
+        for (int i = 0; i < c.length; i++) c[i] = Character.toLowerCase(Character.toUpperCase(word.charAt(i)));
+        return new String(c);
+    }
+
+    /**
+     * the FNV-1a hash of the characters of a word, independent of String.hashCode
+     */
+    private static int fnv(final String key) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x01000193;
+        }
+        return h;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @param word a word
+     * @return the count of the word if it is a heavy hitter, 0 otherwise
+     */
+    public int get(final StringBuilder word) {
+        final AtomicInteger score = this.counts.get(fold(word));
+        return score == null ? 0 : score.get();
+    }
+
+    public boolean containsKey(final StringBuilder word) {
+        return this.counts.containsKey(fold(word));
+    }
+
+    /**
+     * the heavy hitters starting with the given word. The map is weakly consistent: it can be
+     * iterated while other threads count words and does not throw a ConcurrentModificationException.
+     * @param word the first key
+     * @return the heavy hitters which are equal to or greater than the word, in case-insensitive order
+     */
+    public SortedMap<StringBuilder, AtomicInteger> tailMap(final StringBuilder word) {
+        return this.heavy.tailMap(word);
+    }
+
+    /**
+     * @param count the maximum number of words
+     * @return the heavy hitters with the highest counts, the highest first
+     */
+    public List<StringBuilder> top(final int count) {
+        final List<Map.Entry<StringBuilder, AtomicInteger>> entries = new ArrayList<>();
+        for (final Map.Entry<StringBuilder, AtomicInteger> entry: this.heavy.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), new AtomicInteger(entry.getValue().get())));
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<StringBuilder, AtomicInteger>>() {
+            @Override
+            public int compare(final Map.Entry<StringBuilder, AtomicInteger> o1, final Map.Entry<StringBuilder, AtomicInteger> o2) {
+                return Integer.compare(o2.getValue().get(), o1.getValue().get());
+            }
+        });
+        final List<StringBuilder> top = new ArrayList<>(Math.min(count, entries.size()));
+        for (int i = 0; i < count && i < entries.size(); i++) top.add(entries.get(i).getKey());
+        return top;
+    }
+
+    /**
+     * @return the number of heavy hitters
+     */
+    public int size() {
+        return this.heavySize.get();
+    }
+
+    public void clear() {
+        this.shrinkLock.lock();
+        try {
+            this.heavy.clear();
+            this.counts.clear();
+            this.heavySize.set(0);
+            for (int j = 0; j < this.sketch.length(); j++) this.sketch.set(j, 0);
+        } finally {
+            this.shrinkLock.unlock();
+        }
+    }
+
+    /**
+     * compare the throughput and the top words of the heavy hitters and a synchronized OrderedScoreMap
+     * with zipf-distributed words and up to 32 threads, then the throughput of 32 threads which contend for
+     * the same few words and of 32 threads which learn only new words. The first pass warms up the just-in-time compiler.
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        final int vocabulary = 200000, perThread = 200000, maxSize = 20000, topCount = 100;
+        final StringBuilder[] words = new StringBuilder[vocabulary];
+        for (int i = 0; i < vocabulary; i++) words[i] = new StringBuilder("word" + Integer.toString(i, 36));
+        final double[] cumulative = new double[vocabulary];
+        double sum = 0.0d;
+        for (int i = 0; i < vocabulary; i++) cumulative[i] = sum += 1.0d / (i + 1);
+        for (int pass = 0; pass < 2; pass++) for (final int threads: new int[]{1, 2, 4, 8, 16, 32}) {
+            final int[][] streams = new int[threads][perThread];
+            final Random random = new Random(threads);
+            for (final int[] stream: streams) for (int i = 0; i < perThread; i++) {
+                final int p = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+                stream[i] = p < 0 ? -p - 1 : p;
+            }
+            final Set<StringBuilder> trueTop = new HashSet<>();
+            for (int i = 0; i < topCount; i++) trueTop.add(words[i]); // the first words are the most frequent
+
+            final OrderedScoreMap<StringBuilder> ordered = new OrderedScoreMap<StringBuilder>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
+            final long orderedTime = run(streams, new Counter() {
+                @Override
+                public void inc(final StringBuilder word) {
+                    synchronized (ordered) {
+                        ordered.inc(word);
+                        if (!ordered.sizeSmaller(maxSize)) ordered.shrinkToMaxSize(maxSize / 2);
+                    }
+                }
+            }, words);
+            int orderedHits = 0;
+            final Iterator<StringBuilder> k = ordered.keys(false);
+            for (int i = 0; i < topCount && k.hasNext(); i++) if (trueTop.contains(k.next())) orderedHits++;
+
+            final ConcurrentHeavyHitters hitters = new ConcurrentHeavyHitters(maxSize, 1 << 16);
+            final long hittersTime = run(streams, new Counter() {
+                @Override
+                public void inc(final StringBuilder word) {
+                    hitters.inc(word);
+                }
+            }, words);
+            int hittersHits = 0;
+            final Set<String> top = new HashSet<>();
+            for (final StringBuilder w: hitters.top(topCount)) top.add(w.toString());
+            for (final StringBuilder w: trueTop) if (top.contains(w.toString())) hittersHits++;
+
+            if (pass > 0) System.out.println(threads + " threads: ordered score map " + orderedTime + " ms, top " + orderedHits + "/" + topCount +
+                    "; heavy hitters " + hittersTime + " ms, top " + hittersHits + "/" + topCount);
+        }
+
+        // contention: 32 threads count the same 16 words, which are all in the map, or only words which are new
+        final int threads = 32;
+        final int[][] hot = new int[threads][perThread];
+        final int[][] fresh = new int[threads][perThread / 4];
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) hot[t][i] = (i + t) % 16;
+            for (int i = 0; i < fresh[t].length; i++) fresh[t][i] = (t * fresh[t].length + i) % vocabulary;
+        }
+        for (int pass = 0; pass < 2; pass++) for (final int[][] streams: new int[][][]{hot, fresh}) {
+            final OrderedScoreMap<StringBuilder> ordered = new OrderedScoreMap<StringBuilder>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
+            final long orderedTime = run(streams, new Counter() {
+                @Override
+                public void inc(final StringBuilder word) {
+                    synchronized (ordered) {
+                        ordered.inc(word);
+                        if (!ordered.sizeSmaller(maxSize)) ordered.shrinkToMaxSize(maxSize / 2);
+                    }
+                }
+            }, words);
+            final ConcurrentHeavyHitters hitters = new ConcurrentHeavyHitters(maxSize, 1 << 16);
+            final long hittersTime = run(streams, new Counter() {
+                @Override
+                public void inc(final StringBuilder word) {
+                    hitters.inc(word);
+                }
+            }, words);
+            if (pass > 0) System.out.println(threads + " threads, " + (streams == hot ? "16 words" : "new words") + ": ordered score map " + orderedTime +
+                    " ms; heavy hitters " + hittersTime + " ms");
+        }
+    }
+
+    private interface Counter {
+        void inc(StringBuilder word);
+    }
+
+    private static long run(final int[][] streams, final Counter counter, final StringBuilder[] words) throws InterruptedException {
+        final Thread[] t = new Thread[streams.length];
+        for (int i = 0; i < t.length; i++) {
+            final int[] stream = streams[i];
+            t[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (final int w: stream) counter.inc(words[w]);
+                }
+            };
+        }
+        final long start = System.currentTimeMillis();
+        for (final Thread thread: t) thread.start();
+        for (final Thread thread: t) thread.join();
+        return System.currentTimeMillis() - start;
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ *  HashedWheelTimer
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.yacy.grid.tools.Logger;
+
+/**
+ * A timer for a large number of timeouts which are usually cancelled before they expire.
+ * The timeouts are kept in a wheel of buckets; one thread advances the wheel tick by tick and runs the
+ * tasks of the expired timeouts of the current bucket. Scheduling and cancellation take constant time and
+ * do not need a lock, the precision of a timeout is one tick. The tasks of expired timeouts are run by the
+ * timer thread and must therefore be short, i.e. cancel a future.
+ */
+public class HashedWheelTimer {
+
+    private static final int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+
+    /**
+     * a scheduled timeout
+     */
+    public static class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private long rounds; // only accessed by the timer thread
+
+        private Timeout(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * cancel the timeout; the task is not run
+         * @return true if the timeout was cancelled, false if it is already expired or cancelled
+         */
+        public boolean cancel() {
+            return this.state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        public boolean isExpired() {
+            return this.state.get() == EXPIRED;
+        }
+    }
+
+    private final String name;
+    private final long tick;
+    private final List<Timeout>[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicLong scheduled = new AtomicLong(0), expired = new AtomicLong(0), cancelled = new AtomicLong(0);
+    private final long start;
+    private volatile Thread worker = null;
+
+    /**
+     * @param name the name of the timer thread
+     * @param tick the duration of a tick in milliseconds
+     * @param buckets the number of buckets in the wheel, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(final String name, final long tick, final int buckets) {
+        this.name = name;
+        this.tick = Math.max(1, tick);
+        int n = 1;
+        while (n < buckets) n <<= 1;
+        this.wheel = new List[n];
+        for (int i = 0; i < n; i++) this.wheel[i] = new ArrayList<>();
+        this.mask = n - 1;
+        this.start = System.currentTimeMillis();
+    }
+
+    /**
+     * schedule a task
+     * @param task the task which is run by the timer thread when the timeout expires
+     * @param delay the delay in milliseconds
+     * @return the timeout which can be cancelled
+     */
+    public Timeout schedule(final Runnable task, final long delay) {
+        final Timeout timeout = new Timeout(task, System.currentTimeMillis() + Math.max(0, delay));
+        this.scheduled.incrementAndGet();
+        this.incoming.add(timeout);
+        if (this.worker == null) startWorker();
+        return timeout;
+    }
+
+    private synchronized void startWorker() {
+        if (this.worker != null) return;
+        this.worker = new Thread(this.name) {
+            @Override
+            public void run() {
+                long ticks = 0;
+                while (true) {
+                    final long next = HashedWheelTimer.this.start + (ticks + 1) * HashedWheelTimer.this.tick;
+                    long sleep;
+                    while ((sleep = next - System.currentTimeMillis()) > 0) {
+                        try {Thread.sleep(sleep);} catch (final InterruptedException e) {}
+                    }
+                    transferIncoming(ticks);
+                    expireBucket(ticks);
+                    ticks++;
+                }
+            }
+        };
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * put the new timeouts into their buckets. A timeout which is already due goes into the current bucket.
+     */
+    private void transferIncoming(final long ticks) {
+        Timeout timeout;
+        while ((timeout = this.incoming.poll()) != null) {
+            if (timeout.state.get() == CANCELLED) {
+                this.cancelled.incrementAndGet();
+                continue;
+            }
+            final long due = Math.max(ticks, (timeout.deadline - this.start) / this.tick);
+            timeout.rounds = (due - ticks) / this.wheel.length;
+            this.wheel[(int) (due & this.mask)].add(timeout);
+        }
+    }
+
+    /**
+     * run the tasks of the expired timeouts of a bucket; the remaining timeouts are compacted in place
+     */
+    private void expireBucket(final long ticks) {
+        final List<Timeout> bucket = this.wheel[(int) (ticks & this.mask)];
+        int keep = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            final Timeout timeout = bucket.get(i);
+            if (timeout.state.get() == CANCELLED) {
+                this.cancelled.incrementAndGet();
+            } else if (timeout.rounds <= 0) {
+                if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                    this.expired.incrementAndGet();
+                    try {
+                        timeout.task.run();
+                    } catch (final Throwable e) {
+                        Logger.warn("timer task failed", e);
+                    }
+                } else {
+                    this.cancelled.incrementAndGet();
+                }
+            } else {
+                timeout.rounds--;
+                bucket.set(keep++, timeout);
+            }
+        }
+        bucket.subList(keep, bucket.size()).clear();
+    }
+
+    /**
+     * @return the number of scheduled timeouts
+     */
+    public long scheduled() {
+        return this.scheduled.get();
+    }
+
+    /**
+     * @return the number of timeouts which expired and ran their task
+     */
+    public long expired() {
+        return this.expired.get();
+    }
+
+    /**
+     * @return the number of timeouts which are neither expired nor removed from the wheel after their cancellation
+     */
+    public long pending() {
+        return this.scheduled.get() - this.expired.get() - this.cancelled.get();
+    }
+
+}
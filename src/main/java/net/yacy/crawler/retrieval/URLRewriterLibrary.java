@@ -21,7 +21,11 @@
 package net.yacy.crawler.retrieval;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.regex.Matcher;
@@ -31,20 +35,49 @@ import java.util.regex.PatternSyntaxException;
 import net.yacy.cora.storage.Files;
 import net.yacy.grid.tools.Logger;
 
+/**
+ * A list of url rewriting rules; each rule is a regular expression and a replacement.
+ * Rules are applied in the order of their definition: files in the order of their names, lines in file order.
+ * A rule is applied to every part of the url which is found by its pattern.
+ * To avoid that every rule is tried on every url, the rules are indexed:
+ * <ul>
+ * <li>rules which are anchored to the start of the url with a literal host, like ^https?://www\.example\.com/, are indexed by that host</li>
+ * <li>rules which contain a literal part that every match must contain are indexed by three characters of that part</li>
+ * <li>all other rules are tried on every url</li>
+ * </ul>
+ */
 public class URLRewriterLibrary {
 
+    private static class Rule {
+        private final Pattern pattern;
+        private final String replacement;
+        private final String literal; // a string which is contained in every match, or null
+        private int offset; // the position of the indexed trigram within the literal
+        private Rule(final Pattern pattern, final String replacement) {
+            this.pattern = pattern;
+            this.replacement = replacement;
+            this.literal = requiredLiteral(pattern);
+        }
+    }
+
     private final File rewritingPath;
-    private final Map<Pattern, String> rewriters;
+    private final List<Rule> rules;                 // rule number = position in this list
+    private final Map<String, int[]> hostRules;     // host -> rule numbers
+    private long[] trigramKeys;                     // open addressing table of literal trigrams, 0 = empty
+    private int[][] trigramRules;                   // rule numbers for each trigram
+    private int trigramCount;
+    private final BitSet unindexed;                 // rules which must be tried on every url
 
     public URLRewriterLibrary(final File rewritingPath) {
-        this.rewriters = new HashMap<Pattern, String>();
-        this.rewritingPath = rewritingPath;
-        if (this.rewritingPath == null || !this.rewritingPath.exists()) {
+        this();
+        if (rewritingPath == null || !rewritingPath.exists()) {
             return;
         }
-        final String[] files = this.rewritingPath.list();
+        final String[] files = rewritingPath.list();
+        if (files == null) return;
+        Arrays.sort(files); // the rule order must not depend on the file system
         for (final String f: files) {
-            File ff = new File(this.rewritingPath, f);
+            File ff = new File(rewritingPath, f);
             try {
                 BlockingQueue<String> list = Files.concurentLineReader(ff);
                 String line;
@@ -55,44 +88,410 @@ public class URLRewriterLibrary {
                         int p = line.indexOf('=');
                         if (p < 0) p = line.indexOf(':');
                         if (p > 0) try {
-                            this.rewriters.put(Pattern.compile(line.substring(0, p)), line.substring(p + 1));
+                            add(Pattern.compile(line.substring(0, p)), line.substring(p + 1));
                         } catch (final PatternSyntaxException e) {
                             Logger.warn("bad pattern: " + line.substring(0, p));
                         }
                     }
                 }
             } catch (final Throwable e) {
-                Logger.warn("cannot read stemming file " + f, e);
+                Logger.warn("cannot read rewriting file " + f, e);
             }
         }
     }
 
     public URLRewriterLibrary() {
-        this.rewriters = new HashMap<Pattern, String>();
         this.rewritingPath = null;
+        this.rules = new ArrayList<>();
+        this.hostRules = new HashMap<>();
+        this.trigramKeys = new long[16];
+        this.trigramRules = new int[16][];
+        this.trigramCount = 0;
+        this.unindexed = new BitSet();
     }
 
+    /**
+     * add a rule after all other rules
+     * @param pattern the pattern which is searched in the url
+     * @param replacement the replacement for every match, may contain group references like $1
+     */
+    public void add(final Pattern pattern, final String replacement) {
+        final int n = this.rules.size();
+        final Rule rule = new Rule(pattern, replacement);
+        this.rules.add(rule);
+        final String host = anchoredHost(pattern);
+        if (host != null) {
+            final int[] r = this.hostRules.get(host);
+            this.hostRules.put(host, append(r, n));
+        } else if (rule.literal != null) {
+            // index the rule with the trigram of the literal which has the fewest rules so far
+            long key = 0;
+            int min = Integer.MAX_VALUE;
+            for (int p = 0; p + 3 <= rule.literal.length(); p++) {
+                final long k = trigram(rule.literal, p);
+                final int[] r = getTrigram(k);
+                final int c = r == null ? 0 : r.length;
+                if (c < min) {key = k; min = c; rule.offset = p;}
+            }
+            putTrigram(key, n);
+        } else {
+            this.unindexed.set(n);
+        }
+    }
+
+    /**
+     * @return the number of rules
+     */
+    public int size() {
+        return this.rules.size();
+    }
+
+    public boolean isEmpty() {
+        return this.rules.isEmpty();
+    }
+
+    /**
+     * rewrite an url with all rules which apply to it
+     * @param s the url
+     * @return the rewritten url or s if no rule changed it
+     */
     public String apply(String s) {
-        if (this.rewriters == null || this.rewriters.size() == 0) return s;
-        for (Map.Entry<Pattern, String> entry: this.rewriters.entrySet()) {
-            Matcher m = entry.getKey().matcher(s);
-            if (m.matches()) s = m.replaceAll(entry.getValue());
+        if (this.rules.isEmpty()) return s;
+        BitSet candidates = candidates(s);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            final Rule rule = this.rules.get(i);
+            final Matcher m = rule.pattern.matcher(s);
+            if (!m.find()) continue;
+            final String r = m.replaceAll(rule.replacement);
+            if (r.equals(s)) continue;
+            s = r;
+            candidates = candidates(s); // the following rules are selected using the rewritten url
         }
         return s;
     }
 
+    /**
+     * rewrite an url by trying all rules in order; this is the same as apply() without using the index
+     */
+    public String applyAll(String s) {
+        for (final Rule rule: this.rules) {
+            final Matcher m = rule.pattern.matcher(s);
+            if (m.find()) s = m.replaceAll(rule.replacement);
+        }
+        return s;
+    }
+
+    private BitSet candidates(final String s) {
+        final BitSet candidates = (BitSet) this.unindexed.clone();
+        if (!this.hostRules.isEmpty()) {
+            final int[] r = this.hostRules.get(host(s));
+            if (r != null) for (final int i: r) candidates.set(i);
+        }
+        if (this.trigramCount > 0 && s.length() >= 3) {
+            long key = trigram(s, 0);
+            for (int p = 0; ; p++) {
+                final int[] r = getTrigram(key);
+                if (r != null) for (final int i: r) {
+                    final Rule rule = this.rules.get(i);
+                    if (!candidates.get(i) && p >= rule.offset && s.startsWith(rule.literal, p - rule.offset)) candidates.set(i);
+                }
+                if (p + 3 >= s.length()) break;
+                key = ((key << 16) | s.charAt(p + 3)) & 0xFFFFFFFFFFFFL;
+            }
+        }
+        return candidates;
+    }
+
+    private static int[] append(final int[] a, final int v) {
+        if (a == null) return new int[] {v};
+        final int[] b = Arrays.copyOf(a, a.length + 1);
+        b[a.length] = v;
+        return b;
+    }
+
+    private static long trigram(final String s, final int p) {
+        return (((long) s.charAt(p)) << 32) | (((long) s.charAt(p + 1)) << 16) | s.charAt(p + 2);
+    }
+
+    private static int slot(final long key, final int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private int[] getTrigram(final long key) {
+        final int mask = this.trigramKeys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            final long k = this.trigramKeys[i];
+            if (k == key) return this.trigramRules[i];
+            if (k == 0) return null;
+        }
+    }
+
+    private void putTrigram(final long key, final int rule) {
+        if (key == 0) { // not representable in the table, would need three NUL characters
+            this.unindexed.set(rule);
+            return;
+        }
+        if ((this.trigramCount + 1) * 2 > this.trigramKeys.length) {
+            final long[] keys = this.trigramKeys;
+            final int[][] rules = this.trigramRules;
+            this.trigramKeys = new long[keys.length * 2];
+            this.trigramRules = new int[keys.length * 2][];
+            final int mask = this.trigramKeys.length - 1;
+            for (int j = 0; j < keys.length; j++) {
+                if (keys[j] == 0) continue;
+                int i = slot(keys[j], mask);
+                while (this.trigramKeys[i] != 0) i = (i + 1) & mask;
+                this.trigramKeys[i] = keys[j];
+                this.trigramRules[i] = rules[j];
+            }
+        }
+        final int mask = this.trigramKeys.length - 1;
+        int i = slot(key, mask);
+        while (this.trigramKeys[i] != 0 && this.trigramKeys[i] != key) i = (i + 1) & mask;
+        if (this.trigramKeys[i] == 0) {
+            this.trigramKeys[i] = key;
+            this.trigramCount++;
+        }
+        this.trigramRules[i] = append(this.trigramRules[i], rule);
+    }
+
+    /**
+     * @return the host part of an url, or an empty string if the url has no host
+     */
+    private static String host(final String url) {
+        int p = url.indexOf("://");
+        if (p < 0) return "";
+        p += 3;
+        int q = p;
+        while (q < url.length()) {
+            final char c = url.charAt(q);
+            if (c == '/' || c == ':' || c == '?' || c == '#') break;
+            q++;
+        }
+        return url.substring(p, q);
+    }
+
+    /**
+     * find the host of a pattern like ^https?://www\.example\.com/ or ^http://www\.example\.com$
+     * @return the host if the pattern is anchored at the start and the host is literal, null otherwise
+     */
+    private static String anchoredHost(final Pattern pattern) {
+        if ((pattern.flags() & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.LITERAL | Pattern.MULTILINE)) != 0) return null;
+        final String regex = pattern.pattern();
+        if (!regex.startsWith("^")) return null;
+        int p = -1;
+        for (final String scheme: new String[] {"^https?://", "^https?:\\/\\/", "^http://", "^http:\\/\\/", "^https://", "^https:\\/\\/"}) {
+            if (regex.startsWith(scheme)) {p = scheme.length(); break;}
+        }
+        if (p < 0) return null;
+        final StringBuilder host = new StringBuilder();
+        while (p < regex.length()) {
+            final char c = regex.charAt(p);
+            if (Character.isLetterOrDigit(c) || c == '-') {
+                host.append(c);
+                p++;
+            } else if (c == '\\' && p + 1 < regex.length() && regex.charAt(p + 1) == '.') {
+                host.append('.');
+                p += 2;
+            } else break;
+        }
+        if (host.length() == 0) return null;
+        // the host must be followed by a literal end of the host, not by a quantifier or a pattern which could extend the host
+        if (p == regex.length()) return null;
+        final char c = regex.charAt(p);
+        if (c == '/' || c == ':' || c == '$') return host.toString();
+        if (c == '\\' && p + 1 < regex.length() && "/?#".indexOf(regex.charAt(p + 1)) >= 0) return host.toString();
+        return null;
+    }
+
+    /**
+     * find a string which is contained in every match of the pattern:
+     * the longest run of literal characters on the top level of the pattern.
+     * @return the literal with at least three characters or null if there is no such literal
+     */
+    private static String requiredLiteral(final Pattern pattern) {
+        if ((pattern.flags() & (Pattern.CASE_INSENSITIVE | Pattern.COMMENTS | Pattern.LITERAL | Pattern.CANON_EQ)) != 0) return null;
+        final String regex = pattern.pattern();
+        final int len = regex.length();
+        String best = "";
+        final StringBuilder run = new StringBuilder();
+        int i = 0;
+        while (i < len) {
+            final char c = regex.charAt(i);
+            char literal = 0;
+            boolean isLiteral = false;
+            int next;
+            if (c == '\\') {
+                if (i + 1 >= len) return null;
+                final char d = regex.charAt(i + 1);
+                next = i + 2;
+                if (Character.isLetterOrDigit(d)) {
+                    // a character class, an escape like \t, \Q or a back reference; those are not used as literal
+                    if (d == 'Q') break;
+                    if ((d == 'p' || d == 'P' || d == 'x' || d == 'N') && next < len && regex.charAt(next) == '{') {
+                        next = regex.indexOf('}', next) + 1;
+                        if (next == 0) return null;
+                    } else if (d == 'x') {
+                        next += 2;
+                    } else if (d == 'u') {
+                        next += 4;
+                    } else if (d == 'c') {
+                        next += 1;
+                    } else if (d == 'k' && next < len && regex.charAt(next) == '<') {
+                        next = regex.indexOf('>', next) + 1;
+                        if (next == 0) return null;
+                    } else if (d == '0' || Character.isDigit(d)) {
+                        while (next < len && Character.isDigit(regex.charAt(next))) next++;
+                    }
+                } else {
+                    literal = d;
+                    isLiteral = true;
+                }
+            } else if (c == '[') {
+                next = skipClass(regex, i);
+                if (next < 0) return null;
+            } else if (c == '(') {
+                // inline flags like (?i) change the meaning of the following literals
+                if (i + 2 < len && regex.charAt(i + 1) == '?' && ":=!<>".indexOf(regex.charAt(i + 2)) < 0) return null;
+                next = skipGroup(regex, i);
+                if (next < 0) return null;
+            } else if (c == '|') {
+                return null; // an alternative on the top level: no literal is required
+            } else if (c == '^' || c == '$' || c == '.') {
+                next = i + 1;
+            } else {
+                literal = c;
+                isLiteral = true;
+                next = i + 1;
+            }
+
+            // a quantifier of the atom
+            boolean optional = false, quantified = false;
+            if (next < len) {
+                final char q = regex.charAt(next);
+                if (q == '*' || q == '?') {
+                    optional = true;
+                    quantified = true;
+                    next++;
+                } else if (q == '+') {
+                    quantified = true;
+                    next++;
+                } else if (q == '{') {
+                    final int e = regex.indexOf('}', next);
+                    if (e < 0) return null;
+                    final String spec = regex.substring(next + 1, e).trim();
+                    optional = spec.startsWith("0") || spec.startsWith(",");
+                    quantified = true;
+                    next = e + 1;
+                }
+                if (quantified && next < len && (regex.charAt(next) == '?' || regex.charAt(next) == '+')) next++; // lazy or possessive
+            }
+
+            if (isLiteral && !optional) run.append(literal);
+            if (!isLiteral || optional || quantified) {
+                if (run.length() > best.length()) best = run.toString();
+                run.setLength(0);
+            }
+            i = next;
+        }
+        if (run.length() > best.length()) best = run.toString();
+        return best.length() >= 3 ? best : null;
+    }
+
+    /**
+     * @param i the position of a '['
+     * @return the position after the matching ']' or -1
+     */
+    private static int skipClass(final String regex, int i) {
+        final int len = regex.length();
+        int depth = 0;
+        i++;
+        depth++;
+        if (i < len && regex.charAt(i) == '^') i++;
+        if (i < len && regex.charAt(i) == ']') i++; // a literal ']' at the start of the class
+        while (i < len) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') depth++;
+            if (c == ']' && --depth == 0) return i + 1;
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @param i the position of a '('
+     * @return the position after the matching ')' or -1
+     */
+    private static int skipGroup(final String regex, int i) {
+        final int len = regex.length();
+        int depth = 0;
+        while (i < len) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i);
+                if (i < 0) return -1;
+                continue;
+            }
+            if (c == '(') depth++;
+            if (c == ')' && --depth == 0) return i + 1;
+            i++;
+        }
+        return -1;
+    }
+
     public static void main(String[] args) {
         URLRewriterLibrary lib = new URLRewriterLibrary();
-        lib.rewriters.put(Pattern.compile("cln_\\d+\\/"), ""); // www.bund.de
-        lib.rewriters.put(Pattern.compile("&amp;administration=[0-9a-z]*"), ""); // http://www.lichtenau.de/
-        lib.rewriters.put(Pattern.compile("\\?administration=[0-9a-z]*"), ""); // http://www.lichtenau.de/
-        lib.rewriters.put(Pattern.compile("\\(X\\([1]\\"), ""); // herzogenrath
-        lib.rewriters.put(Pattern.compile("\\(S\\([0-9a-z]+\\)\\)\\/"), ""); // herzogenrath
-        lib.rewriters.put(Pattern.compile("&amp;ccm=[0-9]*"), ""); // herne
-        lib.rewriters.put(Pattern.compile("&sid=[0-9]{14}.{8}"), ""); // startercenter
-        String s = "";
-        Pattern p = Pattern.compile("a");
-        s = p.matcher(s).replaceAll("b");
+        lib.add(Pattern.compile("cln_\\d+\\/"), ""); // www.bund.de
+        lib.add(Pattern.compile("&amp;administration=[0-9a-z]*"), ""); // http://www.lichtenau.de/
+        lib.add(Pattern.compile("\\?administration=[0-9a-z]*"), ""); // http://www.lichtenau.de/
+        lib.add(Pattern.compile("\\(X\\([1]\\)"), ""); // herzogenrath
+        lib.add(Pattern.compile("\\(S\\([0-9a-z]+\\)\\)\\/"), ""); // herzogenrath
+        lib.add(Pattern.compile("&amp;ccm=[0-9]*"), ""); // herne
+        lib.add(Pattern.compile("&sid=[0-9]{14}.{8}"), ""); // startercenter
+
+        // synthetic rules for many hosts, like session id rules for a list of content management systems
+        final int hosts = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        for (int h = 0; h < hosts; h++) {
+            lib.add(Pattern.compile("^https?://www\\.host" + h + "\\.com/.*?(;jsessionid=[0-9A-F]+)"), "");
+            lib.add(Pattern.compile("[?&]token" + h + "=[0-9a-f]+"), "");
+        }
+        final String[] urls = new String[10000];
+        for (int i = 0; i < urls.length; i++) {
+            final int h = i % (hosts * 2);
+            urls[i] = "http://www.host" + h + ".com/path/page" + i + ".html;jsessionid=0123456789ABCDEF?a=1&token" + h + "=cafe&amp;ccm=" + i;
+        }
+        urls[0] = "http://www.bund.de/cln_123/DE/Home/home_node.html";
+        urls[1] = "http://www.lichtenau.de/index.php?administration=abc12&amp;administration=x";
+        urls[2] = "http://www.herzogenrath.de/(S(abc123))/default.aspx";
+
+        int different = 0;
+        for (final String url: urls) {
+            if (!lib.apply(url).equals(lib.applyAll(url))) {
+                different++;
+                System.out.println("different: " + url + " -> " + lib.apply(url) + " / " + lib.applyAll(url));
+            }
+        }
+        for (int i = 0; i < 3; i++) System.out.println(urls[i] + " -> " + lib.apply(urls[i]));
+        System.out.println(lib.size() + " rules, " + different + " differences between indexed and sequential rewriting");
+
+        for (int round = 0; round < 3; round++) {
+            long t = System.nanoTime();
+            for (final String url: urls) lib.apply(url);
+            final long indexed = System.nanoTime() - t;
+            t = System.nanoTime();
+            for (final String url: urls) lib.applyAll(url);
+            final long sequential = System.nanoTime() - t;
+            System.out.println("indexed: " + (indexed / urls.length) + " ns/url, sequential: " + (sequential / urls.length) + " ns/url");
+        }
     }
 
 }
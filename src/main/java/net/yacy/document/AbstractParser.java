@@ -23,12 +23,15 @@
 
 package net.yacy.document;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+import net.yacy.grid.tools.MultiProtocolURL;
+
 public abstract class AbstractParser implements Parser {
     
     // use LinkedHashSet to maintain order, as in TextParser.initParser() supported_Extensions are mapped to 1. mime-type
@@ -45,6 +48,24 @@ public abstract class AbstractParser implements Parser {
 	    this.name = name;
 	}
 
+    /**
+     * the default implementation of the push api: parse the source completely and give all documents to the sink.
+     * Parsers which produce many documents override this and implement the Document[] api with a DocumentSink.Collector.
+     */
+    @Override
+    public void parse(
+            final MultiProtocolURL location,
+            final String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            final InputStream source,
+            final DocumentSink sink) throws Parser.Failure, InterruptedException {
+        final Document[] docs = parse(location, mimeType, charset, scraper, timezoneOffset, source);
+        if (docs == null) throw new Parser.Failure(Parser.Failure.Reason.unknown, "no document", location); // no result: the next parser is tried
+        for (final Document doc: docs) if (!sink.put(doc)) break;
+    }
+
     /**
      * return the name of the parser
      */
@@ -26,12 +26,15 @@ import com.ibm.icu.util.SimpleDateRule;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -143,6 +146,7 @@ public class DateDetection {
 
     public static HolidayMap Holidays = new HolidayMap();
     public static Map<Pattern, Date[]> HolidayPattern = new HashMap<>();
+    private static final String[][] HolidayIndex = new String[128][]; // the holiday names by their first character
     
     static {
         try {
@@ -213,6 +217,39 @@ public class DateDetection {
         for (Map.Entry<String, Date[]> holiday: Holidays.entrySet()) {
             HolidayPattern.put(Pattern.compile(BODNCG + holiday.getKey() + EODNCG), holiday.getValue());
         }
+        List<List<String>> index = new ArrayList<>();
+        for (int i = 0; i < HolidayIndex.length; i++) index.add(new ArrayList<String>());
+        for (String name: Holidays.keySet()) if (name.charAt(0) < HolidayIndex.length) index.get(name.charAt(0)).add(name);
+        for (int i = 0; i < HolidayIndex.length; i++) if (!index.get(i).isEmpty()) HolidayIndex[i] = index.get(i).toArray(new String[index.get(i).size()]);
+    }
+
+    /**
+     * find the holiday names which start at a given position of a text. This is the same test as the HolidayPattern
+     * at one position; the position must be at the beginning of the text or after a white space.
+     * @param text the text
+     * @param pos the position of the first character of a word
+     * @param holidays the target for the dates of the holidays
+     */
+    public static void holidays(final CharSequence text, final int pos, final Collection<Date[]> holidays) {
+        char c = text.charAt(pos);
+        if (c >= HolidayIndex.length || HolidayIndex[c] == null) return;
+        names: for (String name: HolidayIndex[c]) {
+            int end = pos + name.length();
+            if (end > text.length()) continue;
+            for (int i = 1; i < name.length(); i++) if (text.charAt(pos + i) != name.charAt(i)) continue names;
+            if (end < text.length() && ").:;! ".indexOf(text.charAt(end)) < 0 && !isFinalLineTerminator(text, end)) continue; // EODNCG
+            holidays.add(Holidays.get(name));
+        }
+    }
+
+    /**
+     * @return true if the text ends at the given position with a line terminator; there '$' matches
+     */
+    private static boolean isFinalLineTerminator(final CharSequence text, final int pos) {
+        int rest = text.length() - pos;
+        char c = text.charAt(pos);
+        if (rest == 2) return c == '\r' && text.charAt(pos + 1) == '\n';
+        return rest == 1 && (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029');
     }
 
     /**
@@ -588,7 +625,12 @@ public class DateDetection {
         return d;
     }
     
-    private static LinkedHashSet<Date> parseRawDate(String text) {
+    /**
+     * get the dates which are written with numbers, optionally combined with month names
+     * @param text the text or excerpts of the text around numbers, separated by line breaks
+     * @return a set of dates, ordered by occurrence
+     */
+    static LinkedHashSet<Date> parseRawDate(String text) {
         // get parse alternatives for different date styles; we consider that one document uses only one style
         LinkedHashSet<Date> DMYDates = EndianStyle.DMY.parse(text);
         ShortStyle[] shortStyleCheck = new ShortStyle[]{ShortStyle.DM_GERMAN, ShortStyle.DM_FRENCH, ShortStyle.DM_ITALIAN, ShortStyle.DM_SPANISH};
@@ -21,11 +21,8 @@
 
 package net.yacy.document;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
@@ -53,8 +50,8 @@ import org.json.JSONObject;
 
 import net.yacy.cora.date.ISO8601Formatter;
 import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.language.synonyms.AutotaggingAutomaton;
 import net.yacy.cora.lod.vocabulary.Tagging;
-import net.yacy.cora.util.ByteBuffer;
 import net.yacy.document.parser.html.IconEntry;
 import net.yacy.document.parser.html.ImageEntry;
 import net.yacy.document.parser.html.Scraper;
@@ -77,7 +74,7 @@ public class Document {
     private final String publisher;             // publisher
     private final List<String> sections;        // if present: more titles/headlines appearing in the document
     private final List<String> descriptions;    // an abstract, if present: short content description
-    private Object text;                        // the clear text, all that is visible
+    private TextBuffer text;                    // the clear text, all that is visible
     private final Collection<AnchorURL> anchors;   // all links embedded as clickeable entities (anchor tags)
     private final LinkedHashMap<MultiProtocolURL, String> rss;   // all embedded rss feeds
     private final LinkedHashMap<MultiProtocolURL, ImageEntry> images; // all visible pictures in document
@@ -100,6 +97,7 @@ public class Document {
     private final Date lastModified; // creation or last modification date of the source document
     private int crawldepth;
     private JSONObject ld;
+    private URLTable urls; // the normal forms and properties of the urls of this document
 
     public Document(final MultiProtocolURL location,
                     final String mimeType,
@@ -151,12 +149,13 @@ public class Document {
         this.outboundlinks = null;
         this.languages = languages;
         this.indexingDenied = indexingDenied;
-        this.text = text == null ? "" : text;
+        this.text = textBuffer(text);
         this.generic_facets = new HashMap<String, Set<String>>();
         this.lastModified = lastModified == null ? new Date() : lastModified;
         this.crawldepth = 999; // unknown yet
         this.scraperObject = null; // will be set by setScraperObject()
         this.ld = new JSONObject(true);
+        this.urls = new URLTable(location);
     }
 
     public JSONObject ld() {
@@ -207,6 +206,15 @@ public class Document {
             this.scraperObject = null;
         }
         this.scraperObject = scraper;
+        // share the url properties which the scraper has already computed
+        if (scraper instanceof Scraper && this.source != null && this.source.equals(((Scraper) scraper).getURLTable().source())) this.urls = ((Scraper) scraper).getURLTable();
+    }
+
+    /**
+     * @return the normal forms and properties of the urls of this document, shared by all processing stages
+     */
+    public URLTable getURLTable() {
+        return this.urls;
     }
 
     public Set<String> getContentLanguages() {
@@ -305,6 +313,22 @@ dc_rights
         this.generic_facets.putAll(computeGenericFacets(tags));
     }
 
+    /**
+     * tag the titles, descriptions and the text of the document with the autotagging vocabularies.
+     * The tags are added to the generic facets. The text is scanned from its reader and not copied into a string.
+     * @param automaton the compiled vocabularies, see AutotaggingLibrary.getAutomaton()
+     */
+    public void autotag(final AutotaggingAutomaton automaton) {
+        if (automaton.isEmpty()) return;
+        for (final String title: this.titles) automaton.tag(title, this.generic_facets);
+        for (final String description: this.descriptions) automaton.tag(description, this.generic_facets);
+        try {
+            automaton.tag(this.text.getReader(), this.generic_facets);
+        } catch (final IOException e) {
+            Logger.warn("autotagging of " + this.source + " failed", e); // the reader of a text buffer does not fail
+        }
+    }
+
     /**
      * compute generic facets
      * @param tags a map where the key is the navigator name and the value is the set of attributes as metatags
@@ -381,6 +405,7 @@ dc_rights
             try {
                 MultiProtocolURL du = new MultiProtocolURL(u);
                 this.source = du;
+                this.urls = new URLTable(du);
             } catch (MalformedURLException e) {
             }
         }
@@ -400,74 +425,52 @@ dc_rights
         return this.sections.toArray(new String[this.sections.size()]);
     }
 
-    public InputStream getTextStream() {
+    /**
+     * convert the text given to the constructor into a text buffer. Parsers should give a String or a TextBuffer,
+     * the other forms are converted once here.
+     */
+    private static TextBuffer textBuffer(final Object text) {
+        if (text == null) return new TextBuffer();
+        if (text instanceof TextBuffer) return (TextBuffer) text;
+        if (text instanceof CharSequence) return new TextBuffer((CharSequence) text);
         try {
-            if (this.text == null) return new ByteArrayInputStream(UTF8.getBytes(""));
-            if (this.text instanceof String) {
-                //return new StreamReader((String) this.text);
-                return new ByteArrayInputStream(UTF8.getBytes(((String) this.text)));
-            } else if (this.text instanceof InputStream) {
-                return (InputStream) this.text;
-            } else if (this.text instanceof File) {
-                return new BufferedInputStream(new FileInputStream((File)this.text));
-            } else if (this.text instanceof byte[]) {
-                return new ByteArrayInputStream((byte[]) this.text);
-            } else if (this.text instanceof ByteArrayOutputStream) {
-                return new ByteArrayInputStream(((ByteArrayOutputStream) this.text).toByteArray());
+            if (text instanceof byte[]) return new TextBuffer(UTF8.String((byte[]) text));
+            if (text instanceof ByteArrayOutputStream) return new TextBuffer(UTF8.String(((ByteArrayOutputStream) text).toByteArray()));
+            if (text instanceof InputStream) {
+                try (InputStream is = (InputStream) text) {
+                    return new TextBuffer(UTF8.String(FileUtils.read(is)));
+                }
             }
-            assert false : this.text.getClass().toString();
-            return null;
-        } catch (final Exception e) {
-            Logger.warn(this.getClass(), e);
+            if (text instanceof File) return new TextBuffer(UTF8.String(FileUtils.read((File) text)));
+        } catch (final IOException e) {
+            Logger.warn(Document.class, e);
+            return new TextBuffer();
         }
-        return new ByteArrayInputStream(UTF8.getBytes(""));
+        assert false : text.getClass().toString();
+        return new TextBuffer(text.toString());
+    }
+
+    /**
+     * @return the text of the document; it can be read and appended without copying it
+     */
+    public TextBuffer getText() {
+        return this.text;
+    }
+
+    public InputStream getTextStream() {
+        return this.text.getInputStream();
     }
 
     public String getTextString() {
-        try {
-            if (this.text == null) {
-                this.text = "";
-            } else if (this.text instanceof InputStream) {
-                this.text = UTF8.String(FileUtils.read((InputStream) this.text));
-            } else if (this.text instanceof File) {
-                this.text = UTF8.String(FileUtils.read((File) this.text));
-            } else if (this.text instanceof byte[]) {
-                this.text = UTF8.String((byte[]) this.text);
-            } else if (this.text instanceof ByteArrayOutputStream) {
-                this.text = UTF8.String(((ByteArrayOutputStream) this.text).toByteArray());
-            }
-            assert this.text instanceof String : this.text.getClass().toString();
-            return (String) this.text;
-        } catch (final Exception e) {
-            Logger.warn(this.getClass(), e);
-        }
-        return "";
+        return this.text.toString();
     }
 
     public long getTextLength() {
-        try {
-            if (this.text == null) return -1;
-            if (this.text instanceof String) {
-                return ((String) this.text).length();
-            } else if (this.text instanceof InputStream) {
-                return ((InputStream) this.text).available();
-            } else if (this.text instanceof File) {
-                return ((File) this.text).length();
-            } else if (this.text instanceof byte[]) {
-                return ((byte[]) this.text).length;
-            } else if (this.text instanceof ByteArrayOutputStream) {
-                return ((ByteArrayOutputStream) this.text).size();
-            }
-            assert false : this.text.getClass().toString();
-            return -1;
-        } catch (final Exception e) {
-            Logger.warn(this.getClass(), e);
-        }
-        return -1;
+        return this.text.length();
     }
 
     public List<StringBuilder> getSentences(final boolean pre) {
-        final SentenceReader sr = new SentenceReader(getTextString(), pre);
+        final SentenceReader sr = new SentenceReader(this.text, pre);
         List<StringBuilder> sentences = new ArrayList<StringBuilder>();
         while (sr.hasNext()) {
             sentences.add(sr.next());
@@ -560,10 +563,7 @@ dc_rights
         synchronized (this) {
             if (this.resorted) return;
             // extract hyperlinks, medialinks and emaillinks from anchorlinks
-            String u;
-            int extpos, qpos;
-            String ext = null;
-            final String thishost = this.source.getHost();
+            final URLTable table = this.urls;
             this.inboundlinks = new LinkedHashMap<MultiProtocolURL, String>();
             this.outboundlinks = new LinkedHashMap<MultiProtocolURL, String>();
             this.hyperlinks = new LinkedHashMap<AnchorURL, String>();
@@ -573,11 +573,10 @@ dc_rights
             this.emaillinks = new LinkedHashSet<AnchorURL>();
             final Map<AnchorURL, ImageEntry> collectedImages = new HashMap<AnchorURL, ImageEntry>(); // this is a set that is collected now and joined later to the imagelinks
             for (final Map.Entry<MultiProtocolURL, ImageEntry> entry: this.images.entrySet()) {
-                if (entry.getKey() != null && entry.getKey().getHost() != null && entry.getKey().getHost().equals(thishost)) this.inboundlinks.put(entry.getKey(), "image"); else this.outboundlinks.put(entry.getKey(), "image");
+                if (entry.getKey() != null && table.isSameHost(entry.getKey())) this.inboundlinks.put(entry.getKey(), "image"); else this.outboundlinks.put(entry.getKey(), "image");
             }
             for (final AnchorURL url: this.anchors) {
                 if (url == null) continue;
-                u = url.toNormalform(true);
                 final String name = url.getNameProperty();
                 // check mailto scheme first (not suppose to get into in/outboundlinks or hyperlinks -> crawler can't process)
                 if (url.getProtocol().equals("mailto")) {
@@ -585,31 +584,21 @@ dc_rights
                     continue;
                 }
 
-                final boolean noindex = url.getRelProperty().toLowerCase().indexOf("noindex",0) >= 0;
-                final boolean nofollow = url.getRelProperty().toLowerCase().indexOf("nofollow",0) >= 0;
-                if ((thishost == null && url.getHost() == null) ||
-                    ((thishost != null && url.getHost() != null) &&
-                     (url.getHost().endsWith(thishost) ||
-                      (thishost.startsWith("www.") && url.getHost().endsWith(thishost.substring(4)))))) {
+                final String rel = url.getRelProperty().toLowerCase();
+                final boolean noindex = rel.indexOf("noindex",0) >= 0;
+                final boolean nofollow = rel.indexOf("nofollow",0) >= 0;
+                if (table.isSameDomain(url)) {
                     this.inboundlinks.put(url, "anchor" + (noindex ? " noindex" : "") + (nofollow ? " nofollow" : ""));
                 } else {
                     this.outboundlinks.put(url, "anchor" + (noindex ? " noindex" : "") + (nofollow ? " nofollow" : ""));
                 }
-                extpos = u.lastIndexOf('.');
-                if (extpos > 0) {
-                    if (((qpos = u.indexOf('?')) >= 0) && (qpos > extpos)) {
-                        ext = u.substring(extpos + 1, qpos).toLowerCase();
-                    } else {
-                        ext = u.substring(extpos + 1).toLowerCase();
-                    }
-                    if (Classification.isMediaExtension(ext)) {
-                        // this is not a normal anchor, its a media link
-                        if (Classification.isImageExtension(ext)) { // TODO: guess on a-tag href extension (may not be correct)
-                            collectedImages.put(url, new ImageEntry(url, name, -1, -1, -1));
-                        } else if (Classification.isAudioExtension(ext)) this.audiolinks.put(url, name);
-                          else if (Classification.isVideoExtension(ext)) this.videolinks.put(url, name);
-                          else if (Classification.isApplicationExtension(ext)) this.applinks.put(url, name);
-                    }
+                // a media link is not a normal anchor
+                switch (table.media(url)) {
+                    case IMAGE: collectedImages.put(url, new ImageEntry(url, name, -1, -1, -1)); break; // TODO: guess on a-tag href extension (may not be correct)
+                    case AUDIO: this.audiolinks.put(url, name); break;
+                    case VIDEO: this.videolinks.put(url, name); break;
+                    case APP: this.applinks.put(url, name); break;
+                    default: break;
                 }
                 // in any case we consider this as a link and let the parser decide if that link can be followed
                 this.hyperlinks.put(url, name);
@@ -784,10 +773,7 @@ dc_rights
             this.keywords.addAll(doc.dc_subject());
             for (String d: doc.dc_description()) this.descriptions.add(d);
 
-            if (!(this.text instanceof ByteArrayOutputStream)) {
-                this.text = new ByteArrayOutputStream();
-            }
-            FileUtils.copy(doc.getTextStream(), (ByteArrayOutputStream) this.text);
+            this.text.append(doc.text);
 
             this.anchors.addAll(doc.getAnchors());
             this.rss.putAll(doc.getRSS());
@@ -874,7 +860,7 @@ dc_rights
         if (subject != null && subject.length() > 0) os.write("<dc:subject><![CDATA[" + subject + "]]></dc:subject>\n");
         if (this.text != null) {
             os.write("<dc:description><![CDATA[");
-            os.write(getTextString());
+            this.text.writeTo(os);
             os.write("]]></dc:description>\n");
         }
         final String language = dc_language();
@@ -900,21 +886,7 @@ dc_rights
     }
 
     public synchronized void close() {
-        if (this.text == null) return;
-
-        // try close the output stream
-        if (this.text instanceof InputStream) try {
-            ((InputStream) this.text).close();
-        } catch (final Exception e) {} finally {
-            this.text = null;
-        }
-
-        // delete the temp file
-        if (this.text instanceof File) try {
-            FileUtils.deletedelete((File) this.text);
-        } catch (final Exception e) {} finally {
-            this.text = null;
-        }
+        // the text is read completely when the document is created, there are no streams or files to release
     }
 
     /**
@@ -930,8 +902,7 @@ dc_rights
         if (docs == null || docs.length == 0) return null;
         if (docs.length == 1) return docs[0];
 
-        long docTextLength = 0;
-        final ByteBuffer         content       = new ByteBuffer();
+        final TextBuffer         content       = new TextBuffer();
         final StringBuilder      authors       = new StringBuilder(80);
         final StringBuilder      publishers    = new StringBuilder(80);
         final StringBuilder      subjects      = new StringBuilder(80);
@@ -977,12 +948,8 @@ dc_rights
             for (String d: doc.dc_description()) descriptions.add(d);
 
             if (doc.getTextLength() > 0) {
-                if (docTextLength > 0) content.write('\n');
-                try {
-                    docTextLength += FileUtils.copy(doc.getTextStream(), content);
-                } catch (final IOException e) {
-                    Logger.warn(e);
-                }
+                if (content.length() > 0) content.append('\n');
+                content.append(doc.text); // the segments are shared, not copied
             }
             anchors.addAll(doc.getAnchors());
             rss.putAll(doc.getRSS());
@@ -1022,7 +989,7 @@ dc_rights
                 sectionTitles.toArray(new String[sectionTitles.size()]),
                 descriptions,
                 lon, lat,
-                content.getBytes(),
+                content,
                 anchors,
                 rss,
                 images,
@@ -0,0 +1,82 @@
+/**
+ *  DocumentSink
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A target for the documents of a parser. Parsers of sources with many documents (feeds, archives, pdf files
+ * with individual pages) give each document to the sink as soon as it is produced, so the consumer can process
+ * it while the parser continues with the rest of the source.
+ */
+public interface DocumentSink {
+
+    /**
+     * take a document. The method may block until the consumer is able to take the document;
+     * this slows down the parser to the speed of the consumer.
+     * @param document a parsed document
+     * @return true if more documents are accepted, false if the parser shall stop
+     * @throws InterruptedException
+     */
+    public boolean put(Document document) throws InterruptedException;
+
+    /**
+     * parsers check this between the parts of a large source to stop early
+     * @return true if the consumer does not accept any more documents
+     */
+    public boolean isCancelled();
+
+    /**
+     * Documents with a canonical link to another url are not indexed. A consumer which only indexes the
+     * documents can ask for the light path of the html parser, which skips the content of such documents.
+     * @return true if non-canonical documents may be parsed with the light path; false for complete documents
+     */
+    public default boolean nonCanonicalLightPath() {
+        return false;
+    }
+
+    /**
+     * a sink which collects all documents, used to provide the Document[] result of a parser
+     */
+    public static class Collector implements DocumentSink {
+
+        private final List<Document> documents = new ArrayList<>();
+
+        @Override
+        public boolean put(final Document document) {
+            this.documents.add(document);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        public int size() {
+            return this.documents.size();
+        }
+
+        public Document[] documents() {
+            return this.documents.toArray(new Document[this.documents.size()]);
+        }
+    }
+}
@@ -37,6 +37,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
@@ -45,6 +47,7 @@ import net.yacy.cora.geo.GeoLocation;
 import net.yacy.cora.geo.GeonamesLocation;
 import net.yacy.cora.geo.OpenGeoDBLocation;
 import net.yacy.cora.geo.OverarchingLocation;
+import net.yacy.cora.language.identification.LanguageIdentifier;
 import net.yacy.cora.language.synonyms.AutotaggingLibrary;
 import net.yacy.cora.language.synonyms.SynonymLibrary;
 import net.yacy.crawler.retrieval.URLRewriterLibrary;
@@ -59,15 +62,20 @@ public class LibraryProvider {
     public static final String path_to_autotagging_dictionaries = "autotagging";
     public static final String path_to_synonym_dictionaries = "synonyms";
     public static final String path_to_rewriter_dictionaries = "rewriter";
+    public static final String path_to_language_profiles = "language";
+    public static final String language_profiles_file = "ngram.profiles.gz";
 
     public static final String disabledExtension = ".disabled";
 
     public static WordCache dymLib = new WordCache(null);
     public static AutotaggingLibrary autotagging = new AutotaggingLibrary(null); // initialize empty to prevent NPE during initialization
-    public static URLRewriterLibrary urlRewriter = null;
+    public static URLRewriterLibrary urlRewriter = new URLRewriterLibrary(); // no rules until initRewriter() is called
     public static OverarchingLocation geoLoc = new OverarchingLocation();
+    public static LanguageIdentifier languageIdentifier = new LanguageIdentifier(); // empty until the profiles are loaded
     private static File dictSource = null;
     private static File dictRoot = null;
+    private static final CountDownLatch ready = new CountDownLatch(1);
+    private static volatile boolean scheduled = false; // true if an initialization was started or is about to start
 
     public static enum Dictionary {
         GEODB0( "geo0", "http://downloads.sourceforge.net/project/opengeodb/Data/0.2.5a/opengeodb-0.2.5a-UTF8-sql.gz" ),
@@ -104,30 +112,82 @@ public class LibraryProvider {
      * dictionary classes Additionally, if default dictionaries are given in the source path, they are
      * translated into the input format inside the DATA/DICTIONARIES directory
      *
+     * When the initialization is finished, the ready signal is set, see awaitReady().
+     * Geonames sources are loaded from a snapshot file which is written when the source is parsed the first time.
+     *
      * @param rootPath parent path of dictionaries
      */
     public static void initialize(final File rootPath) {
-        dictSource = new File(rootPath, path_to_source_dictionaries);
-        if ( !dictSource.exists() ) {
-            dictSource.mkdirs();
+        scheduled = true;
+        final long start = System.currentTimeMillis();
+        try {
+            dictSource = new File(rootPath, path_to_source_dictionaries);
+            if ( !dictSource.exists() ) {
+                dictSource.mkdirs();
+            }
+            dictRoot = rootPath;
+
+            // initialize libraries
+            initAutotagging();
+            activateDeReWo();
+            initDidYouMean();
+            initSynonyms();
+            initRewriter();
+            initLanguageIdentifier();
+            integrateOpenGeoDB();
+            integrateGeonames0(-1);
+            integrateGeonames1(-1);
+            integrateGeonames2(-1);
+            final Set<String> allTags = new HashSet<String>() ;
+            allTags.addAll(autotagging.allTags()); // we must copy this into a clone to prevent circularity
+            autotagging.addPlaces(geoLoc);
+            //autotagging.addDictionaries(dymLib.getDictionaries()); // strange results with this: normal word lists are 'too full'
+            WordCache.learn(allTags);
+            autotagging.compile(); // compile the vocabularies before the first document is tagged
+        } finally {
+            ready.countDown();
+            Logger.info("LibraryProvider initialized in " + (System.currentTimeMillis() - start) + " milliseconds");
+        }
+    }
+
+    /**
+     * Start the initialization in a background thread. The initialization is marked as scheduled before
+     * the thread starts, so awaitReady() called right after this method waits for it.
+     * @param rootPath parent path of dictionaries
+     */
+    public static void initializeInBackground(final File rootPath) {
+        scheduled = true;
+        new Thread("LibraryProvider.initialize") {
+            @Override
+            public void run() {
+                initialize(rootPath);
+            }
+        }.start();
+    }
+
+    /**
+     * @return true if the initialization of the libraries is finished
+     */
+    public static boolean isReady() {
+        return ready.getCount() == 0;
+    }
+
+    /**
+     * wait until the initialization of the libraries is finished. Documents which are parsed before that
+     * would see only a part of the geo locations and autotagging vocabularies.
+     * If no initialization was scheduled (i.e. in tools and tests which do not load libraries), this
+     * returns at once and the documents are parsed with the empty libraries.
+     * @param timeout maximum time to wait in milliseconds
+     * @return true if the libraries are ready or no initialization is scheduled, false if the timeout was reached
+     */
+    public static boolean awaitReady(final long timeout) {
+        if (ready.getCount() == 0 || !scheduled) return true;
+        try {
+            return ready.await(timeout, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-        dictRoot = rootPath;
-
-        // initialize libraries
-        initAutotagging();
-        activateDeReWo();
-        initDidYouMean();
-        initSynonyms();
-        initRewriter();
-        integrateOpenGeoDB();
-        integrateGeonames0(-1);
-        integrateGeonames1(-1);
-        integrateGeonames2(-1);
-        final Set<String> allTags = new HashSet<String>() ;
-        allTags.addAll(autotagging.allTags()); // we must copy this into a clone to prevent circularity
-        autotagging.addPlaces(geoLoc);
-        //autotagging.addDictionaries(dymLib.getDictionaries()); // strange results with this: normal word lists are 'too full'
-        WordCache.learn(allTags);
     }
 
     public static void integrateOpenGeoDB() {
@@ -202,6 +262,18 @@ public class LibraryProvider {
         urlRewriter = new URLRewriterLibrary(rewriterPath);
     }
 
+    public static void initLanguageIdentifier() {
+        final File profiles = new File(new File(dictRoot, path_to_language_profiles), language_profiles_file);
+        if ( !profiles.exists() ) {
+            return;
+        }
+        try {
+            languageIdentifier = new LanguageIdentifier(profiles);
+        } catch (final IOException e ) {
+            Logger.warn("could not load language profiles " + profiles, e);
+        }
+    }
+
     public static void activateDeReWo() {
         // translate input files (once..)
         final File dymDict = new File(dictRoot, path_to_did_you_mean_dictionaries);
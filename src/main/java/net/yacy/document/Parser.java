@@ -62,6 +62,28 @@ public interface Parser {
             InputStream source
             ) throws Parser.Failure, InterruptedException;
 
+    /**
+     * parse an input stream and give each document to a sink as soon as it is produced.
+     * Parsers stop when the sink does not accept more documents.
+     * @param url the url of the source
+     * @param mimeType the mime type of the source, if known
+     * @param charset the charset of the source, if known
+     * @param scraper an entity scraper to detect facets from text annotation context
+     * @param source a input stream
+     * @param sink the target for the documents that result from parsing the source
+     * @throws Parser.Failure
+     * @throws InterruptedException
+     */
+    public void parse(
+            MultiProtocolURL url,
+            String mimeType,
+            String charset,
+            VocabularyScraper scraper,
+            int timezoneOffset,
+            InputStream source,
+            DocumentSink sink
+            ) throws Parser.Failure, InterruptedException;
+
 
     // methods to that shall make it possible to put Parser objects into a hashtable
 
@@ -87,26 +109,66 @@ public interface Parser {
 
     /**
      * a parser warning
-     * thrown as an exception
+     * thrown as an exception.
+     * Failures are part of the normal operation of a crawler and are thrown for many documents; therefore no
+     * stack trace is recorded (a cause keeps its own stack trace) and the message, which contains the url,
+     * is computed only when it is requested.
      */
     public class Failure extends Exception {
 
+        /**
+         * the reason of a failure, used for statistics
+         */
+        public enum Reason {
+            unsupported, // the content type or the content variant is not supported or denied
+            binary,      // binary data where text was expected
+            timeout,     // the parser was interrupted or did not finish in time
+            malformed,   // the content cannot be read or is damaged
+            toolarge,    // the content exceeds a limit of the parser or the heap
+            unknown;     // the parser did not give a reason
+        }
+
         private static final long serialVersionUID = 2278214953869122883L;
         private MultiProtocolURL url = null;
+        private final Reason reason;
+        private final String detail;
+        private String message = null;
+
         public Failure() {
-            super();
+            this(Reason.unknown, null, null, null);
         }
 
         public Failure(final String message, final MultiProtocolURL url) {
-            super(message + "; url = " + url.toNormalform(true));
-            this.url = url;
+            this(Reason.unknown, message, url, null);
         }
 
         public Failure(final String message, final MultiProtocolURL url, Throwable e) {
-            super(message + "; url = " + url.toNormalform(true), e);
+            this(Reason.unknown, message, url, e);
+        }
+
+        public Failure(final Reason reason, final String message, final MultiProtocolURL url) {
+            this(reason, message, url, null);
+        }
+
+        public Failure(final Reason reason, final String message, final MultiProtocolURL url, Throwable e) {
+            super(null, e, false, false);
+            this.reason = reason;
+            this.detail = message;
             this.url = url;
         }
 
+        public Reason getReason() {
+            return this.reason;
+        }
+
+        @Override
+        public String getMessage() {
+            if (this.message == null && this.detail != null) {
+                this.message = this.url == null ? this.detail : this.detail + "; url = " + this.url.toNormalform(true);
+            }
+            return this.message;
+        }
+
         public MultiProtocolURL getURL() {
             return this.url;
         }
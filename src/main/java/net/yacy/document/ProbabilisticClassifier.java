@@ -34,6 +34,7 @@ import java.util.Set;
 
 import net.yacy.cora.bayes.BayesClassifier;
 import net.yacy.cora.bayes.Classification;
+import net.yacy.cora.bayes.FrozenBayesClassifier;
 import net.yacy.grid.tools.Logger;
 
 public class ProbabilisticClassifier {
@@ -57,7 +58,7 @@ public class ProbabilisticClassifier {
     public static class Context {
 
         private String context_name;
-        private BayesClassifier<String, Category> bayes;
+        private FrozenBayesClassifier<Category> bayes;
 
         public Context(String context_name, Map<String, File> categoryExampleLinesFiles, File negativeExampleLines) throws IOException {
             this.context_name = context_name;
@@ -73,27 +74,44 @@ public class ProbabilisticClassifier {
             categoryBuffer.put(NONE_CATEGORY_NAME, Files.readAllLines(negativeExampleLines.toPath(), charset));
             requiredSize += list.size();
 
-            this.bayes = new BayesClassifier<>();
-            this.bayes.setMemoryCapacity(requiredSize);
+            BayesClassifier<String, Category> bayes = new BayesClassifier<>();
+            bayes.setMemoryCapacity(requiredSize);
 
             for (Map.Entry<String, List<String>> category: categoryBuffer.entrySet()) {
                 Category c = new Category(category.getKey());
                 for (String line: category.getValue()) {
                     List<String> tokens = normalize(line);
-                    this.bayes.learn(c, tokens);
+                    bayes.learn(c, tokens);
                 }
             }
-            this.bayes.learn(NONE_CATEGORY, categoryBuffer.get(NONE_CATEGORY_NAME));
+            bayes.learn(NONE_CATEGORY, categoryBuffer.get(NONE_CATEGORY_NAME));
+
+            // the training is finished, classifications use the compiled model
+            this.bayes = new FrozenBayesClassifier<>(bayes);
         }
 
-        private List<String> normalize(String phrase) {
-            String cleanphrase = phrase.toLowerCase().replaceAll("\\W", " ");
-            String[] rawtokens = cleanphrase.split("\\s");
+        /**
+         * split a phrase into lower-case tokens of word characters [a-z0-9_] with more than two characters
+         */
+        private static List<String> normalize(String phrase) {
             List<String> tokens = new ArrayList<>();
-            for (String token: rawtokens) if (token.length() > 2) tokens.add(token);
+            String lowerphrase = phrase.toLowerCase();
+            int start = -1;
+            for (int i = 0; i <= lowerphrase.length(); i++) {
+                if (i < lowerphrase.length() && isWordChar(lowerphrase.charAt(i))) {
+                    if (start < 0) start = i;
+                } else if (start >= 0) {
+                    if (i - start > 2) tokens.add(lowerphrase.substring(start, i));
+                    start = -1;
+                }
+            }
             return tokens;
         }
 
+        private static boolean isWordChar(char c) {
+            return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || (c >= 'A' && c <= 'Z');
+        }
+
         public String getName() {
             return this.context_name;
         }
@@ -103,6 +121,17 @@ public class ProbabilisticClassifier {
             return this.bayes.classify(words);
         }
 
+        /**
+         * classify many phrases with one score buffer
+         * @param phrases the texts to be classified
+         * @return the classification of each phrase
+         */
+        public List<Classification<String, Category>> classify(List<String> phrases) {
+            List<List<String>> documents = new ArrayList<>(phrases.size());
+            for (String phrase: phrases) documents.add(normalize(phrase));
+            return this.bayes.classify(documents);
+        }
+
      }
 
     private static Map<String, Context> contexts = new HashMap<>();
@@ -31,11 +31,11 @@ public class SentenceReader implements Iterator<StringBuilder>, Iterable<StringB
     // this enumerates StringBuilder objects
 
     private StringBuilder buffer;
-    private String text;
+    private CharSequence text;
     private int pos;
     private boolean pre = false;
 
-    public SentenceReader(final String text) {
+    public SentenceReader(final CharSequence text) {
     	assert text != null;
         this.text = text;
         this.pos = 0;
@@ -43,7 +43,7 @@ public class SentenceReader implements Iterator<StringBuilder>, Iterable<StringB
         this.buffer = nextElement0();
     }
 
-    public SentenceReader(final String text, final boolean pre) {
+    public SentenceReader(final CharSequence text, final boolean pre) {
     	this(text);
         this.pre = pre;
     }
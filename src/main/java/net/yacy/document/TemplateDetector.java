@@ -0,0 +1,348 @@
+/**
+ *  TemplateDetector
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import net.yacy.cora.federate.index.ParserMapping;
+import net.yacy.cora.storage.SizeLimitedMap;
+import net.yacy.document.parser.html.Scraper;
+import net.yacy.grid.io.index.WebMapping;
+
+/**
+ * Detection of the templates of the hosts in one parser job, i.e. one WARC file. The documents of a host share
+ * header, navigation and footer blocks; these are found with fingerprints of the text blocks of the scraper and of
+ * the links with their anchor text. A block or a link which appears in at least MIN_DOCUMENTS documents of the
+ * same host is boilerplate. The detection runs while the documents flow through the job, so the first documents of a
+ * host are not marked, and which of the following documents are marked depends on the order in which the parallel
+ * document threads count them.
+ * The index fields of a document are not changed: the positions of the boilerplate text blocks in text_t and of the
+ * boilerplate links in the link lists are written to own fields, so downstream stages can skip or down-weight them.
+ * The fingerprints of each host are kept in a table which grows with the documents of
+ * the host up to HOST_CAPACITY entries, at most MAX_HOSTS hosts are remembered; all methods may be called concurrently.
+ */
+public class TemplateDetector {
+
+    /** number of documents of a host which must contain a block to make it boilerplate; 0 switches the detection off */
+    public static int MIN_DOCUMENTS = 3;
+
+    /** maximum number of fingerprints which are kept for each host */
+    public static int HOST_CAPACITY = 4096;
+
+    /** maximum number of hosts which are remembered in one job */
+    public static int MAX_HOSTS = 1000;
+
+    /** number of slots of the fingerprint table of a new host */
+    private static final int INITIAL_TABLE_SIZE = 32;
+
+    /** heap bytes of a host without its table: the map entry, the host name and the table object */
+    private static final long HOST_OVERHEAD = 200;
+
+    /** number of fingerprints of a typical document, its text blocks and links, for the memory estimation */
+    private static final long DOCUMENT_FINGERPRINTS = 300;
+
+    private static final long TEXT_SEED = 0x9E3779B97F4A7C15L, LINK_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    private static final AtomicLong documents = new AtomicLong(0), templateDocuments = new AtomicLong(0),
+            textBytes = new AtomicLong(0), boilerplateTextBytes = new AtomicLong(0),
+            links = new AtomicLong(0), boilerplateLinks = new AtomicLong(0), boilerplateLinkBytes = new AtomicLong(0),
+            evictions = new AtomicLong(0);
+
+    /**
+     * the fingerprints of one host with the number of documents where they appear, in an open addressing table
+     */
+    private static class Host {
+        private long[] keys;
+        private int[] counts;
+        private final int capacity, maxTableSize;
+        private int size;
+
+        private Host(final int capacity) {
+            this.capacity = Math.max(16, capacity);
+            this.maxTableSize = maxTableSize(this.capacity);
+            this.keys = new long[INITIAL_TABLE_SIZE];
+            this.counts = new int[INITIAL_TABLE_SIZE];
+            this.size = 0;
+        }
+
+        /**
+         * count the fingerprints of a document
+         * @param fingerprints the fingerprints, each fingerprint is counted once
+         * @return for each fingerprint true if it appears in MIN_DOCUMENTS documents including this one
+         */
+        private synchronized boolean[] count(final long[] fingerprints) {
+            final long[] distinct = fingerprints.clone();
+            Arrays.sort(distinct);
+            for (int i = 0; i < distinct.length; i++) {
+                if (i > 0 && distinct[i] == distinct[i - 1]) continue;
+                if (this.size >= this.capacity) shrink();
+                else if (2 * (this.size + 1) > this.keys.length) grow(); // load factor is at most 1/2
+                final int mask = this.keys.length - 1;
+                int p = slot(distinct[i]);
+                while (this.keys[p] != 0 && this.keys[p] != distinct[i]) p = (p + 1) & mask;
+                if (this.keys[p] == 0) {
+                    this.keys[p] = distinct[i];
+                    this.size++;
+                }
+                if (this.counts[p] < Integer.MAX_VALUE) this.counts[p]++;
+            }
+            final boolean[] template = new boolean[fingerprints.length];
+            for (int i = 0; i < fingerprints.length; i++) template[i] = get(fingerprints[i]) >= MIN_DOCUMENTS;
+            return template;
+        }
+
+        private int get(final long fingerprint) {
+            final int mask = this.keys.length - 1;
+            int p = slot(fingerprint);
+            while (this.keys[p] != 0) {
+                if (this.keys[p] == fingerprint) return this.counts[p];
+                p = (p + 1) & mask;
+            }
+            return 0;
+        }
+
+        private int slot(final long fingerprint) {
+            return (int) (fingerprint ^ (fingerprint >>> 32)) & (this.keys.length - 1);
+        }
+
+        /**
+         * double the size of the table
+         */
+        private void grow() {
+            final long[] k = this.keys;
+            final int[] c = this.counts;
+            this.keys = new long[Math.min(2 * k.length, this.maxTableSize)];
+            this.counts = new int[this.keys.length];
+            final int mask = this.keys.length - 1;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == 0) continue;
+                int p = slot(k[i]);
+                while (this.keys[p] != 0) p = (p + 1) & mask;
+                this.keys[p] = k[i];
+                this.counts[p] = c[i];
+            }
+        }
+
+        /**
+         * make room for new fingerprints: remove the fingerprints which appeared only once; if that is not enough
+         * the counts are halved until the table is at most half full. Templates are counted up again quickly.
+         */
+        private void shrink() {
+            final int before = this.size;
+            boolean halve = false;
+            while (this.size > this.capacity / 2) {
+                final long[] k = this.keys.clone();
+                final int[] c = this.counts.clone();
+                Arrays.fill(this.keys, 0);
+                Arrays.fill(this.counts, 0);
+                this.size = 0;
+                final int mask = this.keys.length - 1;
+                for (int i = 0; i < k.length; i++) {
+                    final int count = halve ? c[i] / 2 : c[i];
+                    if (k[i] == 0 || count < (halve ? 1 : 2)) continue;
+                    int p = slot(k[i]);
+                    while (this.keys[p] != 0) p = (p + 1) & mask;
+                    this.keys[p] = k[i];
+                    this.counts[p] = count;
+                    this.size++;
+                }
+                halve = true;
+            }
+            evictions.addAndGet(before - this.size);
+        }
+    }
+
+    /**
+     * @return the number of slots of the table of a host with the given capacity; the load factor is at most 1/2
+     */
+    private static int maxTableSize(final int capacity) {
+        return Math.max(INITIAL_TABLE_SIZE, Integer.highestOneBit(capacity - 1) << 2);
+    }
+
+    /**
+     * estimate the heap bytes which a detector needs for a job. The tables grow with the fingerprints of the hosts,
+     * a table has at most four slots of 12 bytes for each fingerprint and not more than the slots for HOST_CAPACITY
+     * fingerprints.
+     * @param documents the number of documents of the job
+     * @return the estimated maximum number of bytes of the detector
+     */
+    public static long memory(final long documents) {
+        if (MIN_DOCUMENTS <= 0 || documents <= 0) return 0;
+        final long hosts = Math.min(documents, MAX_HOSTS);
+        final long maxTableBytes = 12L * maxTableSize(Math.max(16, HOST_CAPACITY));
+        final long tableBytes = Math.min(hosts * maxTableBytes, Math.max(hosts * 12L * INITIAL_TABLE_SIZE, documents * DOCUMENT_FINGERPRINTS * 4 * 12));
+        return hosts * HOST_OVERHEAD + tableBytes;
+    }
+
+    private final Map<String, Host> hosts;
+
+    public TemplateDetector() {
+        this.hosts = new SizeLimitedMap<String, Host>(MAX_HOSTS);
+    }
+
+    private Host host(final Document document) {
+        final String host = document.dc_source() == null ? null : document.dc_source().getHost();
+        if (host == null) return null;
+        synchronized (this.hosts) {
+            Host h = this.hosts.get(host);
+            if (h == null) {
+                h = new Host(HOST_CAPACITY);
+                this.hosts.put(host, h);
+            }
+            return h;
+        }
+    }
+
+    /**
+     * count the text blocks and the links of a document for the template of its host and mark the boilerplate
+     * @param document the parsed document
+     * @param json the index object of the document, computed from the document; only the boilerplate fields are added
+     */
+    public void mark(final Document document, final JSONObject json) {
+        final Host host = host(document);
+        if (host == null) return;
+        documents.incrementAndGet();
+        final int[] blocks = blocks(host, document);
+        if (blocks != null) {
+            templateDocuments.incrementAndGet();
+            final JSONArray positions = new JSONArray();
+            for (final int p: blocks) positions.put((long) p);
+            json.put(ParserMapping.text_boilerplate_val.getFieldName(), positions);
+        }
+        mark(host, json, WebMapping.inboundlinks_sxt, WebMapping.inboundlinks_anchortext_txt, ParserMapping.inboundlinks_boilerplate_val);
+        mark(host, json, WebMapping.outboundlinks_sxt, WebMapping.outboundlinks_anchortext_txt, ParserMapping.outboundlinks_boilerplate_val);
+    }
+
+    /**
+     * count the text blocks of a document for the template of its host.
+     * Only documents which have been parsed by the html scraper have text blocks.
+     * @return the start and end positions of the boilerplate blocks in the text of the document, or null if there are none
+     */
+    private static int[] blocks(final Host host, final Document document) {
+        final Object scraper = document.getScraperObject();
+        if (!(scraper instanceof Scraper)) return null;
+        final int[] ends = ((Scraper) scraper).getTextBlocks();
+        final String text = document.getTextString();
+        if (ends.length == 0 || ends[ends.length - 1] != text.length()) return null; // the text was not taken from the scraper
+        final long[] fingerprints = new long[ends.length];
+        int start = 0;
+        for (int i = 0; i < ends.length; i++) {
+            if (ends[i] < start) return null; // the blocks do not match the text
+            fingerprints[i] = fingerprint(TEXT_SEED, text, start, ends[i]);
+            start = ends[i] + 1; // the blocks are separated by a space
+        }
+        textBytes.addAndGet(utf8Length(text, 0, text.length()));
+        final boolean[] template = host.count(fingerprints);
+
+        int count = 0;
+        for (final boolean t: template) if (t) count++;
+        if (count == 0) return null;
+        final int[] positions = new int[2 * count];
+        int p = 0;
+        start = 0;
+        for (int i = 0; i < ends.length; i++) {
+            if (template[i]) {
+                positions[p++] = start;
+                positions[p++] = ends[i];
+                boilerplateTextBytes.addAndGet(utf8Length(text, start, ends[i]));
+            }
+            start = ends[i] + 1;
+        }
+        return positions;
+    }
+
+    private static void mark(final Host host, final JSONObject json, final WebMapping urlField, final WebMapping anchortextField, final ParserMapping markField) {
+        final JSONArray urls = json.optJSONArray(urlField.getMapping().name());
+        if (urls == null || urls.length() == 0) return;
+        final JSONArray anchortexts = json.optJSONArray(anchortextField.getMapping().name());
+        final long[] fingerprints = new long[urls.length()];
+        for (int i = 0; i < fingerprints.length; i++) {
+            final String url = urls.optString(i, "");
+            final String anchortext = anchortexts == null ? "" : anchortexts.optString(i, "");
+            fingerprints[i] = fingerprint(fingerprint(LINK_SEED, url, 0, url.length()), anchortext, 0, anchortext.length());
+        }
+        final boolean[] template = host.count(fingerprints);
+        links.addAndGet(fingerprints.length);
+        final JSONArray positions = new JSONArray();
+        for (int i = 0; i < template.length; i++) {
+            if (!template[i]) continue;
+            positions.put((long) i);
+            final String url = urls.optString(i, "");
+            final String anchortext = anchortexts == null ? "" : anchortexts.optString(i, "");
+            boilerplateLinkBytes.addAndGet(utf8Length(url, 0, url.length()) + utf8Length(anchortext, 0, anchortext.length()));
+        }
+        if (positions.length() == 0) return;
+        boilerplateLinks.addAndGet(positions.length());
+        json.put(markField.getFieldName(), positions);
+    }
+
+    /**
+     * a hash over the characters of a text block, FNV-1a with a final avalanche; 0 is not a valid fingerprint
+     */
+    private static long fingerprint(final long seed, final CharSequence s, final int start, final int end) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (int i = start; i < end; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= end - start;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private static long utf8Length(final CharSequence s, final int start, final int end) {
+        long l = 0;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if (c < 0x80) l++;
+            else if (c < 0x800) l += 2;
+            else if (Character.isHighSurrogate(c)) {l += 4; i++;}
+            else l += 3;
+        }
+        return l;
+    }
+
+    /**
+     * @return the number of documents and of documents with boilerplate text, the bytes of the text and of the
+     * boilerplate text, the number of links and of boilerplate links with their bytes and the number of evicted fingerprints
+     */
+    public static Map<String, Long> getStatistics() {
+        final Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("documents", documents.get());
+        stats.put("templatedocuments", templateDocuments.get());
+        stats.put("textbytes", textBytes.get());
+        stats.put("boilerplatetextbytes", boilerplateTextBytes.get());
+        stats.put("links", links.get());
+        stats.put("boilerplatelinks", boilerplateLinks.get());
+        stats.put("boilerplatelinkbytes", boilerplateLinkBytes.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+}
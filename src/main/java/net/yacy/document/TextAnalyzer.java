@@ -0,0 +1,153 @@
+/**
+ *  TextAnalyzer
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Statistics of a text which are computed in one pass over the text: the number of words and the date
+ * candidates. Date candidates are
+ * the excerpts around words with digits, because every date pattern of the DateDetection contains a number,
+ * and the holiday names; the date patterns are applied to the excerpts only instead of the whole text.
+ * The analyzer keeps its buffers between texts; use one analyzer per thread, see get().
+ */
+public class TextAnalyzer {
+
+    private static final int DATE_CONTEXT = 4; // number of words before and after a number which can be part of a date
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    private static final ThreadLocal<TextAnalyzer> analyzers = new ThreadLocal<TextAnalyzer>() {
+        @Override
+        protected TextAnalyzer initialValue() {
+            return new TextAnalyzer();
+        }
+    };
+
+    /**
+     * @return the analyzer of the current thread
+     */
+    public static TextAnalyzer get() {
+        return analyzers.get();
+    }
+
+    private CharSequence text;
+    private int words;
+    private final StringBuilder dateCandidates = new StringBuilder();
+    private final Set<Date[]> holidays = new LinkedHashSet<>();
+
+    // the start positions of the last words, to find the start of a date excerpt
+    private final int[] wordStarts = new int[DATE_CONTEXT + 1];
+    private int excerptStart, excerptEnd, excerptRight;
+
+    /**
+     * analyze a text; the results of the previous text are discarded
+     * @param text the text
+     * @param dates if true, the date candidates are collected
+     * @return this
+     */
+    public TextAnalyzer analyze(final CharSequence text, final boolean dates) {
+        this.text = text;
+        this.words = 0;
+        if (this.dateCandidates.capacity() > MAX_RETAINED_CAPACITY) this.dateCandidates.trimToSize();
+        this.dateCandidates.setLength(0);
+        this.holidays.clear();
+        this.excerptStart = -1; this.excerptEnd = 0; this.excerptRight = 0;
+
+        final int length = text.length();
+        int wordStart = -1;
+        boolean wordHasDigit = false;
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (isSpace(c)) {
+                if (wordStart >= 0) {
+                    if (dates) endWord(wordStart, i, wordHasDigit);
+                    wordStart = -1;
+                }
+            } else if (wordStart < 0) {
+                wordStart = i;
+                wordHasDigit = false;
+                this.words++;
+                if (dates) DateDetection.holidays(text, i, this.holidays);
+            }
+            if (c >= '0' && c <= '9') wordHasDigit = true;
+        }
+        if (wordStart >= 0 && dates) endWord(wordStart, length, wordHasDigit);
+        if (dates) flushExcerpt(3);
+        this.text = null; // the analyzer is kept by the thread, the text not
+        return this;
+    }
+
+    /**
+     * the white space characters of the regular expression class \s which separate the words of a date
+     */
+    private static boolean isSpace(final char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+
+    private void endWord(final int start, final int end, final boolean hasDigit) {
+        System.arraycopy(this.wordStarts, 0, this.wordStarts, 1, DATE_CONTEXT);
+        this.wordStarts[0] = start;
+        if (hasDigit) {
+            // the excerpt starts DATE_CONTEXT words before this word, including the preceding white space.
+            // Excerpts which overlap are joined, so a date is never split; between separate excerpts there are
+            // at least 2 * DATE_CONTEXT words without digits, which cannot be part of a date.
+            final int back = Math.min(this.words - 1, DATE_CONTEXT);
+            final int s = Math.max(0, this.wordStarts[back] - 1);
+            if (this.excerptStart < 0) this.excerptStart = s;
+            else if (s > this.excerptEnd) {flushExcerpt(1); this.excerptStart = s;}
+            this.excerptEnd = end;
+            this.excerptRight = DATE_CONTEXT;
+        } else if (this.excerptRight > 0) {
+            this.excerptEnd = end;
+            this.excerptRight--;
+        }
+    }
+
+    /**
+     * append the current excerpt to the date candidates
+     * @param trailing the number of characters after the last word which are appended. One character is part of
+     * the date end pattern; the last excerpt needs three, so that '$' matches only if the text ends with a line terminator
+     */
+    private void flushExcerpt(final int trailing) {
+        if (this.excerptStart < 0) return;
+        final int end = Math.min(this.text.length(), this.excerptEnd + trailing);
+        if (this.dateCandidates.length() > 0) this.dateCandidates.append('\n');
+        this.dateCandidates.append(this.text, this.excerptStart, end);
+        this.excerptStart = -1;
+    }
+
+    /**
+     * @return the number of words, which are sequences of characters between white space
+     */
+    public int words() {
+        return this.words;
+    }
+
+    /**
+     * @return the dates of the text, with the same result as DateDetection.parse
+     */
+    public LinkedHashSet<Date> dates() {
+        final LinkedHashSet<Date> dates = this.dateCandidates.length() == 0 ? new LinkedHashSet<Date>() : DateDetection.parseRawDate(this.dateCandidates.toString());
+        for (final Date[] holiday: this.holidays) for (final Date d: holiday) dates.add(d);
+        return dates;
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ *  TextBuffer
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.yacy.cora.document.encoding.UTF8;
+
+/**
+ * The text of a document as an append-only sequence of immutable string segments. Appending a string or
+ * another text buffer stores only references to the segments, so the text of sub-documents and merged documents
+ * is not copied. The length is known without a conversion, the characters can be read sequentially with
+ * charAt, a Reader or a UTF-8 InputStream; the text is copied into one string only when toString is called,
+ * then that string replaces the segments, so the text is not held twice. A segment list is never changed
+ * except by appending, so readers and input streams stay valid when toString is called while they are open;
+ * they do not see text which is appended after that call.
+ * A text buffer must not be appended concurrently.
+ */
+public class TextBuffer implements CharSequence {
+
+    private static final int STREAM_CHUNK = 8192; // number of characters which are encoded at once by the input stream
+
+    private List<String> segments; // replaced by a list with one segment when toString joins the segments
+    private int[] ends; // the end position of each segment in the text
+    private int length;
+    private int hint; // the segment of the last charAt access
+
+    public TextBuffer() {
+        this.segments = new ArrayList<>(1);
+        this.ends = new int[1];
+        this.length = 0;
+        this.hint = 0;
+    }
+
+    public TextBuffer(final CharSequence text) {
+        this();
+        append(text);
+    }
+
+    /**
+     * append a text. A string or the segments of a text buffer are appended without a copy,
+     * other character sequences are copied because they may change.
+     * @param text the text
+     * @return this
+     */
+    public TextBuffer append(final CharSequence text) {
+        if (text == null) return this;
+        if (text instanceof TextBuffer) {
+            final TextBuffer tb = (TextBuffer) text;
+            final int n = tb.segments.size(); // the segments of tb are read only once, tb may be this
+            for (int i = 0; i < n; i++) add(tb.segments.get(i));
+        } else {
+            add(text.toString());
+        }
+        return this;
+    }
+
+    public TextBuffer append(final char c) {
+        add(String.valueOf(c));
+        return this;
+    }
+
+    public TextBuffer append(final char[] chars, final int offset, final int len) {
+        add(new String(chars, offset, len));
+        return this;
+    }
+
+    private void add(final String segment) {
+        if (segment.isEmpty()) return;
+        if (this.segments.size() == this.ends.length) this.ends = Arrays.copyOf(this.ends, this.ends.length * 2);
+        this.length += segment.length();
+        this.ends[this.segments.size()] = this.length;
+        this.segments.add(segment);
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    public boolean isEmpty() {
+        return this.length == 0;
+    }
+
+    /**
+     * @return the number of segments
+     */
+    public int segments() {
+        return this.segments.size();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= this.length) throw new IndexOutOfBoundsException("index " + index + ", length " + this.length);
+        int s = this.hint;
+        if (s >= this.segments.size() || index >= this.ends[s] || index < start(s)) {
+            // sequential reads move to the next segment, other reads need a binary search
+            if (s + 1 < this.segments.size() && index >= this.ends[s] && index < this.ends[s + 1]) {
+                s++;
+            } else {
+                s = Arrays.binarySearch(this.ends, 0, this.segments.size(), index);
+                s = s < 0 ? -s - 1 : s + 1;
+            }
+            this.hint = s;
+        }
+        return this.segments.get(s).charAt(index - start(s));
+    }
+
+    private int start(final int segment) {
+        return segment == 0 ? 0 : this.ends[segment - 1];
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        if (start < 0 || end > this.length || start > end) throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + this.length);
+        final StringBuilder sb = new StringBuilder(end - start);
+        for (int i = 0; i < this.segments.size(); i++) {
+            final int s = start(i), e = this.ends[i];
+            if (e <= start) continue;
+            if (s >= end) break;
+            sb.append(this.segments.get(i), Math.max(start, s) - s, Math.min(end, e) - s);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * write the text without copying it into one string
+     * @param writer the target
+     * @throws IOException
+     */
+    public void writeTo(final Writer writer) throws IOException {
+        for (final String segment: this.segments) writer.write(segment);
+    }
+
+    /**
+     * @return a reader of the text
+     */
+    public Reader getReader() {
+        final List<String> segments = this.segments;
+        return new Reader() {
+            private int segment = 0, pos = 0;
+
+            @Override
+            public int read(final char[] cbuf, final int off, final int len) {
+                if (len == 0) return 0;
+                while (this.segment < segments.size() && this.pos >= segments.get(this.segment).length()) {
+                    this.segment++;
+                    this.pos = 0;
+                }
+                if (this.segment >= segments.size()) return -1;
+                final String s = segments.get(this.segment);
+                final int n = Math.min(len, s.length() - this.pos);
+                s.getChars(this.pos, this.pos + n, cbuf, off);
+                this.pos += n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * @return the UTF-8 encoding of the text; the text is encoded in small chunks while it is read
+     */
+    public InputStream getInputStream() {
+        final List<String> segments = this.segments;
+        return new InputStream() {
+            private int segment = 0, pos = 0;
+            private byte[] chunk = new byte[0];
+            private int chunkPos = 0;
+
+            private boolean fill() {
+                while (this.chunkPos >= this.chunk.length) {
+                    while (this.segment < segments.size() && this.pos >= segments.get(this.segment).length()) {
+                        this.segment++;
+                        this.pos = 0;
+                    }
+                    if (this.segment >= segments.size()) return false;
+                    final String s = segments.get(this.segment);
+                    int end = Math.min(s.length(), this.pos + STREAM_CHUNK);
+                    if (end < s.length() && Character.isHighSurrogate(s.charAt(end - 1))) end--; // do not split a surrogate pair
+                    this.chunk = UTF8.getBytes(s.substring(this.pos, end));
+                    this.chunkPos = 0;
+                    this.pos = end;
+                }
+                return true;
+            }
+
+            @Override
+            public int read() {
+                if (!fill()) return -1;
+                return this.chunk[this.chunkPos++] & 0xff;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) {
+                if (len == 0) return 0;
+                if (!fill()) return -1;
+                final int n = Math.min(len, this.chunk.length - this.chunkPos);
+                System.arraycopy(this.chunk, this.chunkPos, b, off, n);
+                this.chunkPos += n;
+                return n;
+            }
+        };
+    }
+
+    /**
+     * @return the text as one string. The string replaces the segments, so the copy is made only once
+     * and the segments can be collected when no reader uses them.
+     */
+    @Override
+    public String toString() {
+        if (this.segments.isEmpty()) return "";
+        if (this.segments.size() > 1) {
+            final StringBuilder sb = new StringBuilder(this.length);
+            for (final String segment: this.segments) sb.append(segment);
+            this.segments = new ArrayList<>(1);
+            this.segments.add(sb.toString());
+            this.ends = new int[]{this.length};
+            this.hint = 0;
+        }
+        return this.segments.get(0);
+    }
+}
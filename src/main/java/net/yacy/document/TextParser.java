@@ -26,12 +26,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.document.parser.apkParser;
@@ -80,6 +83,14 @@ public final class TextParser {
 
     public final static Parser htmlParserReference = new htmlParser();
 
+    // for each parser the number of parse attempts (at index 0) and the number of failures for each reason
+    private static final ConcurrentHashMap<String, AtomicLongArray> parserStatistics = new ConcurrentHashMap<String, AtomicLongArray>();
+    private static final String SELECTION = "selection"; // the statistics name for failures of the parser selection
+
+    // exceptions which are not detected by a parser are bugs; their stack trace is logged as warning at most once in this time
+    private static final long EXCEPTION_LOG_INTERVAL = 60000;
+    private static final AtomicLong lastExceptionLog = new AtomicLong(0);
+
     static {
         initParser(new apkParser());
         initParser(new bzipParser());
@@ -161,58 +172,91 @@ public final class TextParser {
             final int depth,
             final File sourceFile
         ) throws InterruptedException, Parser.Failure {
+        final DocumentSink.Collector collector = new DocumentSink.Collector();
+        parseSource(location, mimeType, charset, scraper, timezoneOffset, depth, sourceFile, collector);
+        return collector.documents();
+    }
+
+    public static void parseSource(
+            final MultiProtocolURL location,
+            final String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            final int depth,
+            final File sourceFile,
+            final DocumentSink sink
+        ) throws InterruptedException, Parser.Failure {
 
         BufferedInputStream sourceStream = null;
-        Document[] docs = null;
         try {
             Logger.debug("TextParser.parseSource Parsing '" + location + "' from file");
             if (!sourceFile.exists() || !sourceFile.canRead() || sourceFile.length() == 0) {
                 final String errorMsg = sourceFile.exists() ? "Empty resource file." : "No resource content available (2).";
-                Logger.info("Unable to parse '" + location + "'. " + errorMsg);
-                throw new Parser.Failure(errorMsg, location);
+                throw countFailure(SELECTION, new Parser.Failure(Parser.Failure.Reason.malformed, errorMsg, location));
             }
             sourceStream = new BufferedInputStream(new FileInputStream(sourceFile));
-            docs = parseSource(location, mimeType, charset, scraper, timezoneOffset, depth, sourceFile.length(), sourceStream);
+            parseSource(location, mimeType, charset, scraper, timezoneOffset, depth, sourceFile.length(), sourceStream, sink);
         } catch (final Exception e) {
             if (e instanceof InterruptedException) throw (InterruptedException) e;
             if (e instanceof Parser.Failure) throw (Parser.Failure) e;
             Logger.error("TextParser.parseSource Unexpected exception in parseSource from File: " + e.getMessage(), e);
-            throw new Parser.Failure("Unexpected exception: " + e.getMessage(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.unknown, "Unexpected exception: " + e.getMessage(), location);
         } finally {
             if (sourceStream != null) try { sourceStream.close(); } catch (final Exception ex) {}
         }
-
-        return docs;
     }
 
     public static Document[] parseSource(
             final MultiProtocolURL location,
-            String mimeType,
+            final String mimeType,
             final String charset,
             final VocabularyScraper scraper,
             final int timezoneOffset,
             final int depth,
             final byte[] content
         ) throws Parser.Failure {
+        final DocumentSink.Collector collector = new DocumentSink.Collector();
+        try {
+            parseSource(location, mimeType, charset, scraper, timezoneOffset, depth, content, collector);
+        } catch (final InterruptedException e) {
+            throw new Parser.Failure(Parser.Failure.Reason.timeout, "interrupted", location);
+        }
+        return collector.documents();
+    }
+
+    /**
+     * parse the content and give each document to the sink as soon as the parser has produced it
+     * @param sink the target for the documents; it may block to slow down the parser or stop the parser by not accepting more documents
+     * @throws Parser.Failure if no parser is able to parse the content
+     * @throws InterruptedException
+     */
+    public static void parseSource(
+            final MultiProtocolURL location,
+            String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            final int depth,
+            final byte[] content,
+            final DocumentSink sink
+        ) throws Parser.Failure, InterruptedException {
         mimeType = normalizeMimeType(mimeType);
         Set<Parser> idioms = null;
         try {
             idioms = parsers(location, mimeType);
         } catch (final Parser.Failure e) {
             final String errorMsg = "TextParser.parseSource Parser Failure for extension '" + MultiProtocolURL.getFileExtension(location.getFileName()) + "' or mimetype '" + mimeType + "': " + e.getMessage();
-            Logger.warn(errorMsg);
-            throw new Parser.Failure(errorMsg, location);
+            throw countFailure(SELECTION, new Parser.Failure(e.getReason(), errorMsg, location));
         }
         assert !idioms.isEmpty() : "no parsers applied for url " + location.toNormalform(true);
 
-        Document[] docs = parseSource(location, mimeType, idioms, charset, scraper, timezoneOffset, depth, content);
-
-        return docs;
+        parseSource(location, mimeType, idioms, charset, scraper, timezoneOffset, depth, content, sink);
     }
 
     public static Document[] parseSource(
             final MultiProtocolURL location,
-            String mimeType,
+            final String mimeType,
             final String charset,
             final VocabularyScraper scraper,
             final int timezoneOffset,
@@ -220,14 +264,33 @@ public final class TextParser {
             final long contentLength,
             final InputStream sourceStream
         ) throws Parser.Failure {
+        final DocumentSink.Collector collector = new DocumentSink.Collector();
+        try {
+            parseSource(location, mimeType, charset, scraper, timezoneOffset, depth, contentLength, sourceStream, collector);
+        } catch (final InterruptedException e) {
+            throw new Parser.Failure(Parser.Failure.Reason.timeout, "interrupted", location);
+        }
+        return collector.documents();
+    }
+
+    public static void parseSource(
+            final MultiProtocolURL location,
+            String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            final int depth,
+            final long contentLength,
+            final InputStream sourceStream,
+            final DocumentSink sink
+        ) throws Parser.Failure, InterruptedException {
         mimeType = normalizeMimeType(mimeType);
         Set<Parser> idioms = null;
         try {
             idioms = parsers(location, mimeType);
         } catch (final Parser.Failure e) {
             final String errorMsg = "TextParser.parseSource Parser Failure for extension '" + MultiProtocolURL.getFileExtension(location.getFileName()) + "' or mimetype '" + mimeType + "': " + e.getMessage();
-            Logger.warn(errorMsg);
-            throw new Parser.Failure(errorMsg, location);
+            throw countFailure(SELECTION, new Parser.Failure(e.getReason(), errorMsg, location));
         }
         assert !idioms.isEmpty() : "no parsers applied for url " + location.toNormalform(true);
 
@@ -235,7 +298,8 @@ public final class TextParser {
         // then we use only one stream-oriented parser.
         if (idioms.size() == 1 || contentLength > Integer.MAX_VALUE) {
             // use a specific stream-oriented parser
-            return parseSource(location, mimeType, idioms.iterator().next(), charset, scraper, timezoneOffset, sourceStream);
+            parseSource(location, mimeType, idioms.iterator().next(), charset, scraper, timezoneOffset, sourceStream, sink);
+            return;
         }
 
         // in case that we know more parsers we first transform the content into a byte[] and use that as base
@@ -244,36 +308,74 @@ public final class TextParser {
         try {
             b = FileUtils.read(sourceStream, (int) contentLength);
         } catch (final IOException e) {
-            throw new Parser.Failure(e.getMessage(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, e.getMessage(), location);
         }
-        Document[] docs = parseSource(location, mimeType, idioms, charset, scraper, timezoneOffset, depth, b);
-
-        return docs;
+        parseSource(location, mimeType, idioms, charset, scraper, timezoneOffset, depth, b, sink);
     }
 
-    private static Document[] parseSource(
+    private static void parseSource(
             final MultiProtocolURL location,
             final String mimeType,
             final Parser parser,
             final String charset,
             final VocabularyScraper scraper,
             final int timezoneOffset,
-            final InputStream sourceStream
-        ) throws Parser.Failure {
+            final InputStream sourceStream,
+            final DocumentSink sink
+        ) throws Parser.Failure, InterruptedException {
         final String fileExt = MultiProtocolURL.getFileExtension(location.getFileName());
         final String documentCharset = htmlParser.patchCharsetEncoding(charset);
         assert parser != null;
 
         Logger.debug("TextParser.parseSource Parsing " + location + " with mimeType '" + mimeType + "' and file extension '" + fileExt + "' from stream");
+        countAttempt(parser.getName());
         try {
-            final Document[] docs = parser.parse(location, mimeType, documentCharset, scraper, timezoneOffset, sourceStream);
-            return docs;
+            parser.parse(location, mimeType, documentCharset, scraper, timezoneOffset, sourceStream, sink);
+        } catch (final InterruptedException e) {
+            throw e;
+        } catch (final Parser.Failure e) {
+            throw countFailure(parser.getName(), e);
         } catch (final Exception e) {
-            throw new Parser.Failure("parser failed: " + parser.getName(), location);
+            throw countException(parser.getName(), "parser failed: " + parser.getName(), location, e);
+        } catch (final OutOfMemoryError e) {
+            // the content needs more memory than the heap has; the objects of the parser are unreachable here
+            throw countFailure(parser.getName(), new Parser.Failure(Parser.Failure.Reason.toolarge, "out of memory", location));
         }
     }
 
-    private static Document[] parseSource(
+    /**
+     * a sink which sets the crawl depth of the documents and counts them before they are given to the target sink
+     */
+    private static class DepthSink implements DocumentSink {
+        private final DocumentSink sink;
+        private final int depth;
+        private int count = 0;
+
+        private DepthSink(final DocumentSink sink, final int depth) {
+            this.sink = sink;
+            this.depth = depth;
+        }
+
+        @Override
+        public boolean put(final Document d) throws InterruptedException {
+            assert d.getTextStream() != null;
+            d.setDepth(this.depth);
+            this.count++;
+            return this.sink.put(d);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return this.sink.isCancelled();
+        }
+
+        @Override
+        public boolean nonCanonicalLightPath() {
+            return this.sink.nonCanonicalLightPath();
+        }
+    }
+
+    private static void parseSource(
             final MultiProtocolURL location,
             final String mimeType,
             final Set<Parser> parsers,
@@ -281,64 +383,129 @@ public final class TextParser {
             final VocabularyScraper scraper,
             final int timezoneOffset,
             final int depth,
-            final byte[] sourceArray
-        ) throws Parser.Failure {
+            final byte[] sourceArray,
+            final DocumentSink sink
+        ) throws Parser.Failure, InterruptedException {
         final String fileExt = MultiProtocolURL.getFileExtension(location.getFileName());
         Logger.debug("TextParser.parseSource Parsing " + location + " with mimeType '" + mimeType + "' and file extension '" + fileExt + "' from byte[]");
         final String documentCharset = htmlParser.patchCharsetEncoding(charset);
         assert !parsers.isEmpty();
 
-        Document[] docs = null;
-        final Map<Parser, Parser.Failure> failedParser = new HashMap<Parser, Parser.Failure>();
+        boolean parsed = false;
+        final Map<Parser, Parser.Failure> failedParser = new LinkedHashMap<Parser, Parser.Failure>(); // in the order of the parsers
         String origName = Thread.currentThread().getName();
         Thread.currentThread().setName("parsing + " + location.toString()); // set a name to get the address in Thread Dump
-        for (final Parser parser: parsers) {
-            	ByteArrayInputStream bis;
-            	if (mimeType.equals("text/plain") && parser == htmlParserReference) {
-            	    // a hack to simulate html files .. is needed for NOLOAD queues. This throws their data into virtual text/plain messages.
-            	    bis = new ByteArrayInputStream(UTF8.getBytes("<html><head></head><body><h1>" + UTF8.String(sourceArray) + "</h1></body><html>"));
-            	} else {
-            	    bis = new ByteArrayInputStream(sourceArray);
-            	}
+        try {
+            for (final Parser parser: parsers) {
+                ByteArrayInputStream bis;
+                if (mimeType.equals("text/plain") && parser == htmlParserReference) {
+                    // a hack to simulate html files .. is needed for NOLOAD queues. This throws their data into virtual text/plain messages.
+                    bis = new ByteArrayInputStream(UTF8.getBytes("<html><head></head><body><h1>" + UTF8.String(sourceArray) + "</h1></body><html>"));
+                } else {
+                    bis = new ByteArrayInputStream(sourceArray);
+                }
+                final DepthSink depthSink = new DepthSink(sink, depth);
+                countAttempt(parser.getName());
                 try {
-                    docs = parser.parse(location, mimeType, documentCharset, scraper, timezoneOffset, bis);
+                    parser.parse(location, mimeType, documentCharset, scraper, timezoneOffset, bis, depthSink);
+                    parsed = true;
                 } catch (final Parser.Failure e) {
-                    failedParser.put(parser, e);
-                    //log.logWarning("tried parser '" + parser.getName() + "' to parse " + location.toNormalform(true, false) + " but failed: " + e.getMessage(), e);
+                    failedParser.put(parser, countFailure(parser.getName(), e));
+                } catch (final InterruptedException e) {
+                    throw e;
                 } catch (final Exception e) {
-                    Logger.warn("parser  failure", e);
-                    failedParser.put(parser, new Parser.Failure(e.getMessage(), location));
-                    //log.logWarning("tried parser '" + parser.getName() + "' to parse " + location.toNormalform(true, false) + " but failed: " + e.getMessage(), e);
+                    // not a failure which is detected by the parser; the cause is kept to find the bug in the parser
+                    failedParser.put(parser, countException(parser.getName(), e.getMessage(), location, e));
+                } catch (final OutOfMemoryError e) {
+                    failedParser.put(parser, countFailure(parser.getName(), new Parser.Failure(Parser.Failure.Reason.toolarge, "out of memory", location)));
                 } finally {
-                	try {
-                		bis.close();
-                	} catch(IOException ioe) {
-                		// Ignore.
-                	}
+                    try {
+                        bis.close();
+                    } catch(IOException ioe) {
+                        // Ignore.
+                    }
                 }
-                if (docs != null) break;
+                if (parsed) break;
+                if (depthSink.count > 0) {
+                    // documents which are given to the sink cannot be taken back, therefore no other parser is tried
+                    Logger.warn("TextParser.parseSource parser '" + parser.getName() + "' failed after " + depthSink.count + " documents of " + location.toNormalform(true));
+                    return;
+                }
+            }
+        } finally {
+            Thread.currentThread().setName(origName);
         }
-        Thread.currentThread().setName(origName);
 
-        if (docs == null) {
+        if (!parsed) {
             if (failedParser.isEmpty()) {
                 final String errorMsg = "TextParser.parseSource Parsing content with file extension '" + fileExt + "' and mimetype '" + mimeType + "' failed.";
                 //log.logWarning("Unable to parse '" + location + "'. " + errorMsg);
-                throw new Parser.Failure(errorMsg, location);
+                throw new Parser.Failure(Parser.Failure.Reason.unsupported, errorMsg, location);
             }
-            String failedParsers = "";
+            // the failures are counted per parser and reason, they are not logged; the reason of the first (best fitting) parser is given
+            final StringBuilder failedParsers = new StringBuilder();
+            Parser.Failure first = null;
             for (final Map.Entry<Parser, Parser.Failure> error: failedParser.entrySet()) {
-            	Logger.warn("TextParser.parseSource tried parser '" + error.getKey().getName() + "' to parse " + location.toNormalform(true) + " but failed: " + error.getValue().getMessage(), error.getValue());
-                failedParsers += error.getKey().getName() + " ";
+                if (first == null) first = error.getValue();
+                failedParsers.append(error.getKey().getName()).append(' ');
             }
-            throw new Parser.Failure("All parser failed: " + failedParsers, location);
+            throw new Parser.Failure(first.getReason(), "All parser failed: " + failedParsers.toString(), location, first);
         }
-        for (final Document d: docs) {
-            assert d.getTextStream() != null : "mimeType = " + mimeType;
-            d.setDepth(depth);
-        } // verify docs
+    }
+
+    private static void countAttempt(final String parserName) {
+        statistics(parserName).incrementAndGet(0);
+    }
+
+    private static Parser.Failure countFailure(final String parserName, final Parser.Failure failure) {
+        statistics(parserName).incrementAndGet(1 + failure.getReason().ordinal());
+        return failure;
+    }
 
-        return docs;
+    /**
+     * count an exception which is not detected by the parser and log its stack trace: as warning if no stack trace
+     * was logged within EXCEPTION_LOG_INTERVAL, otherwise as debug message
+     */
+    private static Parser.Failure countException(final String parserName, final String message, final MultiProtocolURL location, final Exception e) {
+        final long now = System.currentTimeMillis();
+        final long last = lastExceptionLog.get();
+        final String logMessage = "TextParser parser '" + parserName + "' failed with an exception for " + location.toNormalform(true);
+        if (now - last >= EXCEPTION_LOG_INTERVAL && lastExceptionLog.compareAndSet(last, now)) {
+            Logger.warn(logMessage, e);
+        } else {
+            Logger.debug(logMessage, e);
+        }
+        return countFailure(parserName, new Parser.Failure(Parser.Failure.Reason.unknown, message, location, e));
+    }
+
+    private static AtomicLongArray statistics(final String parserName) {
+        AtomicLongArray a = parserStatistics.get(parserName);
+        if (a == null) {
+            a = new AtomicLongArray(1 + Parser.Failure.Reason.values().length);
+            final AtomicLongArray b = parserStatistics.putIfAbsent(parserName, a);
+            if (b != null) a = b;
+        }
+        return a;
+    }
+
+    /**
+     * get the failure statistics of the parsers. Failures which happen before a parser is selected,
+     * i.e. for denied mime types, are counted for the name "selection".
+     * @return for each parser name the number of attempts, the number of failures and the number of failures for each reason
+     */
+    public static Map<String, Map<String, Long>> getFailureStatistics() {
+        final Map<String, Map<String, Long>> stats = new TreeMap<>();
+        for (final Map.Entry<String, AtomicLongArray> entry: parserStatistics.entrySet()) {
+            final AtomicLongArray a = entry.getValue();
+            final Map<String, Long> s = new LinkedHashMap<>();
+            long failures = 0;
+            for (final Parser.Failure.Reason reason: Parser.Failure.Reason.values()) failures += a.get(1 + reason.ordinal());
+            s.put("attempts", a.get(0));
+            s.put("failures", failures);
+            for (final Parser.Failure.Reason reason: Parser.Failure.Reason.values()) s.put(reason.name(), a.get(1 + reason.ordinal()));
+            stats.put(entry.getKey(), s);
+        }
+        return stats;
     }
 
     /**
@@ -379,7 +546,7 @@ public final class TextParser {
         Set<Parser> idiom;
         if (mimeType1 != null) {
             mimeType1 = normalizeMimeType(mimeType1);
-            if (denyMime.containsKey(mimeType1)) throw new Parser.Failure("mime type '" + mimeType1 + "' is denied (1)", url);
+            if (denyMime.containsKey(mimeType1)) throw new Parser.Failure(Parser.Failure.Reason.unsupported, "mime type '" + mimeType1 + "' is denied (1)", url);
             idiom = mime2parser.get(mimeType1);
             if (idiom != null) idioms.addAll(idiom);
         }
@@ -387,7 +554,7 @@ public final class TextParser {
         // check extension and add as backup (in case no, wrong or unknown/unsupported mime was suppied)
         String ext = MultiProtocolURL.getFileExtension(url.getFileName());
         if (ext != null && ext.length() > 0) {
-            if (denyExtensionx.containsKey(ext)) throw new Parser.Failure("file extension '" + ext + "' is denied (1)", url);
+            if (denyExtensionx.containsKey(ext)) throw new Parser.Failure(Parser.Failure.Reason.unsupported, "file extension '" + ext + "' is denied (1)", url);
             idiom = ext2parser.get(ext);
             if (idiom != null && !idioms.containsAll(idiom)) { // use containsAll -> idiom is a Set of parser
                 idioms.addAll(idiom);
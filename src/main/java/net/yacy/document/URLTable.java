@@ -0,0 +1,237 @@
+/**
+ *  URLTable
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.yacy.grid.tools.AnchorURL;
+import net.yacy.grid.tools.Classification;
+import net.yacy.grid.tools.Classification.ContentDomain;
+import net.yacy.grid.tools.MultiProtocolURL;
+
+/**
+ * The urls of one document with the properties which are computed from them along the parsing and indexing
+ * pipeline: the normal forms, the host, the file extension, the media class, the relation of the host to the
+ * document host and the url tokens. Each property is computed once for each url object; the scraper, the document
+ * and the index configuration pass the same url objects, so they share the results. Equal strings of different
+ * url objects are stored only once, and a link which appears several times in a document is resolved only once.
+ * The table belongs to one document and is not thread-safe; it is handed from the parser to the indexer together with
+ * the document.
+ */
+public class URLTable {
+
+    private static final byte SAME_HOST = 1, SAME_DOMAIN = 2, SAME_SITE = 4;
+
+    private static class Entry {
+        private String normalformWithoutAnchor, normalformWithAnchor, host, extension, tokens;
+        private boolean hostDone, extensionDone;
+        private ContentDomain media;
+        private byte relation = -1;
+    }
+
+    private final MultiProtocolURL source;
+    private final String sourceHost;
+    private final Map<MultiProtocolURL, Entry> entries;
+    private final Map<String, String> strings;
+    private final Map<String, AnchorURL> resolved; // relative links of the current base url
+    private MultiProtocolURL base;
+
+    /**
+     * @param source the url of the document; inbound and outbound links are classified against its host
+     */
+    public URLTable(final MultiProtocolURL source) {
+        this.source = source;
+        this.sourceHost = source == null ? null : source.getHost();
+        this.entries = new IdentityHashMap<>();
+        this.strings = new HashMap<>();
+        this.resolved = new HashMap<>();
+        this.base = null;
+    }
+
+    public MultiProtocolURL source() {
+        return this.source;
+    }
+
+    /**
+     * resolve a link of the document
+     * @param base the base url of the document at the position of the link
+     * @param relativePath the link
+     * @return a new anchor for the link or null if the link is malformed
+     */
+    public AnchorURL resolve(final MultiProtocolURL base, final String relativePath) {
+        if (base != this.base) {
+            this.resolved.clear();
+            this.base = base;
+        }
+        final AnchorURL prototype = this.resolved.get(relativePath);
+        if (prototype != null) {
+            // each anchor gets its own properties, but the url and its properties are shared; this is the copy
+            // constructor which the Document uses for image urls and the ParserService for response urls
+            final AnchorURL url = new AnchorURL((MultiProtocolURL) prototype);
+            this.entries.put(url, entry(prototype));
+            return url;
+        }
+        final AnchorURL url;
+        try {
+            url = AnchorURL.newAnchor(base, relativePath);
+        } catch (final Exception e) {
+            return null;
+        }
+        if (url == null) return null;
+        this.resolved.put(relativePath, url);
+        return url;
+    }
+
+    private Entry entry(final MultiProtocolURL url) {
+        Entry entry = this.entries.get(url);
+        if (entry == null) {
+            entry = new Entry();
+            this.entries.put(url, entry);
+        }
+        return entry;
+    }
+
+    private String intern(final String s) {
+        if (s == null) return null;
+        final String i = this.strings.putIfAbsent(s, s);
+        return i == null ? s : i;
+    }
+
+    /**
+     * @param url the url
+     * @param excludeAnchor as in MultiProtocolURL.toNormalform
+     * @return the normal form of the url
+     */
+    public String normalform(final MultiProtocolURL url, final boolean excludeAnchor) {
+        final Entry entry = entry(url);
+        if (excludeAnchor) {
+            if (entry.normalformWithoutAnchor == null) entry.normalformWithoutAnchor = intern(url.toNormalform(true));
+            return entry.normalformWithoutAnchor;
+        }
+        if (entry.normalformWithAnchor == null) entry.normalformWithAnchor = intern(url.toNormalform(false));
+        return entry.normalformWithAnchor;
+    }
+
+    /**
+     * @return the host of the url, may be null
+     */
+    public String host(final MultiProtocolURL url) {
+        final Entry entry = entry(url);
+        if (!entry.hostDone) {
+            entry.host = intern(url.getHost());
+            entry.hostDone = true;
+        }
+        return entry.host;
+    }
+
+    /**
+     * @return the lower-case extension after the last dot of the normal form, without the query; null if there is no dot
+     */
+    public String extension(final MultiProtocolURL url) {
+        final Entry entry = entry(url);
+        if (!entry.extensionDone) {
+            final String u = normalform(url, true);
+            final int extpos = u.lastIndexOf('.');
+            if (extpos > 0) {
+                final int qpos = u.indexOf('?');
+                entry.extension = intern((qpos >= 0 && qpos > extpos ? u.substring(extpos + 1, qpos) : u.substring(extpos + 1)).toLowerCase());
+            }
+            entry.extensionDone = true;
+        }
+        return entry.extension;
+    }
+
+    /**
+     * @return the media class of a link by its extension: IMAGE, AUDIO, VIDEO or APP; ALL if it is not a media link
+     */
+    public ContentDomain media(final MultiProtocolURL url) {
+        final Entry entry = entry(url);
+        if (entry.media == null) {
+            final String ext = extension(url);
+            if (ext == null || !Classification.isMediaExtension(ext)) entry.media = ContentDomain.ALL;
+            else if (Classification.isImageExtension(ext)) entry.media = ContentDomain.IMAGE;
+            else if (Classification.isAudioExtension(ext)) entry.media = ContentDomain.AUDIO;
+            else if (Classification.isVideoExtension(ext)) entry.media = ContentDomain.VIDEO;
+            else if (Classification.isApplicationExtension(ext)) entry.media = ContentDomain.APP;
+            else entry.media = ContentDomain.ALL;
+        }
+        return entry.media;
+    }
+
+    private byte relation(final MultiProtocolURL url) {
+        final Entry entry = entry(url);
+        if (entry.relation < 0) {
+            final String host = host(url);
+            final String thishost = this.sourceHost;
+            byte relation = 0;
+            if (host != null && host.equals(thishost)) relation |= SAME_HOST;
+            if ((thishost == null && host == null) ||
+                ((thishost != null && host != null) &&
+                 (host.endsWith(thishost) ||
+                  (thishost.startsWith("www.") && host.endsWith(thishost.substring(4)))))) relation |= SAME_DOMAIN;
+            if ((thishost == null && host == null) ||
+                (thishost != null && host != null &&
+                 (host.equals(thishost) ||
+                  host.equals("www." + thishost) ||
+                  thishost.equals("www." + host)))) relation |= SAME_SITE;
+            entry.relation = relation;
+        }
+        return entry.relation;
+    }
+
+    /**
+     * @return true if the url has the host of the document
+     */
+    public boolean isSameHost(final MultiProtocolURL url) {
+        return (relation(url) & SAME_HOST) != 0;
+    }
+
+    /**
+     * @return true if the host of the url ends with the host of the document, without a 'www.' prefix
+     */
+    public boolean isSameDomain(final MultiProtocolURL url) {
+        return (relation(url) & SAME_DOMAIN) != 0;
+    }
+
+    /**
+     * @return true if the url has the host of the document, with or without a 'www.' prefix
+     */
+    public boolean isSameSite(final MultiProtocolURL url) {
+        return (relation(url) & SAME_SITE) != 0;
+    }
+
+    /**
+     * @return the tokens of the url as in MultiProtocolURL.toTokens
+     */
+    public String tokens(final MultiProtocolURL url) {
+        final Entry entry = entry(url);
+        if (entry.tokens == null) entry.tokens = url.toTokens();
+        return entry.tokens;
+    }
+
+    /**
+     * @return the number of urls in the table
+     */
+    public int size() {
+        return this.entries.size();
+    }
+}
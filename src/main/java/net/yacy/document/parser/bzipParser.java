@@ -120,7 +120,7 @@ public class bzipParser extends AbstractParser implements Parser {
             if (e instanceof InterruptedException) throw (InterruptedException) e;
             if (e instanceof Parser.Failure) throw (Parser.Failure) e;
 
-            throw new Parser.Failure("Unexpected error while parsing bzip file. " + e.getMessage(),location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unexpected error while parsing bzip file. " + e.getMessage(),location);
         } finally {
             if (tempFile != null) FileUtils.deletedelete(tempFile);
         }
@@ -64,7 +64,7 @@ public class csvParser extends AbstractParser implements Parser {
         // the first row is used as headline
         // all lines are artificially terminated by a '.' to separate them as sentence for the condenser.
         final List<String[]> table = getTable(charset, source);
-        if (table.isEmpty()) throw new Parser.Failure("document has no lines", location);
+        if (table.isEmpty()) throw new Parser.Failure(Parser.Failure.Reason.malformed, "document has no lines", location);
         final StringBuilder sb = new StringBuilder();
         for (final String[] row: table) {
             sb.append(concatRow(row)).append(' ');
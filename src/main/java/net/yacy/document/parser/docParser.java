@@ -40,6 +40,7 @@ import net.yacy.document.Document;
 import net.yacy.document.Parser;
 import net.yacy.document.VocabularyScraper;
 
+import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.hwpf.HWPFDocument;
 import org.apache.poi.hwpf.OldWordFileFormatException;
 import org.apache.poi.hwpf.extractor.Word6Extractor;
@@ -81,7 +82,7 @@ public class docParser extends AbstractParser implements Parser {
             // if old version (Word6/Word95) delegate to old parser (as long as available in poi package)
             return parseOldWordDoc(location, mimeType, poifs);
         } catch (final Exception e) {
-            throw new Parser.Failure("error in docParser, WordTextExtractorFactory: " + e.getMessage(), location);
+            throw new Parser.Failure(e instanceof EncryptedDocumentException ? Parser.Failure.Reason.unsupported : Parser.Failure.Reason.malformed, "error in docParser, WordTextExtractorFactory: " + e.getMessage(), location);
         }
 
         final StringBuilder contents = new StringBuilder(80);
@@ -89,7 +90,7 @@ public class docParser extends AbstractParser implements Parser {
             contents.append(extractor.getText()); // extractor gets all text incl. headers/footers
         } catch (final Exception e) {
             try {extractor.close();} catch (IOException e1) {}
-            throw new Parser.Failure("error in docParser, getText: " + e.getMessage(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "error in docParser, getText: " + e.getMessage(), location);
         }
         String title = (contents.length() > 240) ? contents.substring(0,240) : contents.toString().trim();
         title = title.replaceAll("\r"," ").replaceAll("\n"," ").replaceAll("\t"," ").trim();
@@ -156,7 +157,7 @@ public class docParser extends AbstractParser implements Parser {
         try {
             extractor = new Word6Extractor(poifs);
         } catch (final Exception e) {
-            throw new Parser.Failure("error in docParser, WordTextExtractorFactory: " + e.getMessage(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "error in docParser, WordTextExtractorFactory: " + e.getMessage(), location);
         }
 
         final StringBuilder contents = new StringBuilder(80);
@@ -164,7 +165,7 @@ public class docParser extends AbstractParser implements Parser {
             contents.append(extractor.getText());
         } catch (final Exception e) {
             try {extractor.close();} catch (IOException e1) {}
-            throw new Parser.Failure("error in docParser, getText: " + e.getMessage(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "error in docParser, getText: " + e.getMessage(), location);
         }
         String title = (contents.length() > 240) ? contents.substring(0,240) : contents.toString().trim();
         title = title.replaceAll("\r"," ").replaceAll("\n"," ").replaceAll("\t"," ").trim();
@@ -118,7 +118,7 @@ public class gzipParser extends AbstractParser implements Parser {
             if (e instanceof InterruptedException) throw (InterruptedException) e;
             if (e instanceof Parser.Failure) throw (Parser.Failure) e;
 
-            throw new Parser.Failure("Unexpected error while parsing gzip file. " + e.getMessage(),location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unexpected error while parsing gzip file. " + e.getMessage(),location);
         } finally {
             if (tempFile != null) FileUtils.deletedelete(tempFile);
         }
@@ -0,0 +1,238 @@
+/**
+ *  CharsetDetection
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.parser.html;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ibm.icu.text.CharsetDetector;
+
+import net.yacy.document.parser.htmlParser;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * Charset detection for html documents which did not get a charset from the http header.
+ * The detection is done in layers, each layer is only used if the previous one did not give an answer:
+ * <ol>
+ * <li>a byte order mark</li>
+ * <li>a scan of the first SCAN_LIMIT bytes: if they are valid UTF-8 with at least one multi-byte sequence it is UTF-8</li>
+ * <li>a prescan of the first bytes for a meta charset, http-equiv content-type or xml encoding declaration</li>
+ * <li>pure ASCII content is decoded as UTF-8</li>
+ * <li>the ICU CharsetDetector, running on a bounded prefix of the content</li>
+ * </ol>
+ * Every layer counts its hits, the counters can be read with getStatistics() and are published in statistics.json.
+ */
+public class CharsetDetection {
+
+    /** number of bytes which are scanned for UTF-8 validity */
+    public static final int SCAN_LIMIT = 65536;
+
+    /** number of bytes which are inspected for a meta charset declaration */
+    public static final int PRESCAN_LIMIT = 4096;
+
+    /** number of bytes given to the ICU detector; that detector does not look further than 8000 bytes anyway */
+    public static final int ICU_LIMIT = 8000;
+
+    public enum Method {
+        bom, utf8, meta, ascii, icu, fallback;
+        private final AtomicLong hits = new AtomicLong(0);
+    }
+
+    /**
+     * detect the charset of a html document
+     * @param b the document content
+     * @param len the number of valid bytes in b
+     * @return the charset, never null
+     */
+    public static Charset detect(final byte[] b, final int len) {
+        Charset charset = bom(b, len);
+        if (charset != null) return hit(Method.bom, charset);
+        final int scan = scanUTF8(b, Math.min(len, SCAN_LIMIT));
+        if (scan > 0) return hit(Method.utf8, StandardCharsets.UTF_8);
+        charset = prescan(b, Math.min(len, PRESCAN_LIMIT));
+        // a declaration of UTF-8 is not trusted if the content is not valid UTF-8; UTF-16 cannot be declared in an ASCII-compatible prescan
+        if (charset != null && !(scan < 0 && StandardCharsets.UTF_8.equals(charset)) && !charset.name().startsWith("UTF-16")) return hit(Method.meta, charset);
+        if (scan == 0) return hit(Method.ascii, StandardCharsets.UTF_8);
+        charset = icu(b, len);
+        if (charset != null) return hit(Method.icu, charset);
+        return hit(Method.fallback, Charset.defaultCharset());
+    }
+
+    private static Charset hit(final Method method, final Charset charset) {
+        method.hits.incrementAndGet();
+        return charset;
+    }
+
+    /**
+     * @return the number of documents which had been decided by each detection method
+     */
+    public static Map<String, Long> getStatistics() {
+        final Map<String, Long> stats = new LinkedHashMap<>();
+        for (final Method m: Method.values()) stats.put(m.name(), m.hits.get());
+        return stats;
+    }
+
+    /**
+     * check for a byte order mark
+     * @return the charset given by the mark or null if there is no mark
+     */
+    public static Charset bom(final byte[] b, final int len) {
+        if (len >= 3 && (b[0] & 0xff) == 0xEF && (b[1] & 0xff) == 0xBB && (b[2] & 0xff) == 0xBF) return StandardCharsets.UTF_8;
+        if (len >= 2 && (b[0] & 0xff) == 0xFE && (b[1] & 0xff) == 0xFF) return StandardCharsets.UTF_16BE;
+        if (len >= 2 && (b[0] & 0xff) == 0xFF && (b[1] & 0xff) == 0xFE) return StandardCharsets.UTF_16LE;
+        return null;
+    }
+
+    /**
+     * scan the content for UTF-8 validity. Overlong forms and surrogates are rejected.
+     * A multi-byte sequence which is truncated at the end of the content is accepted because documents may be truncated,
+     * but only if valid multi-byte sequences had been found before.
+     * @return 0 if the content is pure ASCII, 1 if it is valid UTF-8 with multi-byte sequences, -1 if it is not UTF-8
+     */
+    public static int scanUTF8(final byte[] b, final int len) {
+        boolean multibyte = false;
+        int i = 0;
+        while (i < len) {
+            final int c = b[i] & 0xff;
+            if (c < 0x80) {i++; continue;}
+            final int n;
+            int lo = 0x80, hi = 0xBF; // the allowed range of the second byte
+            if (c >= 0xC2 && c <= 0xDF) n = 1;
+            else if (c >= 0xE0 && c <= 0xEF) {
+                n = 2;
+                if (c == 0xE0) lo = 0xA0;
+                if (c == 0xED) hi = 0x9F;
+            } else if (c >= 0xF0 && c <= 0xF4) {
+                n = 3;
+                if (c == 0xF0) lo = 0x90;
+                if (c == 0xF4) hi = 0x8F;
+            } else return -1;
+            for (int j = 1; j <= n; j++) {
+                if (i + j >= len) return multibyte ? 1 : -1; // truncated sequence at the end, accepted only if the content had valid sequences before
+                final int d = b[i + j] & 0xff;
+                if (j == 1 ? (d < lo || d > hi) : (d < 0x80 || d > 0xBF)) return -1;
+            }
+            multibyte = true;
+            i += n + 1;
+        }
+        return multibyte ? 1 : 0;
+    }
+
+    /**
+     * look for a charset declaration in the head of a document. This finds
+     * &lt;meta charset="..."&gt;, &lt;meta http-equiv="content-type" content="text/html; charset=..."&gt;
+     * and &lt;?xml version="1.0" encoding="..."?&gt;
+     * @param b the document content
+     * @param len the number of bytes to inspect
+     * @return the declared charset if it is supported or null
+     */
+    public static Charset prescan(final byte[] b, final int len) {
+        final String head = new String(b, 0, len, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+        if (head.startsWith("<?xml")) {
+            final int e = head.indexOf("?>");
+            final Charset charset = attributeCharset(head, 5, e < 0 ? head.length() : e, "encoding");
+            if (charset != null) return charset;
+        }
+        int p = 0;
+        while ((p = head.indexOf("<meta", p)) >= 0) {
+            p += 5;
+            final int e = head.indexOf('>', p);
+            if (e < 0) break;
+            final Charset charset = attributeCharset(head, p, e, "charset");
+            if (charset != null) return charset;
+            p = e;
+        }
+        return null;
+    }
+
+    private static Charset attributeCharset(final String head, final int start, final int end, final String attr) {
+        final int a = head.indexOf(attr, start);
+        if (a < 0 || a >= end) return null;
+        int p = a + attr.length();
+        while (p < end && head.charAt(p) == ' ') p++;
+        if (p >= end || head.charAt(p) != '=') return null;
+        p++;
+        while (p < end && (head.charAt(p) == ' ' || head.charAt(p) == '"' || head.charAt(p) == '\'')) p++;
+        int q = p;
+        while (q < end && " \"';/>".indexOf(head.charAt(q)) < 0) q++;
+        if (q == p) return null;
+        final String name = htmlParser.patchCharsetEncoding(head.substring(p, q));
+        if (name == null) return null;
+        try {
+            return Charset.isSupported(name) ? Charset.forName(name) : null;
+        } catch (final IllegalCharsetNameException e) {
+            return null;
+        }
+    }
+
+    /**
+     * run the ICU detector on a bounded prefix of the content
+     * @return the detected charset or null
+     */
+    public static Charset icu(final byte[] b, final int len) {
+        try {
+            final CharsetDetector det = new CharsetDetector();
+            det.enableInputFilter(true);
+            det.setText(new ByteArrayInputStream(b, 0, Math.min(len, ICU_LIMIT)));
+            final String name = det.detect().getName();
+            return name == null || !Charset.isSupported(name) ? null : Charset.forName(name);
+        } catch (final IOException | IllegalCharsetNameException e) {
+            return null;
+        }
+    }
+
+    /**
+     * compare the layered detection with a plain ICU detection over the whole document
+     * @param args a list of html files
+     */
+    public static void main(final String[] args) {
+        int same = 0, equivalent = 0, different = 0;
+        for (final String a: args) {
+            try {
+                final byte[] b = FileUtils.read(new File(a));
+                final Charset layered = detect(b, b.length);
+                final CharsetDetector det = new CharsetDetector();
+                det.enableInputFilter(true);
+                det.setText(new ByteArrayInputStream(b));
+                final Charset reference = Charset.forName(det.detect().getName());
+                if (layered.equals(reference)) {
+                    same++;
+                } else if (new String(b, layered).equals(new String(b, reference))) {
+                    equivalent++; // i.e. ASCII content detected as ISO-8859-1 by ICU
+                } else {
+                    different++;
+                    System.out.println(a + ": layered " + layered.name() + ", icu " + reference.name());
+                }
+            } catch (final IOException | IllegalArgumentException e) {
+                System.out.println(a + ": " + e.getMessage());
+            }
+        }
+        System.out.println("same: " + same + ", equivalent text: " + equivalent + ", different: " + different);
+        System.out.println(getStatistics());
+    }
+}
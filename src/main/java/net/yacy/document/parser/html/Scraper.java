@@ -26,6 +26,7 @@ import java.lang.reflect.Array;
 import java.net.MalformedURLException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -50,6 +51,7 @@ import net.yacy.cora.storage.SizeLimitedMap;
 import net.yacy.cora.storage.SizeLimitedSet;
 import net.yacy.cora.util.NumberTools;
 import net.yacy.document.SentenceReader;
+import net.yacy.document.URLTable;
 import net.yacy.document.VocabularyScraper;
 import net.yacy.document.parser.html.Evaluation.Element;
 import net.yacy.document.parser.html.Tag.TagName;
@@ -89,6 +91,8 @@ public class Scraper {
     private final ClusteredScoreMap<String> bold, italic, underline;
     private final List<String> li, dt, dd;
     private final CharBuffer content;
+    private int[] blocks; // the end positions of the text blocks in the content
+    private int blockCount;
     private double lon, lat;
     private AnchorURL canonical, publisher;
     private final int maxLinks;
@@ -98,6 +102,8 @@ public class Scraper {
     //private JsonLD ld;
     private JSONObject ld;
     private boolean googleoff;
+    private boolean nonCanonicalLightPath; // if true, content scraping stops as soon as the document is known to be non-canonical
+    private boolean nonCanonical;
 
     /** links to icons that belongs to the document (mapped by absolute URL)*/
     private final Map<MultiProtocolURL, IconEntry> icons;
@@ -107,6 +113,16 @@ public class Scraper {
      */
     private MultiProtocolURL root;
 
+    /**
+     * The normal form of the document url; this is not changed by a base tag
+     */
+    private final String rootNormalform;
+
+    /**
+     * The urls of the document with their normal forms; the table is handed over to the document
+     */
+    private final URLTable urlTable;
+
     /**
      * evaluation scores: count appearance of specific attributes
      */
@@ -119,13 +135,23 @@ public class Scraper {
      * @param vocabularyScraper handles maps from class names to vocabulary names and from documents to a map from vocabularies to terms
      * @param timezoneOffset local time zone offset
      */
-    @SuppressWarnings("unchecked")
     public Scraper(final MultiProtocolURL root, final int maxLinks, final VocabularyScraper vocabularyScraper, final int timezoneOffset) {
+        this(root, maxLinks, vocabularyScraper, timezoneOffset, new URLTable(root));
+    }
+
+    /**
+     * scrape a document with a given url table; the inline html of an anchor is scraped with the table of the enclosing document
+     * @param urlTable the url table of the document
+     */
+    @SuppressWarnings("unchecked")
+    private Scraper(final MultiProtocolURL root, final int maxLinks, final VocabularyScraper vocabularyScraper, final int timezoneOffset, final URLTable urlTable) {
         // the root value here will not be used to load the resource.
         // it is only the reference for relative links
         super();
         assert root != null;
         this.root = root;
+        this.rootNormalform = root.toNormalform(true);
+        this.urlTable = urlTable;
         this.maxLinks = maxLinks;
         this.vocabularyScraper = vocabularyScraper;
         this.timezoneOffset = timezoneOffset;
@@ -155,14 +181,40 @@ public class Scraper {
         this.dt = new ArrayList<String>();
         this.dd = new ArrayList<String>();
         this.content = new CharBuffer(MAX_DOCSIZE, 1024);
+        this.blocks = new int[64];
+        this.blockCount = 0;
         this.lon = 0.0d;
         this.lat = 0.0d;
-        this.evaluationScores.match(Element.url, root.toNormalform(true));
+        this.evaluationScores.match(Element.url, this.rootNormalform);
         this.canonical = null;
         this.publisher = null;
         this.breadcrumbs = 0;
         this.ld = null;
         this.googleoff = false; // if this is false, it means that we are outside of an googleoff event. If it is true, we are just between googleoff and googleon
+        this.nonCanonicalLightPath = false;
+        this.nonCanonical = false;
+    }
+
+    /**
+     * Switch on the light path for non-canonical documents. The canonical link is placed in the html head,
+     * so the scraper knows before the body is tokenized if the document points to another canonical url.
+     * Such documents are not indexed, therefore the scraper then stops collecting text, headlines and
+     * other content; only links, images and frames are scraped further because they are needed for the link graph.
+     * @param lightPath true to skip content scraping for non-canonical documents
+     */
+    public void setNonCanonicalLightPath(final boolean lightPath) {
+        this.nonCanonicalLightPath = lightPath;
+    }
+
+    /**
+     * @return true if the document has a canonical link which points to another url than the document url
+     */
+    public boolean isNonCanonical() {
+        return this.nonCanonical;
+    }
+
+    private boolean skipContent() {
+        return this.nonCanonicalLightPath && this.nonCanonical;
     }
 
     public void setLd(final JSONObject ld) {
@@ -184,17 +236,18 @@ public class Scraper {
         }
         // System.out.println("SCRAPE: " + UTF8.String(newtext));
         if (insideTag != null && (TagName.script.name().equals(insideTag) || TagName.style.name().equals(insideTag))) return;
+        final boolean lightweight = skipContent();
         int p, pl, q, s = 0;
         final char[] newtext = CharacterCoding.html2unicode(new String(newtext0)).toCharArray();
 
         // match evaluation pattern
-        this.evaluationScores.match(Element.text, newtext);
+        if (!lightweight) this.evaluationScores.match(Element.text, newtext);
 
         // try to find location information in text
         // Opencaching:
         // <nobr>N 50o 05.453&#039;</nobr><nobr>E 008o 30.191&#039;</nobr>
         // N 52o 28.025 E 013o 20.299
-        location: while (s < newtext.length) try {
+        location: while (!lightweight && s < newtext.length) try {
             pl = 1;
             p = CharBuffer.indexOf(newtext, s, this.degree);
             if (p < 0) {p = CharBuffer.indexOf(newtext, s, "&deg;".toCharArray()); if (p >= 0) pl = 5;}
@@ -274,8 +327,12 @@ public class Scraper {
             } catch (final MalformedURLException e) {}
         }
         // append string to content
-        if (!b.isEmpty()) {
+        if (!lightweight && !b.isEmpty()) {
+            final int length = this.content.length();
             this.content.append(b);
+            if (this.content.length() == length) return; // the content has reached MAX_DOCSIZE, the text is dropped
+            if (this.blockCount == this.blocks.length) this.blocks = Arrays.copyOf(this.blocks, this.blocks.length * 2);
+            this.blocks[this.blockCount++] = this.content.length();
             this.content.appendSpace();
         }
     }
@@ -296,11 +353,7 @@ public class Scraper {
      * @return the absolute URL (concatenation of this document root with the relative path) or null when malformed
      */
     private AnchorURL absolutePath(final String relativePath) {
-        try {
-            return AnchorURL.newAnchor(this.root, relativePath);
-        } catch (final Exception e) {
-            return null;
-        }
+        return this.urlTable.resolve(this.root, relativePath);
     }
 
     public void checkOpts(final Tag tag) {
@@ -439,11 +492,11 @@ public class Scraper {
         } else if (tag.hasName("frame")) {
             final AnchorURL src = absolutePath(tag.getProperty("src", EMPTY_STRING));
             if(src != null) {
-                tag.setProperty("src", src.toNormalform(true));
+                tag.setProperty("src", this.urlTable.normalform(src, true));
                 src.setAll(tag.getProperties());
                 //this.addAnchor(src); // don't add the frame to the anchors because the webgraph should not contain such links (by definition)
                 this.frames.add(src);
-                this.evaluationScores.match(Element.framepath, src.toNormalform(true));
+                this.evaluationScores.match(Element.framepath, this.urlTable.normalform(src, true));
             }
         } else if (tag.hasName("body")) {
             final String classprop = tag.getProperty("class", EMPTY_STRING);
@@ -473,7 +526,7 @@ public class Scraper {
                 tag.setProperty("name", areatitle);
                 final AnchorURL url = absolutePath(href);
                 if (url != null) {
-                    tag.setProperty("href", url.toNormalform(true));
+                    tag.setProperty("href", this.urlTable.normalform(url, true));
                     url.setAll(tag.getProperties());
                     this.addAnchor(url);
                 }
@@ -483,7 +536,7 @@ public class Scraper {
             final AnchorURL newLink = absolutePath(href);
 
             if (newLink != null) {
-                tag.setProperty("href", newLink.toNormalform(true));
+                tag.setProperty("href", this.urlTable.normalform(newLink, true));
                 final String rel = tag.getProperty("rel", EMPTY_STRING);
                 /* Rel attribute is supposed to be a set of space-separated tokens */
                 final Set<String> relTokens = parseSpaceSeparatedTokens(rel);
@@ -512,6 +565,7 @@ public class Scraper {
                     newLink.setAll(tag.getProperties());
                     this.addAnchor(newLink);
                     this.canonical = newLink;
+                    this.nonCanonical = !this.rootNormalform.equals(this.urlTable.normalform(newLink, false));
                 } else if (rel.equalsIgnoreCase("publisher")) {
                     this.publisher = newLink;
                 } else if (rel.equalsIgnoreCase("top") || rel.equalsIgnoreCase("up") || rel.equalsIgnoreCase("next") || rel.equalsIgnoreCase("prev") || rel.equalsIgnoreCase("first") || rel.equalsIgnoreCase("last")) {
@@ -537,7 +591,7 @@ public class Scraper {
                     if (url != null) {
                         final int width = Integer.parseInt(tag.getProperty("width", "-1"));
                         final int height = Integer.parseInt(tag.getProperty("height", "-1"));
-                        tag.setProperty("src", url.toNormalform(true));
+                        tag.setProperty("src", this.urlTable.normalform(url, true));
                         final EmbedEntry ie = new EmbedEntry(url, width, height, tag.getProperty("type", EMPTY_STRING), tag.getProperty("pluginspage", EMPTY_STRING));
                         this.embeds.put(url, ie);
                         url.setAll(tag.getProperties());
@@ -550,7 +604,7 @@ public class Scraper {
             if (name.equalsIgnoreCase("movie")) {
                 final AnchorURL url = absolutePath(tag.getProperty("value", EMPTY_STRING));
                 if (url != null) {
-                    tag.setProperty("value", url.toNormalform(true));
+                    tag.setProperty("value", this.urlTable.normalform(url, true));
                     url.setAll(tag.getProperties());
                     this.addAnchor(url);
                 }
@@ -558,11 +612,11 @@ public class Scraper {
         } else if (tag.hasName("iframe")) {
             final AnchorURL src = absolutePath(tag.getProperty("src", EMPTY_STRING));
             if (src != null) {
-                tag.setProperty("src", src.toNormalform(true));
+                tag.setProperty("src", this.urlTable.normalform(src, true));
                 src.setAll(tag.getProperties());
                 //this.addAnchor(src); // don't add the iframe to the anchors because the webgraph should not contain such links (by definition)
                 this.iframes.add(src);
-                this.evaluationScores.match(Element.iframepath, src.toNormalform(true));
+                this.evaluationScores.match(Element.iframepath, this.urlTable.normalform(src, true));
             }
         } else if (tag.hasName("html")) {
             final String lang = tag.getProperty("lang", EMPTY_STRING);
@@ -572,8 +626,9 @@ public class Scraper {
     }
 
     public void scrapeTag1(final Tag tag) {
-        final String content_text = Tag.stripAllTags(tag.getContent());
-        checkOpts(tag);
+        final boolean lightweight = skipContent();
+        final String content_text = lightweight && !tag.hasName("a") ? EMPTY_STRING : Tag.stripAllTags(tag.getContent());
+        if (!lightweight) checkOpts(tag);
         // System.out.println("ScrapeTag1: tag.tagname=" + tag.tagname + ", opts=" + tag.opts.toString() + ", text=" + UTF8.String(text));
         if (tag.hasName("a") && tag.getContenLength() < 2048) {
             String href = tag.getProperty("href", EMPTY_STRING);
@@ -586,13 +641,14 @@ public class Scraper {
                     tag.setProperty("rel", rel);
                 }
                 tag.setProperty("text", content_text); // strip any inline html in tag text like  "<a ...> <span>test</span> </a>"
-                tag.setProperty("href", url.toNormalform(true)); // we must assign this because the url may have resolved backpaths and may not be absolute
+                tag.setProperty("href", this.urlTable.normalform(url, true)); // we must assign this because the url may have resolved backpaths and may not be absolute
                 url.setAll(tag.getProperties());
                 recursiveParse(url, tag.getContent());
                 this.addAnchor(url);
             }
-            this.evaluationScores.match(Element.apath, href);
+            if (!lightweight) this.evaluationScores.match(Element.apath, href);
         }
+        if (lightweight) return; // non-canonical document: only links are required
         final String h;
         if (tag.hasName("div")) {
             final String id = tag.getProperty("id", EMPTY_STRING);
@@ -697,7 +753,7 @@ public class Scraper {
 
         // start a new scraper to parse links inside this text
         // parsing the content
-        final Scraper scraper = new Scraper(this.root, this.maxLinks, this.vocabularyScraper, this.timezoneOffset);
+        final Scraper scraper = new Scraper(this.root, this.maxLinks, this.vocabularyScraper, this.timezoneOffset, this.urlTable);
         final Tokenizer tokenizer = new Tokenizer(scraper);
         try {
             FileUtils.copy(new CharArrayReader(inlineHtml), tokenizer);
@@ -853,6 +909,13 @@ public class Scraper {
         return this.breadcrumbs;
     }
 
+    /**
+     * @return the urls of the document with their normal forms, shared with the document
+     */
+    public URLTable getURLTable() {
+        return this.urlTable;
+    }
+
     public String getText() {
         try {
             return this.content.trim().toString();
@@ -862,6 +925,15 @@ public class Scraper {
         }
     }
 
+    /**
+     * The text is a sequence of blocks, one for each text between tags, separated by a space.
+     * Such blocks are i.e. the entries of a navigation or a footer; they are the unit for the template detection.
+     * @return the end positions of the blocks in the text of getText(), in ascending order
+     */
+    public int[] getTextBlocks() {
+        return Arrays.copyOf(this.blocks, this.blockCount);
+    }
+
     public List<String> getArticles() {
         return this.articles;
     }
@@ -1194,6 +1266,7 @@ public class Scraper {
         this.dt.clear();
         this.dd.clear();
         this.content.clear();
+        this.blockCount = 0;
         this.root = null;
     }
 
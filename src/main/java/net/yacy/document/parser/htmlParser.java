@@ -24,7 +24,6 @@
 
 package net.yacy.document.parser;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -35,6 +34,7 @@ import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -49,24 +49,27 @@ import org.apache.any23.extractor.ExtractionException;
 import org.apache.any23.source.ByteArrayDocumentSource;
 import org.apache.any23.writer.JSONLDWriter;
 import org.apache.any23.writer.TripleHandlerException;
-import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.RDFParser;
 import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.Rio;
 import org.eclipse.rdf4j.rio.UnsupportedRDFormatException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
 import org.eclipse.rdf4j.rio.helpers.JSONLDMode;
 import org.eclipse.rdf4j.rio.helpers.JSONLDSettings;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import com.ibm.icu.text.CharsetDetector;
-
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
+import net.yacy.document.DocumentSink;
 import net.yacy.document.Parser;
 import net.yacy.document.VocabularyScraper;
+import net.yacy.document.parser.html.CharsetDetection;
 import net.yacy.document.parser.html.ImageEntry;
 import net.yacy.document.parser.html.Scraper;
 import net.yacy.document.parser.html.Tokenizer;
@@ -80,6 +83,21 @@ public class htmlParser extends AbstractParser implements Parser {
 
     private static final int maxLinks = 10000;
 
+    /**
+     * if true, html documents with a canonical link to another url are parsed with a light path in the grid indexing flow:
+     * content scraping stops at the canonical link and linked data is not extracted.
+     * Such documents are only used for the link graph and the crawler status. The light path is only taken if the
+     * consumer asks for it with DocumentSink.nonCanonicalLightPath(), other callers get the full documents.
+     */
+    public static boolean NONCANONICAL_LIGHT_PATH = true;
+
+    /**
+     * The Any23 extractors which are used for linked data extraction. We only read RDFa, microdata and embedded json-ld;
+     * the microformat extractors are expensive and their triples are not used in the index.
+     * An empty array means that all extractors from the Any23 registry are used.
+     */
+    public static String[] LD_EXTRACTORS = new String[]{"html-rdfa11", "html-microdata", "html-embedded-jsonld"};
+
     public htmlParser() {
         super("Streaming HTML Parser");
         this.SUPPORTED_EXTENSIONS.add("htm");
@@ -125,12 +143,35 @@ public class htmlParser extends AbstractParser implements Parser {
         try {
             // first get a document from the parsed html
             final Charset[] detectedcharsetcontainer = new Charset[]{null};
-            final Scraper scraper = parseToScraper(location, documentCharset, vocscraper, detectedcharsetcontainer, timezoneOffset, sourceStream, maxLinks);
+            final Scraper scraper = parseToScraper(location, documentCharset, vocscraper, detectedcharsetcontainer, timezoneOffset, sourceStream, maxLinks, false);
             // parseToScraper also detects/corrects/sets charset from html content tag
             final Document document = transformScraper(location, mimeType, detectedcharsetcontainer[0].name(), scraper);
             return new Document[]{document};
         } catch (final IOException e) {
-            throw new Parser.Failure("IOException in htmlParser: " + e.getMessage(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "IOException in htmlParser: " + e.getMessage(), location);
+        }
+    }
+
+    /**
+     * the push api is used by the indexing flow; it may ask for the light path for non-canonical documents
+     */
+    @Override
+    public void parse(
+            final MultiProtocolURL location,
+            final String mimeType,
+            final String documentCharset,
+            final VocabularyScraper vocscraper,
+            final int timezoneOffset,
+            final InputStream sourceStream,
+            final DocumentSink sink) throws Parser.Failure, InterruptedException {
+
+        try {
+            final Charset[] detectedcharsetcontainer = new Charset[]{null};
+            final Scraper scraper = parseToScraper(location, documentCharset, vocscraper, detectedcharsetcontainer, timezoneOffset, sourceStream, maxLinks,
+                    NONCANONICAL_LIGHT_PATH && sink.nonCanonicalLightPath());
+            sink.put(transformScraper(location, mimeType, detectedcharsetcontainer[0].name(), scraper));
+        } catch (final IOException e) {
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "IOException in htmlParser: " + e.getMessage(), location);
         }
     }
 
@@ -193,7 +234,7 @@ public class htmlParser extends AbstractParser implements Parser {
         }
         Scraper scraper; // for this static methode no need to init local this.scraperObject
         try {
-            scraper = parseToScraper(location, documentCharset, vocabularyScraper, detectedcharsetcontainer, timezoneOffset, sourceStream, maxLinks);
+            scraper = parseToScraper(location, documentCharset, vocabularyScraper, detectedcharsetcontainer, timezoneOffset, sourceStream, maxLinks, false);
         } catch (final Failure e) {
             throw new IOException(e.getMessage());
         }
@@ -207,7 +248,8 @@ public class htmlParser extends AbstractParser implements Parser {
             final Charset[] detectedcharsetcontainer,
             final int timezoneOffset,
             InputStream sourceStream,
-            final int maxLinks) throws Parser.Failure, IOException {
+            final int maxLinks,
+            final boolean lightPath) throws Parser.Failure, IOException {
 
         // make a scraper
         String charset = null;
@@ -217,19 +259,14 @@ public class htmlParser extends AbstractParser implements Parser {
             charset = patchCharsetEncoding(documentCharset);
         }
 
-        // the author didn't tell us the encoding, try the mozilla-heuristic
-        if (charset == null) {
-            final CharsetDetector det = new CharsetDetector();
-            det.enableInputFilter(true);
-            final InputStream detStream = new BufferedInputStream(sourceStream);
-            det.setText(detStream);
-            charset = det.detect().getName();
-            sourceStream = detStream;
-        }
+        // read the complete source stream into a buffer because we need a copy
+        // for the microformat parser
+        final byte[] bytes = readFully(sourceStream);
+        sourceStream = new ByteArrayInputStream(bytes);
 
-        // wtf? still nothing, just take system-standard
         if (charset == null) {
-            detectedcharsetcontainer[0] = Charset.defaultCharset();
+            // the author didn't tell us the encoding: check bom, utf-8 validity and meta tags, then try the mozilla-heuristic
+            detectedcharsetcontainer[0] = CharsetDetection.detect(bytes, bytes.length);
         } else {
             try {
                 detectedcharsetcontainer[0] = Charset.forName(charset);
@@ -238,23 +275,15 @@ public class htmlParser extends AbstractParser implements Parser {
             }
         }
 
-        // read the complete source stream into a buffer because we need a copy
-        // for the microformat parser
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        final byte[] buffer = new byte[8096];
-        int n = 0;
-        while ((n = sourceStream.read(buffer)) >= 0) baos.write(buffer, 0, n);
-        final byte[] bytes = baos.toByteArray();
-        sourceStream = new ByteArrayInputStream(bytes);
-
         // parsing the content
         // for this static methode no need to init local this.scraperObject here
         final Scraper scraper = new Scraper(location, maxLinks, vocabularyScraper, timezoneOffset);
+        scraper.setNonCanonicalLightPath(lightPath);
         final Tokenizer tokenizer = new Tokenizer(scraper);
         try {
             FileUtils.copy(sourceStream, tokenizer, detectedcharsetcontainer[0]);
         } catch (final IOException e) {
-            throw new Parser.Failure("IO error:" + e.getMessage(), location, e);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "IO error:" + e.getMessage(), location, e);
         } finally {
             tokenizer.flush();
             //sourceStream.close(); keep open for multiple parsing (close done by caller)
@@ -265,9 +294,12 @@ public class htmlParser extends AbstractParser implements Parser {
         //hfos.close();
         if (tokenizer.binarySuspect()) {
             final String errorMsg = "Binary data found in resource";
-            throw new Parser.Failure(errorMsg, location);
+            throw new Parser.Failure(Parser.Failure.Reason.binary, errorMsg, location);
         }
 
+        // non-canonical documents are not indexed, we do not need linked data for them
+        if (lightPath && scraper.isNonCanonical()) return scraper;
+
         // parse linked data (microformats etc)
         //scraper.setLd(tokenizer.ld());
         final String url = location.toNormalform(true);
@@ -286,6 +318,29 @@ public class htmlParser extends AbstractParser implements Parser {
         return scraper;
     }
 
+    /**
+     * read a stream completely. The available() value of the stream is used as size hint, so the content
+     * of a ByteArrayInputStream is copied only once.
+     * @param sourceStream
+     * @return the content of the stream
+     * @throws IOException
+     */
+    private static byte[] readFully(final InputStream sourceStream) throws IOException {
+        byte[] b = new byte[Math.max(sourceStream.available(), 8096)];
+        int len = 0;
+        int n;
+        while ((n = sourceStream.read(b, len, b.length - len)) >= 0) {
+            len += n;
+            if (len == b.length) {
+                final int next = sourceStream.read();
+                if (next < 0) break;
+                b = Arrays.copyOf(b, b.length * 2);
+                b[len++] = (byte) next;
+            }
+        }
+        return len == b.length ? b : Arrays.copyOf(b, len);
+    }
+
     /**
      * some html authors use wrong encoding names, either because they don't know exactly what they
      * are doing or they produce a type. Many times, the upper/downcase scheme of the name is fuzzy
@@ -391,28 +446,74 @@ public class htmlParser extends AbstractParser implements Parser {
         }
     }
 
-    public static String JSONLDExpand2Mode(final String url, String jsons, final JSONLDMode mode) throws IOException {
-        byte[] jsonb = jsons.getBytes(StandardCharsets.UTF_8);
-        final ByteArrayInputStream bais = new ByteArrayInputStream(jsonb);
+    /**
+     * Linked data extraction context. Creating an Any23 instance loads the extractor registry and the configuration,
+     * and Rio looks up parser and writer factories for every call. A context keeps these objects together with an
+     * output buffer; it is not thread-safe and therefore held once for each thread.
+     */
+    private static final class LDContext {
+        private final String[] extractors;
+        private final Any23 any23;
+        private final RDFParser jsonldParser;
+        private final ByteArrayOutputStream buffer;
+
+        private LDContext(final String[] extractors) {
+            this.extractors = extractors;
+            this.any23 = extractors == null || extractors.length == 0 ? new Any23() : new Any23(extractors);
+            this.jsonldParser = Rio.createParser(RDFFormat.JSONLD);
+            this.buffer = new ByteArrayOutputStream(8192);
+        }
+
+        private String bufferString() throws UnsupportedEncodingException {
+            final String s = this.buffer.toString(StandardCharsets.UTF_8.name());
+            if (this.buffer.size() > 1024 * 1024) ldContext.remove(); // do not keep the buffer of huge documents in the thread
+            return s;
+        }
+    }
+
+    private static final ThreadLocal<LDContext> ldContext = new ThreadLocal<>();
+
+    private static LDContext getLDContext() {
+        LDContext context = ldContext.get();
+        if (context == null || context.extractors != LD_EXTRACTORS || context.buffer.size() > 0) {
+            // a new context is also created if the extractors had been changed or the buffer is still in use by a nested call
+            context = new LDContext(LD_EXTRACTORS);
+            ldContext.set(context);
+        }
+        return context;
+    }
+
+    public static String JSONLDExpand2Mode(final String url, final String jsons, final JSONLDMode mode) throws IOException {
+        return JSONLDExpand2Mode(getLDContext(), url, jsons, mode);
+    }
+
+    private static String JSONLDExpand2Mode(final LDContext context, final String url, final String jsons, final JSONLDMode mode) throws IOException {
+        final ByteArrayInputStream bais = new ByteArrayInputStream(jsons.getBytes(StandardCharsets.UTF_8));
         try {
-            final Model model = Rio.parse(bais, url, RDFFormat.JSONLD);
-            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            final RDFWriter writer = Rio.createWriter(RDFFormat.JSONLD, baos);
+            // statements are streamed from the parser to the writer; the writer collects them in its own model.
+            // Namespaces are not forwarded, they would change the compaction result.
+            final RDFWriter writer = Rio.createWriter(RDFFormat.JSONLD, context.buffer);
             writer.getWriterConfig().set(JSONLDSettings.JSONLD_MODE, mode);
-            writer.startRDF();
-            for (final Statement st: model) writer.handleStatement(st);
-            writer.endRDF();
-            baos.close();
-            jsonb = baos.toByteArray();
-            jsons = new String(jsonb, StandardCharsets.UTF_8);
-            return jsons;
-        } catch (final IOException | UnsupportedRDFormatException e) {
+            context.jsonldParser.setRDFHandler(new AbstractRDFHandler() {
+                @Override public void startRDF() {writer.startRDF();}
+                @Override public void handleStatement(final Statement st) {writer.handleStatement(st);}
+                @Override public void endRDF() {writer.endRDF();}
+            });
+            context.jsonldParser.parse(bais, url);
+            return context.bufferString();
+        } catch (final IOException | UnsupportedRDFormatException | RDFParseException | RDFHandlerException e) {
             Logger.error("cannot parse jsonld: " + jsons, e);
             throw new IOException(e.getMessage());
+        } finally {
+            context.buffer.reset();
         }
     }
 
-    public static String RDFa2JSONLDExpandString(final String url, byte[] b, String encoding) throws IOException {
+    public static String RDFa2JSONLDExpandString(final String url, final byte[] b, final String encoding) throws IOException {
+        return RDFa2JSONLDExpandString(getLDContext(), url, b, encoding);
+    }
+
+    private static String RDFa2JSONLDExpandString(final LDContext context, final String url, byte[] b, final String encoding) throws IOException {
         // Any23 is strangely behaving if the encoding is not UTF-8. Essentially it is not using the given encoding
         // when extraction is called with any23.extract(ds, th, encoding);
         // Therefore we do a pre-encoding here in case the encoding is not UTF-8
@@ -421,20 +522,45 @@ public class htmlParser extends AbstractParser implements Parser {
         }
 
         // do the expansion with Any23
-        final Any23 any23 = new Any23();
         final ByteArrayDocumentSource ds = new ByteArrayDocumentSource(b, url, "text/html"); // text/html; application/xhtml+xml
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        final JSONLDWriter th = new JSONLDWriter(baos);
+        final JSONLDWriter th = new JSONLDWriter(context.buffer);
         try {
-            any23.extract(ds, th); // java.lang.NullPointerException at org.apache.any23.extractor.html.XFNExtractor.extractLink(XFNExtractor.java:89)
+            context.any23.extract(ds, th); // java.lang.NullPointerException at org.apache.any23.extractor.html.XFNExtractor.extractLink(XFNExtractor.java:89)
             th.close();
-            baos.close();
+            return context.bufferString();
         } catch (IOException | ExtractionException | TripleHandlerException | NullPointerException e) {
             throw new IOException(e.getCause());
+        } finally {
+            context.buffer.reset();
+        }
+    }
+
+    /**
+     * compare the memory allocation of the linked data extraction with a fresh extraction context for each page
+     * (as it was done before contexts had been re-used) against the thread-local context
+     * @param url the url of the page
+     * @param b the page content
+     * @param rounds number of extractions for each variant
+     */
+    @SuppressWarnings("restriction")
+    public static void benchmarkLD(final String url, final byte[] b, final int rounds) throws IOException {
+        final java.lang.management.ThreadMXBean mx = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(mx instanceof com.sun.management.ThreadMXBean)) return;
+        final com.sun.management.ThreadMXBean tmx = (com.sun.management.ThreadMXBean) mx;
+        final long tid = Thread.currentThread().getId();
+        final String[] allExtractors = new String[0];
+        for (int variant = 0; variant < 3; variant++) {
+            long a = tmx.getThreadAllocatedBytes(tid);
+            final long t = System.currentTimeMillis();
+            for (int i = 0; i < rounds; i++) {
+                final LDContext context = variant == 0 ? new LDContext(allExtractors) : variant == 1 ? new LDContext(LD_EXTRACTORS) : getLDContext();
+                final String s = RDFa2JSONLDExpandString(context, url, b, StandardCharsets.UTF_8.name());
+                JSONLDExpand2Mode(context, url, s, JSONLDMode.COMPACT);
+            }
+            a = tmx.getThreadAllocatedBytes(tid) - a;
+            System.out.println((variant == 0 ? "new context, all extractors: " : variant == 1 ? "new context, ld extractors:  " : "thread-local context:        ") +
+                    (a / rounds / 1024) + " KB/page, " + ((System.currentTimeMillis() - t) / rounds) + " ms/page");
         }
-        final byte[] jsonb = baos.toByteArray();
-        final String jsons = new String(jsonb, StandardCharsets.UTF_8);
-        return jsons;
     }
 
     public static JSONObject compact2tree(final JSONObject compact) {
@@ -617,7 +743,13 @@ public class htmlParser extends AbstractParser implements Parser {
                 p.getImplementationVendor());
     }
 
+    /**
+     * parse the test urls and print the extracted linked data;
+     * with the argument "benchmark [rounds]" the memory allocation of the linked data extraction is measured as well
+     * @param args optional "benchmark" and the number of rounds for each page, default 20
+     */
     public static void main(final String[] args) {
+        final int benchmarkRounds = args.length > 0 && "benchmark".equals(args[0]) ? (args.length > 1 ? Integer.parseInt(args[1]) : 20) : 0;
         printVersion(org.eclipse.rdf4j.model.Model.class);
         printVersion(org.eclipse.rdf4j.model.Statement.class);
 
@@ -677,6 +809,7 @@ public class htmlParser extends AbstractParser implements Parser {
                 System.out.println("Title   : " + docs[0].dc_title());
                 System.out.println("Content : " + docs[0].getTextString());
                 System.out.println("JSON-LD : " + docs[0].ld().toString(2));
+                if (benchmarkRounds > 0) benchmarkLD(url, b, benchmarkRounds);
                 //for (String cs: getLdContext(docs[0].ld())) System.out.println("Context : " + cs);
                 //System.out.println("any23-e : " + jaExpand.toString(2));
                 //System.out.println("any23-f : " + jaFlatten.toString(2));
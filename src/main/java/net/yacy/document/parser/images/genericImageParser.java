@@ -111,11 +111,11 @@ public class genericImageParser extends AbstractParser implements Parser {
                         || (b[0] != (byte) 0xFF) // cast to signed byte (-1)
                         || (b[1] != (byte) 0xD8) //cast to signed byte (-40)
                         || (b[2] != (byte) 0xFF)) {
-                    throw new Parser.Failure("File has no jpeg signature", location);
+                    throw new Parser.Failure(Parser.Failure.Reason.malformed, "File has no jpeg signature", location);
                 }
             } catch (final IOException e) {
                 Logger.error("Catched Exception", e);
-                throw new Parser.Failure(e.getMessage(), location);
+                throw new Parser.Failure(Parser.Failure.Reason.malformed, e.getMessage(), location);
             }
 
             ii = parseJavaImage(location, new ByteArrayInputStream(b));
@@ -219,9 +219,9 @@ public class genericImageParser extends AbstractParser implements Parser {
             image = ImageIO.read(sourceStream);
         } catch (final Throwable e) {
             //Log.logException(e);
-            throw new Parser.Failure(e.getMessage(), location);
+            throw new Parser.Failure(e instanceof OutOfMemoryError ? Parser.Failure.Reason.toolarge : Parser.Failure.Reason.malformed, e.getMessage(), location);
         }
-        if (image == null) throw new Parser.Failure("ImageIO returned NULL", location);
+        if (image == null) throw new Parser.Failure(Parser.Failure.Reason.unsupported, "ImageIO returned NULL", location);
         return parseJavaImage(location, image);
     }
 
@@ -149,9 +149,9 @@ public class metadataImageParser extends AbstractParser implements Parser {
             if (description != null && description.length() > 0) descriptions.add("Copyright: " + description);
 
         } catch (ImageProcessingException e) {
-            throw new Parser.Failure("could not extract image meta data", location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "could not extract image meta data", location);
         } catch (IOException ex) {
-            throw new Parser.Failure("IO-Error reading", location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "IO-Error reading", location);
         }
 
         if (title == null || title.isEmpty()) {
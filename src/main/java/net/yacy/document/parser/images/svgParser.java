@@ -93,7 +93,8 @@ public class svgParser extends AbstractParser implements Parser {
             } catch (SAXException e) {
                 // catch EOFException which is intentionally thrown after capturing metadata to skip further reading (not a error, just a way to get out of SAX)
                 if (e.getException() == null || !(e.getException() instanceof EOFException)) {
-                    throw new Parser.Failure("Unexpected error while parsing svg file. " + e.getMessage(), location);
+                    final Parser.Failure.Reason reason = e.getException() instanceof Parser.Failure ? ((Parser.Failure) e.getException()).getReason() : Parser.Failure.Reason.malformed;
+                    throw new Parser.Failure(reason, "Unexpected error while parsing svg file. " + e.getMessage(), location);
                 }
             }
 
@@ -143,7 +144,7 @@ public class svgParser extends AbstractParser implements Parser {
             }
 
             Logger.error("Catched Exception", e);
-            throw new Parser.Failure("Unexpected error while parsing odt file. " + e.getMessage(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unexpected error while parsing svg file. " + e.getMessage(), location);
         }
     }
 
@@ -193,7 +194,7 @@ public class svgParser extends AbstractParser implements Parser {
                             throw new SAXException("EOF svg Metadata", new EOFException());
                         default : { // K.O. criteria, start tag is not svg, fail parser on none svg
                             if (!this.svgStartTagFound) {
-                                throw new SAXException("not a svg file, start tag "+tag, new Failure());
+                                throw new SAXException("not a svg file, start tag "+tag, new Failure(Failure.Reason.unsupported, "not a svg file", null));
                             }
                         }
                     }
@@ -27,23 +27,18 @@
 
 package net.yacy.document.parser;
 
-import java.io.File;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
-import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.grid.tools.MultiProtocolURL;
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
@@ -52,7 +47,7 @@ import net.yacy.document.VocabularyScraper;
 import net.yacy.document.parser.xml.ODContentHandler;
 import net.yacy.document.parser.xml.ODMetaHandler;
 import net.yacy.kelondro.io.CharBuffer;
-import net.yacy.kelondro.util.FileUtils;
+import net.yacy.kelondro.io.ZipArchive;
 
 import org.xml.sax.SAXException;
 
@@ -60,6 +55,9 @@ public class odtParser extends AbstractParser implements Parser {
 
     public final static int MAX_DOCSIZE = 200 * 1024 * 1024;
 
+    /** documents up to this size are unzipped in memory, larger documents are written to a temporary file */
+    public static int MAX_MEMORY_ZIPSIZE = 32 * 1024 * 1024;
+
     public odtParser() {
         super("OASIS OpenDocument V2 Text Document Parser");
         this.SUPPORTED_EXTENSIONS.add("odt");
@@ -109,7 +107,7 @@ public class odtParser extends AbstractParser implements Parser {
     	return parser;
     }
 
-    private Document[] parse(final MultiProtocolURL location, final String mimeType, final String charset, final File dest)
+    private Document[] parse(final MultiProtocolURL location, final String mimeType, final String charset, final ZipArchive zip)
             throws Parser.Failure, InterruptedException {
 
         CharBuffer writer = null;
@@ -122,50 +120,39 @@ public class odtParser extends AbstractParser implements Parser {
             String docLanguage    = null;
             Date docModified    = null;
 
-            // opening the file as zip file
-            final ZipFile zipFile = new ZipFile(dest);
-            final Enumeration<? extends ZipEntry> zipEnum = zipFile.entries();
-
-            // looping through all containing files
-            while (zipEnum.hasMoreElements()) {
-
-                // getting the next zip file entry
-                final ZipEntry zipEntry= zipEnum.nextElement();
-                final String entryName = zipEntry.getName();
-
-                // content.xml contains the document content in xml format
-                if (entryName.equals("content.xml")) {
+            // content.xml contains the document content in xml format
+            final InputStream contentStream = zip.getInputStream("content.xml");
+            if (contentStream != null) {
 
-                    // create a writer for output
-                    writer = new CharBuffer(MAX_DOCSIZE, (int) zipEntry.getSize());
+                // create a writer for output
+                writer = new CharBuffer(MAX_DOCSIZE, 4096);
 
-                    // extract data
-                    final InputStream zipFileEntryStream = zipFile.getInputStream(zipEntry);
-                    try {
-                        final SAXParser saxParser = getParser();
-                        saxParser.parse(zipFileEntryStream, new ODContentHandler(writer));
-                    } finally {
-                        // close readers and writers
-                        zipFileEntryStream.close();
-                    }
-
-                } else if (entryName.equals("meta.xml")) {
-                    //  meta.xml contains metadata about the document
-                    final InputStream zipFileEntryStream = zipFile.getInputStream(zipEntry);
+                // extract data
+                try {
                     final SAXParser saxParser = getParser();
-                    final ODMetaHandler metaData = new ODMetaHandler();
-                    saxParser.parse(zipFileEntryStream, metaData);
-                    docDescription = metaData.getDescription();
-                    docKeywordStr  = metaData.getKeyword();
-                    docShortTitle  = metaData.getTitle();
-                    docLongTitle   = metaData.getSubject();
-                    docAuthor      = metaData.getCreator();
-                    docLanguage    = metaData.getLanguage();
-                    docModified    = metaData.getLastModified(); // maybe null
+                    saxParser.parse(contentStream, new ODContentHandler(writer));
+                } finally {
+                    // close readers and writers
+                    contentStream.close();
                 }
             }
 
-            zipFile.close(); // close zipfile (so underlaying file (temp file) can be deleted later
+            //  meta.xml contains metadata about the document
+            final InputStream metaStream = zip.getInputStream("meta.xml");
+            if (metaStream != null) try {
+                final SAXParser saxParser = getParser();
+                final ODMetaHandler metaData = new ODMetaHandler();
+                saxParser.parse(metaStream, metaData);
+                docDescription = metaData.getDescription();
+                docKeywordStr  = metaData.getKeyword();
+                docShortTitle  = metaData.getTitle();
+                docLongTitle   = metaData.getSubject();
+                docAuthor      = metaData.getCreator();
+                docLanguage    = metaData.getLanguage();
+                docModified    = metaData.getLastModified(); // maybe null
+            } finally {
+                metaStream.close();
+            }
 
             // make the languages set
             final Set<String> languages = new HashSet<String>(1);
@@ -184,7 +171,7 @@ public class odtParser extends AbstractParser implements Parser {
 
             // create the parser document
             Document[] docs = null;
-            final byte[] contentBytes = (writer == null) ? null : UTF8.getBytes(writer.toString());
+            final String content = (writer == null) ? null : writer.toString();
             List<String> descriptions = new ArrayList<String>();
             if (docDescription != null && docDescription.length() > 0) descriptions.add(docDescription);
             docs = new Document[]{new Document(
@@ -200,7 +187,7 @@ public class odtParser extends AbstractParser implements Parser {
                     null,
                     descriptions,
                     0.0d, 0.0d,
-                    contentBytes,
+                    content,
                     null,
                     null,
                     null,
@@ -215,7 +202,7 @@ public class odtParser extends AbstractParser implements Parser {
             // close the writer
             if (writer != null) try { writer.close(); } catch (final Exception ex) {/* ignore this */}
 
-            throw new Parser.Failure("Unexpected error while parsing odt file. " + e.getMessage(),location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unexpected error while parsing odt file. " + e.getMessage(),location);
         }
     }
 
@@ -227,23 +214,20 @@ public class odtParser extends AbstractParser implements Parser {
             final VocabularyScraper scraper, 
             final int timezoneOffset,
             final InputStream source) throws Parser.Failure, InterruptedException {
-        File dest = null;
+        ZipArchive zip = null;
         try {
-            // creating a tempfile
-            dest = File.createTempFile("OpenDocument", ".odt");
-
-            // copying the stream into a file
-            FileUtils.copy(source, dest);
+            // reading the archive; small documents are parsed in memory, large documents from a tempfile
+            zip = new ZipArchive(source, MAX_MEMORY_ZIPSIZE);
 
             // parsing the content
-            return parse(location, mimeType, charset, dest);
+            return parse(location, mimeType, charset, zip);
         } catch (final Exception e) {
             if (e instanceof InterruptedException) throw (InterruptedException) e;
             if (e instanceof Parser.Failure) throw (Parser.Failure) e;
 
-            throw new Parser.Failure("Unexpected error while parsing odt file. " + e.getMessage(),location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unexpected error while parsing odt file. " + e.getMessage(),location);
         } finally {
-            if (dest != null) FileUtils.deletedelete(dest);
+            if (zip != null) zip.close();
         }
     }
 
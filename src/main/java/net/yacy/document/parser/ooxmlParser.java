@@ -27,17 +27,13 @@
 
 package net.yacy.document.parser;
 
-import java.io.File;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -45,7 +41,6 @@ import javax.xml.parsers.SAXParserFactory;
 
 import org.xml.sax.SAXException;
 
-import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
 import net.yacy.document.Parser;
@@ -55,7 +50,7 @@ import net.yacy.document.parser.xml.ODMetaHandler;
 import net.yacy.grid.tools.Logger;
 import net.yacy.grid.tools.MultiProtocolURL;
 import net.yacy.kelondro.io.CharBuffer;
-import net.yacy.kelondro.util.FileUtils;
+import net.yacy.kelondro.io.ZipArchive;
 
 public class ooxmlParser extends AbstractParser implements Parser {
 
@@ -91,7 +86,7 @@ public class ooxmlParser extends AbstractParser implements Parser {
     	return parser;
     }
 
-    private Document[] parse(final MultiProtocolURL location, final String mimeType, final String charset, final File dest) throws Parser.Failure, InterruptedException {
+    private Document[] parse(final MultiProtocolURL location, final String mimeType, final String charset, final ZipArchive zip) throws Parser.Failure, InterruptedException {
 
         CharBuffer writer = null;
         try {
@@ -103,53 +98,53 @@ public class ooxmlParser extends AbstractParser implements Parser {
             String docLanguage    = null;
             Date docModified      = null;
 
-            // opening the file as zip file
-            final ZipFile zipFile= new ZipFile(dest);
-            final Enumeration<? extends ZipEntry> zipEnum = zipFile.entries();
-
-            // looping through all containing files
-            while (zipEnum.hasMoreElements()) {
-
-                // get next zip file entry
-                final ZipEntry zipEntry= zipEnum.nextElement();
-                final String entryName = zipEntry.getName();
-
-                // content.xml contains the document content in xml format
-                if (entryName.equals("word/document.xml")
-                	|| entryName.startsWith("ppt/slides/slide")
-                	|| entryName.startsWith("xl/worksheets/sheet")) {
-
-                    // create a writer for output
-                    writer = new CharBuffer(odtParser.MAX_DOCSIZE, (int) zipEntry.getSize());
-
-                    // extract data
-                    final InputStream zipFileEntryStream = zipFile.getInputStream(zipEntry);
-                    try {
-                        final SAXParser saxParser = getParser();
-                        saxParser.parse(zipFileEntryStream, new ODContentHandler(writer));
-
-                        // close readers and writers
-                    } finally {
-                        zipFileEntryStream.close();
-                    }
-
-                } else if (entryName.equals("docProps/core.xml")) {
-                    //  meta.xml contains metadata about the document
-                    final InputStream zipFileEntryStream = zipFile.getInputStream(zipEntry);
+            // collect the content parts: the text document, all slides and all sheets in their numerical order
+            final List<String> slides = new ArrayList<String>();
+            final List<String> sheets = new ArrayList<String>();
+            final List<String> parts = new ArrayList<String>();
+            for (final String entryName: zip.names()) {
+                if (entryName.equals("word/document.xml")) parts.add(entryName);
+                else if (entryName.startsWith("ppt/slides/slide")) slides.add(entryName);
+                else if (entryName.startsWith("xl/worksheets/sheet")) sheets.add(entryName);
+            }
+            ZipArchive.sortNumerical(slides);
+            ZipArchive.sortNumerical(sheets);
+            parts.addAll(slides);
+            parts.addAll(sheets);
+
+            // all parts are written into one text buffer
+            for (final String entryName: parts) {
+                if (writer == null) writer = new CharBuffer(odtParser.MAX_DOCSIZE, 4096);
+                else if (writer.length() > 0) writer.appendLF();
+
+                // extract data
+                final InputStream zipFileEntryStream = zip.getInputStream(entryName);
+                try {
                     final SAXParser saxParser = getParser();
-                    final ODMetaHandler metaData = new ODMetaHandler();
-                    saxParser.parse(zipFileEntryStream, metaData);
-                    docDescription = metaData.getDescription();
-                    docKeywordStr  = metaData.getKeyword();
-                    docShortTitle  = metaData.getTitle();
-                    docLongTitle   = metaData.getSubject();
-                    docAuthor      = metaData.getCreator();
-                    docLanguage    = metaData.getLanguage();
-                    docModified    = metaData.getLastModified();
+                    saxParser.parse(zipFileEntryStream, new ODContentHandler(writer));
+
+                    // close readers and writers
+                } finally {
+                    zipFileEntryStream.close();
                 }
             }
 
-            zipFile.close(); // close zipfile (so underlaying file (temp file) can be deleted later
+            //  core.xml contains metadata about the document
+            final InputStream metaStream = zip.getInputStream("docProps/core.xml");
+            if (metaStream != null) try {
+                final SAXParser saxParser = getParser();
+                final ODMetaHandler metaData = new ODMetaHandler();
+                saxParser.parse(metaStream, metaData);
+                docDescription = metaData.getDescription();
+                docKeywordStr  = metaData.getKeyword();
+                docShortTitle  = metaData.getTitle();
+                docLongTitle   = metaData.getSubject();
+                docAuthor      = metaData.getCreator();
+                docLanguage    = metaData.getLanguage();
+                docModified    = metaData.getLastModified();
+            } finally {
+                metaStream.close();
+            }
 
             // make the languages set
             final Set<String> languages = new HashSet<String>(1);
@@ -167,7 +162,7 @@ public class ooxmlParser extends AbstractParser implements Parser {
 
             // create the parser document
             Document[] docs = null;
-            final byte[] contentBytes = (writer == null) ? null : UTF8.getBytes(writer.toString());
+            final String content = (writer == null) ? null : writer.toString();
             List<String> descriptions = new ArrayList<String>();
             if (docDescription != null && docDescription.length() > 0) descriptions.add(docDescription);
             docs = new Document[]{new Document(
@@ -183,7 +178,7 @@ public class ooxmlParser extends AbstractParser implements Parser {
                     null,
                     descriptions,
                     0.0d, 0.0d,
-                    contentBytes,
+                    content,
                     null,
                     null,
                     null,
@@ -200,7 +195,7 @@ public class ooxmlParser extends AbstractParser implements Parser {
             } catch (final Exception ex) {/* ignore this */}
 
             Logger.error("Catched Exception", e);
-            throw new Parser.Failure("Unexpected error while parsing odt file. " + e.getMessage(),location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unexpected error while parsing odt file. " + e.getMessage(),location);
         }
     }
 
@@ -212,23 +207,20 @@ public class ooxmlParser extends AbstractParser implements Parser {
             final VocabularyScraper scraper,
             final int timezoneOffset,
             final InputStream source) throws Parser.Failure, InterruptedException {
-        File dest = null;
+        ZipArchive zip = null;
         try {
-            // creating a tempfile
-            dest = File.createTempFile("OpenDocument", ".odt");
-
-            // copying the stream into a file
-            FileUtils.copy(source, dest);
+            // reading the archive; small documents are parsed in memory, large documents from a tempfile
+            zip = new ZipArchive(source, odtParser.MAX_MEMORY_ZIPSIZE);
 
             // parsing the content
-            return parse(location, mimeType, charset, dest);
+            return parse(location, mimeType, charset, zip);
         } catch (final Exception e) {
             if (e instanceof InterruptedException) throw (InterruptedException) e;
             if (e instanceof Parser.Failure) throw (Parser.Failure) e;
 
-            throw new Parser.Failure("Unexpected error while parsing odt file. " + e.getMessage(),location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unexpected error while parsing odt file. " + e.getMessage(),location);
         } finally {
-            if (dest != null) FileUtils.deletedelete(dest);
+            if (zip != null) zip.close();
         }
     }
 
@@ -32,34 +32,42 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.apache.pdfbox.pdmodel.interactive.action.PDAction;
 import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
 import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
 import org.apache.pdfbox.text.PDFTextStripper;
 
-import net.yacy.cora.document.encoding.UTF8;
+import net.yacy.cora.protocol.TimeoutRequest;
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
+import net.yacy.document.DocumentSink;
 import net.yacy.document.Parser;
+import net.yacy.document.TextBuffer;
 import net.yacy.document.VocabularyScraper;
 import net.yacy.grid.tools.AnchorURL;
 import net.yacy.grid.tools.Logger;
 import net.yacy.grid.tools.MultiProtocolURL;
-import net.yacy.kelondro.io.CharBuffer;
 import net.yacy.kelondro.util.FileUtils;
 
 
@@ -68,6 +76,22 @@ public class pdfParser extends AbstractParser implements Parser {
     public static boolean individualPages = false;
     public static String individualPagePropertyname = "page";
 
+    /** maximum number of pages which are extracted from a document */
+    public static int MAX_PAGES = 1000;
+
+    /**
+     * maximum number of page ranges of a document which are extracted in parallel to the first range. Each of these ranges
+     * needs its own load of the document, which takes about as much heap as the first load (10 times the document size
+     * in measurements with PDFBox 2.0), therefore the number is small; MemoryAdmission reserves the heap of these loads.
+     */
+    public static int PAGE_THREADS = Math.min(2, Runtime.getRuntime().availableProcessors());
+
+    /** minimum number of pages in a page range; each range needs its own load of the document */
+    public static int PAGES_PER_RANGE = 8;
+
+    /** maximum time in milliseconds for the text extraction of a document, the first page is extracted in any case */
+    public static long EXTRACTION_TIMEOUT = 10000;
+
     public pdfParser() {
         super("Acrobat Portable Document Parser");
         this.SUPPORTED_EXTENSIONS.add("pdf");
@@ -79,10 +103,6 @@ public class pdfParser extends AbstractParser implements Parser {
         this.SUPPORTED_MIME_TYPES.add("text/x-pdf");
     }
 
-    static {
-        clean_up_idiotic_PDFParser_font_cache_which_eats_up_tons_of_megabytes(); // must be called here to get that into the class loader; it will block other threads otherwise;
-    }
-
     @Override
     public Document[] parse(
             final MultiProtocolURL location,
@@ -91,15 +111,35 @@ public class pdfParser extends AbstractParser implements Parser {
             final VocabularyScraper scraper,
             final int timezoneOffset,
             final InputStream source) throws Parser.Failure, InterruptedException {
+        final DocumentSink.Collector collector = new DocumentSink.Collector();
+        parse(location, mimeType, charset, scraper, timezoneOffset, source, collector);
+        return collector.documents();
+    }
 
-        // create a pdf parser
+    /**
+     * in the individualPages mode each page document is given to the sink as soon as it is created
+     */
+    @Override
+    public void parse(
+            final MultiProtocolURL location,
+            final String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            final InputStream source,
+            final DocumentSink sink) throws Parser.Failure, InterruptedException {
+
+        // create a pdf parser; the content is kept because page ranges are extracted with their own loads of the document
+        final byte[] b;
         PDDocument pdfDoc;
         try {
             Thread.currentThread().setPriority(Thread.MIN_PRIORITY); // the pdfparser is a big pain
+            b = FileUtils.read(source);
             MemoryUsageSetting mus = MemoryUsageSetting.setupMixed(200*1024*1024);
-            pdfDoc = PDDocument.load(source, mus);
+            pdfDoc = PDDocument.load(b, "", null, null, mus);
         } catch (final IOException e) {
-            throw new Parser.Failure(e.getMessage(), location);
+            // a document which needs a password to be opened is not supported
+            throw new Parser.Failure(e instanceof InvalidPasswordException ? Parser.Failure.Reason.unsupported : Parser.Failure.Reason.malformed, e.getMessage(), location);
         } finally {
             Thread.currentThread().setPriority(Thread.NORM_PRIORITY);
         }
@@ -108,7 +148,7 @@ public class pdfParser extends AbstractParser implements Parser {
             final AccessPermission perm = pdfDoc.getCurrentAccessPermission();
             if (perm == null || !perm.canExtractContent()) {
                 try {pdfDoc.close();} catch (final IOException ee) {}
-                throw new Parser.Failure("Document is encrypted and cannot be decrypted", location);
+                throw new Parser.Failure(Parser.Failure.Reason.unsupported, "Document is encrypted and cannot be decrypted", location);
             }
         }
 
@@ -141,34 +181,24 @@ public class pdfParser extends AbstractParser implements Parser {
         }
 
         Collection<AnchorURL>[] pdflinks = null;
-        Document[] result = null;
+        int emitted = 0;
+        Throwable failure = null;
         try {
             // get the links
             pdflinks = extractPdfLinks(pdfDoc);
 
-            // get the fulltext (either per document or for each page)
-            final PDFTextStripper stripper = new PDFTextStripper(/*StandardCharsets.UTF_8.name()*/);
+            // get the fulltext of each page
+            final String[] pages = extractPages(pdfDoc, b, location);
 
             if (individualPages) {
                 // this is a hack which stores individual pages of the source pdf into individual index documents
                 // the new documents will get a virtual link with a post argument page=X appended to the original url
 
-                // collect text
-                int pagecount = pdfDoc.getNumberOfPages();
-                String[] pages = new String[pagecount];
-                for (int page = 1; page <= pagecount; page++) {
-                    stripper.setStartPage(page);
-                    stripper.setEndPage(page);
-                    pages[page - 1] = stripper.getText(pdfDoc);
-                    //System.out.println("PAGE " + page + ": " + pages[page - 1]);
-                }
-
                 // create individual documents for each page
-                assert pages.length == pdflinks.length : "pages.length = " + pages.length + ", pdflinks.length = " + pdflinks.length;
-                result = new Document[Math.min(pages.length, pdflinks.length)];
+                final int pagecount = Math.min(pages.length, pdflinks.length);
                 String loc = location.toNormalform(true);
-                for (int page = 0; page < result.length; page++) {
-                    result[page] = new Document(
+                for (int page = 0; page < pagecount; page++) {
+                    final Document pagedoc = new Document(
                             new MultiProtocolURL(loc + (loc.indexOf('?') > 0 ? '&' : '?') + individualPagePropertyname + '=' + (page + 1)), // these are virtual new pages; we cannot combine them with '#' as that would be removed when computing the urlhash
                             mimeType,
                             StandardCharsets.UTF_8.name(),
@@ -181,45 +211,31 @@ public class pdfParser extends AbstractParser implements Parser {
                             null,
                             null,
                             0.0d, 0.0d,
-                            pages == null || page > pages.length ? new byte[0] : UTF8.getBytes(pages[page]),
-                            pdflinks == null || page >= pdflinks.length ? null : pdflinks[page],
+                            pages[page],
+                            pdflinks[page],
                             null,
                             null,
                             false,
                             docDate);
+                    pages[page] = null; // the page text is not needed any more
+                    emitted++;
+                    if (!sink.put(pagedoc)) break;
                 }
             } else {
-                // collect the whole text at once
-                final CharBuffer writer = new CharBuffer(odtParser.MAX_DOCSIZE);
-                byte[] contentBytes = new byte[0];
-                stripper.setEndPage(3); // get first 3 pages (always)
-                writer.append(stripper.getText(pdfDoc));
-                contentBytes = writer.getBytes(); // remember text in case of interrupting thread
-
-                if (pdfDoc.getNumberOfPages() > 3) { // spare creating/starting thread if all pages read
-                    stripper.setStartPage(4); // continue with page 4 (terminated, resulting in no text)
-                    stripper.setEndPage(Integer.MAX_VALUE); // set to default
-                    // we start the pdf parsing in a separate thread to ensure that it can be terminated
-                    final PDDocument pdfDocC = pdfDoc;
-                    final Thread t = new Thread() {
-                        @Override
-                        public void run() {
-                            Thread.currentThread().setName("pdfParser.getText:" + location);
-                            try {
-                                writer.append(stripper.getText(pdfDocC));
-                            } catch (final Throwable e) {}
-                        }
-                    };
-                    t.start();
-                    t.join(10000); // pdfbox likes to forget to terminate ... (quite often)
-                    if (t.isAlive()) t.interrupt();
-                    contentBytes = writer.getBytes(); // get final text before closing writer
-                    writer.close(); // free writer resources
+                // combine the text of all pages; the page texts are not copied. The text is cut at MAX_DOCSIZE characters
+                // like the text of odt and ooxml documents
+                final TextBuffer content = new TextBuffer();
+                for (final String page: pages) {
+                    if (page == null) continue;
+                    final int room = odtParser.MAX_DOCSIZE - content.length();
+                    if (room <= 0) break;
+                    content.append(page.length() <= room ? page : page.substring(0, room));
                 }
 
                 Collection<AnchorURL> pdflinksCombined = new HashSet<>();
                 for (Collection<AnchorURL> pdflinksx: pdflinks) if (pdflinksx != null) pdflinksCombined.addAll(pdflinksx);
-                result = new Document[]{new Document(
+                emitted++;
+                sink.put(new Document(
                         location,
                         mimeType,
                         StandardCharsets.UTF_8.name(),
@@ -232,15 +248,17 @@ public class pdfParser extends AbstractParser implements Parser {
                         null,
                         null,
                         0.0d, 0.0d,
-                        contentBytes,
+                        content,
                         pdflinksCombined,
                         null,
                         null,
                         false,
-                        docDate)};
+                        docDate));
             }
+        } catch (final InterruptedException e) {
+            throw e;
         } catch (final Throwable e) {
-            //throw new Parser.Failure(e.getMessage(), location);
+            failure = e;
         } finally {
             try {pdfDoc.close();} catch (final Throwable e) {}
         }
@@ -257,7 +275,96 @@ public class pdfParser extends AbstractParser implements Parser {
         // we try to get this shit out of the memory here by forced clear calls, hope the best the rubbish gets out.
         pdfDoc = null;
 
-        return result;
+        // a failure after the first page documents is ignored, those documents cannot be taken back
+        if (failure != null && emitted == 0) throw new Parser.Failure(String.valueOf(failure.getMessage()), location, failure);
+    }
+
+    /**
+     * extract the text of the pages of a document, up to MAX_PAGES pages. The pages are split into ranges;
+     * the first range is extracted in the calling thread from the given document, the other ranges are extracted
+     * in parallel by the workers of TimeoutRequest which cancel a range at the deadline; a range which gets a worker only after the deadline
+     * is skipped without loading the document. A pdfbox document must not be used concurrently and its objects and fonts
+     * cannot be shared with another document, therefore each range is extracted from its own load of the document content.
+     * A load shares the content array, but it parses the page tree and the fonts again; the number of ranges is limited by
+     * PAGE_THREADS + 1 to limit the number of loads.
+     * Each range writes its pages directly into the result, so the pages of a range which is cancelled at the
+     * deadline are kept.
+     * The time for loading the document is not part of EXTRACTION_TIMEOUT.
+     * @param pdfDoc the loaded document
+     * @param b the document content
+     * @return the text of each page; the text is null for pages which could not be extracted within EXTRACTION_TIMEOUT
+     * @throws InterruptedException
+     */
+    private static String[] extractPages(final PDDocument pdfDoc, final byte[] b, final MultiProtocolURL location) throws InterruptedException {
+        final int n = Math.min(pdfDoc.getNumberOfPages(), MAX_PAGES);
+        final AtomicReferenceArray<String> pages = new AtomicReferenceArray<>(n); // written by the ranges, also after a range is cancelled
+        final long deadline = System.currentTimeMillis() + EXTRACTION_TIMEOUT;
+        final int ranges = Math.max(1, Math.min(PAGE_THREADS + 1, (n + PAGES_PER_RANGE - 1) / PAGES_PER_RANGE));
+        final int rangeSize = Math.max(1, (n + ranges - 1) / ranges);
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (int start = rangeSize; start < n; start += rangeSize) {
+            final int s = start, e = Math.min(n, start + rangeSize);
+            try {
+                futures.add(TimeoutRequest.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        if (System.currentTimeMillis() >= deadline) return null;
+                        try (PDDocument rangeDoc = PDDocument.load(b, "", null, null, MemoryUsageSetting.setupMainMemoryOnly())) {
+                            stripPages(rangeDoc, pages, s, e, deadline);
+                        }
+                        return null;
+                    }
+                }, Math.max(1, deadline - System.currentTimeMillis())));
+            } catch (final RejectedExecutionException ee) {
+                // all workers are busy: the pages of this range are missing in the text
+                futures.add(null);
+            }
+        }
+        try {
+            stripPages(pdfDoc, pages, 0, Math.min(n, rangeSize), deadline);
+            for (int i = 0; i < futures.size(); i++) {
+                final Future<Void> f = futures.get(i);
+                if (f == null) continue;
+                try {
+                    f.get();
+                } catch (final CancellationException e) {
+                    Logger.warn("pdfParser: page extraction timeout for " + location);
+                } catch (final ExecutionException e) {
+                    Logger.warn("pdfParser: page extraction failed for " + location, e.getCause());
+                }
+            }
+        } finally {
+            for (final Future<Void> f: futures) if (f != null) f.cancel(true);
+        }
+        final String[] texts = new String[n];
+        for (int i = 0; i < n; i++) texts[i] = pages.get(i);
+        return texts;
+    }
+
+    /**
+     * extract the text of pages, page by page, until the deadline
+     * @param doc the document
+     * @param pages the target for the page texts, indexed by page number starting with 0
+     * @param firstPage the index of the first page to extract
+     * @param endPage the index after the last page to extract
+     */
+    private static void stripPages(final PDDocument doc, final AtomicReferenceArray<String> pages, final int firstPage, final int endPage, final long deadline) {
+        final PDFTextStripper stripper;
+        try {
+            stripper = new PDFTextStripper();
+        } catch (final IOException e) {
+            return;
+        }
+        for (int page = firstPage; page < endPage; page++) {
+            if (page > 0 && (System.currentTimeMillis() > deadline || Thread.currentThread().isInterrupted())) return;
+            stripper.setStartPage(page + 1);
+            stripper.setEndPage(page + 1);
+            try {
+                pages.set(page, stripper.getText(doc));
+            } catch (final IOException e) {
+                // the page is skipped
+            }
+        }
     }
 
     /**
@@ -292,53 +399,12 @@ public class pdfParser extends AbstractParser implements Parser {
         return linkCollections;
     }
 
-    public static void clean_up_idiotic_PDFParser_font_cache_which_eats_up_tons_of_megabytes() {
-        // thank you very much, PDFParser hackers, this font cache will occupy >80MB RAM for a single pdf and then stays forever
-        // AND I DO NOT EVEN NEED A FONT HERE TO PARSE THE TEXT!
-        // Don't be so ignorant, just google once "PDFParser OutOfMemoryError" to feel the pain.
-        ResourceCleaner cl = new ResourceCleaner();
-        cl.clearClassResources("org.apache.pdfbox.cos.COSName");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDFont");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDType1Font");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDTrueTypeFont");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDType0Font");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDType1AfmPfbFont");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDType3Font");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDType1CFont");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDCIDFont");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDCIDFontType0Font");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDCIDFontType2Font");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDMMType1Font");
-        cl.clearClassResources("org.apache.pdfbox.pdmodel.font.PDSimpleFont");
-    }
-
-    @SuppressWarnings({ "unchecked", "rawtypes" })
-    private static class ResourceCleaner {
-        Method findLoadedClass;
-        private ClassLoader sys;
-        public ResourceCleaner() {
-            try {
-                this.findLoadedClass = ClassLoader.class.getDeclaredMethod("findLoadedClass", new Class[] { String.class });
-                this.findLoadedClass.setAccessible(true);
-                this.sys = ClassLoader.getSystemClassLoader();
-            } catch (Throwable e) {
-                Logger.warn("", e);
-                this.findLoadedClass = null;
-                this.sys = null;
-            }
-        }
-        public void clearClassResources(String name) {
-            if (this.findLoadedClass == null) return;
-            try {
-                Object pdfparserpainclass = this.findLoadedClass.invoke(this.sys, name);
-                if (pdfparserpainclass != null) {
-                    Method clearResources = ((Class) pdfparserpainclass).getDeclaredMethod("clearResources", new Class[] {});
-                    if (clearResources != null) clearResources.invoke(null);
-                }
-            } catch (Throwable e) {
-                Logger.warn("", e);
-            }
-        }
+    /**
+     * clear the static name cache of pdfbox. Fonts and other page resources are not cached statically,
+     * they are cached in the resource cache of each loaded document and released when the document is closed.
+     */
+    public static void clearSharedResources() {
+        COSName.clearResources();
     }
 
     /**
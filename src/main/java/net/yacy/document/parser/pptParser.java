@@ -33,6 +33,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.hslf.extractor.PowerPointExtractor;
 
 import net.yacy.document.AbstractParser;
@@ -133,7 +134,7 @@ public class pptParser extends AbstractParser implements Parser {
             Logger.error("Catched Exception", e);
             final String errorMsg = "Unable to parse the ppt document '" + location + "':" + e.getMessage();
             Logger.error(errorMsg);
-            throw new Parser.Failure(errorMsg, location);
+            throw new Parser.Failure(e instanceof EncryptedDocumentException ? Parser.Failure.Reason.unsupported : Parser.Failure.Reason.malformed, errorMsg, location);
         }
     }
 
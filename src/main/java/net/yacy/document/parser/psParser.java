@@ -27,15 +27,17 @@
 
 package net.yacy.document.parser;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
@@ -45,12 +47,27 @@ import net.yacy.grid.tools.Logger;
 import net.yacy.grid.tools.MultiProtocolURL;
 import net.yacy.kelondro.util.FileUtils;
 
-
+/**
+ * PostScript text extraction. The text is extracted in the parser thread with a tokenizer which collects
+ * the strings given to the show operators (and procedures which are defined to call them).
+ * If that does not give readable text, i.e. because the fonts use an own encoding, the document can be
+ * converted with the external ps2ascii tool. The number of concurrent ps2ascii processes is limited and
+ * every conversion has a time limit.
+ */
 public class psParser extends AbstractParser implements Parser {
 
+    /** use ps2ascii for documents where the java text extraction does not give readable text */
+    public static boolean PS2ASCII = true;
+
+    /** maximum number of concurrent ps2ascii processes */
+    public static int PS2ASCII_CONCURRENCY = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /** maximum time in milliseconds for a ps2ascii conversion, including the wait for a free process slot */
+    public static long PS2ASCII_TIMEOUT = 30000;
+
     private final static Object modeScan = new Object();
-    private static boolean modeScanDone = false;
-    private static String parserMode = "java";
+    private static Boolean ps2asciiAvailable = null;
+    private static Semaphore ps2asciiSlots = null;
 
     public psParser() {
         super("PostScript Document Parser");
@@ -60,230 +77,449 @@ public class psParser extends AbstractParser implements Parser {
         this.SUPPORTED_MIME_TYPES.add("application/x-postscript");
         this.SUPPORTED_MIME_TYPES.add("application/x-ps");
         this.SUPPORTED_MIME_TYPES.add("application/x-postscript-not-eps");
-        if (!modeScanDone) synchronized (modeScan) {
-        	if (testForPs2Ascii()) parserMode = "ps2ascii";
-        	else parserMode = "java";
-        	modeScanDone = true;
-		}
     }
 
-    private boolean testForPs2Ascii() {
-        try {
-            String procOutputLine = null;
-            final StringBuilder procOutput = new StringBuilder(80);
+    /**
+     * test once if ps2ascii can be started and create the process slots
+     * @return the process slots or null if ps2ascii is not available
+     */
+    private static Semaphore ps2asciiSlots() {
+        synchronized (modeScan) {
+            if (ps2asciiAvailable == null) {
+                ps2asciiAvailable = testForPs2Ascii();
+                if (ps2asciiAvailable) ps2asciiSlots = new Semaphore(PS2ASCII_CONCURRENCY);
+            }
+            return ps2asciiSlots;
+        }
+    }
 
-            final Process ps2asciiProc = Runtime.getRuntime().exec(new String[]{"ps2ascii", "--version"});
-            final BufferedReader stdOut = new BufferedReader(new InputStreamReader(ps2asciiProc.getInputStream()));
-            while ((procOutputLine = stdOut.readLine()) != null) {
-                procOutput.append(procOutputLine).append(", ");
+    private static boolean testForPs2Ascii() {
+        try {
+            final Process ps2asciiProc = new ProcessBuilder("ps2ascii", "--version").redirectErrorStream(true).redirectOutput(discard()).start();
+            if (!ps2asciiProc.waitFor(10, TimeUnit.SECONDS)) {
+                ps2asciiProc.destroyForcibly();
+                return false;
             }
-            stdOut.close();
-            final int returnCode = ps2asciiProc.waitFor();
-            return (returnCode == 0);
+            return ps2asciiProc.exitValue() == 0;
         } catch (final Exception e) {
-            Logger.info("ps2ascii not found. Switching to java parser mode.");
+            Logger.info("ps2ascii not found. Using only the java parser mode.");
             return false;
         }
     }
 
+    private static File discard() {
+        return new File(System.getProperty("os.name", "").startsWith("Windows") ? "NUL" : "/dev/null");
+    }
 
-    private Document[] parse(final MultiProtocolURL location, final String mimeType, final String charset, final File sourceFile) throws Parser.Failure, InterruptedException {
+    @Override
+    public Document[] parse(
+            final MultiProtocolURL location,
+            final String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            final InputStream source)
+            throws Parser.Failure, InterruptedException {
 
-    	File outputFile = null;
+        final byte[] b;
         try {
-        	// creating a temp file for the output
-        	outputFile = FileUtils.createTempFile(this.getClass(), "ascii.txt");
-
-        	// decide with parser mode to use
-            if (parserMode.equals("ps2ascii")) {
-                parseUsingPS2ascii(sourceFile,outputFile);
-            } else {
-                parseUsingJava(sourceFile,outputFile);
+            b = FileUtils.read(source);
+        } catch (final IOException e) {
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unable to read the ps file. " + e.getMessage(), location);
+        }
+
+        String text = extractText(b, b.length);
+        if (!readable(text) && PS2ASCII) {
+            final Semaphore slots = ps2asciiSlots();
+            if (slots != null) {
+                final String converted = parseUsingPS2ascii(b, slots);
+                if (converted != null) text = converted;
             }
+        }
 
-            // return result
-            final Document[] docs = new Document[]{new Document(
-                    location, // url
-                    mimeType, // mime
-                    StandardCharsets.UTF_8.name(),  // charset
-                    this,
-                    null,     // languages
-                    null,     // keywords
-                    null,     // title
-                    null,       // author
-                    "",       // publisher
-                    null,     // sections
-                    null,     // abstract
-                    0.0d, 0.0d,
-                    outputFile, // fulltext
-                    null,     // anchors
-                    null,     // rss
-                    null,     // images
-                    false,    // indexingdenied
-                    new Date())};
-
-            return docs;
-        } catch (final Exception e) {
-            if (e instanceof InterruptedException) throw (InterruptedException) e;
-            if (e instanceof Parser.Failure) throw (Parser.Failure) e;
-            // throw exception
-            throw new Parser.Failure("Unexpected error while parsing ps file. " + e.getMessage(),location);
+        return new Document[]{new Document(
+                location, // url
+                mimeType, // mime
+                StandardCharsets.UTF_8.name(),  // charset
+                this,
+                null,     // languages
+                null,     // keywords
+                null,     // title
+                null,       // author
+                "",       // publisher
+                null,     // sections
+                null,     // abstract
+                0.0d, 0.0d,
+                text,     // fulltext
+                null,     // anchors
+                null,     // rss
+                null,     // images
+                false,    // indexingdenied
+                new Date())};
+    }
+
+    /**
+     * This function requires the ghostscript-library. At most PS2ASCII_CONCURRENCY conversions run at the same time,
+     * a conversion which does not get a process slot or does not finish within PS2ASCII_TIMEOUT is given up.
+     * @return the converted text or null if the conversion was not possible
+     */
+    private static String parseUsingPS2ascii(final byte[] b, final Semaphore slots) throws InterruptedException {
+        final long timeout = System.currentTimeMillis() + PS2ASCII_TIMEOUT;
+        if (!slots.tryAcquire(PS2ASCII_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            Logger.warn("ps2ascii: no free process slot within " + PS2ASCII_TIMEOUT + " milliseconds");
+            return null;
+        }
+        File inputFile = null, outputFile = null;
+        Process ps2asciiProc = null;
+        try {
+            inputFile = FileUtils.createTempFile(psParser.class, "temp.ps");
+            outputFile = FileUtils.createTempFile(psParser.class, "ascii.txt");
+            FileUtils.copy(b, inputFile);
+            ps2asciiProc = new ProcessBuilder("ps2ascii", inputFile.getAbsolutePath(), outputFile.getAbsolutePath())
+                    .redirectErrorStream(true).redirectOutput(discard()).start();
+            if (!ps2asciiProc.waitFor(Math.max(1, timeout - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                Logger.warn("ps2ascii: conversion timeout after " + PS2ASCII_TIMEOUT + " milliseconds");
+                return null;
+            }
+            final int execCode = ps2asciiProc.exitValue();
+            if (execCode != 0) {
+                Logger.warn("Unable to convert ps to ascii. ps2ascii returned statuscode " + execCode);
+                return null;
+            }
+            return new String(FileUtils.read(outputFile), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            Logger.warn("Unable to convert ps to ascii. " + e.getMessage(), e);
+            return null;
         } finally {
-            // delete temp file
+            if (ps2asciiProc != null && ps2asciiProc.isAlive()) ps2asciiProc.destroyForcibly();
+            slots.release();
+            if (inputFile != null) FileUtils.deletedelete(inputFile);
             if (outputFile != null) FileUtils.deletedelete(outputFile);
         }
     }
 
-    private static void parseUsingJava(final File inputFile, final File outputFile) throws Exception {
+    /**
+     * @return true if the text has letters and not more than one other non-space character for two letters or digits
+     */
+    public static boolean readable(final String text) {
+        int letters = 0, other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) letters++;
+            else if (!Character.isWhitespace(c)) other++;
+        }
+        return letters > 0 && letters >= 2 * other;
+    }
 
-        BufferedReader reader = null;
-        BufferedWriter writer = null;
-        try {
-            reader = new BufferedReader(new FileReader(inputFile));
-            writer = new BufferedWriter(new FileWriter(outputFile));
-
-            final String versionInfoLine = reader.readLine();
-            final String version = (versionInfoLine == null) ? "" : versionInfoLine.substring(versionInfoLine.length()-3);
-
-            int ichar = 0;
-            boolean isComment = false;
-            boolean isText = false;
-
-            if (version.length() > 0 && version.charAt(0) == '2') {
-                boolean isConnector = false;
-
-                while ((ichar = reader.read()) > 0) {
-                    if (isConnector) {
-                        if (ichar < 108) {
-                            writer.write(' ');
-                        }
-                        isConnector = false;
-                    } else if (ichar == '%') {
-                        isComment = true;
-                    } else if (ichar == '\n' && isComment) {
-                        isComment = false;
-                    } else if (ichar == ')' && isText ) {
-                        isConnector = true;
-                        isText = false;
-                    } else if (isText) {
-                    	writer.write((char)ichar);
-                    } else if (ichar == '(' && !isComment) {
-                        isText = true;
+    /**
+     * extract the text of a PostScript document
+     * @param b the document
+     * @param len the number of valid bytes in b
+     * @return the strings which are shown by the document
+     */
+    public static String extractText(final byte[] b, final int len) {
+        int start = 0, end = len;
+        if (len >= 30 && (b[0] & 0xff) == 0xC5 && (b[1] & 0xff) == 0xD0 && (b[2] & 0xff) == 0xD3 && (b[3] & 0xff) == 0xC6) {
+            // DOS EPS binary file header with the position of the PostScript section
+            final long offset = le32(b, 4), length = le32(b, 8);
+            if (offset + length > len) return "";
+            start = (int) offset;
+            end = (int) (offset + length);
+        }
+        final TextExtractor extractor = new TextExtractor(b);
+        extractor.run(start, end);
+        return extractor.text.toString().trim();
+    }
+
+    private static long le32(final byte[] b, final int p) {
+        return (b[p] & 0xffL) | ((b[p + 1] & 0xffL) << 8) | ((b[p + 2] & 0xffL) << 16) | ((b[p + 3] & 0xffL) << 24);
+    }
+
+    private static final String[] SHOW_OPERATORS = {"show", "ashow", "widthshow", "awidthshow", "kshow", "cshow", "xshow", "yshow", "xyshow", "glyphshow"};
+    private static final Set<String> NEUTRAL_OPERATORS = new HashSet<>(Arrays.asList("bind", "readonly", "executeonly", "noaccess"));
+
+    /**
+     * the characters for the bytes of a string: ISO-8859-1, TeX ligatures at the positions of control characters
+     */
+    private static final String[] CHARACTERS = new String[256];
+    static {
+        for (int c = 0; c < 256; c++) {
+            CHARACTERS[c] = (c >= 0x20 && c < 0x7f) || c >= 0xa0 ? Character.toString((char) c) : "";
+        }
+        CHARACTERS['\t'] = " ";
+        CHARACTERS['\n'] = " ";
+        CHARACTERS['\r'] = " ";
+        CHARACTERS[0x0B] = "ff";
+        CHARACTERS[0x0C] = "fi";
+        CHARACTERS[0x0D] = "fl";
+        CHARACTERS[0x0E] = "ffi";
+        CHARACTERS[0x0F] = "ffl";
+    }
+
+    /**
+     * A tokenizer for PostScript which follows the strings that are given to the show operators.
+     * Procedures like /p {show} def or /s /show load def are recognized as show operators,
+     * also procedures which are only an alias for def like /N {def} def. Strings inside procedures are ignored.
+     */
+    private static class TextExtractor {
+        private final byte[] b;
+        private final StringBuilder text = new StringBuilder();
+        private final Set<String> showOps = new HashSet<>(Arrays.asList(SHOW_OPERATORS));
+        private final Set<String> defOps = new HashSet<>(Arrays.asList("def"));
+        private final ByteArrayOutputStream stringBuffer = new ByteArrayOutputStream();
+        private String pending = null;       // the last string operand
+        private String lastLiteral = null, previousLiteral = null;
+        private int depth = 0;               // procedure nesting
+        private String procName = null;      // the name of the procedure which is being read
+        private boolean procShows = false, procOnlyDef = true, procHasDef = false;
+        private String closedProc = null;    // the name of the procedure which had just been read
+        private boolean closedShows = false, closedDefines = false;
+        private String loadedShow = null;    // the name for /name /show load def
+        private boolean separate = false;    // a space is needed before the next shown string
+
+        private TextExtractor(final byte[] b) {
+            this.b = b;
+        }
+
+        private void run(int i, final int end) {
+            final byte[] b = this.b;
+            while (i < end) {
+                final int c = b[i] & 0xff;
+                if (c <= ' ') {
+                    i++;
+                } else if (c == '%') {
+                    i = comment(i, end);
+                } else if (c == '(') {
+                    i = string(i + 1, end);
+                } else if (c == '<') {
+                    if (i + 1 < end && b[i + 1] == '<') {
+                        i += 2;
+                    } else if (i + 1 < end && b[i + 1] == '~') {
+                        final int e = indexOf(b, "~>", i + 2, end);
+                        i = e < 0 ? end : e + 2; // ASCII85 data
+                    } else {
+                        i = hexString(i + 1, end);
                     }
+                } else if (c == '{') {
+                    if (this.depth++ == 0) {
+                        this.procName = this.lastLiteral;
+                        this.procShows = false;
+                        this.procOnlyDef = true;
+                        this.procHasDef = false;
+                    }
+                    i++;
+                } else if (c == '}') {
+                    if (this.depth > 0 && --this.depth == 0) {
+                        this.closedProc = this.procName;
+                        this.closedShows = this.procShows;
+                        this.closedDefines = this.procOnlyDef && this.procHasDef;
+                    }
+                    i++;
+                } else if (c == '>' || c == '[' || c == ']' || c == ')') {
+                    i++;
+                } else {
+                    final boolean literal = c == '/';
+                    int s = literal ? i + 1 : i;
+                    if (literal && s < end && b[s] == '/') s++;
+                    int e = s;
+                    while (e < end && !delimiter(b[e] & 0xff)) e++;
+                    i = e;
+                    if (e == s || (!literal && number(s, e))) continue;
+                    final String name = new String(b, s, e - s, StandardCharsets.ISO_8859_1);
+                    if (literal) literal(name); else operator(name);
                 }
+            }
+        }
+
+        private static boolean delimiter(final int c) {
+            return c <= ' ' || c == '(' || c == ')' || c == '<' || c == '>' || c == '[' || c == ']' || c == '{' || c == '}' || c == '/' || c == '%';
+        }
+
+        private boolean number(final int s, final int e) {
+            final int c = this.b[s];
+            if (c >= '0' && c <= '9') return true;
+            if ((c == '-' || c == '+' || c == '.') && s + 1 < e) {
+                final int d = this.b[s + 1];
+                return (d >= '0' && d <= '9') || d == '.';
+            }
+            return false;
+        }
 
-            } else if (version.length() > 0 && version.charAt(0) == '3') {
-                final StringBuilder stmt = new StringBuilder();
-                boolean isBMP = false;
-                boolean isStore = false;
-                int store = 0;
-
-                while ((ichar = reader.read()) > 0) {
-                    if (ichar == '%') {
-                        isComment = true;
-                    } else if (ichar == '\n' && isComment){
-                        isComment = false;
-                    } else if (ichar == ')' && isText ) {
-                        isText = false;
-                    } else if (isText && !isBMP) {
-                    	writer.write((char)ichar);
-                    } else if (ichar == '(' && !isComment && !isBMP) {
-                        isText = true;
-                    } else if (isStore) {
-                        if (store == 9 || ichar == ' ' || ichar == 10) {
-                            isStore = false;
-                            store = 0;
-                            if (stmt.toString().equals("BEGINBITM")) {
-                                isText = false;
-                                isBMP = true;
-                            } else if (stmt.toString().equals("ENDBITMAP")) {
-                                isBMP = false;
+        private int comment(final int i, final int end) {
+            int e = eol(i, end);
+            // binary data which is announced with a DSC comment is skipped
+            if (startsWith(i, "%%BeginBinary:") || startsWith(i, "%%BeginData:")) {
+                final int p = indexOf(this.b, this.b[i + 7] == 'B' ? "%%EndBinary" : "%%EndData", e, end);
+                if (p >= 0) e = eol(p, end);
+            }
+            return e;
+        }
+
+        private int eol(int i, final int end) {
+            while (i < end && this.b[i] != '\n' && this.b[i] != '\r') i++;
+            return i;
+        }
+
+        private boolean startsWith(final int i, final String s) {
+            if (i + s.length() > this.b.length) return false;
+            for (int j = 0; j < s.length(); j++) if (this.b[i + j] != s.charAt(j)) return false;
+            return true;
+        }
+
+        private int string(int i, final int end) {
+            final byte[] b = this.b;
+            final ByteArrayOutputStream sb = this.stringBuffer;
+            sb.reset();
+            int nesting = 1;
+            while (i < end) {
+                int c = b[i++] & 0xff;
+                if (c == '\\') {
+                    if (i >= end) break;
+                    c = b[i++] & 0xff;
+                    switch (c) {
+                        case 'n': sb.write('\n'); break;
+                        case 'r': sb.write('\r'); break;
+                        case 't': sb.write('\t'); break;
+                        case 'b': sb.write('\b'); break;
+                        case 'f': sb.write('\f'); break;
+                        case '\r': if (i < end && b[i] == '\n') i++; break; // line continuation
+                        case '\n': break;
+                        default:
+                            if (c >= '0' && c <= '7') {
+                                int v = c - '0';
+                                for (int k = 0; k < 2 && i < end && b[i] >= '0' && b[i] <= '7'; k++) v = v * 8 + b[i++] - '0';
+                                sb.write(v & 0xff);
+                            } else {
+                                sb.write(c);
                             }
-                            stmt.delete(0,stmt.length());
-                        }
-                        else {
-                            stmt.append((char)ichar);
-                            store++;
-                        }
-                    } else if (!isComment && !isStore && (ichar == 66 || ichar == 69)) {
-                        isStore = true;
-                        stmt.append((char)ichar);
-                        store++;
                     }
+                    continue;
                 }
-            } else {
-                throw new Exception("Unsupported Postscript version '" + version + "'.");
+                if (c == '(') nesting++;
+                if (c == ')' && --nesting == 0) break;
+                sb.write(c);
             }
-        } finally {
-            if (reader != null) try { reader.close(); } catch (final Exception e) {/* */}
-            if (writer != null) try { writer.close(); } catch (final Exception e) {/* */}
+            operand();
+            return i;
         }
 
+        private int hexString(int i, final int end) {
+            final ByteArrayOutputStream sb = this.stringBuffer;
+            sb.reset();
+            int v = -1;
+            while (i < end) {
+                final int c = this.b[i++];
+                if (c == '>') break;
+                final int d = Character.digit(c, 16);
+                if (d < 0) continue;
+                if (v < 0) {
+                    v = d;
+                } else {
+                    sb.write(v * 16 + d);
+                    v = -1;
+                }
+            }
+            if (v >= 0) sb.write(v * 16);
+            operand();
+            return i;
+        }
 
-    }
+        private void operand() {
+            if (this.depth > 0) return;
+            final byte[] s = this.stringBuffer.toByteArray();
+            final StringBuilder sb = new StringBuilder(s.length);
+            for (final byte c: s) sb.append(CHARACTERS[c & 0xff]);
+            this.pending = sb.toString();
+        }
 
-    /**
-     * This function requires the ghostscript-library
-     * @param inputFile
-     * @param outputFile
-     * @throws Exception
-     */
-    private void parseUsingPS2ascii(final File inputFile, final File outputFile) throws Exception {
-    	int execCode = 0;
-    	StringBuilder procErr = null;
-    	try {
-            String procOutputLine;
-            final StringBuilder procOut = new StringBuilder();
-            procErr = new StringBuilder();
-
-            final Process ps2asciiProc = Runtime.getRuntime().exec(new String[]{"ps2ascii", inputFile.getAbsolutePath(),outputFile.getAbsolutePath()});
-            final BufferedReader stdOut = new BufferedReader(new InputStreamReader(ps2asciiProc.getInputStream()));
-            final BufferedReader stdErr = new BufferedReader(new InputStreamReader(ps2asciiProc.getErrorStream()));
-            while ((procOutputLine = stdOut.readLine()) != null) {
-                procOut.append(procOutputLine);
+        private void literal(final String name) {
+            if (this.depth > 0) return;
+            this.previousLiteral = this.lastLiteral;
+            this.lastLiteral = name;
+        }
+
+        private void operator(final String op) {
+            if (this.depth > 0) {
+                if (this.showOps.contains(op)) this.procShows = true;
+                if (this.defOps.contains(op)) this.procHasDef = true;
+                else if (!NEUTRAL_OPERATORS.contains(op)) this.procOnlyDef = false;
+                return;
             }
-            stdOut.close();
-            while ((procOutputLine = stdErr.readLine()) != null) {
-                procErr.append(procOutputLine);
+            if (this.showOps.contains(op)) {
+                if (op.equals("glyphshow")) {
+                    if (this.lastLiteral != null) append(this.lastLiteral.length() == 1 ? this.lastLiteral : this.lastLiteral.equals("space") ? " " : "");
+                } else if (this.pending != null) {
+                    append(this.pending);
+                }
+                this.pending = null;
+                this.lastLiteral = null;
+                this.previousLiteral = null;
+                return;
             }
-            stdErr.close();
-            execCode = ps2asciiProc.waitFor();
-    	} catch (final Exception e) {
-            final String errorMsg = "Unable to convert ps to ascii. " + e.getMessage();
-            Logger.error(errorMsg);
-            throw new Exception(errorMsg);
-    	}
-
-    	if (execCode != 0) throw new Exception("Unable to convert ps to ascii. ps2ascii returned statuscode " + execCode + "\n" + procErr.toString());
-    }
-
-    @Override
-    public Document[] parse(
-            final MultiProtocolURL location,
-            final String mimeType,
-            final String charset,
-            final VocabularyScraper scraper,
-            final int timezoneOffset,
-            final InputStream source)
-            throws Parser.Failure, InterruptedException {
-
-        File tempFile = null;
-        try {
-            // creating a tempfile
-            tempFile = FileUtils.createTempFile(this.getClass(), "temp.ps");
+            if (NEUTRAL_OPERATORS.contains(op)) return; // i.e. bind between a procedure and def
+            if (this.defOps.contains(op)) {
+                if (this.closedProc != null) {
+                    if (this.closedShows) this.showOps.add(this.closedProc);
+                    if (this.closedDefines) this.defOps.add(this.closedProc);
+                } else if (this.loadedShow != null) {
+                    this.showOps.add(this.loadedShow);
+                }
+            } else if (op.equals("load") && this.previousLiteral != null && this.lastLiteral != null && this.showOps.contains(this.lastLiteral)) {
+                this.loadedShow = this.previousLiteral;
+                return;
+            } else if (op.equals("showpage")) {
+                if (this.text.length() > 0 && this.text.charAt(this.text.length() - 1) != '\n') this.text.append('\n');
+            }
+            this.pending = null;
+            this.lastLiteral = null;
+            this.previousLiteral = null;
+            this.closedProc = null;
+            this.loadedShow = null;
+            this.separate = true;
+        }
 
-            // copying inputstream into file
-            FileUtils.copy(source,tempFile);
+        private void append(final String s) {
+            if (s.isEmpty()) return;
+            final int l = this.text.length();
+            if (this.separate && l > 0 && !Character.isWhitespace(this.text.charAt(l - 1)) && !Character.isWhitespace(s.charAt(0))) this.text.append(' ');
+            this.separate = false;
+            this.text.append(s);
+        }
+    }
 
-            // parsing the file
-            return parse(location,mimeType,charset,tempFile);
-        } catch (final Exception e) {
-            if (e instanceof InterruptedException) throw (InterruptedException) e;
-            if (e instanceof Parser.Failure) throw (Parser.Failure) e;
+    private static int indexOf(final byte[] b, final String s, final int start, final int end) {
+        final int first = s.charAt(0);
+        loop: for (int i = start; i + s.length() <= end; i++) {
+            if (b[i] != first) continue;
+            for (int j = 1; j < s.length(); j++) if (b[i + j] != s.charAt(j)) continue loop;
+            return i;
+        }
+        return -1;
+    }
 
-            throw new Parser.Failure("Unable to parse the ps file. " + e.getMessage(), location);
-        } finally {
-            if (tempFile != null) FileUtils.deletedelete(tempFile);
+    /**
+     * extract the text of PostScript files and compare the time with a ps2ascii conversion
+     * @param args a list of PostScript files
+     */
+    public static void main(final String[] args) {
+        for (final String a: args) {
+            try {
+                final byte[] b = FileUtils.read(new File(a));
+                long t = System.nanoTime();
+                final String text = extractText(b, b.length);
+                final long java = (System.nanoTime() - t) / 1000;
+                System.out.println(a + ": " + text.length() + " characters in " + java + " microseconds, readable: " + readable(text));
+                System.out.println(text.length() > 400 ? text.substring(0, 400) : text);
+                final Semaphore slots = ps2asciiSlots();
+                if (slots != null) {
+                    t = System.nanoTime();
+                    final String converted = parseUsingPS2ascii(b, slots);
+                    final long ps2ascii = (System.nanoTime() - t) / 1000;
+                    System.out.println("ps2ascii: " + (converted == null ? "failed" : converted.length() + " characters") + " in " + ps2ascii + " microseconds");
+                }
+            } catch (final IOException | InterruptedException e) {
+                System.out.println(a + ": " + e.getMessage());
+            }
         }
     }
 
@@ -28,10 +28,8 @@ package net.yacy.document.parser;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Set;
 
 import net.yacy.cora.document.feed.Hit;
@@ -40,6 +38,7 @@ import net.yacy.cora.document.feed.RSSReader;
 import net.yacy.grid.tools.MultiProtocolURL;
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
+import net.yacy.document.DocumentSink;
 import net.yacy.document.Parser;
 import net.yacy.document.TextParser;
 import net.yacy.document.VocabularyScraper;
@@ -67,20 +66,38 @@ public class rssParser extends AbstractParser implements Parser {
             final int timezoneOffset,
             final InputStream source)
             throws Failure, InterruptedException {
+        final DocumentSink.Collector collector = new DocumentSink.Collector();
+        parse(location, mimeType, charset, scraper, timezoneOffset, source, collector);
+        return collector.documents();
+    }
+
+    /**
+     * each feed item is given to the sink as soon as its document is created
+     */
+    @Override
+    public void parse(
+            final MultiProtocolURL location,
+            final String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            final InputStream source,
+            final DocumentSink sink)
+            throws Failure, InterruptedException {
         RSSReader rssReader;
         try {
             rssReader = new RSSReader(RSSFeed.DEFAULT_MAXSIZE, source);
         } catch (final IOException e) {
-            throw new Parser.Failure("Load error:" + e.getMessage(), location, e);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Load error:" + e.getMessage(), location, e);
         }
 
         final RSSFeed feed = rssReader.getFeed();
         //RSSMessage channel = feed.getChannel();
-        final List<Document> docs = new ArrayList<Document>();
         MultiProtocolURL itemuri;
         Set<String> languages;
         Document doc;
         for (final Hit item: feed) try {
+            if (sink.isCancelled()) break;
             itemuri = new MultiProtocolURL(item.getLink());
             languages = new HashSet<String>();
             languages.add(item.getLanguage());
@@ -104,14 +121,10 @@ public class rssParser extends AbstractParser implements Parser {
                     new LinkedHashMap<MultiProtocolURL, ImageEntry>(),
                     false,
                     item.getPubDate());
-            docs.add(doc);
+            if (!sink.put(doc)) break;
         } catch (final MalformedURLException e) {
             continue;
             }
-
-        final Document[] da = new Document[docs.size()];
-        docs.toArray(da);
-        return da;
     }
 
 }
@@ -97,7 +97,7 @@ public class rtfParser extends AbstractParser implements Parser {
             if (e instanceof InterruptedException) throw (InterruptedException) e;
             if (e instanceof Parser.Failure) throw (Parser.Failure) e;
 
-            throw new Parser.Failure("Unexpected error while parsing rtf resource." + e.getMessage(),location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unexpected error while parsing rtf resource." + e.getMessage(),location);
         }
     }
 
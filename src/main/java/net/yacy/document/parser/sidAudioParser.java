@@ -82,7 +82,7 @@ public class sidAudioParser extends AbstractParser implements Parser {
                         header = parseHeader(b);
                         break;
                     default:
-                        throw new Parser.Failure("Unable to parse SID file, unexpected version: " + version, location);
+                        throw new Parser.Failure(Parser.Failure.Reason.unsupported, "Unable to parse SID file, unexpected version: " + version, location);
                 }
 
                 return new Document[]{new Document(
@@ -105,9 +105,9 @@ public class sidAudioParser extends AbstractParser implements Parser {
                         false,
                         new Date())};
             }
-            throw new Parser.Failure("Unable to parse SID file, file does seems to be incomplete (len = " + available + ").", location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unable to parse SID file, file does seems to be incomplete (len = " + available + ").", location);
         } catch (final IOException ex) {
-            throw new Parser.Failure("Unable to read SID file header.", location, ex);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unable to read SID file header.", location, ex);
         }
     }
 
@@ -38,6 +38,7 @@ import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
+import net.yacy.document.DocumentSink;
 import net.yacy.document.Parser;
 import net.yacy.document.TextParser;
 import net.yacy.document.VocabularyScraper;
@@ -71,7 +72,24 @@ public class tarParser extends AbstractParser implements Parser {
             final String charset,
             final VocabularyScraper scraper,
             final int timezoneOffset,
-            InputStream source) throws Parser.Failure, InterruptedException {
+            final InputStream source) throws Parser.Failure, InterruptedException {
+        final DocumentSink.Collector collector = new DocumentSink.Collector();
+        parse(location, mimeType, charset, scraper, timezoneOffset, source, collector);
+        return collector.documents();
+    }
+
+    /**
+     * the documents of the entries are added to the main document as soon as they are parsed
+     */
+    @Override
+    public void parse(
+            final MultiProtocolURL location,
+            final String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            InputStream source,
+            final DocumentSink sink) throws Parser.Failure, InterruptedException {
 
         final String filename = location.getFileName();
         final String ext = MultiProtocolURL.getFileExtension(filename);
@@ -79,7 +97,7 @@ public class tarParser extends AbstractParser implements Parser {
             try {
                 source = new GZIPInputStream(source);
             } catch (final IOException e) {
-                throw new Parser.Failure("tar parser: " + e.getMessage(), location);
+                throw new Parser.Failure(Parser.Failure.Reason.malformed, "tar parser: " + e.getMessage(), location);
             }
         }
         TarArchiveEntry entry;
@@ -105,8 +123,10 @@ public class tarParser extends AbstractParser implements Parser {
                     null,
                     false,
                     new Date());
+        final DocumentSink subDocuments = zipParser.subDocumentSink(maindoc, sink);
+
         // loop through the elements in the tar file and parse every single file inside
-        while (true) {
+        while (!sink.isCancelled()) {
             try {
                 File tmp = null;
                 entry = tis.getNextTarEntry();
@@ -118,11 +138,9 @@ public class tarParser extends AbstractParser implements Parser {
                 try {
                     tmp = FileUtils.createTempFile(this.getClass(), name);
                     FileUtils.copy(tis, tmp, entry.getSize());
-                    final Document[] subDocs = TextParser.parseSource(new AnchorURL(location, "#" + name), mime, null, scraper, timezoneOffset, 999, tmp);
-                    if (subDocs == null) continue;
-                    maindoc.addSubDocuments(subDocs);
+                    TextParser.parseSource(new AnchorURL(location, "#" + name), mime, null, scraper, timezoneOffset, 999, tmp, subDocuments);
                 } catch (final Parser.Failure e) {
-                    Logger.warn("tar parser entry " + name + ": " + e.getMessage());
+                    // the failure is counted in the TextParser statistics
                 } finally {
                     if (tmp != null) FileUtils.deletedelete(tmp);
                 }
@@ -131,7 +149,7 @@ public class tarParser extends AbstractParser implements Parser {
                 break;
             }
         }
-        return new Document[]{maindoc};
+        sink.put(maindoc);
     }
 
     public final static boolean isTar(File f) {
@@ -63,12 +63,12 @@ public class torrentParser extends AbstractParser implements Parser {
         try {
             b = FileUtils.read(source);
         } catch (final IOException e1) {
-            throw new Parser.Failure(e1.toString(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, e1.toString(), location);
         }
         final BDecoder bd = new BDecoder(b);
         final BObject bo = bd.parse();
-        if (bo == null) throw new Parser.Failure("BDecoder.parse returned null", location);
-        if (bo.getType() != BType.dictionary) throw new Parser.Failure("BDecoder object is not a dictionary", location);
+        if (bo == null) throw new Parser.Failure(Parser.Failure.Reason.malformed, "BDecoder.parse returned null", location);
+        if (bo.getType() != BType.dictionary) throw new Parser.Failure(Parser.Failure.Reason.malformed, "BDecoder object is not a dictionary", location);
         final Map<String, BObject> map = bo.getMap();
         final BObject commento = map.get("comment");
         final String comment = (commento == null) ? "" : UTF8.String(commento.getString());
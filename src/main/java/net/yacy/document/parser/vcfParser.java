@@ -252,7 +252,7 @@ public class vcfParser extends AbstractParser implements Parser {
             if (e instanceof InterruptedException) throw (InterruptedException) e;
             if (e instanceof Parser.Failure) throw (Parser.Failure) e;
 
-            throw new Parser.Failure("Unexpected error while parsing vcf resource. " + e.getMessage(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, "Unexpected error while parsing vcf resource. " + e.getMessage(), location);
         }
     }
 
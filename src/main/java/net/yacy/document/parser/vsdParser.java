@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.hdgf.extractor.VisioTextExtractor;
 import org.apache.poi.hpsf.SummaryInformation;
 
@@ -136,7 +137,7 @@ public class vsdParser extends AbstractParser implements Parser {
             // if an unexpected error occures just log the error and raise a new ParserException
             final String errorMsg = "Unable to parse the vsd document '" + location + "':" + e.getMessage();
             Logger.error(errorMsg);
-            throw new Parser.Failure(errorMsg, location);
+            throw new Parser.Failure(e instanceof EncryptedDocumentException ? Parser.Failure.Reason.unsupported : Parser.Failure.Reason.malformed, errorMsg, location);
         }
     }
 }
\ No newline at end of file
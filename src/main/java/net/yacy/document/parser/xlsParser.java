@@ -120,7 +120,7 @@ public class xlsParser extends AbstractParser implements Parser {
             return retdocs;
 
         } catch (IOException ex1) {
-            throw new Parser.Failure(ex1.getMessage(), location);
+            throw new Parser.Failure(Parser.Failure.Reason.malformed, ex1.getMessage(), location);
         }
     }
 }
@@ -55,7 +55,7 @@ public class ODContentHandler extends DefaultHandler {
 	}
 	@Override
 	public void endElement(final String uri, final String name, final String tag) {
-	    if ("text:p".equals(tag) || "table:table-row".equals(tag) || "w:p".equals(tag)) {
+	    if ("text:p".equals(tag) || "table:table-row".equals(tag) || "w:p".equals(tag) || "a:p".equals(tag) || "row".equals(tag)) {
 		// add newlines after paragraphs
 		try {
 		    this.out.append("\n");
@@ -33,6 +33,7 @@ import java.util.zip.ZipInputStream;
 
 import net.yacy.document.AbstractParser;
 import net.yacy.document.Document;
+import net.yacy.document.DocumentSink;
 import net.yacy.document.Parser;
 import net.yacy.document.TextParser;
 import net.yacy.document.VocabularyScraper;
@@ -72,6 +73,24 @@ public class zipParser extends AbstractParser implements Parser {
             final int timezoneOffset,
             final InputStream source)
             throws Parser.Failure, InterruptedException {
+        final DocumentSink.Collector collector = new DocumentSink.Collector();
+        parse(location, mimeType, charset, scraper, timezoneOffset, source, collector);
+        return collector.documents();
+    }
+
+    /**
+     * the documents of the entries are added to the main document as soon as they are parsed
+     */
+    @Override
+    public void parse(
+            final MultiProtocolURL location,
+            final String mimeType,
+            final String charset,
+            final VocabularyScraper scraper,
+            final int timezoneOffset,
+            final InputStream source,
+            final DocumentSink sink)
+            throws Parser.Failure, InterruptedException {
 
         ZipEntry entry;
         final ZipInputStream zis = new ZipInputStream(source);
@@ -97,8 +116,10 @@ public class zipParser extends AbstractParser implements Parser {
                 false,
                 new Date());
 
+        final DocumentSink subDocuments = subDocumentSink(maindoc, sink);
+
         // loop through the elements in the zip file and parse every single file inside
-        while (true) {
+        while (!sink.isCancelled()) {
             try {
                 File tmp = null;
                 if (zis.available() <= 0) break;
@@ -113,11 +134,9 @@ public class zipParser extends AbstractParser implements Parser {
                     FileUtils.copy(zis, tmp, entry.getSize());
                     final MultiProtocolURL virtualURL = new MultiProtocolURL(location, "#" + name);
                     //this.log.logInfo("ZIP file parser: " + virtualURL.toNormalform(false, false));
-                    final Document[] docs = TextParser.parseSource(virtualURL, mime, null, scraper, timezoneOffset, 999, tmp);
-                    if (docs == null) continue;
-                    maindoc.addSubDocuments(docs);
+                    TextParser.parseSource(virtualURL, mime, null, scraper, timezoneOffset, 999, tmp, subDocuments);
                 } catch (final Parser.Failure e) {
-                    Logger.warn("ZIP parser entry " + name + ": " + e.getMessage());
+                    // the failure is counted in the TextParser statistics
                 } finally {
                     if (tmp != null) FileUtils.deletedelete(tmp);
                 }
@@ -126,6 +145,33 @@ public class zipParser extends AbstractParser implements Parser {
                 break;
             }
         }
-        return new Document[]{maindoc};
+        sink.put(maindoc);
+    }
+
+    /**
+     * @return a sink which adds the documents to the main document of an archive
+     */
+    public static DocumentSink subDocumentSink(final Document maindoc, final DocumentSink sink) {
+        return new DocumentSink() {
+            @Override
+            public boolean put(final Document document) {
+                try {
+                    maindoc.addSubDocuments(new Document[]{document});
+                } catch (final IOException e) {
+                    Logger.warn("cannot add document " + document.dc_source() + ": " + e.getMessage());
+                }
+                return !sink.isCancelled();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return sink.isCancelled();
+            }
+
+            @Override
+            public boolean nonCanonicalLightPath() {
+                return sink.nonCanonicalLightPath();
+            }
+        };
     }
 }
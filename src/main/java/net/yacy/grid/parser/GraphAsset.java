@@ -0,0 +1,521 @@
+/**
+ *  GraphAsset
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import net.yacy.grid.io.index.WebMapping;
+import net.yacy.grid.tools.Digest;
+import net.yacy.grid.tools.JSONList;
+
+/**
+ * A compact format for the link graph asset. The json list graph asset repeats the urls and anchor texts of the
+ * navigation of a host in every document; the compact format stores each url, host, text and field name only once.
+ * A string is defined where it appears first and referenced by its number afterwards: a reference is a varint,
+ * 0 means that a new string follows which gets the next number, n means the string number n - 1.
+ * A url is defined by a reference to its host, the protocol and authority part of the url, and the remaining
+ * string. The link lists of a document are lists of url references, the adjacency list of the document node.
+ *
+ * The stream starts with the magic bytes 'YGG' and a version byte, followed by one record for each document:
+ * the number of fields, and for each field the field name reference, a type byte and the value. The dictionaries
+ * are built while the stream is written and read, so the stream can be written and read in one pass. A compact
+ * graph asset may be gzipped; the reader detects that.
+ */
+public class GraphAsset {
+
+    public static final String FORMAT_JSONLIST = "jsonlist";
+    public static final String FORMAT_COMPACT = "compact";
+
+    private static final byte[] MAGIC = new byte[]{'Y', 'G', 'G'};
+    private static final byte VERSION = 1;
+
+    // value types
+    private static final int TEXT = 0, URL = 1, INT = 2, TEXT_ARRAY = 3, URL_ARRAY = 4, INT_ARRAY = 5, JSON = 6;
+
+    // the fields which contain urls; all other string fields are texts
+    private static final Set<String> URL_FIELDS = new HashSet<>();
+    static {
+        for (final WebMapping mapping: new WebMapping[]{
+                WebMapping.url_s, WebMapping.canonical_s,
+                WebMapping.inboundlinks_sxt, WebMapping.outboundlinks_sxt,
+                WebMapping.images_sxt, WebMapping.frames_sxt, WebMapping.iframes_sxt}) {
+            URL_FIELDS.add(mapping.getMapping().name());
+        }
+    }
+
+    /**
+     * @param b the first bytes of an asset
+     * @return true if the asset is a compact graph asset, possibly gzipped
+     */
+    public static boolean isCompact(final byte[] b) {
+        if (b == null || b.length < 2) return false;
+        if ((b[0] & 0xff) == 0x1f && (b[1] & 0xff) == 0x8b) {
+            try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(b))) {
+                final byte[] m = new byte[MAGIC.length];
+                int n = 0, r;
+                while (n < m.length && (r = is.read(m, n, m.length - n)) > 0) n += r;
+                return n == m.length && startsWithMagic(m);
+            } catch (final IOException e) {
+                return false;
+            }
+        }
+        return startsWithMagic(b);
+    }
+
+    private static boolean startsWithMagic(final byte[] b) {
+        if (b.length < MAGIC.length) return false;
+        for (int i = 0; i < MAGIC.length; i++) if (b[i] != MAGIC[i]) return false;
+        return true;
+    }
+
+    /**
+     * write graph documents in the compact format
+     */
+    public static class Writer implements Closeable {
+
+        private final OutputStream os;
+        private final Map<String, Integer> fields = new HashMap<>(), hosts = new HashMap<>(), urls = new HashMap<>(), texts = new HashMap<>();
+        private long documents = 0;
+
+        /**
+         * @param os the target stream; it is closed when the writer is closed
+         * @throws IOException
+         */
+        public Writer(final OutputStream os) throws IOException {
+            this.os = new BufferedOutputStream(os, 65536);
+            this.os.write(MAGIC);
+            this.os.write(VERSION);
+        }
+
+        /**
+         * write a graph document as produced by ParserService.extractGraph
+         * @param graph the graph document
+         * @throws IOException
+         */
+        public void write(final JSONObject graph) throws IOException {
+            final Set<String> keys = graph.keySet();
+            writeVarint(this.os, keys.size());
+            for (final String key: keys) {
+                writeRef(this.fields, key);
+                final Object value = graph.get(key);
+                final boolean url = URL_FIELDS.contains(key);
+                if (value instanceof String) {
+                    this.os.write(url ? URL : TEXT);
+                    if (url) writeURL((String) value); else writeRef(this.texts, (String) value);
+                } else if (value instanceof Integer || value instanceof Long) {
+                    this.os.write(INT);
+                    writeVarint(this.os, zigzag(((Number) value).longValue()));
+                } else if (value instanceof JSONArray && isStringArray((JSONArray) value)) {
+                    final JSONArray a = (JSONArray) value;
+                    this.os.write(url ? URL_ARRAY : TEXT_ARRAY);
+                    writeVarint(this.os, a.length());
+                    for (int i = 0; i < a.length(); i++) {
+                        if (url) writeURL(a.getString(i)); else writeRef(this.texts, a.getString(i));
+                    }
+                } else if (value instanceof JSONArray && isIntArray((JSONArray) value)) {
+                    final JSONArray a = (JSONArray) value;
+                    this.os.write(INT_ARRAY);
+                    writeVarint(this.os, a.length());
+                    for (int i = 0; i < a.length(); i++) writeVarint(this.os, zigzag(((Number) a.get(i)).longValue()));
+                } else {
+                    this.os.write(JSON);
+                    writeRef(this.texts, value instanceof JSONObject || value instanceof JSONArray ? value.toString() : JSONObject.valueToString(value));
+                }
+            }
+            this.documents++;
+        }
+
+        private static boolean isStringArray(final JSONArray a) {
+            for (int i = 0; i < a.length(); i++) if (!(a.get(i) instanceof String)) return false;
+            return true;
+        }
+
+        private static boolean isIntArray(final JSONArray a) {
+            for (int i = 0; i < a.length(); i++) {
+                final Object o = a.get(i);
+                if (!(o instanceof Integer || o instanceof Long)) return false;
+            }
+            return true;
+        }
+
+        private void writeURL(final String url) throws IOException {
+            final Integer id = this.urls.get(url);
+            if (id != null) {
+                writeVarint(this.os, id.intValue() + 1);
+                return;
+            }
+            writeVarint(this.os, 0);
+            this.urls.put(url, this.urls.size());
+            final int split = hostEnd(url);
+            writeRef(this.hosts, url.substring(0, split));
+            writeString(this.os, url.substring(split));
+        }
+
+        private void writeRef(final Map<String, Integer> dictionary, final String s) throws IOException {
+            final Integer id = dictionary.get(s);
+            if (id != null) {
+                writeVarint(this.os, id.intValue() + 1);
+                return;
+            }
+            writeVarint(this.os, 0);
+            dictionary.put(s, dictionary.size());
+            writeString(this.os, s);
+        }
+
+        /**
+         * @return the number of written documents
+         */
+        public long documents() {
+            return this.documents;
+        }
+
+        /**
+         * @return the number of different urls
+         */
+        public int urls() {
+            return this.urls.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.os.close();
+        }
+    }
+
+    /**
+     * read the graph documents of a compact graph asset one by one
+     */
+    public static class Reader implements Iterator<JSONObject>, Closeable {
+
+        private final InputStream is;
+        private final List<String> fields = new ArrayList<>(), hosts = new ArrayList<>(), urls = new ArrayList<>(), texts = new ArrayList<>();
+        private JSONObject next;
+
+        /**
+         * @param is a compact graph asset, possibly gzipped; the stream is closed when the reader is closed
+         * @throws IOException if the stream is not a compact graph asset
+         */
+        public Reader(final InputStream is) throws IOException {
+            final PushbackInputStream pis = new PushbackInputStream(is, 2);
+            final int b0 = pis.read(), b1 = pis.read();
+            if (b1 >= 0) pis.unread(b1);
+            if (b0 >= 0) pis.unread(b0);
+            this.is = new BufferedInputStream(b0 == 0x1f && b1 == 0x8b ? new GZIPInputStream(pis, 65536) : pis, 65536);
+            for (final byte m: MAGIC) if (this.is.read() != m) throw new IOException("not a compact graph asset");
+            final int version = this.is.read();
+            if (version != VERSION) throw new IOException("unknown compact graph asset version " + version);
+            this.next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (this.next != null) return true;
+            try {
+                this.next = read();
+            } catch (final IOException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+            return this.next != null;
+        }
+
+        @Override
+        public JSONObject next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            final JSONObject graph = this.next;
+            this.next = null;
+            return graph;
+        }
+
+        /**
+         * @return the next graph document or null at the end of the stream
+         * @throws IOException if the stream is truncated or corrupt
+         */
+        public JSONObject read() throws IOException {
+            final int first = this.is.read();
+            if (first < 0) return null;
+            final int count = (int) readVarint(this.is, first);
+            final JSONObject graph = new JSONObject(true);
+            for (int f = 0; f < count; f++) {
+                final String key = readRef(this.fields);
+                final int type = this.is.read();
+                switch (type) {
+                    case TEXT: graph.put(key, readRef(this.texts)); break;
+                    case URL: graph.put(key, readURL()); break;
+                    case INT: graph.put(key, number(unzigzag(readVarint(this.is, this.is.read())))); break;
+                    case TEXT_ARRAY:
+                    case URL_ARRAY: {
+                        final int n = (int) readVarint(this.is, this.is.read());
+                        final JSONArray a = new JSONArray();
+                        for (int i = 0; i < n; i++) a.put(type == URL_ARRAY ? readURL() : readRef(this.texts));
+                        graph.put(key, a);
+                        break;
+                    }
+                    case INT_ARRAY: {
+                        final int n = (int) readVarint(this.is, this.is.read());
+                        final JSONArray a = new JSONArray();
+                        for (int i = 0; i < n; i++) a.put(number(unzigzag(readVarint(this.is, this.is.read()))));
+                        graph.put(key, a);
+                        break;
+                    }
+                    case JSON: graph.put(key, new JSONTokener(readRef(this.texts)).nextValue()); break;
+                    default: throw new IOException("unknown value type " + type + " of field " + key);
+                }
+            }
+            return graph;
+        }
+
+        private String readURL() throws IOException {
+            final long ref = readVarint(this.is, this.is.read());
+            if (ref > 0) return this.urls.get((int) (ref - 1));
+            final String url = readRef(this.hosts) + readString(this.is);
+            this.urls.add(url);
+            return url;
+        }
+
+        private String readRef(final List<String> dictionary) throws IOException {
+            final long ref = readVarint(this.is, this.is.read());
+            if (ref > 0) return dictionary.get((int) (ref - 1));
+            final String s = readString(this.is);
+            dictionary.add(s);
+            return s;
+        }
+
+        private static Object number(final long l) {
+            return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE ? (Object) Integer.valueOf((int) l) : (Object) Long.valueOf(l);
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.is.close();
+        }
+    }
+
+    /**
+     * convert a compact graph asset into the json list graph asset, with an index line before each graph document
+     * @param is a compact graph asset, possibly gzipped
+     * @return the json list
+     * @throws IOException
+     */
+    public static JSONList toJSONList(final InputStream is) throws IOException {
+        final JSONList list = new JSONList();
+        try (Reader reader = new Reader(is)) {
+            JSONObject graph;
+            while ((graph = reader.read()) != null) {
+                final String url = graph.optString(WebMapping.url_s.getMapping().name());
+                list.add(new JSONObject().put("index", new JSONObject().put("_id", Digest.encodeMD5Hex(url))));
+                list.add(graph);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return the position after the authority part of the url, or 0 if the url has no protocol
+     */
+    private static int hostEnd(final String url) {
+        final int p = url.indexOf("://");
+        if (p < 0) return 0;
+        final int q = url.indexOf('/', p + 3);
+        return q < 0 ? url.length() : q;
+    }
+
+    private static long zigzag(final long l) {
+        return (l << 1) ^ (l >> 63);
+    }
+
+    private static long unzigzag(final long l) {
+        return (l >>> 1) ^ -(l & 1);
+    }
+
+    private static void writeVarint(final OutputStream os, long v) throws IOException {
+        while ((v & ~0x7fL) != 0) {
+            os.write((int) ((v & 0x7f) | 0x80));
+            v >>>= 7;
+        }
+        os.write((int) v);
+    }
+
+    /**
+     * @param first the first byte of the varint, already read from the stream
+     */
+    private static long readVarint(final InputStream is, int first) throws IOException {
+        long v = 0;
+        int shift = 0;
+        int b = first;
+        while (true) {
+            if (b < 0) throw new EOFException("truncated compact graph asset");
+            v |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) return v;
+            shift += 7;
+            if (shift > 63) throw new IOException("corrupt varint in compact graph asset");
+            b = is.read();
+        }
+    }
+
+    private static void writeString(final OutputStream os, final String s) throws IOException {
+        final byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(os, b.length);
+        os.write(b);
+    }
+
+    private static String readString(final InputStream is) throws IOException {
+        final int length = (int) readVarint(is, is.read());
+        final byte[] b = new byte[length];
+        int n = 0, r;
+        while (n < length && (r = is.read(b, n, length - n)) > 0) n += r;
+        if (n < length) throw new EOFException("truncated compact graph asset");
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * compare the size and the throughput of the json list and the compact format.
+     * The graph documents are read from a json list graph asset given as argument,
+     * or are generated: hosts with a common navigation, some outbound links and images.
+     */
+    public static void main(final String[] args) throws IOException {
+        final List<JSONObject> graphs = new ArrayList<>();
+        if (args.length > 0) {
+            final File f = new File(args[0]);
+            try (InputStream is = f.getName().endsWith(".gz") ? new GZIPInputStream(new FileInputStream(f)) : new FileInputStream(f)) {
+                final String[] lines = new String(readAll(is), StandardCharsets.UTF_8).split("\n");
+                for (final String line: lines) {
+                    if (line.length() == 0) continue;
+                    final JSONObject json = new JSONObject(new JSONTokener(line));
+                    if (!json.has("index")) graphs.add(json);
+                }
+            }
+        } else {
+            final Random random = new Random(1);
+            for (int h = 0; h < 20; h++) {
+                final String host = "https://www.host" + h + ".example.com";
+                final List<String> navigation = new ArrayList<>(), navigationText = new ArrayList<>();
+                for (int n = 0; n < 60; n++) {navigation.add(host + "/section" + n + "/index.html"); navigationText.add("Section " + n);}
+                for (int p = 0; p < 50; p++) {
+                    final JSONObject graph = new JSONObject(true);
+                    graph.put(WebMapping.url_s.getMapping().name(), host + "/section" + random.nextInt(60) + "/page" + p + ".html");
+                    graph.put(WebMapping.url_protocol_s.getMapping().name(), "https");
+                    graph.put(WebMapping.url_file_name_s.getMapping().name(), "page" + p);
+                    graph.put(WebMapping.url_file_ext_s.getMapping().name(), "html");
+                    final JSONArray in = new JSONArray(navigation), inText = new JSONArray(navigationText);
+                    for (int l = 0; l < 20; l++) {in.put(host + "/section" + random.nextInt(60) + "/page" + random.nextInt(50) + ".html"); inText.put("Article " + random.nextInt(1000));}
+                    final JSONArray out = new JSONArray(), outText = new JSONArray();
+                    for (int l = 0; l < 10; l++) {out.put("https://other" + random.nextInt(100) + ".example.org/ref" + random.nextInt(100)); outText.put("reference " + random.nextInt(100));}
+                    final JSONArray images = new JSONArray(), heights = new JSONArray();
+                    for (int i = 0; i < 5; i++) {images.put(host + "/images/img" + random.nextInt(30) + ".jpg"); heights.put(random.nextInt(600));}
+                    graph.put(WebMapping.inboundlinkscount_i.getMapping().name(), in.length());
+                    graph.put(WebMapping.inboundlinks_sxt.getMapping().name(), in);
+                    graph.put(WebMapping.inboundlinks_anchortext_txt.getMapping().name(), inText);
+                    graph.put(WebMapping.outboundlinkscount_i.getMapping().name(), out.length());
+                    graph.put(WebMapping.outboundlinks_sxt.getMapping().name(), out);
+                    graph.put(WebMapping.outboundlinks_anchortext_txt.getMapping().name(), outText);
+                    graph.put(WebMapping.imagescount_i.getMapping().name(), images.length());
+                    graph.put(WebMapping.images_sxt.getMapping().name(), images);
+                    graph.put(WebMapping.images_height_val.getMapping().name(), heights);
+                    graphs.add(graph);
+                }
+            }
+        }
+
+        for (int round = 0; round < 3; round++) {
+            // json list
+            long start = System.currentTimeMillis();
+            final StringBuilder sb = new StringBuilder();
+            for (final JSONObject graph: graphs) {
+                final String url = graph.optString(WebMapping.url_s.getMapping().name());
+                sb.append(new JSONObject().put("index", new JSONObject().put("_id", Digest.encodeMD5Hex(url))).toString()).append('\n');
+                sb.append(graph.toString()).append('\n');
+            }
+            final byte[] jsonlist = sb.toString().getBytes(StandardCharsets.UTF_8);
+            final long jsonWrite = System.currentTimeMillis() - start;
+            start = System.currentTimeMillis();
+            int jsonCount = 0;
+            for (final String line: new String(jsonlist, StandardCharsets.UTF_8).split("\n")) {
+                final JSONObject json = new JSONObject(new JSONTokener(line));
+                if (!json.has("index")) jsonCount++;
+            }
+            final long jsonRead = System.currentTimeMillis() - start;
+
+            // compact
+            start = System.currentTimeMillis();
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (Writer writer = new Writer(baos)) {
+                for (final JSONObject graph: graphs) writer.write(graph);
+            }
+            final byte[] compact = baos.toByteArray();
+            final long compactWrite = System.currentTimeMillis() - start;
+            start = System.currentTimeMillis();
+            final List<JSONObject> read = new ArrayList<>(graphs.size());
+            try (Reader reader = new Reader(new ByteArrayInputStream(compact))) {
+                JSONObject graph;
+                while ((graph = reader.read()) != null) read.add(graph);
+            }
+            final long compactRead = System.currentTimeMillis() - start;
+            final int compactCount = read.size();
+            int equal = 0;
+            for (int i = 0; i < compactCount && i < graphs.size(); i++) if (read.get(i).similar(graphs.get(i))) equal++;
+
+            System.out.println(graphs.size() + " graph documents; json list: " + jsonlist.length + " bytes, " + gzip(jsonlist).length + " gzipped, write " + jsonWrite + " ms, read " + jsonRead + " ms (" + jsonCount + ")" +
+                    "; compact: " + compact.length + " bytes, " + gzip(compact).length + " gzipped, write " + compactWrite + " ms, read " + compactRead + " ms (" + compactCount + ", " + equal + " equal)");
+        }
+    }
+
+    private static byte[] gzip(final byte[] b) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OutputStream os = new GZIPOutputStream(baos)) {
+            os.write(b);
+        }
+        return baos.toByteArray();
+    }
+
+    private static byte[] readAll(final InputStream is) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final byte[] b = new byte[65536];
+        int r;
+        while ((r = is.read(b)) > 0) baos.write(b, 0, r);
+        return baos.toByteArray();
+    }
+}
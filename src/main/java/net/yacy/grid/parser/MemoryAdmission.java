@@ -0,0 +1,224 @@
+/**
+ *  MemoryAdmission
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import net.yacy.document.TemplateDetector;
+import net.yacy.document.parser.pdfParser;
+import net.yacy.grid.tools.Memory;
+
+/**
+ * Admission control for parser jobs. Every job reserves its estimated memory need against a heap budget
+ * before it is processed; a job which does not fit into the budget waits until other jobs release their
+ * reservations. While the memory status is short, no new job is admitted unless no other job is running.
+ * The estimation is computed from the asset size, the compression ratio and the mix of mime types in a
+ * sample of the asset, together with the template detector of the job for the number of records in the asset.
+ */
+public class MemoryAdmission {
+
+    /** share of the maximum heap which can be reserved by parser jobs */
+    public static double HEAP_SHARE = 0.6d;
+
+    /** maximum time in milliseconds a job waits for its reservation; after that time it is rejected */
+    public static long WAIT = 10000;
+
+    /** number of (decompressed) bytes of an asset which are inspected for the estimation */
+    public static int SAMPLE_SIZE = 1024 * 1024;
+
+    // heap bytes per content byte while a document is parsed and its index and graph documents are created;
+    // these are rough values from heap measurements, the pdf and office parsers hold the whole document model
+    private static final double EXPANSION_TEXT = 6.0d;
+    private static final double EXPANSION_PDF = 12.0d;
+    private static final double EXPANSION_PDF_RANGE = 10.0d; // each further load of a pdf document for a page range
+    private static final double EXPANSION_OFFICE = 10.0d;
+    private static final double EXPANSION_MEDIA = 1.0d;
+    private static final double EXPANSION_OTHER = 4.0d;
+
+    private static final Object lock = new Object();
+    private static long reserved = 0, peak = 0;
+    private static int active = 0;
+    private static final AtomicLong admitted = new AtomicLong(0), delayed = new AtomicLong(0), rejected = new AtomicLong(0), reservedTotal = new AtomicLong(0);
+
+    /**
+     * a reservation of memory which must be released when the job is finished
+     */
+    public static class Reservation {
+        private final long bytes;
+        private boolean released = false;
+
+        private Reservation(final long bytes) {
+            this.bytes = bytes;
+        }
+
+        public long getBytes() {
+            return this.bytes;
+        }
+
+        public void release() {
+            synchronized (lock) {
+                if (this.released) return;
+                this.released = true;
+                reserved -= this.bytes;
+                active--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes which can be reserved
+     */
+    public static long budget() {
+        return (long) (Runtime.getRuntime().maxMemory() * HEAP_SHARE);
+    }
+
+    /**
+     * reserve memory for a job
+     * @param bytes the estimated memory need; a need larger than the budget is reduced to the budget,
+     * such a job is admitted when no other job is running
+     * @param timeout the maximum time in milliseconds to wait for the reservation
+     * @return the reservation or null if the memory could not be reserved within the timeout
+     * @throws InterruptedException
+     */
+    public static Reservation reserve(long bytes, final long timeout) throws InterruptedException {
+        final long budget = budget();
+        if (bytes > budget) bytes = budget;
+        final long deadline = System.currentTimeMillis() + timeout;
+        boolean waited = false;
+        synchronized (lock) {
+            while (active > 0 && (reserved + bytes > budget || Memory.shortStatus())) {
+                final long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    rejected.incrementAndGet();
+                    return null;
+                }
+                waited = true;
+                lock.wait(Math.min(wait, 1000)); // the memory status may change without a release
+            }
+            reserved += bytes;
+            active++;
+            if (reserved > peak) peak = reserved;
+        }
+        admitted.incrementAndGet();
+        if (waited) delayed.incrementAndGet();
+        reservedTotal.addAndGet(bytes);
+        return new Reservation(bytes);
+    }
+
+    /**
+     * estimate the memory need for parsing an asset
+     * @param source the asset content
+     * @param gzip true if the asset is gzipped
+     * @return the estimated number of heap bytes, including the asset itself and the template detector of the job
+     */
+    public static long estimate(final byte[] source, final boolean gzip) {
+        byte[] sample = new byte[(int) Math.min(SAMPLE_SIZE, gzip ? Integer.MAX_VALUE : source.length)];
+        int sampleLength = 0;
+        long uncompressed = source.length;
+        if (gzip) {
+            final ByteArrayInputStream bis = new ByteArrayInputStream(source);
+            try (GZIPInputStream gis = new GZIPInputStream(bis)) {
+                int n;
+                while (sampleLength < sample.length && (n = gis.read(sample, sampleLength, sample.length - sampleLength)) > 0) sampleLength += n;
+                if (sampleLength < sample.length) {
+                    uncompressed = sampleLength; // the whole asset was decompressed
+                } else {
+                    final long consumed = source.length - bis.available();
+                    if (consumed > 0) uncompressed = (long) ((double) sampleLength / consumed * source.length);
+                }
+            } catch (final IOException e) {
+                // not gzipped: the sample is taken from the asset itself
+                sampleLength = Math.min(SAMPLE_SIZE, source.length);
+                sample = source;
+                uncompressed = source.length;
+            }
+        } else {
+            sampleLength = sample.length;
+            System.arraycopy(source, 0, sample, 0, sampleLength);
+        }
+        final String s = new String(sample, 0, sampleLength, StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+        final long records = sampleLength == 0 ? 0 : (long) Math.ceil((double) records(s) * uncompressed / sampleLength);
+        return source.length + (long) (uncompressed * expansion(s)) + TemplateDetector.memory(records);
+    }
+
+    /**
+     * count the response records of a warc file in a lower-case sample
+     */
+    private static int records(final String s) {
+        int count = 0;
+        int p = 0;
+        while ((p = s.indexOf("warc-type: response", p)) >= 0) {
+            p += 19;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * compute the mean expansion factor of the documents in a lower-case sample of a warc file from the content types of the records
+     */
+    private static double expansion(final String s) {
+        double sum = 0.0d;
+        int count = 0;
+        int p = 0;
+        while ((p = s.indexOf("content-type:", p)) >= 0) {
+            p += 13;
+            int e = s.indexOf('\n', p);
+            if (e < 0) e = s.length();
+            final String type = s.substring(p, e).trim();
+            p = e;
+            if (type.startsWith("application/http") || type.startsWith("application/warc")) continue; // warc record header
+            if (type.startsWith("text/") || type.contains("html") || type.contains("xml") || type.contains("json")) sum += EXPANSION_TEXT;
+            else if (type.contains("pdf")) sum += EXPANSION_PDF + pdfParser.PAGE_THREADS * EXPANSION_PDF_RANGE;
+            else if (type.contains("postscript")) sum += EXPANSION_PDF;
+            else if (type.contains("msword") || type.contains("ms-excel") || type.contains("ms-powerpoint") || type.contains("officedocument") || type.contains("opendocument")) sum += EXPANSION_OFFICE;
+            else if (type.startsWith("image/") || type.startsWith("audio/") || type.startsWith("video/")) sum += EXPANSION_MEDIA;
+            else sum += EXPANSION_OTHER;
+            count++;
+        }
+        return count == 0 ? EXPANSION_TEXT : sum / count;
+    }
+
+    /**
+     * @return the budget, the current and peak reservation and the number of admitted, delayed and rejected jobs
+     */
+    public static Map<String, Long> getStatistics() {
+        final Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("budget", budget());
+        synchronized (lock) {
+            stats.put("reserved", reserved);
+            stats.put("peak", peak);
+            stats.put("active", (long) active);
+        }
+        stats.put("admitted", admitted.get());
+        stats.put("delayed", delayed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("reservedTotal", reservedTotal.get());
+        return stats;
+    }
+}
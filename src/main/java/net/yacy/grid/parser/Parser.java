@@ -23,17 +23,26 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.Servlet;
 
+import net.yacy.cora.language.identification.LanguageIdentifier;
+import net.yacy.cora.protocol.TimeoutRequest;
 import net.yacy.document.LibraryProvider;
+import net.yacy.document.TemplateDetector;
+import net.yacy.document.parser.htmlParser;
+import net.yacy.document.parser.pdfParser;
+import net.yacy.document.parser.psParser;
 import net.yacy.grid.YaCyServices;
 import net.yacy.grid.mcp.BrokerListener;
 import net.yacy.grid.mcp.Configuration;
 import net.yacy.grid.mcp.MCP;
 import net.yacy.grid.mcp.Service;
+import net.yacy.grid.parser.api.AdmissionService;
 import net.yacy.grid.parser.api.JSONLDValidatorService;
 import net.yacy.grid.parser.api.ParserService;
+import net.yacy.grid.parser.api.ParserStatisticsService;
 import net.yacy.grid.tools.CronBox;
 import net.yacy.grid.tools.CronBox.Telemetry;
 import net.yacy.grid.tools.Logger;
@@ -42,16 +51,50 @@ public class Parser {
 
     private final static YaCyServices PARSER_SERVICE = YaCyServices.parser;
     private final static String DATA_PATH = "data";
-    private final static String LIBRARY_PATH = "conf/libraries/";
+    final static String LIBRARY_PATH = "conf/libraries/";
 
     // define services
     @SuppressWarnings("unchecked")
     public final static Class<? extends Servlet>[] PARSER_SERVICES = new Class[]{
             // information services
             ParserService.class,
-            JSONLDValidatorService.class
+            JSONLDValidatorService.class,
+            AdmissionService.class,
+            ParserStatisticsService.class
     };
 
+    /**
+     * set the parser options from the configuration; this is used by the parser application and by the command line ingest
+     * @param properties the configuration properties
+     */
+    public static void configure(final Map<String, String> properties) {
+        htmlParser.NONCANONICAL_LIGHT_PATH = properties.getOrDefault("parser.noncanonical.lightpath", "true").equals("true");
+        final String ldExtractors = properties.getOrDefault("parser.ld.extractors", "html-rdfa11,html-microdata,html-embedded-jsonld").trim();
+        htmlParser.LD_EXTRACTORS = ldExtractors.length() == 0 ? new String[0] : ldExtractors.split("\\s*,\\s*");
+        ParserService.LIBRARY_WAIT_TIMEOUT = Long.parseLong(properties.getOrDefault("parser.libraries.timeout", "60000"));
+        ParserService.AUTOTAGGING = properties.getOrDefault("parser.autotagging", "true").equals("true");
+        ParserService.LANGUAGE_IDENTIFICATION = properties.getOrDefault("parser.language.identification", "true").equals("true");
+        ParserService.LANGUAGE_THRESHOLD = Double.parseDouble(properties.getOrDefault("parser.language.threshold", "0.9"));
+        ParserService.LANGUAGE_OVERRIDE_RATIO = Double.parseDouble(properties.getOrDefault("parser.language.override", "1000"));
+        LanguageIdentifier.PREFIX_LENGTH = Integer.parseInt(properties.getOrDefault("parser.language.prefix", "4096"));
+        psParser.PS2ASCII = properties.getOrDefault("parser.ps.ps2ascii", "true").equals("true");
+        psParser.PS2ASCII_CONCURRENCY = Integer.parseInt(properties.getOrDefault("parser.ps.ps2ascii.concurrency", Integer.toString(psParser.PS2ASCII_CONCURRENCY)));
+        psParser.PS2ASCII_TIMEOUT = Long.parseLong(properties.getOrDefault("parser.ps.ps2ascii.timeout", "30000"));
+        pdfParser.MAX_PAGES = Integer.parseInt(properties.getOrDefault("parser.pdf.maxpages", "1000"));
+        pdfParser.PAGE_THREADS = Integer.parseInt(properties.getOrDefault("parser.pdf.threads", Integer.toString(pdfParser.PAGE_THREADS)));
+        pdfParser.EXTRACTION_TIMEOUT = Long.parseLong(properties.getOrDefault("parser.pdf.timeout", "10000"));
+        TemplateDetector.MIN_DOCUMENTS = Integer.parseInt(properties.getOrDefault("parser.boilerplate.mindocuments", "3"));
+        TemplateDetector.HOST_CAPACITY = Integer.parseInt(properties.getOrDefault("parser.boilerplate.hostcapacity", "4096"));
+        TemplateDetector.MAX_HOSTS = Integer.parseInt(properties.getOrDefault("parser.boilerplate.maxhosts", "1000"));
+        MemoryAdmission.HEAP_SHARE = Double.parseDouble(properties.getOrDefault("parser.admission.heapshare", "0.6"));
+        MemoryAdmission.WAIT = Long.parseLong(properties.getOrDefault("parser.admission.wait", "10000"));
+        WarcIngest.THREADS = Integer.parseInt(properties.getOrDefault("parser.ingest.threads", Integer.toString(WarcIngest.THREADS)));
+        WarcIngest.SEGMENT_SIZE = Long.parseLong(properties.getOrDefault("parser.ingest.segmentsize", "64")) * 1024L * 1024L;
+        TimeoutRequest.THREADS = Integer.parseInt(properties.getOrDefault("parser.timeout.threads", Integer.toString(TimeoutRequest.THREADS)));
+        TimeoutRequest.LOOKUP_THREADS = Integer.parseInt(properties.getOrDefault("parser.timeout.lookupthreads", Integer.toString(TimeoutRequest.LOOKUP_THREADS)));
+        TimeoutRequest.QUEUE_SIZE = Integer.parseInt(properties.getOrDefault("parser.timeout.queue", "4096"));
+    }
+
     public static class Application implements CronBox.Application {
 
         final Configuration config;
@@ -74,6 +117,9 @@ public class Parser {
             // connect backend
             this.config.connectBackend();
 
+            // parser options
+            configure(this.config.properties);
+
             // initiate broker application: listening to indexing requests at RabbitMQ
             this.brokerApplication = new ParserListener(this.config, PARSER_SERVICE);
 
@@ -122,12 +168,7 @@ public class Parser {
         System.getProperties().put("jdk.xml.entityExpansionLimit", "0");
 
         // Initialize Libraries
-        new Thread("LibraryProvider.initialize") {
-            @Override
-            public void run() {
-                LibraryProvider.initialize(new File(LIBRARY_PATH));
-            }
-        }.start();
+        LibraryProvider.initializeInBackground(new File(LIBRARY_PATH));
 
         // first greeting
         Logger.info("YaCy Grid Parser started!");
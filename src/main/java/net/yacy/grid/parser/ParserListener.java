@@ -20,13 +20,13 @@
 package net.yacy.grid.parser;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
-import java.util.Map;
-import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipException;
 
 import org.json.JSONArray;
@@ -34,6 +34,8 @@ import org.json.JSONObject;
 
 import ai.susi.mind.SusiAction;
 import ai.susi.mind.SusiThought;
+import net.yacy.cora.federate.index.CollectionMatcher;
+import net.yacy.cora.storage.ConcurrentARC;
 import net.yacy.document.parser.pdfParser;
 import net.yacy.grid.YaCyServices;
 import net.yacy.grid.io.assets.Asset;
@@ -46,6 +48,7 @@ import net.yacy.grid.mcp.BrokerListener;
 import net.yacy.grid.mcp.Configuration;
 import net.yacy.grid.mcp.Service;
 import net.yacy.grid.parser.api.ParserService;
+import net.yacy.grid.tools.ARC;
 import net.yacy.grid.tools.CronBox.Telemetry;
 import net.yacy.grid.tools.DateParser;
 import net.yacy.grid.tools.Digest;
@@ -68,6 +71,7 @@ import net.yacy.grid.tools.Memory;
 "sourceasset": "test3/yacy.net.warc.gz",
 "targetasset": "test3/yacy.net.text.jsonlist",
 "targetgraph": "test3/yacy.net.graph.jsonlist",
+"graphformat": "jsonlist",
 "actions": [
   {
   "type": "indexer",
@@ -84,9 +88,14 @@ import net.yacy.grid.tools.Memory;
 ]
 }]
 }
+ * The graph asset is a json list unless the action has the attribute "graphformat": "compact";
+ * then it is written in the dictionary-encoded GraphAsset format, gzipped if the asset name ends with ".gz".
  */
 public class ParserListener extends AbstractBrokerListener implements BrokerListener {
 
+    // compiled collection definitions, one for each crawl id; these are re-used for all messages of a crawl
+    private static final ARC<String, CollectionMatcher> collectionMatchers = new ConcurrentARC<>(1000, Runtime.getRuntime().availableProcessors());
+
     public ParserListener(final Configuration config, final YaCyServices service) {
          super(config, service, Runtime.getRuntime().availableProcessors());
     }
@@ -94,17 +103,13 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
     @Override
     public ActionResult processAction(final SusiAction action, final JSONArray data, final String processName, final int processNumber) {
 
-        // check short memory status
-        if (Memory.shortStatus()) {
-            pdfParser.clean_up_idiotic_PDFParser_font_cache_which_eats_up_tons_of_megabytes();
-        }
-
         final String sourceasset_path = action.getStringAttr("sourceasset");
         final String targetasset_path = action.getStringAttr("targetasset");
         final String targetgraph_path = action.getStringAttr("targetgraph");
         final boolean archivewarc = action.getBooleanAttr("archivewarc");
         final boolean archiveindex = action.getBooleanAttr("archiveindex");
         final boolean archivegraph = action.getBooleanAttr("archivegraph");
+        final boolean compactgraph = GraphAsset.FORMAT_COMPACT.equals(action.getStringAttr("graphformat"));
         if (targetasset_path == null || targetasset_path.length() == 0 ||
             sourceasset_path == null || sourceasset_path.length() == 0) return ActionResult.FAIL_IRREVERSIBLE;
 
@@ -121,6 +126,22 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
             Logger.warn("Parser.processAction could not load asset: " + sourceasset_path, e);
             return ActionResult.FAIL_IRREVERSIBLE;
         }
+
+        // admission control: reserve the estimated memory need of the job; if that is not possible within
+        // MemoryAdmission.WAIT milliseconds, the message is given back to the queue
+        if (Memory.shortStatus()) {
+            pdfParser.clearSharedResources();
+        }
+        final MemoryAdmission.Reservation reservation;
+        try {
+            reservation = MemoryAdmission.reserve(MemoryAdmission.estimate(source, sourceasset_path.endsWith(".gz")), MemoryAdmission.WAIT);
+        } catch (final InterruptedException e) {
+            return ActionResult.FAIL_RETRY;
+        }
+        if (reservation == null) {
+            Logger.info("Parser.processAction not enough memory for asset " + sourceasset_path + ", message is given back to the queue");
+            return ActionResult.FAIL_RETRY;
+        }
         try{
             InputStream sourceStream = null;
             sourceStream = new ByteArrayInputStream(source);
@@ -139,8 +160,8 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
             if (user_id != null && user_id.length() > 0 && !user_ids.toList().contains(user_id)) user_ids.put(user_id);
 
             final JSONObject crawl = SusiThought.selectData(data, "id", crawl_id);
-            final Map<String, Pattern> collections = WebMapping.collectionParser(crawl.optString("collection"));
-            final JSONArray parsedDocuments = ParserService.indexWarcRecords(sourceStream, collections);
+            final CollectionMatcher collections = getCollectionMatcher(crawl_id, crawl.optString("collection"));
+            final JSONArray parsedDocuments = ParserService.indexWarcRecords(sourceStream, collections, true);
 
             // enrich the parsed documents with crawl_id and user_id context
             for (int i = 0; i < parsedDocuments.length(); i++) {
@@ -152,7 +173,9 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
 
             // store the assets to the indexing queue
             final JSONList targetasset_object = new JSONList();
-            final JSONList targetgraph_object = new JSONList();
+            final JSONList targetgraph_object = compactgraph ? null : new JSONList();
+            final ByteArrayOutputStream targetgraph_bytes = compactgraph ? new ByteArrayOutputStream() : null;
+            final GraphAsset.Writer targetgraph_writer = compactgraph ? new GraphAsset.Writer(targetgraph_path != null && targetgraph_path.endsWith(".gz") ? new GZIPOutputStream(targetgraph_bytes) : targetgraph_bytes) : null;
             for (int i = 0; i < parsedDocuments.length(); i++) {
                 final JSONObject docjson = parsedDocuments.getJSONObject(i);
                 final String url = docjson.getString(WebMapping.url_s.name());
@@ -181,7 +204,7 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
                     // for non-canonical documents we suppress indexing and write to crawler index only
                     updater
                         .put(CrawlerMapping.status_s.getMapping().name(), Status.noncanonical.name())
-                        .put(CrawlerMapping.comment_t.getMapping().name(), docjson.optString("omitted, canonical: " + canonical_url));
+                        .put(CrawlerMapping.comment_t.getMapping().name(), "omitted, canonical: " + canonical_url);
                 }
 
                 // write crawler index
@@ -199,8 +222,12 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
                     final JSONObject graphjson = ParserService.extractGraph(docjson);
                     //graphjson.put("_id", id);
                     targetgraph_object.add(graphjson);
+                } else if (targetgraph_writer != null) {
+                    // the index id is computed from url_s by the reader
+                    targetgraph_writer.write(ParserService.extractGraph(docjson));
                 }
             }
+            if (targetgraph_writer != null) targetgraph_writer.close();
 
             boolean storeToMessage = true; // debug version for now: always true TODO: set to false later
             if (!storeToMessage || (archiveindex && Service.instance.config.gridStorage.isS3Connected())) {
@@ -215,8 +242,8 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
             }
             if (!storeToMessage || (archivegraph && Service.instance.config.gridStorage.isS3Connected())) {
                 try {
-                    final String targetgraph = targetgraph_object.toString();
-                    super.config.gridStorage.store(targetgraph_path, targetgraph.getBytes(StandardCharsets.UTF_8));
+                    final byte[] targetgraph = compactgraph ? targetgraph_bytes.toByteArray() : targetgraph_object.toString().getBytes(StandardCharsets.UTF_8);
+                    super.config.gridStorage.store(targetgraph_path, targetgraph);
                     Logger.info("Parser.processAction stored graph " + targetgraph_path);
                 } catch (final Throwable ee) {
                     Logger.warn("Parser.processAction asset " + targetgraph_path + " could not be stored, carrying the asset within the next action", ee);
@@ -228,7 +255,11 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
                 final JSONArray actions = action.getEmbeddedActions();
                 actions.forEach(a -> {
                     new SusiAction((JSONObject) a).setJSONListAsset(targetasset_path, targetasset_object);
-                    new SusiAction((JSONObject) a).setJSONListAsset(targetgraph_path, targetgraph_object);
+                    if (compactgraph) {
+                        new SusiAction((JSONObject) a).setBinaryAsset(targetgraph_path, targetgraph_bytes.toByteArray());
+                    } else {
+                        new SusiAction((JSONObject) a).setJSONListAsset(targetgraph_path, targetgraph_object);
+                    }
                     Logger.info("Parser.processAction stored assets " + targetasset_path + ", " + targetgraph_path + " into message");
                 });
             }
@@ -238,9 +269,27 @@ public class ParserListener extends AbstractBrokerListener implements BrokerList
         } catch (final Throwable e) {
             Logger.warn("", e);
             return ActionResult.FAIL_IRREVERSIBLE;
+        } finally {
+            reservation.release();
         }
     }
 
+    /**
+     * get the compiled collection definition for a crawl. The matcher is compiled only once for each crawl id
+     * unless the collection definition of that crawl changes.
+     * @param crawl_id the id of the crawl, may be null
+     * @param definition the collection definition string of the crawl
+     * @return a collection matcher
+     */
+    private static CollectionMatcher getCollectionMatcher(final String crawl_id, final String definition) {
+        final String key = crawl_id == null || crawl_id.length() == 0 ? definition : crawl_id;
+        CollectionMatcher matcher = collectionMatchers.get(key);
+        if (matcher != null && matcher.getDefinition().equals(definition)) return matcher;
+        matcher = new CollectionMatcher(definition, WebMapping.collectionParser(definition));
+        collectionMatchers.insert(key, matcher);
+        return matcher;
+    }
+
     @Override
     public Telemetry getTelemetry() {
         return null;
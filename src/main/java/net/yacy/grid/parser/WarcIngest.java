@@ -0,0 +1,518 @@
+/**
+ *  WarcIngest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONObject;
+import org.jwat.warc.WarcReader;
+import org.jwat.warc.WarcReaderFactory;
+import org.jwat.warc.WarcRecord;
+
+import net.yacy.cora.federate.index.CollectionMatcher;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.document.Document;
+import net.yacy.document.DocumentSink;
+import net.yacy.document.LibraryProvider;
+import net.yacy.document.Parser.Failure;
+import net.yacy.document.TemplateDetector;
+import net.yacy.grid.parser.api.ParserService;
+import net.yacy.grid.tools.Logger;
+
+/**
+ * Ingestion of local WARC files. The files are memory-mapped and split at record boundaries into segments,
+ * all segments of all files are parsed in parallel on a work-stealing pool. For each WARC file a flat file
+ * with one json object per line is written, either next to the WARC or into a target directory.
+ * Uncompressed WARC files are split by walking the record headers, the payloads are not touched for that.
+ * Compressed WARC files are split at gzip members which start a record; this requires that the file is
+ * compressed record by record, as recommended by the WARC specification. A file which is compressed as a
+ * whole is processed as one segment.
+ * A flat file is written only if all segments of its WARC are read and written completely.
+ * The ingestion is started from the command line, see main.
+ */
+public class WarcIngest {
+
+    /** number of threads which parse the segments */
+    public static int THREADS = Runtime.getRuntime().availableProcessors();
+
+    /** approximate size of a segment in bytes of the (compressed) file */
+    public static long SEGMENT_SIZE = 64L * 1024L * 1024L;
+
+    /** size of the memory-mapped windows of a file */
+    private static final long MAP_WINDOW = 256L * 1024L * 1024L;
+
+    /** the file name extension of the generated flat files */
+    public static final String FLATFILE_EXTENSION = ".flatjson";
+
+    private static ForkJoinPool pool = null;
+
+    private static synchronized ForkJoinPool pool() {
+        if (pool == null) pool = new ForkJoinPool(Math.max(1, THREADS));
+        return pool;
+    }
+
+    private final File targetDir;
+    private final CollectionMatcher collections;
+    private final AtomicLong files = new AtomicLong(0), segments = new AtomicLong(0), bytes = new AtomicLong(0),
+            records = new AtomicLong(0), documents = new AtomicLong(0), failures = new AtomicLong(0), failedFiles = new AtomicLong(0);
+
+    /**
+     * @param targetDir the directory for the flat files or null if the flat files are written next to the WARC files
+     * @param collections the compiled collection definitions, may be null
+     */
+    public WarcIngest(final File targetDir, final CollectionMatcher collections) {
+        this.targetDir = targetDir;
+        this.collections = collections;
+    }
+
+    /**
+     * parse a WARC file or all WARC files in a directory and its subdirectories
+     * @param source a WARC file or a directory
+     * @return statistics of the ingestion
+     * @throws IOException if the source does not exist or the target directory cannot be created
+     */
+    public Map<String, Long> ingest(final File source) throws IOException {
+        if (!source.exists()) throw new IOException("source " + source + " does not exist");
+        if (this.targetDir != null && !this.targetDir.isDirectory() && !this.targetDir.mkdirs()) throw new IOException("cannot create target directory " + this.targetDir);
+
+        // documents must not be parsed with partially loaded libraries
+        if (!LibraryProvider.awaitReady(ParserService.LIBRARY_WAIT_TIMEOUT)) Logger.warn("libraries are not ready after " + ParserService.LIBRARY_WAIT_TIMEOUT + " milliseconds, parsing with incomplete libraries");
+
+        final long start = System.currentTimeMillis();
+        final List<File> warcs = new ArrayList<>();
+        if (source.isDirectory()) warcFiles(source, warcs); else warcs.add(source);
+        final List<FileTask> tasks = new ArrayList<>(warcs.size());
+        for (final File warc: warcs) {
+            final File target = this.targetDir == null ? flatFile(warc, warc.getParentFile()) : flatFile(warc, this.targetDir);
+            tasks.add(new FileTask(warc, target));
+        }
+        pool().invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        final Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("files", this.files.get());
+        stats.put("segments", this.segments.get());
+        stats.put("bytes", this.bytes.get());
+        stats.put("records", this.records.get());
+        stats.put("documents", this.documents.get());
+        stats.put("failures", this.failures.get());
+        stats.put("failedFiles", this.failedFiles.get());
+        stats.put("time", System.currentTimeMillis() - start);
+        Logger.info("Ingested " + this.files.get() + " WARC files from " + source + ": " + stats.toString());
+        return stats;
+    }
+
+    /**
+     * collect all WARC files in a directory and its subdirectories, sorted by name
+     */
+    private static void warcFiles(final File dir, final List<File> warcs) {
+        final File[] list = dir.listFiles();
+        if (list == null) return;
+        Arrays.sort(list);
+        for (final File f: list) {
+            if (f.isDirectory()) warcFiles(f, warcs);
+            else if (isWarc(f)) warcs.add(f);
+        }
+    }
+
+    public static boolean isWarc(final File f) {
+        final String name = f.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(".warc") || name.endsWith(".warc.gz");
+    }
+
+    private static boolean isGzip(final File f) {
+        return f.getName().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    /**
+     * @return the flat file for a WARC: the file name without the .warc or .warc.gz extension plus .flatjson
+     */
+    public static File flatFile(final File warc, final File dir) {
+        String name = warc.getName();
+        final String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".warc.gz")) name = name.substring(0, name.length() - 8);
+        else if (lower.endsWith(".warc")) name = name.substring(0, name.length() - 5);
+        return new File(dir, name + FLATFILE_EXTENSION);
+    }
+
+    /**
+     * open a local WARC file as memory-mapped stream
+     * @param warc a WARC file, if the name ends with .gz the stream is decompressed
+     * @return the content of the WARC file; closing the stream closes the file
+     * @throws IOException
+     */
+    public static InputStream open(final File warc) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(warc, "r");
+        final FileChannel channel = raf.getChannel();
+        final InputStream is = new MappedInputStream(channel, 0, channel.size()) {
+            @Override
+            public void close() throws IOException {
+                raf.close();
+            }
+        };
+        return isGzip(warc) ? new GZIPInputStream(is, 65536) : is;
+    }
+
+    /**
+     * parse one WARC file: the file is split into segments which are parsed in parallel,
+     * the json objects of all segments are written to the same flat file
+     */
+    private class FileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final File warc, target;
+        private final TemplateDetector templates; // the hosts of this WARC file, shared by all segments
+
+        private FileTask(final File warc, final File target) {
+            this.warc = warc;
+            this.target = target;
+            this.templates = TemplateDetector.MIN_DOCUMENTS > 0 ? new TemplateDetector() : null;
+        }
+
+        @Override
+        protected void compute() {
+            final File tmp = new File(this.target.getParentFile(), this.target.getName() + ".tmp");
+            try (RandomAccessFile raf = new RandomAccessFile(this.warc, "r");
+                 OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp), 65536)) {
+                final FileChannel channel = raf.getChannel();
+                final long size = channel.size();
+                final boolean gzip = isGzip(this.warc);
+                final long[] bounds = gzip ? gzipBoundaries(channel, size) : recordBoundaries(channel, size);
+                final List<SegmentTask> tasks = new ArrayList<>(bounds.length - 1);
+                for (int i = 0; i < bounds.length - 1; i++) tasks.add(new SegmentTask(channel, bounds[i], bounds[i + 1], gzip, os, this.templates));
+                invokeAll(tasks);
+                for (final SegmentTask task: tasks) {
+                    if (task.failure != null) throw new IOException("segment " + task.start + "-" + task.end + " is incomplete", task.failure);
+                }
+                os.close();
+                if (this.target.exists() && !this.target.delete()) throw new IOException("cannot replace " + this.target);
+                if (!tmp.renameTo(this.target)) throw new IOException("cannot rename " + tmp + " to " + this.target);
+                WarcIngest.this.files.incrementAndGet();
+                WarcIngest.this.segments.addAndGet(tasks.size());
+                WarcIngest.this.bytes.addAndGet(size);
+            } catch (final IOException e) {
+                Logger.warn("cannot ingest " + this.warc, e);
+                WarcIngest.this.failedFiles.incrementAndGet();
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * parse the records of a segment of a WARC file and write the json objects to the flat file
+     */
+    private class SegmentTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel channel;
+        private final long start, end;
+        private final boolean gzip;
+        private final OutputStream os;
+        private final TemplateDetector templates;
+        private volatile Exception failure = null; // the reason why the segment is incomplete
+
+        private SegmentTask(final FileChannel channel, final long start, final long end, final boolean gzip, final OutputStream os, final TemplateDetector templates) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.gzip = gzip;
+            this.os = os;
+            this.templates = templates;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                InputStream is = new MappedInputStream(this.channel, this.start, this.end);
+                if (this.gzip) is = new GZIPInputStream(is, 65536);
+                final WarcReader reader = WarcReaderFactory.getReader(is);
+                WarcRecord wrec;
+                while (this.failure == null && (wrec = reader.getNextRecord()) != null) {
+                    final Response response = ParserService.warcResponse(wrec);
+                    final boolean truncated = ParserService.isTruncated(wrec);
+                    try {wrec.close();} catch (final IOException e) {}
+                    if (truncated) throw new EOFException("the WARC ends within a record");
+                    if (response == null) continue;
+                    WarcIngest.this.records.incrementAndGet();
+                    try {
+                        ParserService.parseResponse(response, new DocumentSink() {
+                            @Override
+                            public boolean put(final Document doc) {
+                                write(ParserService.documentJSON(WarcIngest.this.collections, SegmentTask.this.templates, true, response, doc));
+                                return SegmentTask.this.failure == null;
+                            }
+                            @Override
+                            public boolean isCancelled() {
+                                return SegmentTask.this.failure != null;
+                            }
+                            @Override
+                            public boolean nonCanonicalLightPath() {
+                                return true;
+                            }
+                        });
+                    } catch (final Failure e) {
+                        WarcIngest.this.failures.incrementAndGet();
+                    }
+                }
+                reader.close();
+            } catch (final IOException | InterruptedException e) {
+                Logger.warn("cannot read segment " + this.start + "-" + this.end, e);
+                if (this.failure == null) this.failure = e;
+            }
+        }
+
+        private void write(final JSONObject json) {
+            final byte[] line = (json.toString(0) + "\n").getBytes(StandardCharsets.UTF_8);
+            try {
+                synchronized (this.os) {
+                    this.os.write(line);
+                }
+                WarcIngest.this.documents.incrementAndGet();
+            } catch (final IOException e) {
+                Logger.warn("cannot write the flat file, the segment " + this.start + "-" + this.end + " is incomplete", e);
+                this.failure = e;
+            }
+        }
+    }
+
+    /**
+     * find the segment boundaries of an uncompressed WARC file by walking the record headers
+     * @return the start positions of the segments and the file size as last element
+     */
+    static long[] recordBoundaries(final FileChannel channel, final long size) throws IOException {
+        final List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        final ByteBuffer header = ByteBuffer.allocate(16384);
+        long segmentStart = 0, p = 0;
+        while (p < size) {
+            // skip the line breaks between records
+            header.clear();
+            channel.read(header, p);
+            header.flip();
+            int skip = 0;
+            while (skip < header.limit() && (header.get(skip) == '\r' || header.get(skip) == '\n')) skip++;
+            if (skip == header.limit()) break;
+            p += skip;
+            if (p - segmentStart >= SEGMENT_SIZE) {
+                bounds.add(p);
+                segmentStart = p;
+            }
+            final long length = recordLength(header, skip);
+            if (length < 0) break; // not a WARC header or a header larger than the buffer: the rest is one segment
+            p += length;
+        }
+        bounds.add(size);
+        return toArray(bounds);
+    }
+
+    /**
+     * compute the length of a record from its header
+     * @param header a buffer which starts with the record header at position offset
+     * @return the length of the header and the content block or -1 if the header cannot be parsed
+     */
+    private static long recordLength(final ByteBuffer header, final int offset) {
+        final int limit = header.limit();
+        if (limit - offset < 5 || header.get(offset) != 'W' || header.get(offset + 1) != 'A' || header.get(offset + 2) != 'R' || header.get(offset + 3) != 'C' || header.get(offset + 4) != '/') return -1;
+        long contentLength = -1;
+        int lineStart = offset;
+        for (int i = offset; i < limit; i++) {
+            if (header.get(i) != '\n') continue;
+            int lineEnd = i;
+            if (lineEnd > lineStart && header.get(lineEnd - 1) == '\r') lineEnd--;
+            if (lineEnd == lineStart) {
+                // end of the header
+                return contentLength < 0 ? -1 : i + 1 - offset + contentLength;
+            }
+            final String line = new String(header.array(), lineStart, lineEnd - lineStart, StandardCharsets.ISO_8859_1);
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                try {
+                    contentLength = Long.parseLong(line.substring(15).trim());
+                } catch (final NumberFormatException e) {
+                    return -1;
+                }
+            }
+            lineStart = i + 1;
+        }
+        return -1;
+    }
+
+    /**
+     * find the segment boundaries of a compressed WARC file: after each SEGMENT_SIZE bytes the next gzip member
+     * is searched which decompresses to the start of a WARC record
+     * @return the start positions of the segments and the file size as last element
+     */
+    static long[] gzipBoundaries(final FileChannel channel, final long size) throws IOException {
+        final List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        final ByteBuffer buffer = ByteBuffer.allocate(65536);
+        long p = SEGMENT_SIZE;
+        search: while (p < size) {
+            buffer.clear();
+            final int n = channel.read(buffer, p);
+            if (n < 3) break;
+            for (int i = 0; i < n - 2; i++) {
+                if ((buffer.get(i) & 0xff) == 0x1f && (buffer.get(i + 1) & 0xff) == 0x8b && buffer.get(i + 2) == 8 && isRecordStart(channel, p + i, size)) {
+                    bounds.add(p + i);
+                    p += i + SEGMENT_SIZE;
+                    continue search;
+                }
+            }
+            p += n - 2;
+        }
+        bounds.add(size);
+        return toArray(bounds);
+    }
+
+    /**
+     * @return true if the gzip member at the position decompresses to the start of a WARC record
+     */
+    private static boolean isRecordStart(final FileChannel channel, final long position, final long size) {
+        try (InputStream is = new GZIPInputStream(new MappedInputStream(channel, position, Math.min(size, position + 65536)), 512)) {
+            final byte[] b = new byte[5];
+            int l = 0, n;
+            while (l < b.length && (n = is.read(b, l, b.length - l)) > 0) l += n;
+            return l == b.length && b[0] == 'W' && b[1] == 'A' && b[2] == 'R' && b[3] == 'C' && b[4] == '/';
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    private static long[] toArray(final List<Long> list) {
+        final long[] a = new long[list.size()];
+        for (int i = 0; i < a.length; i++) a[i] = list.get(i);
+        return a;
+    }
+
+    /**
+     * a stream on a region of a file which is mapped into memory window by window
+     */
+    private static class MappedInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long windowStart;
+        private MappedByteBuffer window = null;
+
+        private MappedInputStream(final FileChannel channel, final long start, final long end) {
+            this.channel = channel;
+            this.end = end;
+            this.windowStart = start;
+        }
+
+        private boolean next() throws IOException {
+            if (this.window != null) {
+                if (this.window.hasRemaining()) return true;
+                this.windowStart += this.window.capacity();
+            }
+            if (this.windowStart >= this.end) return false;
+            this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.windowStart, Math.min(MAP_WINDOW, this.end - this.windowStart));
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return next() ? this.window.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) return 0;
+            if (!next()) return -1;
+            final int n = Math.min(len, this.window.remaining());
+            this.window.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            if (n <= 0 || !next()) return 0;
+            final int s = (int) Math.min(n, this.window.remaining());
+            this.window.position(this.window.position() + s);
+            return s;
+        }
+
+        @Override
+        public int available() throws IOException {
+            // the gzip stream looks for a following member only if the available bytes are not zero
+            final long position = this.windowStart + (this.window == null ? 0 : this.window.position());
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, this.end - position));
+        }
+    }
+
+    /**
+     * ingest local WARC files from the command line:
+     * java -cp build/libs/yacy_grid_parser-0.0.1-SNAPSHOT-all.jar net.yacy.grid.parser.WarcIngest /data/warcs/ [/data/flatjson/]
+     * The first argument is a WARC file or a directory, the second argument is the directory for the flat files;
+     * without a target directory the flat files are written next to the WARC files. The parser options, i.e. the
+     * parser.ingest, parser.boilerplate, language and autotagging settings, are read from conf/config.properties as
+     * in the parser application.
+     * The exit code is 1 if any WARC file could not be ingested.
+     */
+    public static void main(final String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: WarcIngest <warc file or directory> [<target directory>]");
+            System.exit(2);
+        }
+        try {
+            final Properties config = new Properties();
+            final File configFile = new File("conf/config.properties");
+            if (configFile.exists()) try (InputStream is = new FileInputStream(configFile)) {
+                config.load(is);
+            }
+            final Map<String, String> properties = new HashMap<>();
+            for (final String key: config.stringPropertyNames()) properties.put(key, config.getProperty(key));
+            Parser.configure(properties);
+            LibraryProvider.initialize(new File(Parser.LIBRARY_PATH));
+            final Map<String, Long> stats = new WarcIngest(args.length > 1 ? new File(args[1]) : null, null).ingest(new File(args[0]));
+            System.out.println(stats.toString());
+            System.exit(stats.get("failedFiles").longValue() > 0 ? 1 : 0);
+        } catch (final IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+}
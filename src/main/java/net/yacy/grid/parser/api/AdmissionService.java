@@ -0,0 +1,57 @@
+/**
+ *  AdmissionService
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser.api;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.json.JSONObject;
+
+import net.yacy.grid.http.APIHandler;
+import net.yacy.grid.http.ObjectAPIHandler;
+import net.yacy.grid.http.Query;
+import net.yacy.grid.http.ServiceResponse;
+import net.yacy.grid.parser.MemoryAdmission;
+
+/**
+ * statistics of the memory admission control of the parser jobs
+ * call example:
+ * http://127.0.0.1:8500/yacy/grid/parser/admission.json
+ */
+public class AdmissionService extends ObjectAPIHandler implements APIHandler {
+
+    private static final long serialVersionUID = 3840188219563274119L;
+    public static final String NAME = "admission";
+
+    @Override
+    public String getAPIPath() {
+        return "/yacy/grid/parser/" + NAME + ".json";
+    }
+
+    @Override
+    public ServiceResponse serviceImpl(final Query call, final HttpServletResponse response) {
+        final JSONObject json = new JSONObject(true);
+        for (final Map.Entry<String, Long> entry: MemoryAdmission.getStatistics().entrySet()) json.put(entry.getKey(), entry.getValue().longValue());
+        json.put(ObjectAPIHandler.SUCCESS_KEY, true);
+        return new ServiceResponse(json);
+    }
+
+}
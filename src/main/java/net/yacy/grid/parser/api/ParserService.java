@@ -20,23 +20,38 @@
 package net.yacy.grid.parser.api;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.GZIPInputStream;
 
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.Part;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.jwat.common.HeaderLine;
 import org.jwat.common.HttpHeader;
+import org.jwat.common.Payload;
 import org.jwat.warc.WarcConstants;
 import org.jwat.warc.WarcReader;
 import org.jwat.warc.WarcReaderFactory;
@@ -45,14 +60,19 @@ import org.jwat.warc.WarcRecord;
 import ai.susi.mind.SusiAction;
 import ai.susi.mind.SusiAction.RenderType;
 import ai.susi.mind.SusiThought;
+import net.yacy.cora.federate.index.CollectionMatcher;
 import net.yacy.cora.federate.index.WebConfiguration;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.protocol.ResponseHeader;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.document.Document;
+import net.yacy.document.DocumentSink;
+import net.yacy.document.LibraryProvider;
 import net.yacy.document.Parser.Failure;
+import net.yacy.document.TemplateDetector;
 import net.yacy.document.TextParser;
+import net.yacy.document.parser.htmlParser;
 import net.yacy.grid.http.APIHandler;
 import net.yacy.grid.http.ClientIdentification;
 import net.yacy.grid.http.ObjectAPIHandler;
@@ -61,10 +81,12 @@ import net.yacy.grid.http.ServiceResponse;
 import net.yacy.grid.io.assets.Asset;
 import net.yacy.grid.io.index.WebMapping;
 import net.yacy.grid.mcp.Service;
+import net.yacy.grid.parser.WarcIngest;
 import net.yacy.grid.tools.AnchorURL;
 import net.yacy.grid.tools.Digest;
 import net.yacy.grid.tools.Logger;
 import net.yacy.grid.tools.MultiProtocolURL;
+import net.yacy.kelondro.util.FileUtils;
 
 /**
  * The parser transforms a given source file into a YaCy JSON
@@ -104,6 +126,8 @@ import net.yacy.grid.tools.MultiProtocolURL;
  *
  * - (3) read the warc with
  * http://127.0.0.1:8500/yacy/grid/parser/parser.json?sourceurl=file:///Users/admin/Downloads/land.nrw.warc.gz
+ * Local files are memory-mapped. Directories of local WARC files are not parsed by this service, they are
+ * ingested into flat files with the command line tool net.yacy.grid.parser.WarcIngest.
  *
  * The result can be either a json object or a flat file. A flat file is a text file which has one json object per line.
  * The flat file can be generated with the option flatfile=true
@@ -111,6 +135,8 @@ import net.yacy.grid.tools.MultiProtocolURL;
  *
  * Flatfile Example: save the json result as flat file to land.nrw.flatjson
  * curl -X POST -F "sourcebytes=@land.nrw.warc.gz;type=application/octet-stream" -F "flatfile=true" -o land.nrw.flatjson http://127.0.0.1:8500/yacy/grid/parser/parser.json
+ * A flat file is streamed: each line is written as soon as its document is parsed, with chunked transfer encoding.
+ * A POSTed sourcebytes file is not held in memory, it is spooled to a temporary file and read from there.
  * 
  * JSON parsing
  * To directly parse json inside the result, use jr; i.e. to extract the ld_s parameter you can run
@@ -124,6 +150,21 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
     private static final long serialVersionUID = 8578474303031749879L;
     public static final String NAME = "parser";
 
+    /** maximum time in milliseconds to wait for the initialization of the geo and autotagging libraries before parsing */
+    public static long LIBRARY_WAIT_TIMEOUT = 60000;
+
+    /** if true, the text of indexed documents is tagged with all autotagging vocabularies, including the geo location names */
+    public static boolean AUTOTAGGING = true;
+
+    /** if true, the language of indexed documents is identified from a prefix of the text if the document metadata declares no language, or if the declared language is much less probable */
+    public static boolean LANGUAGE_IDENTIFICATION = true;
+
+    /** the minimum confidence of an identified language, a value between 0 and 1 */
+    public static double LANGUAGE_THRESHOLD = 0.9d;
+
+    /** a declared language is replaced by the identified language if that has at least this ratio of the confidence of the declared language */
+    public static double LANGUAGE_OVERRIDE_RATIO = 1000.0d;
+
     @Override
     public String getAPIPath() {
         return "/yacy/grid/parser/" + NAME + ".json";
@@ -150,79 +191,38 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
         if (source.length > 0) {
             sourceStream = new ByteArrayInputStream(source);
         }
-        // 2) get the asset from the mcp asset store
+        // 2) get the asset from the mcp asset store or 3) from an external resource
         if (sourceStream == null) {
-            // read asset from mcp
-            final String sourceasset_path = call.get("sourceasset", "");
-            if (sourceasset_path.length() > 0) {
-                try {
-                    final Asset<byte[]> asset = Service.instance.config.gridStorage.load(sourceasset_path);
-                    source = asset.getPayload();
-                    sourceStream = new ByteArrayInputStream(source);
-                    if (sourceasset_path.endsWith(".gz")) sourceStream = new GZIPInputStream(sourceStream);
-                } catch (final IOException e) {
-                    Logger.error(e.getMessage(), e);
-                }
-            }
+            sourceStream = openSource(call.get("sourceasset", ""), call.get("sourceurl", ""));
         }
 
-        // 3) get the asset from an external resource
         if (sourceStream == null) {
-            // read from url
-            final String sourceurl = call.get("sourceurl", "");
-            if (sourceurl.length() > 0) try {
-                final MultiProtocolURL url = new MultiProtocolURL(sourceurl);
-                sourceStream = url.getInputStream(ClientIdentification.browserAgent, "anonymous", "", true);
-                if (sourceurl.endsWith(".gz")) sourceStream = new GZIPInputStream(sourceStream);
-            } catch (final IOException e) {
-                Logger.error(e.getMessage(), e);
-            }
+            return new ServiceResponse(failure(NO_SOURCE));
         }
 
-        if (sourceStream == null) {
-            final JSONObject json = new JSONObject(true);
-            json.put(ObjectAPIHandler.SUCCESS_KEY, false);
-            json.put(ObjectAPIHandler.COMMENT_KEY, "the request must contain either a sourcebytes, sourceasset or sourceurl attribute");
-            return new ServiceResponse(json);
+        if (flat) {
+            // flat files are usually streamed by doGet/doPost, this is only used for form-encoded sourcebytes
+            final ByteArrayOutputStream os = new ByteArrayOutputStream(2048);
+            try {
+                writeFlatfile(sourceStream, elastic, os);
+            } catch (final IOException e) {
+                Logger.warn("", e);
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return new ServiceResponse(failure(e.getMessage()));
+            }
+            return new ServiceResponse(new String(os.toByteArray(), StandardCharsets.UTF_8));
         }
 
         // compute parsed documents
-        JSONArray parsedDocuments;
+        final JSONObject json;
         try {
-            parsedDocuments = indexWarcRecords(sourceStream, null);
+            json = parsedDocuments(sourceStream);
         } catch (final IOException e) {
             Logger.warn("", e);
-            parsedDocuments = new JSONArray();
-        } finally {
-            try {
-                sourceStream.close();
-            } catch (final IOException e) {
-            }
-        }
-
-        if (flat) {
-            final StringBuffer sb = new StringBuffer(2048);
-            for (int i = 0; i < parsedDocuments.length(); i++) {
-            	final JSONObject docjson = parsedDocuments.getJSONObject(i);
-            	if (elastic) {
-            	    final String url = docjson.getString(WebMapping.url_s.name());
-            	    final String id = Digest.encodeMD5Hex(url);
-            		final JSONObject bulkjson = new JSONObject().put("index", new JSONObject().put("_id", id));
-            		sb.append(bulkjson.toString(0)).append("\n");
-            	}
-                sb.append(docjson.toString(0)).append("\n");
-            }
-            return new ServiceResponse(sb.toString());
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return new ServiceResponse(failure(e.getMessage()));
         }
 
-        // store result and return success
-        final SusiThought json = new SusiThought();
-        json.setProcess(NAME);
-        json.put(ObjectAPIHandler.SUCCESS_KEY, true);
-        json.setData(parsedDocuments);
-        json.setHits(parsedDocuments.length());
-        json.addAction(new SusiAction(new JSONObject().put("type", RenderType.indexer.name())));
-
         /*
         if (targetasset.length > 0 && targetpath.length() > 0) {
             try {
@@ -243,18 +243,316 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
         return new ServiceResponse(json);
     }
 
+    /**
+     * parse a WARC
+     * @param sourceStream the WARC, closed after parsing
+     * @return the service result with the json objects of all parsed documents
+     * @throws IOException if the WARC cannot be read or ends within a record
+     */
+    private static JSONObject parsedDocuments(final InputStream sourceStream) throws IOException {
+        final JSONArray parsedDocuments;
+        try {
+            parsedDocuments = collectWarcRecords(sourceStream, null, false, true);
+        } finally {
+            try {
+                sourceStream.close();
+            } catch (final IOException e) {
+            }
+        }
+        final SusiThought json = new SusiThought();
+        json.setProcess(NAME);
+        json.put(ObjectAPIHandler.SUCCESS_KEY, true);
+        json.setData(parsedDocuments);
+        json.setHits(parsedDocuments.length());
+        json.addAction(new SusiAction(new JSONObject().put("type", RenderType.indexer.name())));
+        return json;
+    }
+
+    private static JSONObject failure(final String comment) {
+        final JSONObject json = new JSONObject(true);
+        json.put(ObjectAPIHandler.SUCCESS_KEY, false);
+        json.put(ObjectAPIHandler.COMMENT_KEY, comment);
+        return json;
+    }
+
+    /**
+     * open a WARC from the mcp asset store or from an url
+     * @param sourceasset_path the path of an asset or an empty string
+     * @param sourceurl the url of a WARC or an empty string
+     * @return the WARC content or null if no source is given or the source cannot be opened
+     */
+    private static InputStream openSource(final String sourceasset_path, final String sourceurl) {
+        // read asset from mcp
+        if (sourceasset_path.length() > 0) {
+            try {
+                final Asset<byte[]> asset = Service.instance.config.gridStorage.load(sourceasset_path);
+                final InputStream sourceStream = new ByteArrayInputStream(asset.getPayload());
+                return sourceasset_path.endsWith(".gz") ? new GZIPInputStream(sourceStream) : sourceStream;
+            } catch (final IOException e) {
+                Logger.error(e.getMessage(), e);
+            }
+        }
+        // read from a local file
+        final File localSource = localFile(sourceurl);
+        if (localSource != null) {
+            if (!localSource.isFile()) return null;
+            try {
+                return WarcIngest.open(localSource);
+            } catch (final IOException e) {
+                Logger.error(e.getMessage(), e);
+                return null;
+            }
+        }
+        // read from url
+        if (sourceurl.length() > 0) try {
+            final MultiProtocolURL url = new MultiProtocolURL(sourceurl);
+            final InputStream sourceStream = url.getInputStream(ClientIdentification.browserAgent, "anonymous", "", true);
+            return sourceurl.endsWith(".gz") ? new GZIPInputStream(sourceStream) : sourceStream;
+        } catch (final IOException e) {
+            Logger.error(e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /**
+     * @return the local file of a file url or null if the url is not a file url
+     */
+    private static File localFile(final String sourceurl) {
+        if (!sourceurl.startsWith("file:")) return null;
+        try {
+            return new File(new URI(sourceurl));
+        } catch (final URISyntaxException | IllegalArgumentException e) {
+            return new File(sourceurl.substring(sourceurl.startsWith("file://") ? 7 : 5));
+        }
+    }
+
+    /** multipart uploads larger than this are written to a temporary file instead of being held in memory */
+    private static final int MULTIPART_MEMORY_THRESHOLD = 1024 * 1024;
+
+    private static final String MULTIPART_CONFIG_ATTRIBUTE = "org.eclipse.jetty.multipartConfig";
+
+    private static final String NO_SOURCE = "the request must contain either a sourcebytes, sourceasset or sourceurl attribute";
+
+    /**
+     * flat file requests are streamed; all other requests are handled by serviceImpl
+     */
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        if (!"true".equals(request.getParameter("flatfile"))) {
+            super.doGet(request, response);
+            return;
+        }
+        final InputStream sourceStream = openSource(parameter(request, "sourceasset", null), parameter(request, "sourceurl", null));
+        if (sourceStream == null) {
+            super.doGet(request, response);
+            return;
+        }
+        streamFlatfile(sourceStream, "true".equals(request.getParameter("bulk")), response);
+    }
+
+    /**
+     * flat file requests are streamed. Multipart requests are handled here completely: the parts are read once and
+     * an upload of sourcebytes is read from the part stream, which is backed by a temporary file for large uploads.
+     * All other requests are handled by serviceImpl.
+     */
+    @Override
+    protected void doPost(final HttpServletRequest request, final HttpServletResponse response) throws ServletException, IOException {
+        final String contentType = request.getContentType();
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/")) {
+            if (!"true".equals(request.getParameter("flatfile"))) {
+                super.doPost(request, response);
+                return;
+            }
+            final InputStream sourceStream = openSource(parameter(request, "sourceasset", null), parameter(request, "sourceurl", null));
+            if (sourceStream == null) {
+                super.doPost(request, response);
+                return;
+            }
+            streamFlatfile(sourceStream, "true".equals(request.getParameter("bulk")), response);
+            return;
+        }
+
+        if (request.getAttribute(MULTIPART_CONFIG_ATTRIBUTE) == null) {
+            request.setAttribute(MULTIPART_CONFIG_ATTRIBUTE, new MultipartConfigElement(System.getProperty("java.io.tmpdir"), -1, -1, MULTIPART_MEMORY_THRESHOLD));
+        }
+        final Map<String, String> values = new HashMap<>();
+        Part sourcePart = null;
+        for (final Part part: request.getParts()) {
+            if ("sourcebytes".equals(part.getName())) sourcePart = part; else values.put(part.getName(), partValue(part));
+        }
+        try {
+            final InputStream sourceStream = sourcePart != null && sourcePart.getSize() > 0 ? sourcePart.getInputStream() :
+                openSource(parameter(request, "sourceasset", values), parameter(request, "sourceurl", values));
+            if (sourceStream == null) {
+                writeJSON(response, HttpServletResponse.SC_BAD_REQUEST, failure(NO_SOURCE));
+            } else if ("true".equals(parameter(request, "flatfile", values))) {
+                streamFlatfile(sourceStream, "true".equals(parameter(request, "bulk", values)), response);
+            } else {
+                JSONObject json;
+                try {
+                    json = parsedDocuments(sourceStream);
+                } catch (final IOException e) {
+                    Logger.warn("", e);
+                    writeJSON(response, HttpServletResponse.SC_BAD_REQUEST, failure(e.getMessage()));
+                    return;
+                }
+                writeJSON(response, HttpServletResponse.SC_OK, json);
+            }
+        } finally {
+            if (sourcePart != null) sourcePart.delete();
+        }
+    }
+
+    /**
+     * @param values the values of the multipart form fields or null
+     * @return the value of a form field or a request parameter or an empty string
+     */
+    private static String parameter(final HttpServletRequest request, final String name, final Map<String, String> values) {
+        String value = values == null ? null : values.get(name);
+        if (value == null) value = request.getParameter(name);
+        return value == null ? "" : value;
+    }
+
+    private static void writeJSON(final HttpServletResponse response, final int status, final JSONObject json) throws IOException {
+        response.setStatus(status);
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final OutputStream os = response.getOutputStream();
+        os.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+
+    private static String partValue(final Part part) throws IOException {
+        try (InputStream is = part.getInputStream()) {
+            return new String(FileUtils.read(is), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    /**
+     * parse a WARC and write one json object per line to the response as soon as each document is finished.
+     * No content length is set, so the response is sent with chunked transfer encoding. The response stream blocks
+     * if the client does not read fast enough, which blocks the document and parser threads and the WARC reader.
+     * If the WARC cannot be read or ends within a record, the response is an error if nothing was sent yet; otherwise
+     * the exception is thrown and the connection is aborted without the last chunk, so the client sees an incomplete transfer.
+     * @param sourceStream the WARC, closed after parsing
+     * @param bulk if true, each document is preceded by an elasticsearch bulk index line
+     */
+    private static void streamFlatfile(final InputStream sourceStream, final boolean bulk, final HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try {
+            writeFlatfile(sourceStream, bulk, response.getOutputStream());
+        } catch (final IOException e) {
+            Logger.warn("streaming of flat file terminated", e);
+            if (response.isCommitted()) throw e;
+            response.reset();
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * parse a WARC and write one json object per line to the output stream as soon as each document is finished
+     * @param sourceStream the WARC, closed after parsing
+     * @param bulk if true, each document is preceded by an elasticsearch bulk index line
+     * @param os the target of the flat file, flushed after each line
+     * @throws IOException if the WARC cannot be read or ends within a record, or the output stream fails
+     */
+    private static void writeFlatfile(final InputStream sourceStream, final boolean bulk, final OutputStream os) throws IOException {
+        try {
+            indexWarcRecords(sourceStream, null, false, true, new JSONObjectSink() {
+                @Override
+                public void put(final JSONObject docjson) throws IOException {
+                    final byte[] line = flatLine(docjson, bulk).getBytes(StandardCharsets.UTF_8);
+                    synchronized (os) {
+                        os.write(line);
+                        os.flush();
+                    }
+                }
+            });
+        } finally {
+            try {
+                sourceStream.close();
+            } catch (final IOException e) {
+            }
+        }
+    }
+
+    /**
+     * @return the json object as one line, with a preceding elasticsearch bulk index line if bulk is true
+     */
+    private static String flatLine(final JSONObject docjson, final boolean bulk) {
+        final StringBuilder sb = new StringBuilder(4096);
+        if (bulk) {
+            final String id = Digest.encodeMD5Hex(docjson.getString(WebMapping.url_s.name()));
+            sb.append(new JSONObject().put("index", new JSONObject().put("_id", id)).toString(0)).append('\n');
+        }
+        return sb.append(docjson.toString(0)).append('\n').toString();
+    }
+
+    /**
+     * a target for the json objects which are created from WARC records. The objects are given to the sink
+     * as soon as they are created, by several threads concurrently; a sink which blocks slows down the parsing.
+     */
+    public static interface JSONObjectSink {
+        /**
+         * @param json a parsed document
+         * @throws IOException if the sink cannot take more objects; the processing of the WARC is then terminated
+         */
+        public void put(JSONObject json) throws IOException;
+    }
+
+    /**
+     * parse all WARC records and collect the json objects. A WARC which ends within a record or cannot be read
+     * further is not an error: the documents of the complete records are returned and the WARC is counted in
+     * getStatistics(). This is used by the indexing flow, where a failure would drop all documents of the WARC.
+     * @param f the WARC
+     * @param collections the compiled collection definitions of the crawl, may be null
+     * @param lightPath if true, non-canonical documents are parsed with the light path and only their graph is returned
+     * @return the json objects of all parsed documents
+     * @throws IOException
+     */
+    public static JSONArray indexWarcRecords(final InputStream f, final CollectionMatcher collections, final boolean lightPath) throws IOException {
+        return collectWarcRecords(f, collections, lightPath, false);
+    }
+
+    private static JSONArray collectWarcRecords(final InputStream f, final CollectionMatcher collections, final boolean lightPath, final boolean failTruncated) throws IOException {
+        final JSONArray parsedDocuments = new JSONArray();
+        indexWarcRecords(f, collections, lightPath, failTruncated, new JSONObjectSink() {
+            @Override
+            public void put(final JSONObject json) {
+                synchronized (parsedDocuments) {parsedDocuments.put(json);}
+            }
+        });
+        return parsedDocuments;
+    }
+
     /**
      * WARC importer code, original from net.yacy.document.importer.WarcImporter.java
      * TODO: use original WARC request header instead of generated headers
      * @param f
-     * @throws IOException
+     * @param collections the compiled collection definitions of the crawl, may be null
+     * @param lightPath if true, non-canonical documents are parsed with the light path and only their graph is given to the sink;
+     * this is used by the indexing flow. Other callers get the complete documents.
+     * @param failTruncated if true, a WARC which ends within a record is an error; otherwise the processing ends
+     * with the last complete record, also if the WARC cannot be read further, and the WARC is counted as truncated
+     * @param sink the target for the json objects of the parsed documents
+     * @return the number of json objects given to the sink
+     * @throws IOException if the sink fails, or if failTruncated is true and the WARC cannot be read; an EOFException
+     * if the WARC ends within a record. The documents of all complete records are given to the sink before the
+     * exception is thrown.
      */
-    public static JSONArray indexWarcRecords(final InputStream f, final Map<String, Pattern> collections) throws IOException {
+    public static int indexWarcRecords(final InputStream f, final CollectionMatcher collections, final boolean lightPath, final boolean failTruncated, final JSONObjectSink sink) throws IOException {
+
+        // documents must not be parsed with partially loaded libraries
+        if (!LibraryProvider.awaitReady(LIBRARY_WAIT_TIMEOUT)) Logger.warn("libraries are not ready after " + LIBRARY_WAIT_TIMEOUT + " milliseconds, parsing with incomplete libraries");
 
         // create worker stacks
         final BlockingQueue<Response> responseQueue = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
         final BlockingQueue<Map.Entry<Response, Document>> bundleQueue = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
-        final BlockingQueue<JSONObject> objectQueue = new LinkedBlockingQueue<>();
+        final AtomicInteger created = new AtomicInteger(0);
+        final AtomicReference<IOException> sinkFailure = new AtomicReference<>();
+        final TemplateDetector templates = TemplateDetector.MIN_DOCUMENTS > 0 ? new TemplateDetector() : null; // the hosts of this WARC
 
         // create POISON objects
         final Response responsePoison = new Response(null, null, null, false, null);
@@ -267,22 +565,26 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
                 Response response;
                 try {
                     while ((response = responseQueue.take()) != responsePoison) {
-                        // parse the source to get a YaCy document
-                        Document[] documents;
+                        // parse the source to get YaCy documents; each document is converted while the parser continues
+                        final Response source = response;
                         try {
-                            documents = TextParser.parseSource(
-                                new AnchorURL(response.url()), // or just use "location"?
-                                response.getMimeType(),
-                                response.getCharacterEncoding(),
-                                null, // no vocabulary scraper
-                                0, // no timezone offset
-                                response.depth(),
-                                response.getContent());
-                            for (final Document d: documents) {
-                                bundleQueue.put(new AbstractMap.SimpleEntry<>(response, d));
-                            }
+                            parseResponse(response, new DocumentSink() {
+                                @Override
+                                public boolean put(final Document d) throws InterruptedException {
+                                    bundleQueue.put(new AbstractMap.SimpleEntry<>(source, d));
+                                    return sinkFailure.get() == null;
+                                }
+                                @Override
+                                public boolean isCancelled() {
+                                    return sinkFailure.get() != null;
+                                }
+                                @Override
+                                public boolean nonCanonicalLightPath() {
+                                    return lightPath;
+                                }
+                            });
                         } catch (final Failure e) {
-                            e.printStackTrace();
+                            // counted in the TextParser failure statistics, see ParserStatisticsService
                         }
                     }
                 } catch (final InterruptedException e) {
@@ -296,11 +598,14 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
                 Map.Entry<Response, Document> bundle;
                 try {
                     while ((bundle = bundleQueue.take()) != bundlePoison) {
-                        final JSONObject json = WebConfiguration.yacy2solr(
-                                collections, bundle.getKey().getResponseHeader(),
-                                bundle.getValue(), bundle.getKey().getRequestHeader().referer(), null /* language */, false,
-                                0 /* timezoneOffset */);
-                        objectQueue.put(json);
+                        if (sinkFailure.get() != null) continue; // drain the queue without output
+                        final JSONObject json = documentJSON(collections, templates, lightPath, bundle.getKey(), bundle.getValue());
+                        try {
+                            sink.put(json);
+                            created.incrementAndGet();
+                        } catch (final IOException e) {
+                            sinkFailure.compareAndSet(null, e);
+                        }
                     }
                 } catch (final InterruptedException e) {
                     e.printStackTrace();
@@ -320,118 +625,210 @@ public class ParserService extends ObjectAPIHandler implements APIHandler {
             documentThreads[i].start();
         }
 
-        // read out WARC file
-        byte[] content;
+        // read out WARC file; the worker threads are terminated also if the WARC cannot be read
         int cnt = 0;
+        boolean truncated = false;
+        try {
+            final WarcReader localwarcReader = WarcReaderFactory.getReader(f);
+            WarcRecord wrec;
+            while (sinkFailure.get() == null && (wrec = localwarcReader.getNextRecord()) != null) {
+                final Response response = warcResponse(wrec);
+                truncated = isTruncated(wrec);
+                try {wrec.close();} catch (final IOException e1) {}
+                if (truncated) break; // the content of the response is incomplete
+                if (response != null) {
+                    try {
+                        responseQueue.put(response);
+                    } catch (final InterruptedException e1) {
+                        e1.printStackTrace();
+                    }
+                    cnt++;
+                }
+            }
+            localwarcReader.close();
+            Logger.info("Processed " + cnt + " WARC documents");
+        } catch (final IOException e) {
+            if (failTruncated) throw e;
+            Logger.warn("the WARC cannot be read after " + cnt + " documents", e);
+            truncated = true;
+        } finally {
+            // put poison into parser queues and wait for parser thread termination
+            for (int i = 0; i < parserThreads.length; i++) try {
+                responseQueue.put(responsePoison);
+            } catch (final InterruptedException e) {}
+            for (int i = 0; i < parserThreads.length; i++) try {
+                parserThreads[i].join();
+            } catch (final InterruptedException e) {}
+
+            // put poison into document queues and wait for document thread termination
+            for (int i = 0; i < documentThreads.length; i++) try {
+                bundleQueue.put(bundlePoison);
+            } catch (final InterruptedException e) {}
+            for (int i = 0; i < documentThreads.length; i++) try {
+                documentThreads[i].join();
+            } catch (final InterruptedException e) {}
+        }
 
-        final WarcReader localwarcReader = WarcReaderFactory.getReader(f);
-        WarcRecord wrec = localwarcReader.getNextRecord();
-        while (wrec != null) {
+        if (sinkFailure.get() != null) throw sinkFailure.get();
+        if (truncated) {
+            if (failTruncated) throw new EOFException("the WARC ends within a record after " + cnt + " documents");
+            truncatedWarcs.incrementAndGet();
+            Logger.warn("the WARC ends within a record, only the " + cnt + " complete documents are processed");
+        }
+        Logger.info("Created " + created.get() + " JSON objects from " + cnt + " WARC documents");
 
-            HeaderLine hl = wrec.getHeader(WarcConstants.FN_WARC_TYPE);
-            if (hl != null && hl.value.equals(WarcConstants.RT_RESPONSE)) { // filter responses
+        return created.get();
+    }
 
-                hl = wrec.getHeader(WarcConstants.FN_WARC_TARGET_URI);
-                String uri = hl.value;
-                MultiProtocolURL location = new MultiProtocolURL("http://127.0.0.1");
-                if (uri != null) {
-                    if (uri.startsWith("<") && (uri.endsWith(">"))) {
-                        uri = uri.substring(1, uri.length() - 1);
-                    }
-                    try {
-                        location = new MultiProtocolURL(uri);
-                    } catch (final MalformedURLException e) {
-                        // ignore this
-                    }
+    private static final AtomicLong truncatedWarcs = new AtomicLong(0);
+
+    /**
+     * @return the number of WARC files of the indexing flow which ended within a record
+     */
+    public static Map<String, Long> getStatistics() {
+        final Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("truncated", truncatedWarcs.get());
+        return stats;
+    }
+
+    /**
+     * read the rest of the payload of a WARC record. jwat does not report a WARC which ends within the payload of
+     * an uncompressed record, the payload stream just ends early; a truncated gzip member throws an IOException.
+     * @param wrec a WARC record which is not closed yet
+     * @return true if the WARC ends before the end of the payload
+     * @throws IOException if the payload cannot be read
+     */
+    public static boolean isTruncated(final WarcRecord wrec) throws IOException {
+        final Payload payload = wrec.getPayload();
+        if (payload == null) return false;
+        final InputStream is = payload.getInputStream();
+        while (is.skip(8192) > 0 || is.read() >= 0) {}
+        return payload.getRemaining() > 0;
+    }
+
+    /**
+     * create a response from a WARC record
+     * @param wrec a WARC record; the payload stream is left open and closed with the record
+     * @return the response or null if the record is not a http response with status 200 or has no parser
+     * @throws IOException if the payload cannot be read
+     */
+    public static Response warcResponse(final WarcRecord wrec) throws IOException {
+        byte[] content;
+        HeaderLine hl = wrec.getHeader(WarcConstants.FN_WARC_TYPE);
+        if (hl != null && hl.value.equals(WarcConstants.RT_RESPONSE)) { // filter responses
+
+            hl = wrec.getHeader(WarcConstants.FN_WARC_TARGET_URI);
+            String uri = hl.value;
+            MultiProtocolURL location = new MultiProtocolURL("http://127.0.0.1");
+            if (uri != null) {
+                if (uri.startsWith("<") && (uri.endsWith(">"))) {
+                    uri = uri.substring(1, uri.length() - 1);
+                }
+                try {
+                    location = new MultiProtocolURL(uri);
+                } catch (final MalformedURLException e) {
+                    // ignore this
                 }
+            }
 
-                final HttpHeader http = wrec.getHttpHeader();
-
-                if (http != null && http.statusCode == 200) { // process http response header OK (status 200)
-
-                    if (TextParser.supportsMime(http.contentType) == null) { // check availability of parser
-
-                        final InputStream istream = wrec.getPayloadContent();
-                        /*
-                        hl = http.getHeader(HeaderFramework.TRANSFER_ENCODING);
-                        if (hl != null && hl.value.contains("chunked")) {
-                            // because chunked stream.read doesn't read source fully, make sure all chunks are read
-                            istream = new ChunkedInputStream(istream);
-                            final ByteBuffer bbuffer = new ByteBuffer();
-                            int c;
-                            try {while ((c = istream.read()) >= 0) {
-                                bbuffer.append(c);
-                            }} catch (IOException e) {
-                                Logger.warn("", e);
-                            }
-                            content = bbuffer.getBytes();
-                        } else {*/
-                            content = new byte[(int) http.getPayloadLength()];
-                            istream.read(content, 0, content.length);
-                        //}
-                        istream.close();
-
-                        final RequestHeader requestHeader = new RequestHeader();
-
-                        final ResponseHeader responseHeader = new ResponseHeader(http.statusCode);
-                        for (final HeaderLine hx : http.getHeaderList()) { // include all original response headers for parser
-                            responseHeader.put(hx.name, hx.value);
-                        }
+            final HttpHeader http = wrec.getHttpHeader();
 
-                        final Request request = new Request(
-                                null,
-                                location,
-                                requestHeader.referer() == null ? null : requestHeader.referer(),
-                                "warc",
-                                responseHeader.lastModified(),
-                                0);
-
-                        final Response response = new Response(
-                                request,
-                                requestHeader,
-                                responseHeader,
-                                false,
-                                content
-                        );
+            if (http != null && http.statusCode == 200) { // process http response header OK (status 200)
 
-                        try {
-                            responseQueue.put(response);
-                        } catch (final InterruptedException e1) {
-                            e1.printStackTrace();
+                if (TextParser.supportsMime(http.contentType) == null) { // check availability of parser
+
+                    final InputStream istream = wrec.getPayloadContent();
+                    /*
+                    hl = http.getHeader(HeaderFramework.TRANSFER_ENCODING);
+                    if (hl != null && hl.value.contains("chunked")) {
+                        // because chunked stream.read doesn't read source fully, make sure all chunks are read
+                        istream = new ChunkedInputStream(istream);
+                        final ByteBuffer bbuffer = new ByteBuffer();
+                        int c;
+                        try {while ((c = istream.read()) >= 0) {
+                            bbuffer.append(c);
+                        }} catch (IOException e) {
+                            Logger.warn("", e);
                         }
-                        cnt++;
+                        content = bbuffer.getBytes();
+                    } else {*/
+                        content = new byte[(int) http.getPayloadLength()];
+                        int l = 0, n;
+                        while (l < content.length && (n = istream.read(content, l, content.length - l)) > 0) l += n; // compressed and mapped streams return partial reads
+                    //}
+
+                    final RequestHeader requestHeader = new RequestHeader();
+
+                    final ResponseHeader responseHeader = new ResponseHeader(http.statusCode);
+                    for (final HeaderLine hx : http.getHeaderList()) { // include all original response headers for parser
+                        responseHeader.put(hx.name, hx.value);
                     }
+
+                    final Request request = new Request(
+                            null,
+                            location,
+                            requestHeader.referer() == null ? null : requestHeader.referer(),
+                            "warc",
+                            responseHeader.lastModified(),
+                            0);
+
+                    final Response response = new Response(
+                            request,
+                            requestHeader,
+                            responseHeader,
+                            false,
+                            content
+                    );
+
+                    return response;
                 }
             }
-            try {wrec.close();} catch (final IOException e1) {}
-            wrec = localwarcReader.getNextRecord();
         }
-        localwarcReader.close();
-        Logger.info("Processed " + cnt + " WARC documents");
-
-        // put poison into parser queues and wait for parser thread termination
-        for (int i = 0; i < parserThreads.length; i++) try {
-            responseQueue.put(responsePoison);
-        } catch (final InterruptedException e) {}
-        for (int i = 0; i < parserThreads.length; i++) try {
-            parserThreads[i].join();
-        } catch (final InterruptedException e) {}
-
-        // put poison into document queues and wait for document thread termination
-        for (int i = 0; i < documentThreads.length; i++) try {
-            bundleQueue.put(bundlePoison);
-        } catch (final InterruptedException e) {}
-        for (int i = 0; i < documentThreads.length; i++) try {
-            documentThreads[i].join();
-        } catch (final InterruptedException e) {}
-
-        // collect documents
-        final JSONArray parsedDocuments = new JSONArray();
-        for (final JSONObject object: objectQueue) parsedDocuments.put(object);
+        return null;
+    }
 
-        Logger.info("Created " + cnt + " JSON objects from " + cnt + " WARC documents");
+    /**
+     * parse the content of a response
+     * @param sink the target for the YaCy documents from the content, given as soon as each document is parsed
+     * @throws Failure
+     * @throws InterruptedException
+     */
+    public static void parseResponse(final Response response, final DocumentSink sink) throws Failure, InterruptedException {
+        TextParser.parseSource(
+                new AnchorURL(response.url()), // or just use "location"?
+                response.getMimeType(),
+                response.getCharacterEncoding(),
+                null, // no vocabulary scraper
+                0, // no timezone offset
+                response.depth(),
+                response.getContent(),
+                sink);
+    }
 
-        return parsedDocuments;
+    /**
+     * create the json object for the index or, for non-canonical documents, for the graph
+     * @param collections the compiled collection definitions of the crawl, may be null
+     * @param templates the template detector of the job, may be null; the boilerplate text blocks and links of the host are then marked
+     * @param lightPath if true, only the graph and status attributes are computed for non-canonical documents
+     * @param response the response where the document was parsed from
+     * @param document the parsed document
+     */
+    public static JSONObject documentJSON(final CollectionMatcher collections, final TemplateDetector templates, final boolean lightPath, final Response response, final Document document) {
+        final ResponseHeader responseHeader = response.getResponseHeader();
+        // non-canonical documents are not indexed; for those we compute only the graph and status attributes
+        if (lightPath && htmlParser.NONCANONICAL_LIGHT_PATH && WebConfiguration.isNonCanonical(document, responseHeader)) {
+            return WebConfiguration.yacy2graph(collections, responseHeader, document);
+        }
+        if (AUTOTAGGING) document.autotag(LibraryProvider.autotagging.getAutomaton());
+        final String language = LANGUAGE_IDENTIFICATION ? // reads only the prefix of the text buffer
+                LibraryProvider.languageIdentifier.language(document.getText(), document.dc_language(), LANGUAGE_THRESHOLD, LANGUAGE_OVERRIDE_RATIO) :
+                document.dc_language();
+        final JSONObject json = WebConfiguration.yacy2solr(
+                collections, responseHeader,
+                document, response.getRequestHeader().referer(), language, false,
+                0 /* timezoneOffset */);
+        if (templates != null) templates.mark(document, json);
+        return json;
     }
 
     public final static WebMapping[] graph_attributes = new WebMapping[]{
@@ -0,0 +1,82 @@
+/**
+ *  ParserStatisticsService
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser.api;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.json.JSONObject;
+
+import net.yacy.cora.protocol.TimeoutRequest;
+import net.yacy.document.TemplateDetector;
+import net.yacy.document.TextParser;
+import net.yacy.document.parser.html.CharsetDetection;
+import net.yacy.grid.http.APIHandler;
+import net.yacy.grid.http.ObjectAPIHandler;
+import net.yacy.grid.http.Query;
+import net.yacy.grid.http.ServiceResponse;
+
+/**
+ * the number of parse attempts and failures for each parser, with the failure rate and the failures for each reason,
+ * the statistics of the shared workers for time-limited calls, the number of html documents for each charset detection
+ * method, the amount of boilerplate which was marked and the number of truncated WARC files
+ * call example:
+ * http://127.0.0.1:8500/yacy/grid/parser/statistics.json
+ */
+public class ParserStatisticsService extends ObjectAPIHandler implements APIHandler {
+
+    private static final long serialVersionUID = 5531790823402967531L;
+    public static final String NAME = "statistics";
+
+    @Override
+    public String getAPIPath() {
+        return "/yacy/grid/parser/" + NAME + ".json";
+    }
+
+    @Override
+    public ServiceResponse serviceImpl(final Query call, final HttpServletResponse response) {
+        final JSONObject parsers = new JSONObject(true);
+        for (final Map.Entry<String, Map<String, Long>> entry: TextParser.getFailureStatistics().entrySet()) {
+            final JSONObject p = new JSONObject(true);
+            for (final Map.Entry<String, Long> s: entry.getValue().entrySet()) p.put(s.getKey(), s.getValue().longValue());
+            final long attempts = entry.getValue().get("attempts");
+            if (attempts > 0) p.put("failurerate", (double) entry.getValue().get("failures") / attempts);
+            parsers.put(entry.getKey(), p);
+        }
+        final JSONObject json = new JSONObject(true);
+        json.put("parsers", parsers);
+        final JSONObject timeouts = new JSONObject(true);
+        for (final Map.Entry<String, Long> entry: TimeoutRequest.getStatistics().entrySet()) timeouts.put(entry.getKey(), entry.getValue().longValue());
+        json.put("timeouts", timeouts);
+        final JSONObject charsets = new JSONObject(true);
+        for (final Map.Entry<String, Long> entry: CharsetDetection.getStatistics().entrySet()) charsets.put(entry.getKey(), entry.getValue().longValue());
+        json.put("charsets", charsets);
+        final JSONObject boilerplate = new JSONObject(true);
+        for (final Map.Entry<String, Long> entry: TemplateDetector.getStatistics().entrySet()) boilerplate.put(entry.getKey(), entry.getValue().longValue());
+        json.put("boilerplate", boilerplate);
+        final JSONObject warc = new JSONObject(true);
+        for (final Map.Entry<String, Long> entry: ParserService.getStatistics().entrySet()) warc.put(entry.getKey(), entry.getValue().longValue());
+        json.put("warc", warc);
+        json.put(ObjectAPIHandler.SUCCESS_KEY, true);
+        return new ServiceResponse(json);
+    }
+
+}
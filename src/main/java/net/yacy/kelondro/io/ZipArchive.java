@@ -0,0 +1,264 @@
+/**
+ *  ZipArchive
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.kelondro.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * Random access to the entries of a zip archive which is given as a stream.
+ * Archives up to a size limit are read into memory and their central directory is parsed from the buffer,
+ * so no temporary file is written. Larger archives and archives which cannot be handled in memory
+ * (i.e. zip64 archives) are written to a temporary file and opened with java.util.zip.ZipFile.
+ */
+public class ZipArchive implements Closeable {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+
+    private static class Entry {
+        private final int method, compressedSize, localHeaderOffset;
+        private Entry(final int method, final int compressedSize, final int localHeaderOffset) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    // memory mode
+    private byte[] buffer = null;
+    private int length = 0;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    // file mode
+    private File tempFile = null;
+    private ZipFile zipFile = null;
+
+    /**
+     * read a zip archive from a stream
+     * @param source the archive; the stream is read completely but not closed
+     * @param memoryLimit archives up to this size are held in memory
+     * @throws IOException if the stream cannot be read or is not a zip archive
+     */
+    public ZipArchive(final InputStream source, final int memoryLimit) throws IOException {
+        // read up to the memory limit
+        byte[] b = new byte[Math.min(Math.max(source.available(), 65536), memoryLimit + 1)];
+        int len = 0;
+        int n;
+        while (len <= memoryLimit && (n = source.read(b, len, b.length - len)) >= 0) {
+            len += n;
+            if (len == b.length && len <= memoryLimit) {
+                final byte[] c = new byte[(int) Math.min((long) b.length * 2, (long) memoryLimit + 1)];
+                System.arraycopy(b, 0, c, 0, len);
+                b = c;
+            }
+        }
+        if (len <= memoryLimit) {
+            try {
+                this.buffer = b;
+                this.length = len;
+                readCentralDirectory();
+                return;
+            } catch (final IOException e) {
+                // not possible in memory, try it with ZipFile
+                this.buffer = null;
+                this.entries.clear();
+            }
+        }
+
+        // write a temporary file
+        this.tempFile = File.createTempFile("ZipArchive", ".zip");
+        try {
+            final OutputStream os = new FileOutputStream(this.tempFile);
+            try {
+                os.write(b, 0, len);
+                if (len > memoryLimit) FileUtils.copy(source, os);
+            } finally {
+                os.close();
+            }
+            this.zipFile = new ZipFile(this.tempFile);
+        } catch (final IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private int u16(final int p) throws IOException {
+        if (p < 0 || p + 2 > this.length) throw new IOException("zip structure out of bounds");
+        return (this.buffer[p] & 0xff) | ((this.buffer[p + 1] & 0xff) << 8);
+    }
+
+    private long u32(final int p) throws IOException {
+        if (p < 0 || p + 4 > this.length) throw new IOException("zip structure out of bounds");
+        return (this.buffer[p] & 0xffL) | ((this.buffer[p + 1] & 0xffL) << 8) | ((this.buffer[p + 2] & 0xffL) << 16) | ((this.buffer[p + 3] & 0xffL) << 24);
+    }
+
+    private void readCentralDirectory() throws IOException {
+        // find the end of central directory record; it is followed by a comment of at most 65535 bytes
+        int eocd = -1;
+        for (int p = this.length - 22; p >= 0 && p >= this.length - 22 - 65535; p--) {
+            if (u32(p) == EOCD_SIGNATURE) {eocd = p; break;}
+        }
+        if (eocd < 0) throw new IOException("no zip end of central directory");
+        final int count = u16(eocd + 10);
+        final long offset = u32(eocd + 16);
+        if (count == 0xffff || offset == 0xffffffffL) throw new IOException("zip64 archive");
+        int p = (int) offset;
+        for (int i = 0; i < count; i++) {
+            if (u32(p) != CEN_SIGNATURE) throw new IOException("bad zip central directory");
+            final int flags = u16(p + 8);
+            final int method = u16(p + 10);
+            final long csize = u32(p + 20);
+            final int nameLen = u16(p + 28);
+            final int extraLen = u16(p + 30);
+            final int commentLen = u16(p + 32);
+            final long local = u32(p + 42);
+            if (csize == 0xffffffffL || local == 0xffffffffL) throw new IOException("zip64 archive");
+            if (p + 46 + nameLen > this.length) throw new IOException("zip structure out of bounds");
+            final String name = new String(this.buffer, p + 46, nameLen, (flags & 0x800) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+            this.entries.put(name, new Entry(method, (int) csize, (int) local));
+            p += 46 + nameLen + extraLen + commentLen;
+        }
+    }
+
+    /**
+     * @return the names of all entries in the order of the archive directory
+     */
+    public List<String> names() {
+        if (this.zipFile == null) return new ArrayList<>(this.entries.keySet());
+        final List<String> names = new ArrayList<>();
+        final Enumeration<? extends ZipEntry> e = this.zipFile.entries();
+        while (e.hasMoreElements()) names.add(e.nextElement().getName());
+        return names;
+    }
+
+    /**
+     * @return true if the archive is held in memory
+     */
+    public boolean inMemory() {
+        return this.buffer != null;
+    }
+
+    /**
+     * open an entry of the archive
+     * @param name the entry name
+     * @return a stream of the uncompressed entry content or null if the entry does not exist
+     * @throws IOException
+     */
+    public InputStream getInputStream(final String name) throws IOException {
+        if (this.zipFile != null) {
+            final ZipEntry entry = this.zipFile.getEntry(name);
+            return entry == null ? null : this.zipFile.getInputStream(entry);
+        }
+        final Entry entry = this.entries.get(name);
+        if (entry == null) return null;
+        final int local = entry.localHeaderOffset;
+        if (u32(local) != LOC_SIGNATURE) throw new IOException("bad zip local header for " + name);
+        final int data = local + 30 + u16(local + 26) + u16(local + 28);
+        if (data + entry.compressedSize > this.length) throw new IOException("zip entry out of bounds: " + name);
+        if (entry.method == ZipEntry.STORED) return new ByteArrayInputStream(this.buffer, data, entry.compressedSize);
+        if (entry.method == ZipEntry.DEFLATED) {
+            // the inflater may need one byte after the compressed data (see Inflater(boolean nowrap)), that byte exists because the directory follows
+            final Inflater inflater = new Inflater(true);
+            return new InflaterInputStream(new ByteArrayInputStream(this.buffer, data, Math.min(entry.compressedSize + 1, this.length - data)), inflater, 4096) {
+                private boolean closed = false;
+                @Override
+                public void close() throws IOException {
+                    if (this.closed) return;
+                    this.closed = true;
+                    inflater.end();
+                    super.close();
+                }
+            };
+        }
+        throw new IOException("unsupported zip compression method " + entry.method + " for " + name);
+    }
+
+    /**
+     * sort entry names which carry a number, like "ppt/slides/slide10.xml", by that number
+     * @param names a list of entry names, sorted in place
+     */
+    public static void sortNumerical(final List<String> names) {
+        Collections.sort(names, (a, b) -> {
+            final long na = number(a), nb = number(b);
+            return na == nb ? a.compareTo(b) : Long.compare(na, nb);
+        });
+    }
+
+    private static long number(final String name) {
+        int e = name.length();
+        while (e > 0 && !Character.isDigit(name.charAt(e - 1))) e--;
+        int s = e;
+        while (s > 0 && Character.isDigit(name.charAt(s - 1))) s--;
+        if (s == e || e - s > 18) return Long.MAX_VALUE;
+        return Long.parseLong(name.substring(s, e));
+    }
+
+    @Override
+    public void close() {
+        this.buffer = null;
+        this.entries.clear();
+        if (this.zipFile != null) try {
+            this.zipFile.close();
+        } catch (final IOException e) {}
+        this.zipFile = null;
+        if (this.tempFile != null) FileUtils.deletedelete(this.tempFile);
+        this.tempFile = null;
+    }
+
+    public static void main(final String[] args) {
+        // list all entries of a zip file and the number of uncompressed bytes
+        for (final String a: args) {
+            try (InputStream is = new java.io.FileInputStream(a); ZipArchive zip = new ZipArchive(is, Integer.MAX_VALUE - 8)) {
+                System.out.println(a + (zip.inMemory() ? " (in memory)" : " (temporary file)"));
+                for (final String name: zip.names()) {
+                    final InputStream es = zip.getInputStream(name);
+                    long c = 0;
+                    final byte[] b = new byte[4096];
+                    int n;
+                    while ((n = es.read(b)) >= 0) c += n;
+                    es.close();
+                    System.out.println("  " + name + ": " + c);
+                }
+            } catch (final IOException e) {
+                System.out.println(a + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ *  FrozenBayesClassifierTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.bayes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FrozenBayesClassifierTest {
+
+    private static final String[][] TRAINING = new String[][]{
+        {"positive", "today is a sunny and warm day"},
+        {"positive", "i love this great and beautiful place"},
+        {"positive", "the food was good and the staff was friendly"},
+        {"positive", "a wonderful evening with good friends"},
+        {"negative", "today is a rainy and cold day"},
+        {"negative", "i hate this terrible and ugly place"},
+        {"negative", "the food was bad and the staff was rude"},
+        {"negative", "a boring evening with nothing to do"},
+        {"neutral", "the train leaves at nine from platform two"},
+        {"neutral", "the meeting is on monday in room four"}
+    };
+
+    private static final String[] TEXTS = new String[]{
+        "a sunny day with friends",
+        "the staff was rude and the food was cold",
+        "i love this place",
+        "i hate rainy days",
+        "the meeting leaves from room two",
+        "good food",
+        "ugly and boring"
+    };
+
+    private static List<String> tokens(final String text) {
+        return Arrays.asList(text.split(" "));
+    }
+
+    private static BayesClassifier<String, String> train() {
+        final BayesClassifier<String, String> bayes = new BayesClassifier<>();
+        for (final String[] example: TRAINING) bayes.learn(example[0], tokens(example[1]));
+        return bayes;
+    }
+
+    /**
+     * the probabilities of the BayesClassifier, normalized over all categories
+     */
+    private static Map<String, Double> reference(final BayesClassifier<String, String> bayes, final List<String> features) {
+        final Map<String, Double> p = new HashMap<>();
+        double sum = 0.0d;
+        for (final Classification<String, String> c: bayes.classifyDetailed(features)) {
+            p.put(c.getCategory(), (double) c.getProbability());
+            sum += c.getProbability();
+        }
+        for (final Map.Entry<String, Double> e: p.entrySet()) e.setValue(e.getValue() / sum);
+        return p;
+    }
+
+    @Test
+    public void testSameAsBayes() {
+        final BayesClassifier<String, String> bayes = train();
+        final FrozenBayesClassifier<String> frozen = new FrozenBayesClassifier<>(bayes);
+        for (final String text: TEXTS) {
+            final List<String> features = tokens(text);
+            final Classification<String, String> b = bayes.classify(features);
+            final Classification<String, String> f = frozen.classify(features);
+            assertEquals(text, b.getCategory(), f.getCategory());
+            assertEquals(text, reference(bayes, features).get(b.getCategory()).doubleValue(), f.getProbability(), 1e-4);
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        final BayesClassifier<String, String> bayes = train();
+        final FrozenBayesClassifier<String> frozen = new FrozenBayesClassifier<>(bayes);
+        final List<List<String>> documents = new ArrayList<>();
+        for (final String text: TEXTS) documents.add(tokens(text));
+        final List<Classification<String, String>> classifications = frozen.classify(documents);
+        assertEquals(TEXTS.length, classifications.size());
+        for (int i = 0; i < TEXTS.length; i++) {
+            assertEquals(TEXTS[i], bayes.classify(documents.get(i)).getCategory(), classifications.get(i).getCategory());
+        }
+    }
+
+    @Test
+    public void testGeneratedTexts() {
+        // short texts, where the products of the BayesClassifier do not underflow; texts with nearly equal
+        // probabilities of the best two categories are skipped because the float products are not exact
+        final int categoryCount = 5, vocabulary = 500;
+        final Random random = new Random(1);
+        final BayesClassifier<String, String> bayes = new BayesClassifier<>();
+        bayes.setMemoryCapacity(1000);
+        for (int e = 0; e < 500; e++) bayes.learn("c" + (e % categoryCount), generated(random, e % categoryCount, categoryCount, vocabulary));
+        final FrozenBayesClassifier<String> frozen = new FrozenBayesClassifier<>(bayes);
+        int compared = 0;
+        for (int t = 0; t < 1000; t++) {
+            final List<String> features = generated(random, t % categoryCount, categoryCount, vocabulary);
+            final List<Double> p = new ArrayList<>(reference(bayes, features).values());
+            p.sort(null);
+            if (p.get(p.size() - 1) - p.get(p.size() - 2) < 0.01) continue;
+            assertEquals(features.toString(), bayes.classify(features).getCategory(), frozen.classify(features).getCategory());
+            compared++;
+        }
+        assertTrue(compared > 900);
+    }
+
+    private static List<String> generated(final Random random, final int category, final int categoryCount, final int vocabulary) {
+        final List<String> features = new ArrayList<>();
+        for (int i = 0; i < 6; i++) features.add("w" + (random.nextBoolean() ? category * vocabulary / categoryCount + random.nextInt(vocabulary / categoryCount) : random.nextInt(vocabulary)));
+        return features;
+    }
+
+    @Test
+    public void testLongText() {
+        // the products of the BayesClassifier underflow to zero for all categories, the sums of logarithms do not
+        final BayesClassifier<String, String> bayes = train();
+        final FrozenBayesClassifier<String> frozen = new FrozenBayesClassifier<>(bayes);
+        final List<String> features = new ArrayList<>();
+        for (int i = 0; i < 100; i++) features.addAll(tokens("i hate this terrible and ugly place"));
+        for (final Classification<String, String> c: bayes.classifyDetailed(features)) assertEquals(0.0f, c.getProbability(), 0.0f);
+        assertEquals("negative", frozen.classify(features).getCategory());
+    }
+
+    @Test
+    public void testFrozen() {
+        final BayesClassifier<String, String> bayes = train();
+        final FrozenBayesClassifier<String> frozen = new FrozenBayesClassifier<>(bayes);
+        final List<String> features = tokens("i love this place");
+        final Classification<String, String> before = frozen.classify(features);
+        for (int i = 0; i < 20; i++) bayes.learn("negative", features);
+        assertEquals("negative", bayes.classify(features).getCategory());
+        final Classification<String, String> after = frozen.classify(features);
+        assertEquals(before.getCategory(), after.getCategory());
+        assertEquals(before.getProbability(), after.getProbability(), 0.0f);
+        assertNull(new FrozenBayesClassifier<String>(new BayesClassifier<String, String>()).classify(features));
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ *  CollectionMatcherTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.federate.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class CollectionMatcherTest {
+
+    private static final String[] PATTERNS = new String[]{
+        ".*",
+        "https?://yacy.net/.*",
+        "https://yacy\\.net/.*",
+        ".*wiki.*",
+        "https://yacy.net/",
+        "http://a.org/.*|https://yacy.net/.*",
+        ".*\\.pdf",
+        "^http://www\\.example\\.com/docs/.*",
+        "http://www.example.com/a+b/.*",
+        "http://(www\\.)?example\\.org/.*",
+        "https://example.org/[a-z]+/index.html",
+        "http://..\\.example\\.com/.*",
+        "http://www.example.com/\\?q=.*",
+        ".*\\.*",
+        "ftp://files\\.example\\.net/pub/.*\\.tar\\.gz",
+        "http://x.y/z"
+    };
+
+    private static final String[] URLS = new String[]{
+        "https://yacy.net/",
+        "http://yacy.net/wiki/",
+        "https://yacy.net/doc.pdf",
+        "https://example.org/",
+        "https://example.org/abc/index.html",
+        "https://example.org/ab1/index.html",
+        "http://example.org/x",
+        "http://www.example.org/x",
+        "http://www.example.com/docs/a.html",
+        "http://www.example.com/a+b/c",
+        "http://www.example.com/aab/c",
+        "http://www.example.com/?q=test",
+        "http://ab.example.com/wiki",
+        "http://abc.example.com/",
+        "ftp://files.example.net/pub/yacy.tar.gz",
+        "http://a.org/",
+        "http://x.y/z",
+        "http://x.y/zz",
+        "",
+        "https://xn--mnchen-3ya.de/über.pdf"
+    };
+
+    private static Map<String, Pattern> collections() {
+        final Map<String, Pattern> collections = new LinkedHashMap<>();
+        for (int i = 0; i < PATTERNS.length; i++) collections.put("c" + i, Pattern.compile(PATTERNS[i]));
+        return collections;
+    }
+
+    /**
+     * the implementation before the matcher: each pattern is tested against the url
+     */
+    private static List<String> reference(final Map<String, Pattern> collections, final String url) {
+        final List<String> cs = new ArrayList<String>();
+        for (final Map.Entry<String, Pattern> e: collections.entrySet()) {
+            if (e.getValue().matcher(url).matches()) cs.add(e.getKey());
+        }
+        return cs;
+    }
+
+    @Test
+    public void testFixedUrls() {
+        final Map<String, Pattern> collections = collections();
+        final CollectionMatcher matcher = new CollectionMatcher("test", collections);
+        for (final String url: URLS) assertEquals(url, reference(collections, url), matcher.match(url));
+    }
+
+    @Test
+    public void testGeneratedUrls() {
+        final Map<String, Pattern> collections = collections();
+        final CollectionMatcher matcher = new CollectionMatcher("test", collections);
+        final String[] parts = new String[]{"http://", "https://", "www.", "yacy", "example", ".net", ".org", ".com", "/", "wiki", "docs", "a+b", "?q=", ".pdf", "x", "."};
+        final Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            final StringBuilder url = new StringBuilder();
+            final int n = 1 + random.nextInt(8);
+            for (int j = 0; j < n; j++) url.append(parts[random.nextInt(parts.length)]);
+            assertEquals(url.toString(), reference(collections, url.toString()), matcher.match(url.toString()));
+        }
+    }
+
+    @Test
+    public void testFlagsAndEmpty() {
+        final Map<String, Pattern> collections = new LinkedHashMap<>();
+        collections.put("ci", Pattern.compile("https://YACY.net/.*", Pattern.CASE_INSENSITIVE));
+        collections.put("literal", Pattern.compile("https://yacy.net/"));
+        final CollectionMatcher matcher = new CollectionMatcher(null, collections);
+        for (final String url: URLS) assertEquals(url, reference(collections, url), matcher.match(url));
+        assertTrue(new CollectionMatcher(null, null).match("http://yacy.net/").isEmpty());
+        assertTrue(new CollectionMatcher(null, null).isEmpty());
+    }
+}
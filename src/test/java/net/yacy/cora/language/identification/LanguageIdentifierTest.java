@@ -0,0 +1,72 @@
+/**
+ *  LanguageIdentifierTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.language.identification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class LanguageIdentifierTest {
+
+    private static final String ENGLISH = "The file could not be opened because the directory does not exist. " +
+            "Please check the name of the file and try again, or select another location for the download.";
+    private static final String GERMAN = "Die Datei konnte nicht geöffnet werden, weil das Verzeichnis nicht existiert. " +
+            "Bitte überprüfen Sie den Namen der Datei und versuchen Sie es erneut, oder wählen Sie einen anderen Ort.";
+
+    private static LanguageIdentifier identifier() throws IOException {
+        return new LanguageIdentifier(new File("conf/libraries/language/ngram.profiles.gz"));
+    }
+
+    @Test
+    public void testIdentify() throws IOException {
+        final LanguageIdentifier identifier = identifier();
+        assertEquals("en", identifier.language(ENGLISH, 0.9d));
+        assertEquals("de", identifier.language(GERMAN, 0.9d));
+        assertNull(identifier.language("ok", 0.9d)); // too short
+
+        final LanguageIdentifier.Result result = identifier.identify(GERMAN);
+        assertTrue(result.getConfidence("de") > result.getConfidence("nl"));
+        assertEquals(-1.0d, result.getConfidence("xx"), 0.0d);
+    }
+
+    @Test
+    public void testDeclaredLanguage() throws IOException {
+        final LanguageIdentifier identifier = identifier();
+        // no declared language: the identified language is used
+        assertEquals("de", identifier.language(GERMAN, null, 0.9d, 1000.0d));
+        // the declared language is identified as well
+        assertEquals("de", identifier.language(GERMAN, "de", 0.9d, 1000.0d));
+        // a wrong declaration is replaced if the identified language is much more probable
+        assertEquals("de", identifier.language(GERMAN, "en", 0.9d, 1000.0d));
+        // a declaration is kept if the identification is not confident enough compared to the declared language
+        assertEquals("en", identifier.language(GERMAN, "en", 0.9d, Double.MAX_VALUE));
+        assertEquals("en", identifier.language(GERMAN, "en", 1.1d, 1000.0d));
+        // a declared language without a profile is kept
+        assertEquals("fa", identifier.language(GERMAN, "fa", 0.9d, 1000.0d));
+        // a text which cannot be identified keeps the declared language
+        assertEquals("de", identifier.language("ok", "de", 0.9d, 1000.0d));
+        assertNull(identifier.language("ok", null, 0.9d, 1000.0d));
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ *  ConcurrentHeavyHittersTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.cora.sorting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.yacy.cora.util.StringBuilderComparator;
+
+public class ConcurrentHeavyHittersTest {
+
+    /**
+     * words with different case, which are equal for the case-insensitive comparator
+     */
+    private static StringBuilder[] words(final int vocabulary) {
+        final StringBuilder[] words = new StringBuilder[vocabulary];
+        for (int i = 0; i < vocabulary; i++) {
+            final String w = "word" + Integer.toString(i, 36);
+            words[i] = new StringBuilder(i % 3 == 0 ? w.toUpperCase() : w);
+        }
+        return words;
+    }
+
+    /**
+     * a stream of word numbers with a zipf distribution: word 0 is the most frequent
+     */
+    private static int[] zipf(final Random random, final int vocabulary, final int length) {
+        final double[] cumulative = new double[vocabulary];
+        double sum = 0.0d;
+        for (int i = 0; i < vocabulary; i++) cumulative[i] = sum += 1.0d / (i + 1);
+        final int[] stream = new int[length];
+        for (int i = 0; i < length; i++) {
+            final int p = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            stream[i] = p < 0 ? -p - 1 : p;
+        }
+        return stream;
+    }
+
+    /**
+     * the implementation before the heavy hitters: a synchronized OrderedScoreMap which is shrunk to the half
+     * of the maximum size when it reaches the maximum size, as in WordCache
+     */
+    private static OrderedScoreMap<StringBuilder> reference(final StringBuilder[] words, final int[] stream, final int maxSize) {
+        final OrderedScoreMap<StringBuilder> ordered = new OrderedScoreMap<StringBuilder>(StringBuilderComparator.CASE_INSENSITIVE_ORDER);
+        for (final int w: stream) {
+            ordered.inc(words[w]);
+            if (!ordered.sizeSmaller(maxSize)) ordered.shrinkToMaxSize(maxSize / 2);
+        }
+        return ordered;
+    }
+
+    private static void assertSameCounts(final OrderedScoreMap<StringBuilder> ordered, final ConcurrentHeavyHitters hitters, final StringBuilder[] words) {
+        for (final StringBuilder word: words) {
+            assertEquals(word.toString(), ordered.get(word), hitters.get(word));
+            assertEquals(word.toString(), ordered.containsKey(word), hitters.containsKey(word));
+            // the other case of the word has the same count
+            final StringBuilder other = new StringBuilder(word.toString().toLowerCase());
+            assertEquals(word.toString(), ordered.get(other), hitters.get(other));
+        }
+        assertEquals(ordered.size(), hitters.size());
+    }
+
+    @Test
+    public void testSameCountsWithoutShrink() {
+        // all words fit into the map and the sketch has no collisions: the counts are exact
+        final StringBuilder[] words = words(500);
+        final int[] stream = zipf(new Random(1), words.length, 20000);
+        final OrderedScoreMap<StringBuilder> ordered = reference(words, stream, 10000);
+        final ConcurrentHeavyHitters hitters = new ConcurrentHeavyHitters(10000, 1 << 16);
+        for (final int w: stream) hitters.inc(words[w]);
+        assertSameCounts(ordered, hitters, words);
+    }
+
+    @Test
+    public void testTailMap() {
+        final StringBuilder[] words = words(500);
+        final int[] stream = zipf(new Random(2), words.length, 5000);
+        final OrderedScoreMap<StringBuilder> ordered = reference(words, stream, 10000);
+        final ConcurrentHeavyHitters hitters = new ConcurrentHeavyHitters(10000, 1 << 16);
+        for (final int w: stream) hitters.inc(words[w]);
+        for (final String start: new String[]{"", "word", "WORD1", "word5", "wordz", "x"}) {
+            final List<String> o = new ArrayList<>(), h = new ArrayList<>();
+            for (final Map.Entry<StringBuilder, AtomicInteger> e: ordered.tailMap(new StringBuilder(start)).entrySet()) o.add(e.getKey().toString().toLowerCase() + "=" + e.getValue().get());
+            for (final Map.Entry<StringBuilder, AtomicInteger> e: hitters.tailMap(new StringBuilder(start)).entrySet()) h.add(e.getKey().toString().toLowerCase() + "=" + e.getValue().get());
+            assertEquals(start, o, h);
+        }
+    }
+
+    @Test
+    public void testConcurrentCounts() throws InterruptedException {
+        // the counts of concurrent threads are the same as the counts of one thread
+        final StringBuilder[] words = words(500);
+        final int threads = 8;
+        final int[][] streams = new int[threads][];
+        final Random random = new Random(3);
+        final List<Integer> all = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            streams[t] = zipf(random, words.length, 10000);
+            for (final int w: streams[t]) all.add(w);
+        }
+        final int[] stream = new int[all.size()];
+        for (int i = 0; i < stream.length; i++) stream[i] = all.get(i);
+        final OrderedScoreMap<StringBuilder> ordered = reference(words, stream, 10000);
+
+        final ConcurrentHeavyHitters hitters = new ConcurrentHeavyHitters(10000, 1 << 16);
+        final Thread[] t = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int[] s = streams[i];
+            t[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (final int w: s) hitters.inc(words[w]);
+                }
+            };
+            t[i].start();
+        }
+        for (final Thread thread: t) thread.join();
+        assertSameCounts(ordered, hitters, words);
+    }
+
+    @Test
+    public void testTopWithShrink() {
+        // more words than the maximum size: both implementations shrink and keep the most frequent words
+        final int maxSize = 500, topCount = 20;
+        final StringBuilder[] words = words(20000);
+        final int[] stream = zipf(new Random(4), words.length, 200000);
+        final OrderedScoreMap<StringBuilder> ordered = reference(words, stream, maxSize);
+        final ConcurrentHeavyHitters hitters = new ConcurrentHeavyHitters(maxSize, 1 << 12);
+        for (final int w: stream) hitters.inc(words[w]);
+        assertTrue(hitters.size() < maxSize);
+
+        final Set<String> orderedTop = new HashSet<>();
+        final Iterator<StringBuilder> k = ordered.keys(false);
+        for (int i = 0; i < topCount && k.hasNext(); i++) orderedTop.add(k.next().toString().toLowerCase());
+        final Set<String> hittersTop = new HashSet<>();
+        for (final StringBuilder w: hitters.top(topCount)) hittersTop.add(w.toString().toLowerCase());
+        int orderedHits = 0, hittersHits = 0;
+        for (int i = 0; i < topCount; i++) {
+            final String w = words[i].toString().toLowerCase(); // the first words are the most frequent
+            if (orderedTop.contains(w)) orderedHits++;
+            if (hittersTop.contains(w)) hittersHits++;
+        }
+        assertTrue("heavy hitters " + hittersHits + ", ordered score map " + orderedHits, hittersHits >= orderedHits);
+        // the most frequent words are counted at least as high as by the ordered score map
+        for (int i = 0; i < 5; i++) assertTrue(words[i].toString(), hitters.get(words[i]) >= ordered.get(words[i]));
+    }
+
+    @Test
+    public void testNewWordAfterShrink() {
+        // a word which is learned after a shrink can be found at once, as with the ordered score map
+        final int maxSize = 500;
+        final StringBuilder[] words = words(20000);
+        final int[] stream = zipf(new Random(5), words.length, 100000);
+        final OrderedScoreMap<StringBuilder> ordered = reference(words, stream, maxSize);
+        final ConcurrentHeavyHitters hitters = new ConcurrentHeavyHitters(maxSize, 1 << 12);
+        for (final int w: stream) hitters.inc(words[w]);
+        final StringBuilder word = new StringBuilder("recentlylearned");
+        ordered.inc(word);
+        hitters.inc(word);
+        assertTrue(ordered.containsKey(word));
+        assertTrue(hitters.containsKey(word));
+        assertTrue(hitters.get(word) >= 1); // the estimate of the sketch may be too high but never too low
+        assertEquals("recentlylearned", hitters.tailMap(new StringBuilder("recently")).firstKey().toString());
+    }
+
+    @Test
+    public void testClear() {
+        final StringBuilder[] words = words(10);
+        final ConcurrentHeavyHitters hitters = new ConcurrentHeavyHitters(100, 1 << 10);
+        for (final StringBuilder w: words) hitters.inc(w);
+        assertEquals(words.length, hitters.size());
+        hitters.clear();
+        assertEquals(0, hitters.size());
+        assertEquals(0, hitters.get(words[0]));
+        hitters.inc(words[0]);
+        assertEquals(1, hitters.get(words[0]));
+    }
+}
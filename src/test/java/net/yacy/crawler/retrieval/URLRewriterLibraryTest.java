@@ -0,0 +1,95 @@
+/**
+ *  URLRewriterLibraryTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.crawler.retrieval;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class URLRewriterLibraryTest {
+
+    private static void assertRewrite(final URLRewriterLibrary lib, final String url, final String expected) {
+        assertEquals(url, expected, lib.applyAll(url));
+        assertEquals(url, expected, lib.apply(url));
+    }
+
+    /**
+     * @return a pattern for a literal string with escaped special characters, so the rule is indexed by the literal
+     */
+    private static Pattern literal(final String s) {
+        final StringBuilder regex = new StringBuilder();
+        for (final char c: s.toCharArray()) {
+            if (!Character.isLetterOrDigit(c)) regex.append('\\');
+            regex.append(c);
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    @Test
+    public void testRewriteChangesCandidates() {
+        final URLRewriterLibrary lib = new URLRewriterLibrary();
+        lib.add(Pattern.compile("^https?://old\\.example\\.com/"), "http://www.example.com/"); // host rule, changes the host
+        lib.add(Pattern.compile("^https?://www\\.example\\.com/.*?(;jsessionid=[0-9A-F]+)"), "http://www.example.com/"); // host rule for the new host
+        lib.add(Pattern.compile("/index\\.html$"), "/"); // trigram rule
+        lib.add(Pattern.compile("/home/"), "/index.html"); // trigram rule which creates the literal of an earlier rule
+        lib.add(Pattern.compile("^http://www\\.example\\.com/$"), "http://example.com/"); // host rule, removes the host of the second rule
+        lib.add(Pattern.compile("^https?://www\\.example\\.com/"), "http://never.example.com/"); // must not match after the previous rule
+        lib.add(Pattern.compile("[?&]sid=\\d+"), ""); // no literal with three characters: tried on every url
+
+        // the first rule moves the url to the host of the second rule, the second rule to the host of the fifth rule
+        assertRewrite(lib, "http://old.example.com/x;jsessionid=0A1B", "http://example.com/");
+        // the earlier rule does not match the literal which is created by a later rule
+        assertRewrite(lib, "http://www.example.com/home/", "http://never.example.com/index.html");
+        assertRewrite(lib, "http://www.example.com/index.html", "http://example.com/");
+        assertRewrite(lib, "http://old.example.com/index.html?sid=42", "http://never.example.com/index.html");
+        assertRewrite(lib, "http://other.example.org/page?a=1&sid=7", "http://other.example.org/page?a=1");
+    }
+
+    @Test
+    public void testRandomRules() {
+        final String[] hosts = {"www.example.com", "example.com", "old.example.com", "www.example.org"};
+        final String[] parts = {"/index.html", "/home/", ";jsessionid=ABC", "?sid=1", "&sid=2", "/a/b/", "cln_12/", "?administration=x1"};
+        final Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            final URLRewriterLibrary lib = new URLRewriterLibrary();
+            for (int r = 0; r < 8; r++) {
+                final String host = hosts[random.nextInt(hosts.length)];
+                final String target = hosts[random.nextInt(hosts.length)];
+                final String part = parts[random.nextInt(parts.length)];
+                final String other = parts[random.nextInt(parts.length)];
+                switch (random.nextInt(4)) {
+                    case 0: lib.add(Pattern.compile("^https?://" + host.replace(".", "\\.") + "/"), "http://" + target + "/"); break;
+                    case 1: lib.add(literal(part), other); break;
+                    case 2: lib.add(Pattern.compile("cln_\\d+\\/"), ""); break;
+                    default: lib.add(Pattern.compile("[?&]sid=\\d+"), ""); break;
+                }
+            }
+            for (int u = 0; u < 20; u++) {
+                final StringBuilder url = new StringBuilder("http://").append(hosts[random.nextInt(hosts.length)]);
+                for (int p = random.nextInt(4); p >= 0; p--) url.append(parts[random.nextInt(parts.length)]);
+                final String s = url.toString();
+                assertEquals(s, lib.applyAll(s), lib.apply(s));
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ *  DocumentSinkTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import net.yacy.document.parser.rssParser;
+import net.yacy.document.parser.zipParser;
+import net.yacy.grid.tools.MultiProtocolURL;
+
+public class DocumentSinkTest {
+
+    private static final int ITEMS = 5;
+
+    private static InputStream feed() {
+        final StringBuilder rss = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<rss version=\"2.0\"><channel>");
+        rss.append("<title>feed</title><link>http://www.example.com/</link><description>a feed</description>");
+        for (int i = 0; i < ITEMS; i++) {
+            rss.append("<item><title>item ").append(i).append("</title><link>http://www.example.com/item").append(i).append(".html</link>");
+            rss.append("<description>the item ").append(i).append("</description></item>");
+        }
+        rss.append("</channel></rss>");
+        return new ByteArrayInputStream(rss.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Document document(final String url) throws MalformedURLException {
+        return new Document(new MultiProtocolURL(url), "text/html", "UTF-8", null, null, null, null, null, null, null, null,
+                0.0d, 0.0d, "text", null, null, null, false, null);
+    }
+
+    /**
+     * a sink which takes a limited number of documents and is cancelled afterwards
+     */
+    private static class LimitSink implements DocumentSink {
+        private final int limit;
+        private final List<Document> documents = new ArrayList<>();
+
+        private LimitSink(final int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean put(final Document document) {
+            this.documents.add(document);
+            return this.documents.size() < this.limit;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return this.documents.size() >= this.limit;
+        }
+    }
+
+    @Test
+    public void testCollector() throws Exception {
+        final MultiProtocolURL location = new MultiProtocolURL("http://www.example.com/feed.rss");
+        final DocumentSink.Collector collector = new DocumentSink.Collector();
+        new rssParser().parse(location, "application/rss+xml", "UTF-8", new VocabularyScraper(), 0, feed(), collector);
+        assertEquals(ITEMS, collector.size());
+
+        // the Document[] api gives the same documents in the same order
+        final Document[] docs = new rssParser().parse(location, "application/rss+xml", "UTF-8", new VocabularyScraper(), 0, feed());
+        assertEquals(ITEMS, docs.length);
+        for (int i = 0; i < ITEMS; i++) {
+            assertEquals("item " + i, docs[i].dc_title());
+            assertEquals(docs[i].dc_source(), collector.documents()[i].dc_source());
+        }
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        final MultiProtocolURL location = new MultiProtocolURL("http://www.example.com/feed.rss");
+        // the parser stops when the sink does not accept more documents
+        final LimitSink sink = new LimitSink(2);
+        new rssParser().parse(location, "application/rss+xml", "UTF-8", new VocabularyScraper(), 0, feed(), sink);
+        assertEquals(2, sink.documents.size());
+        assertEquals("http://www.example.com/item1.html", sink.documents.get(1).dc_source().toNormalform(true));
+
+        // a cancelled sink gets no documents
+        final LimitSink cancelled = new LimitSink(0);
+        new rssParser().parse(location, "application/rss+xml", "UTF-8", new VocabularyScraper(), 0, feed(), cancelled);
+        assertEquals(0, cancelled.documents.size());
+    }
+
+    @Test
+    public void testDefaultPush() throws Exception {
+        // the default implementation gives the documents of the Document[] api to the sink until it stops
+        final Document[] docs = new Document[] {document("http://www.example.com/a"), document("http://www.example.com/b"), document("http://www.example.com/c")};
+        final Parser parser = new AbstractParser("array") {
+            @Override
+            public Document[] parse(final MultiProtocolURL location, final String mimeType, final String charset,
+                    final VocabularyScraper scraper, final int timezoneOffset, final InputStream source) {
+                return docs;
+            }
+        };
+        final DocumentSink.Collector collector = new DocumentSink.Collector();
+        parser.parse(docs[0].dc_source(), "text/html", "UTF-8", new VocabularyScraper(), 0, null, collector);
+        assertEquals(3, collector.size());
+        final LimitSink sink = new LimitSink(1);
+        parser.parse(docs[0].dc_source(), "text/html", "UTF-8", new VocabularyScraper(), 0, null, sink);
+        assertEquals(1, sink.documents.size());
+    }
+
+    @Test
+    public void testSubDocuments() throws Exception {
+        // the documents of an archive are added to the main document, the target sink is asked whether to continue
+        final Document maindoc = document("http://www.example.com/archive.zip");
+        final LimitSink target = new LimitSink(1);
+        final DocumentSink sub = zipParser.subDocumentSink(maindoc, target);
+        assertFalse(sub.nonCanonicalLightPath());
+        assertTrue(sub.put(document("http://www.example.com/archive.zip#a.html")));
+        assertTrue(target.documents.isEmpty());
+        target.put(maindoc);
+        assertTrue(sub.isCancelled());
+        assertFalse(sub.put(document("http://www.example.com/archive.zip#b.html")));
+    }
+}
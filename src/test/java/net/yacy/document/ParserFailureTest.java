@@ -0,0 +1,83 @@
+/**
+ *  ParserFailureTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import net.yacy.document.parser.csvParser;
+import net.yacy.document.parser.torrentParser;
+import net.yacy.document.parser.images.svgParser;
+import net.yacy.grid.tools.MultiProtocolURL;
+
+public class ParserFailureTest {
+
+    private static Parser.Failure.Reason reason(final Parser parser, final String url, final String mimeType, final String content) throws MalformedURLException, InterruptedException {
+        final InputStream source = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        try {
+            parser.parse(new MultiProtocolURL(url), mimeType, StandardCharsets.UTF_8.name(), new VocabularyScraper(), 0, source, new DocumentSink.Collector());
+        } catch (final Parser.Failure e) {
+            return e.getReason();
+        }
+        fail("the parser " + parser.getName() + " must fail");
+        return null;
+    }
+
+    @Test
+    public void testDefaultReason() {
+        // a failure without a reason is not counted as damaged content
+        assertEquals(Parser.Failure.Reason.unknown, new Parser.Failure().getReason());
+        assertEquals(Parser.Failure.Reason.unknown, new Parser.Failure("failure", null).getReason());
+        assertEquals(Parser.Failure.Reason.toolarge, new Parser.Failure(Parser.Failure.Reason.toolarge, "failure", null).getReason());
+    }
+
+    @Test
+    public void testMalformed() throws MalformedURLException, InterruptedException {
+        assertEquals(Parser.Failure.Reason.malformed, reason(new csvParser(), "http://example.org/table.csv", "text/csv", ""));
+        assertEquals(Parser.Failure.Reason.malformed, reason(new torrentParser(), "http://example.org/file.torrent", "application/x-bittorrent", ""));
+    }
+
+    @Test
+    public void testUnsupported() throws MalformedURLException, InterruptedException {
+        // the svg parser rejects xml documents which are not svg
+        assertEquals(Parser.Failure.Reason.unsupported, reason(new svgParser(), "http://example.org/image.svg", "image/svg+xml",
+                "<?xml version=\"1.0\"?><html><body>text</body></html>"));
+    }
+
+    @Test
+    public void testNoDocument() throws MalformedURLException, InterruptedException {
+        // a parser without a result gives no reason, the next parser is tried
+        final Parser parser = new AbstractParser("empty") {
+            @Override
+            public Document[] parse(final MultiProtocolURL location, final String mimeType, final String charset,
+                    final VocabularyScraper scraper, final int timezoneOffset, final InputStream source) {
+                return null;
+            }
+        };
+        assertEquals(Parser.Failure.Reason.unknown, reason(parser, "http://example.org/", "text/plain", "text"));
+    }
+}
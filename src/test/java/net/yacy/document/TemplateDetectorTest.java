@@ -0,0 +1,139 @@
+/**
+ *  TemplateDetectorTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import net.yacy.cora.federate.index.ParserMapping;
+import net.yacy.document.parser.html.Scraper;
+import net.yacy.grid.io.index.WebMapping;
+import net.yacy.grid.tools.MultiProtocolURL;
+
+public class TemplateDetectorTest {
+
+    private static final String HEADER = "Example Site Home News Contact";
+    private static final String FOOTER = "Copyright Example Site All rights reserved";
+
+    /**
+     * a document as the html parser creates it, with the text blocks of the scraper
+     */
+    private static Document document(final String url, final char[]... blocks) throws MalformedURLException {
+        final MultiProtocolURL location = new MultiProtocolURL(url);
+        final Scraper scraper = new Scraper(location, 100, new VocabularyScraper(), 0);
+        for (final char[] block: blocks) scraper.scrapeText(block, null);
+        final Document document = new Document(location, "text/html", "UTF-8", null, null, null, null, null, null, null, null,
+                0.0d, 0.0d, scraper.getText(), null, null, null, false, null);
+        document.setScraperObject(scraper);
+        return document;
+    }
+
+    private static Document page(final int n) throws MalformedURLException {
+        return document("http://www.example.com/page" + n + ".html",
+                HEADER.toCharArray(), ("the article number " + n + " of the site").toCharArray(), FOOTER.toCharArray());
+    }
+
+    /**
+     * @return the text boilerplate positions which the detector has written to a new index object of the document
+     */
+    private static JSONArray mark(final TemplateDetector templates, final Document document) {
+        final JSONObject json = new JSONObject();
+        templates.mark(document, json);
+        return json.optJSONArray(ParserMapping.text_boilerplate_val.getFieldName());
+    }
+
+    @Test
+    public void testTemplate() throws MalformedURLException {
+        final TemplateDetector templates = new TemplateDetector();
+        for (int n = 1; n < TemplateDetector.MIN_DOCUMENTS; n++) assertNull(mark(templates, page(n)));
+        for (int n = TemplateDetector.MIN_DOCUMENTS; n < TemplateDetector.MIN_DOCUMENTS + 3; n++) {
+            final Document document = page(n);
+            final String text = document.getTextString();
+            final JSONArray positions = mark(templates, document);
+            // the text is not changed, the header and the footer are marked
+            assertEquals(HEADER + " the article number " + n + " of the site " + FOOTER, document.getTextString());
+            assertEquals(Arrays.asList(0L, (long) HEADER.length(), (long) (text.length() - FOOTER.length()), (long) text.length()), positions.toList());
+        }
+        // other hosts have their own templates
+        assertNull(mark(templates, document("http://other.example.org/", HEADER.toCharArray(), FOOTER.toCharArray())));
+    }
+
+    @Test
+    public void testLinks() throws MalformedURLException {
+        final TemplateDetector templates = new TemplateDetector();
+        final String inbound = WebMapping.inboundlinks_sxt.getMapping().name();
+        for (int n = 1; n <= TemplateDetector.MIN_DOCUMENTS; n++) {
+            final JSONObject json = new JSONObject();
+            json.put(inbound, new JSONArray(Arrays.asList("http://www.example.com/page" + (n + 1) + ".html", "http://www.example.com/")));
+            json.put(WebMapping.inboundlinks_anchortext_txt.getMapping().name(), new JSONArray(Arrays.asList("next", "home")));
+            final String links = json.get(inbound).toString();
+            templates.mark(page(n), json);
+            // the link lists are not changed, the link to the home page is marked in the last document
+            assertEquals(links, json.get(inbound).toString());
+            final JSONArray positions = json.optJSONArray(ParserMapping.inboundlinks_boilerplate_val.getFieldName());
+            if (n < TemplateDetector.MIN_DOCUMENTS) assertNull(positions); else assertEquals(Arrays.asList(1L), positions.toList());
+        }
+    }
+
+    @Test
+    public void testLargePage() throws MalformedURLException {
+        // the text of the pages is twice as long as the content buffer of the scraper, which drops all text once the
+        // buffer is larger than MAX_DOCSIZE
+        final char[][] blocks = new char[2 * Scraper.MAX_DOCSIZE / 1000][];
+        final char[][] lines = new char[100][];
+        for (int i = 0; i < lines.length; i++) {
+            final StringBuilder sb = new StringBuilder(1000);
+            while (sb.length() < 990) sb.append("line ").append(i).append(' ');
+            lines[i] = sb.toString().trim().toCharArray();
+        }
+        blocks[0] = HEADER.toCharArray();
+        for (int i = 1; i < blocks.length; i++) blocks[i] = lines[i % lines.length];
+
+        final TemplateDetector templates = new TemplateDetector();
+        for (int n = 1; n <= TemplateDetector.MIN_DOCUMENTS; n++) {
+            final Document document = document("http://www.example.com/large" + n + ".html", blocks);
+            final int[] ends = ((Scraper) document.getScraperObject()).getTextBlocks();
+            final String text = document.getTextString();
+            assertTrue(text.length() < Scraper.MAX_DOCSIZE * 3 / 2);
+            assertTrue(ends.length < blocks.length);
+            for (int i = 1; i < ends.length; i++) assertTrue(Arrays.toString(Arrays.copyOfRange(ends, i - 1, i + 1)), ends[i] > ends[i - 1]);
+            assertEquals(text.length(), ends[ends.length - 1]);
+            final JSONArray positions = mark(templates, document);
+            assertEquals(text, document.getTextString());
+            if (n < TemplateDetector.MIN_DOCUMENTS) {
+                assertNull(positions);
+            } else {
+                // the header and the repeated lines are marked
+                assertEquals(0L, positions.getLong(0));
+                assertEquals(HEADER.length(), positions.getLong(1));
+                for (int i = 1; i < positions.length(); i++) assertTrue(positions.getLong(i) >= positions.getLong(i - 1));
+                assertEquals(text.length(), positions.getLong(positions.length() - 1));
+            }
+        }
+    }
+}
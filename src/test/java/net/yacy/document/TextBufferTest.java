@@ -0,0 +1,88 @@
+/**
+ *  TextBufferTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TextBufferTest {
+
+    private static String read(final Reader reader) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        final char[] b = new char[3];
+        int n;
+        while ((n = reader.read(b, 0, b.length)) >= 0) sb.append(b, 0, n);
+        return sb.toString();
+    }
+
+    private static String read(final InputStream is) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        int c;
+        while ((c = is.read()) >= 0) os.write(c);
+        return new String(os.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testToStringReplacesSegments() throws IOException {
+        final TextBuffer text = new TextBuffer("first ").append("second ").append(new TextBuffer("third"));
+        assertEquals(3, text.segments());
+        final Reader reader = text.getReader();
+        final InputStream is = text.getInputStream();
+        assertEquals('s', text.charAt(6));
+
+        final String s = text.toString();
+        assertEquals("first second third", s);
+        // the joined string is the only segment, it is not copied again
+        assertEquals(1, text.segments());
+        assertSame(s, text.toString());
+        assertEquals('s', text.charAt(6));
+        assertEquals("second", text.subSequence(6, 12).toString());
+
+        // readers which were opened before keep reading the segments
+        assertEquals(s, read(reader));
+        assertEquals(s, read(is));
+        assertEquals(s, read(text.getReader()));
+
+        // text which is appended after toString
+        text.append(" fourth");
+        assertEquals(2, text.segments());
+        assertEquals(s.length() + 7, text.length());
+        assertEquals('f', text.charAt(s.length() + 1));
+        assertEquals("first second third fourth", text.toString());
+        assertEquals("first second third fourth", read(text.getInputStream()));
+    }
+
+    @Test
+    public void testAppendItself() {
+        final TextBuffer text = new TextBuffer("a").append("b");
+        text.append(text);
+        assertEquals("abab", text.toString());
+        text.append(text);
+        assertEquals("abababab", text.toString());
+    }
+}
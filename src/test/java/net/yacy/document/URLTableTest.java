@@ -0,0 +1,99 @@
+/**
+ *  URLTableTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.MalformedURLException;
+
+import org.junit.Test;
+
+import net.yacy.grid.tools.AnchorURL;
+import net.yacy.grid.tools.Classification.ContentDomain;
+import net.yacy.grid.tools.MultiProtocolURL;
+
+public class URLTableTest {
+
+    /**
+     * @return the relation of a link to the document as three flags: same host, same domain, same site
+     */
+    private static String relation(final String source, final String link) throws MalformedURLException {
+        final URLTable table = new URLTable(new MultiProtocolURL(source));
+        final MultiProtocolURL url = new MultiProtocolURL(link);
+        return (table.isSameHost(url) ? "h" : "-") + (table.isSameDomain(url) ? "d" : "-") + (table.isSameSite(url) ? "s" : "-");
+    }
+
+    @Test
+    public void testHostRules() throws MalformedURLException {
+        assertEquals("hds", relation("http://www.example.com/", "http://www.example.com/page.html"));
+        // the www prefix of the document host is ignored for the domain and the site
+        assertEquals("-ds", relation("http://www.example.com/", "http://example.com/page.html"));
+        assertEquals("-d-", relation("http://www.example.com/", "http://news.example.com/"));
+        // a link to the www host of the document is the same site and ends with the document host
+        assertEquals("-ds", relation("http://example.com/", "http://www.example.com/"));
+        // a subdomain of the document host is the same domain
+        assertEquals("-d-", relation("http://example.com/", "http://news.example.com/"));
+        assertEquals("---", relation("http://www.example.com/", "http://www.example.org/"));
+        assertEquals("---", relation("http://www.example.com/", "http://example.org/"));
+    }
+
+    @Test
+    public void testShared() throws MalformedURLException {
+        final URLTable table = new URLTable(new MultiProtocolURL("http://www.example.com/"));
+        final MultiProtocolURL a = new MultiProtocolURL("http://www.example.com/path/image.JPG?size=2");
+        final MultiProtocolURL b = new MultiProtocolURL("http://www.example.com/path/image.JPG?size=2");
+
+        // each property is computed once for each url object and equal strings are stored once
+        final String normalform = table.normalform(a, true);
+        assertEquals(a.toNormalform(true), normalform);
+        assertSame(normalform, table.normalform(a, true));
+        assertSame(normalform, table.normalform(b, true));
+        assertEquals(2, table.size());
+        assertSame(table.host(a), table.host(b));
+        assertEquals("jpg", table.extension(a));
+        assertEquals(ContentDomain.IMAGE, table.media(a));
+        assertEquals(a.toTokens(), table.tokens(a));
+
+        // the extension is taken from the last dot of the normal form, which may be in the host
+        final MultiProtocolURL page = new MultiProtocolURL("http://www.example.com/about");
+        assertEquals("com/about", table.extension(page));
+        assertEquals(ContentDomain.ALL, table.media(page));
+        assertNull(table.extension(new MultiProtocolURL("http://localhost/about")));
+    }
+
+    @Test
+    public void testResolve() throws MalformedURLException {
+        final MultiProtocolURL base = new MultiProtocolURL("http://www.example.com/dir/page.html");
+        final URLTable table = new URLTable(base);
+        final AnchorURL first = table.resolve(base, "other.html");
+        final AnchorURL second = table.resolve(base, "other.html");
+        // each occurrence of a link is its own anchor, but the properties of the url are shared
+        assertNotSame(first, second);
+        assertEquals(first.toNormalform(true), second.toNormalform(true));
+        assertSame(table.normalform(first, true), table.normalform(second, true));
+        assertTrue(table.isSameHost(second));
+        assertFalse(table.isSameHost(table.resolve(base, "http://www.example.org/")));
+    }
+}
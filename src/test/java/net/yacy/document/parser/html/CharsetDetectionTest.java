@@ -0,0 +1,129 @@
+/**
+ *  CharsetDetectionTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.parser.html;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.ibm.icu.text.CharsetDetector;
+
+public class CharsetDetectionTest {
+
+    private static final String GERMAN = "Über die Brücke gehen Bären und Füchse, während die Straßenbahn fährt. Größere Mäuse öffnen Türen. ";
+    private static final String FRENCH = "L'été dernier, nous sommes allés à la côte où les élèves ont goûté des crêpes près de la forêt. ";
+    private static final String RUSSIAN = "Съешь же ещё этих мягких французских булок да выпей чаю. Широкая электрификация южных губерний. ";
+    private static final String JAPANESE = "日本語のテキストはここにあります。これは文字コードの検出のための長い文章です。東京と大阪。";
+    private static final String ASCII = "The quick brown fox jumps over the lazy dog. Pack my box with five dozen liquor jugs. ";
+
+    private static String html(final String meta, final String text, final int repeat) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<!DOCTYPE html><html><head>").append(meta).append("<title>test</title></head><body><p>");
+        for (int i = 0; i < repeat; i++) sb.append(text);
+        sb.append("</p></body></html>");
+        return sb.toString();
+    }
+
+    /**
+     * the detection before the layered detection: the ICU detector on the whole document
+     */
+    private static Charset reference(final byte[] b) throws IOException {
+        final CharsetDetector det = new CharsetDetector();
+        det.enableInputFilter(true);
+        det.setText(new ByteArrayInputStream(b));
+        return Charset.forName(det.detect().getName());
+    }
+
+    /**
+     * the layered detection must give the same text as the previous detection, and that is the original text
+     */
+    private static void assertSameText(final String html, final Charset encoding) throws IOException {
+        final byte[] b = html.getBytes(encoding);
+        final Charset detected = CharsetDetection.detect(b, b.length);
+        assertEquals(encoding.name(), new String(b, reference(b)), new String(b, detected));
+        assertEquals(encoding.name(), html, new String(b, detected));
+    }
+
+    /**
+     * the layered detection must give the original text; used for documents where the previous detection fails
+     */
+    private static void assertOriginalText(final String html, final Charset encoding) {
+        final byte[] b = html.getBytes(encoding);
+        assertEquals(encoding.name(), html, new String(b, CharsetDetection.detect(b, b.length)));
+    }
+
+    @Test
+    public void testSameTextAsReference() throws IOException {
+        assertSameText(html("", GERMAN, 20), StandardCharsets.UTF_8);
+        assertSameText(html("", FRENCH, 20), StandardCharsets.UTF_8);
+        assertSameText(html("", RUSSIAN, 20), StandardCharsets.UTF_8);
+        assertSameText(html("", JAPANESE, 20), StandardCharsets.UTF_8);
+        assertSameText(html("", ASCII, 20), StandardCharsets.UTF_8);
+        assertSameText(html("", GERMAN, 20), StandardCharsets.ISO_8859_1);
+        assertSameText(html("", FRENCH, 20), StandardCharsets.ISO_8859_1);
+        assertSameText(html("<meta charset=\"utf-8\">", GERMAN, 20), StandardCharsets.UTF_8);
+        assertSameText(html("<meta charset=\"Shift_JIS\">", JAPANESE, 20), Charset.forName("Shift_JIS"));
+    }
+
+    @Test
+    public void testDeclaredCharset() {
+        // the ICU detector alone does not recognize this document, the declaration is used first now
+        assertOriginalText(html("<meta http-equiv=\"content-type\" content=\"text/html; charset=windows-1251\">", RUSSIAN, 20), Charset.forName("windows-1251"));
+    }
+
+    @Test
+    public void testLayers() {
+        final byte[] bom = "\uFEFF<html>test</html>".getBytes(StandardCharsets.UTF_8);
+        assertEquals(StandardCharsets.UTF_8, CharsetDetection.detect(bom, bom.length));
+        final byte[] declared = html("<meta charset=\"iso-8859-1\">", ASCII, 1).getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(StandardCharsets.ISO_8859_1, CharsetDetection.detect(declared, declared.length));
+        // a declaration of UTF-8 is not trusted for content which is not UTF-8
+        final byte[] wrong = html("<meta charset=\"utf-8\">", GERMAN, 20).getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(html("<meta charset=\"utf-8\">", GERMAN, 20), new String(wrong, CharsetDetection.detect(wrong, wrong.length)));
+        final byte[] ascii = html("", ASCII, 1).getBytes(StandardCharsets.US_ASCII);
+        assertEquals(StandardCharsets.UTF_8, CharsetDetection.detect(ascii, ascii.length));
+    }
+
+    @Test
+    public void testScanLimit() {
+        // UTF-8 text after the scan limit is decided by the ascii layer, which decodes as UTF-8 as well;
+        // the ICU detector only reads a prefix and decodes such documents as ISO-8859-1
+        final StringBuilder sb = new StringBuilder();
+        while (sb.length() < CharsetDetection.SCAN_LIMIT + 1000) sb.append(ASCII);
+        sb.append(GERMAN);
+        assertOriginalText(html("", sb.toString(), 1), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testScanUTF8() {
+        assertEquals(0, CharsetDetection.scanUTF8(new byte[]{'a', 'b'}, 2));
+        assertEquals(1, CharsetDetection.scanUTF8(new byte[]{'a', (byte) 0xC3, (byte) 0xBC}, 3));
+        assertEquals(-1, CharsetDetection.scanUTF8(new byte[]{(byte) 0xC0, (byte) 0xAF}, 2)); // overlong
+        assertEquals(-1, CharsetDetection.scanUTF8(new byte[]{(byte) 0xED, (byte) 0xA0, (byte) 0x80}, 3)); // surrogate
+        assertEquals(-1, CharsetDetection.scanUTF8(new byte[]{'a', (byte) 0xFC}, 2)); // latin-1
+        assertEquals(1, CharsetDetection.scanUTF8(new byte[]{(byte) 0xC3, (byte) 0xBC, (byte) 0xE2, (byte) 0x82}, 4)); // truncated at the end
+        assertEquals(-1, CharsetDetection.scanUTF8(new byte[]{'a', (byte) 0xE2, (byte) 0x82}, 3)); // only a truncated sequence
+    }
+}
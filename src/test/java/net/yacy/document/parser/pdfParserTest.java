@@ -0,0 +1,175 @@
+/**
+ *  pdfParserTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.document.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.junit.Test;
+
+import net.yacy.document.Document;
+import net.yacy.document.Parser;
+import net.yacy.document.VocabularyScraper;
+import net.yacy.grid.tools.MultiProtocolURL;
+
+public class pdfParserTest {
+
+    private static final Pattern PAGE = Pattern.compile("Page (\\d+) line 0 ");
+
+    /**
+     * create a pdf with a text and a link on each page
+     */
+    private static byte[] pdf(final int pages, final StandardProtectionPolicy policy) throws IOException {
+        try (PDDocument d = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                final PDPage page = new PDPage();
+                d.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(d, page)) {
+                    cs.beginText();
+                    cs.setFont(PDType1Font.HELVETICA, 10);
+                    cs.setLeading(12);
+                    cs.newLineAtOffset(50, 750);
+                    for (int l = 0; l < 5; l++) {
+                        cs.showText("Page " + (p + 1) + " line " + l + " the quick brown fox jumps over the lazy dog");
+                        cs.newLine();
+                    }
+                    cs.endText();
+                }
+                final PDAnnotationLink link = new PDAnnotationLink();
+                final PDActionURI action = new PDActionURI();
+                action.setURI("http://example.org/p" + (p + 1));
+                link.setAction(action);
+                link.setRectangle(new PDRectangle(50, 700, 100, 20));
+                page.getAnnotations().add(link);
+            }
+            if (policy != null) d.protect(policy);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            d.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static Document[] parse(final byte[] b) throws Parser.Failure, InterruptedException, IOException {
+        return new pdfParser().parse(new MultiProtocolURL("http://example.org/test.pdf"), "application/pdf", null, new VocabularyScraper(), 0, new ByteArrayInputStream(b));
+    }
+
+    /**
+     * @return the number of pages in the text; fails if the pages are not in order
+     */
+    private static int pages(final Document[] docs) {
+        final StringBuilder sb = new StringBuilder();
+        for (final Document doc: docs) sb.append(doc.getTextString());
+        final Matcher m = PAGE.matcher(sb);
+        int last = 0;
+        while (m.find()) {
+            assertEquals(last + 1, Integer.parseInt(m.group(1)));
+            last++;
+        }
+        return last;
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        // more pages than PAGES_PER_RANGE: the pages are extracted in several ranges
+        final Document[] docs = parse(pdf(50, null));
+        assertEquals(1, docs.length);
+        assertEquals(50, pages(docs));
+        assertEquals(50, docs[0].getAnchors().size());
+    }
+
+    @Test
+    public void testIndividualPages() throws Exception {
+        pdfParser.individualPages = true;
+        try {
+            final Document[] docs = parse(pdf(20, null));
+            assertEquals(20, docs.length);
+            assertEquals(20, pages(docs));
+        } finally {
+            pdfParser.individualPages = false;
+        }
+    }
+
+    @Test
+    public void testMaxPages() throws Exception {
+        final int maxPages = pdfParser.MAX_PAGES;
+        pdfParser.MAX_PAGES = 30;
+        try {
+            assertEquals(30, pages(parse(pdf(100, null))));
+        } finally {
+            pdfParser.MAX_PAGES = maxPages;
+        }
+    }
+
+    @Test
+    public void testEncrypted() throws Exception {
+        // an empty user password: the document and each range are decrypted
+        final StandardProtectionPolicy open = new StandardProtectionPolicy("owner", "", new AccessPermission());
+        open.setEncryptionKeyLength(256);
+        assertEquals(40, pages(parse(pdf(40, open))));
+
+        // content extraction is not permitted
+        final AccessPermission noExtract = new AccessPermission();
+        noExtract.setCanExtractContent(false);
+        final StandardProtectionPolicy restricted = new StandardProtectionPolicy("owner", "", noExtract);
+        restricted.setEncryptionKeyLength(128);
+        assertFailure(pdf(3, restricted));
+
+        // a user password is required
+        final StandardProtectionPolicy password = new StandardProtectionPolicy("owner", "user", new AccessPermission());
+        password.setEncryptionKeyLength(256);
+        assertFailure(pdf(3, password));
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        final byte[] b = pdf(30, null);
+        // the cross reference table is missing; pdfbox reconstructs it from the objects
+        final int pages = pages(parse(Arrays.copyOf(b, b.length * 8 / 10)));
+        assertTrue(pages > 0);
+        // no page tree at all
+        assertFailure(Arrays.copyOf(b, 100));
+    }
+
+    private static void assertFailure(final byte[] b) throws Exception {
+        try {
+            parse(b);
+            fail("no failure");
+        } catch (final Parser.Failure e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ *  GraphAssetTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import net.yacy.grid.io.index.WebMapping;
+
+public class GraphAssetTest {
+
+    private static String name(final WebMapping mapping) {
+        return mapping.getMapping().name();
+    }
+
+    /**
+     * @return graph documents of one host which share the navigation links, with all value types of the format
+     */
+    private static List<JSONObject> graphs() {
+        final List<JSONObject> graphs = new ArrayList<>();
+        final JSONArray navigation = new JSONArray(Arrays.asList("https://www.example.com/", "https://www.example.com/news/", "https://www.example.com/about"));
+        for (int p = 0; p < 10; p++) {
+            final JSONObject graph = new JSONObject(true);
+            graph.put(name(WebMapping.url_s), "https://www.example.com/news/article" + p + ".html");
+            graph.put(name(WebMapping.url_protocol_s), "https");
+            graph.put(name(WebMapping.inboundlinkscount_i), navigation.length() + 1);
+            final JSONArray in = new JSONArray(navigation.toList());
+            in.put("https://www.example.com/news/article" + (p + 1) + ".html");
+            graph.put(name(WebMapping.inboundlinks_sxt), in);
+            graph.put(name(WebMapping.inboundlinks_anchortext_txt), new JSONArray(Arrays.asList("Home", "News", "Über uns", "next")));
+            graph.put(name(WebMapping.outboundlinks_sxt), new JSONArray(Arrays.asList("http://other.example.org", "mailto:info@example.com", "")));
+            graph.put(name(WebMapping.images_height_val), new JSONArray(Arrays.asList(0, -1, 600, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE)));
+            graph.put(name(WebMapping.outboundlinkscount_i), -p * 1000000000000L);
+            graph.put("json_o", new JSONObject().put("a", new JSONArray().put(1).put("b")).put("c", true));
+            graph.put("flag_b", p % 2 == 0);
+            graph.put("empty_sxt", new JSONArray());
+            graphs.add(graph);
+        }
+        return graphs;
+    }
+
+    private static byte[] write(final List<JSONObject> graphs) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (GraphAsset.Writer writer = new GraphAsset.Writer(baos)) {
+            for (final JSONObject graph: graphs) writer.write(graph);
+            assertEquals(graphs.size(), writer.documents());
+        }
+        return baos.toByteArray();
+    }
+
+    private static List<JSONObject> read(final byte[] b) throws IOException {
+        final List<JSONObject> graphs = new ArrayList<>();
+        try (GraphAsset.Reader reader = new GraphAsset.Reader(new ByteArrayInputStream(b))) {
+            while (reader.hasNext()) graphs.add(reader.next());
+        }
+        return graphs;
+    }
+
+    private static void assertGraphs(final List<JSONObject> expected, final List<JSONObject> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(actual.get(i).toString(), expected.get(i).similar(actual.get(i)));
+            // the fields keep their order
+            assertEquals(new ArrayList<>(expected.get(i).keySet()), new ArrayList<>(actual.get(i).keySet()));
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final List<JSONObject> graphs = graphs();
+        final byte[] compact = write(graphs);
+        assertTrue(GraphAsset.isCompact(compact));
+        assertGraphs(graphs, read(compact));
+
+        // the repeated urls and texts are stored once
+        final StringBuilder jsonlist = new StringBuilder();
+        for (final JSONObject graph: graphs) jsonlist.append(graph.toString()).append('\n');
+        assertTrue(compact.length * 2 < jsonlist.toString().getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        final List<JSONObject> graphs = graphs();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OutputStream os = new GZIPOutputStream(baos)) {
+            os.write(write(graphs));
+        }
+        final byte[] gzipped = baos.toByteArray();
+        assertTrue(GraphAsset.isCompact(gzipped));
+        assertGraphs(graphs, read(gzipped));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertTrue(read(write(new ArrayList<JSONObject>())).isEmpty());
+    }
+
+    @Test
+    public void testNotCompact() {
+        final byte[] json = "{\"url_s\":\"https://www.example.com/\"}\n".getBytes(StandardCharsets.UTF_8);
+        assertFalse(GraphAsset.isCompact(json));
+        assertFalse(GraphAsset.isCompact(new byte[0]));
+        try {
+            read(json);
+            fail("a json list is not a compact graph asset");
+        } catch (final IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        final byte[] compact = write(graphs());
+        try {
+            read(Arrays.copyOf(compact, compact.length - 3));
+            fail("a truncated asset must not be read");
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getCause() instanceof EOFException);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ *  WarcIngestTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.jwat.warc.WarcReader;
+import org.jwat.warc.WarcReaderFactory;
+
+public class WarcIngestTest {
+
+    private static final int RECORDS = 100;
+
+    /**
+     * @return a WARC record with a response of the given size, the content is random to make the compressed file large
+     */
+    private static byte[] record(final int n, final int size) {
+        final Random random = new Random(n);
+        final StringBuilder content = new StringBuilder("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\n\r\n");
+        while (content.length() < size) content.append(Long.toString(random.nextLong(), 36)).append(' ');
+        final byte[] block = content.toString().getBytes(StandardCharsets.UTF_8);
+        final String header = "WARC/1.0\r\n" +
+                "WARC-Type: response\r\n" +
+                "WARC-Target-URI: http://www.example.com/page" + n + ".html\r\n" +
+                "WARC-Date: 2026-01-01T00:00:00Z\r\n" +
+                "WARC-Record-ID: <urn:uuid:00000000-0000-0000-0000-" + String.format("%012d", n) + ">\r\n" +
+                "Content-Type: application/http; msgtype=response\r\n" +
+                "Content-Length: " + block.length + "\r\n\r\n";
+        final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        record.write(header.getBytes(StandardCharsets.ISO_8859_1), 0, header.length());
+        record.write(block, 0, block.length);
+        record.write('\r'); record.write('\n'); record.write('\r'); record.write('\n');
+        return record.toByteArray();
+    }
+
+    private static byte[] gzip(final byte[] b) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(os)) {
+            gz.write(b);
+        }
+        return os.toByteArray();
+    }
+
+    private static byte[] gunzip(final byte[] b) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(b))) {
+            final byte[] buffer = new byte[4096];
+            int n;
+            while ((n = is.read(buffer)) > 0) os.write(buffer, 0, n);
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * write a WARC file with records of different sizes
+     * @param gzip 0 for an uncompressed file, 1 for a file which is compressed record by record, 2 for a file which is compressed as a whole
+     */
+    private static File warc(final int gzip) throws IOException {
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        for (int n = 0; n < RECORDS; n++) {
+            final byte[] record = record(n, 100 + (n * 37) % 700);
+            final byte[] b = gzip == 1 ? gzip(record) : record;
+            os.write(b, 0, b.length);
+        }
+        final File f = File.createTempFile("WarcIngestTest", gzip == 0 ? ".warc" : ".warc.gz");
+        f.deleteOnExit();
+        Files.write(f.toPath(), gzip == 2 ? gzip(os.toByteArray()) : os.toByteArray());
+        return f;
+    }
+
+    private static long[] boundaries(final File warc, final boolean gzip) throws IOException {
+        final long segmentSize = WarcIngest.SEGMENT_SIZE;
+        WarcIngest.SEGMENT_SIZE = 4096;
+        try (RandomAccessFile raf = new RandomAccessFile(warc, "r")) {
+            return gzip ? WarcIngest.gzipBoundaries(raf.getChannel(), raf.length()) : WarcIngest.recordBoundaries(raf.getChannel(), raf.length());
+        } finally {
+            WarcIngest.SEGMENT_SIZE = segmentSize;
+        }
+    }
+
+    /**
+     * @return the number of records in a segment; the segment must start and end at record boundaries
+     */
+    private static int records(final byte[] segment) throws IOException {
+        final WarcReader reader = WarcReaderFactory.getReader(new ByteArrayInputStream(segment));
+        int count = 0;
+        while (reader.getNextRecord() != null) count++;
+        reader.close();
+        return count;
+    }
+
+    private static void assertSegments(final File warc, final long[] bounds, final boolean gzip) throws IOException {
+        final byte[] b = Files.readAllBytes(warc.toPath());
+        assertEquals(0L, bounds[0]);
+        assertEquals(b.length, bounds[bounds.length - 1]);
+        int count = 0;
+        for (int i = 0; i < bounds.length - 1; i++) {
+            assertTrue(bounds[i] < bounds[i + 1]);
+            final byte[] segment = Arrays.copyOfRange(b, (int) bounds[i], (int) bounds[i + 1]);
+            final byte[] records = gzip ? gunzip(segment) : segment;
+            // each segment starts with a record
+            assertEquals("WARC/", new String(records, 0, 5, StandardCharsets.ISO_8859_1));
+            count += records(records);
+        }
+        assertEquals(RECORDS, count);
+    }
+
+    @Test
+    public void testRecordBoundaries() throws IOException {
+        final File warc = warc(0);
+        final long[] bounds = boundaries(warc, false);
+        assertTrue(bounds.length > 3);
+        assertSegments(warc, bounds, false);
+    }
+
+    @Test
+    public void testGzipBoundaries() throws IOException {
+        final File warc = warc(1);
+        final long[] bounds = boundaries(warc, true);
+        assertTrue(bounds.length > 3);
+        assertSegments(warc, bounds, true);
+    }
+
+    @Test
+    public void testGzipAsAWhole() throws IOException {
+        // a file which is compressed as a whole cannot be split
+        final File warc = warc(2);
+        final long[] bounds = boundaries(warc, true);
+        assertEquals(2, bounds.length);
+        assertSegments(warc, bounds, true);
+    }
+
+    @Test
+    public void testFlatFile() {
+        final File dir = new File("target");
+        assertEquals(new File(dir, "crawl-1" + WarcIngest.FLATFILE_EXTENSION), WarcIngest.flatFile(new File("crawl-1.warc.gz"), dir));
+        assertEquals(new File(dir, "crawl-2" + WarcIngest.FLATFILE_EXTENSION), WarcIngest.flatFile(new File("crawl-2.WARC"), dir));
+        assertTrue(WarcIngest.isWarc(new File("a.warc.gz")));
+        assertTrue(!WarcIngest.isWarc(new File("a.json.gz")));
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ *  ParserServiceTest
+ *  Copyright 2026 by Michael Peter Christen, @0rb1t3r
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public License
+ *  along with this program in the file lgpl21.txt
+ *  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.yacy.grid.parser.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import net.yacy.grid.io.index.WebMapping;
+
+public class ParserServiceTest {
+
+    private static final int RECORDS = 4;
+
+    private static byte[] record(final int n) {
+        final StringBuilder body = new StringBuilder("<html><head><title>page " + n + "</title></head><body>");
+        for (int i = 0; i < 200; i++) body.append("<p>the text ").append(i).append(" of page ").append(n).append("</p>");
+        body.append("</body></html>");
+        final String http = "HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+        final String header = "WARC/1.0\r\nWARC-Type: response\r\nWARC-Target-URI: http://example.org/page" + n + ".html\r\n" +
+                "WARC-Date: 2026-01-01T00:00:00Z\r\nWARC-Record-ID: <urn:uuid:" + UUID.randomUUID() + ">\r\n" +
+                "Content-Type: application/http; msgtype=response\r\nContent-Length: " + http.length() + "\r\n\r\n";
+        return (header + http + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * a WARC with RECORDS records which ends in the middle of the payload of the last record
+     */
+    private static byte[] truncatedWarc(final boolean gzip) throws IOException {
+        final ByteArrayOutputStream warc = new ByteArrayOutputStream();
+        int lastStart = 0;
+        for (int n = 0; n < RECORDS; n++) {
+            lastStart = warc.size();
+            final byte[] record = record(n);
+            if (gzip) {
+                final GZIPOutputStream gz = new GZIPOutputStream(warc);
+                gz.write(record);
+                gz.finish();
+            } else {
+                warc.write(record);
+            }
+        }
+        final byte[] b = warc.toByteArray();
+        return Arrays.copyOf(b, lastStart + (b.length - lastStart) / 2);
+    }
+
+    private static Set<String> urls(final JSONArray documents) {
+        final Set<String> urls = new TreeSet<>();
+        for (int i = 0; i < documents.length(); i++) urls.add(documents.getJSONObject(i).getString(WebMapping.url_s.name()));
+        return urls;
+    }
+
+    private static Set<String> completeUrls() {
+        final Set<String> urls = new TreeSet<>();
+        for (int n = 0; n < RECORDS - 1; n++) urls.add("http://example.org/page" + n + ".html");
+        return urls;
+    }
+
+    @Test
+    public void testTruncatedWarcKeepsCompleteRecords() throws IOException {
+        for (final boolean gzip: new boolean[]{false, true}) {
+            final long truncated = ParserService.getStatistics().get("truncated");
+            final JSONArray documents = ParserService.indexWarcRecords(new ByteArrayInputStream(truncatedWarc(gzip)), null, false);
+            assertEquals("gzip " + gzip, completeUrls(), urls(documents));
+            assertEquals("gzip " + gzip, truncated + 1, ParserService.getStatistics().get("truncated").longValue());
+        }
+    }
+
+    @Test
+    public void testTruncatedWarcFails() throws IOException {
+        final JSONArray documents = new JSONArray();
+        try {
+            ParserService.indexWarcRecords(new ByteArrayInputStream(truncatedWarc(false)), null, false, true, new ParserService.JSONObjectSink() {
+                @Override
+                public void put(final JSONObject json) {
+                    synchronized (documents) {documents.put(json);}
+                }
+            });
+            fail("a truncated WARC must fail");
+        } catch (final EOFException e) {
+            // the documents of the complete records are given to the sink before the exception
+            assertEquals(completeUrls(), urls(documents));
+        }
+    }
+
+    @Test
+    public void testCompleteWarc() throws IOException {
+        final ByteArrayOutputStream warc = new ByteArrayOutputStream();
+        for (int n = 0; n < RECORDS; n++) warc.write(record(n));
+        final long truncated = ParserService.getStatistics().get("truncated");
+        assertEquals(RECORDS, ParserService.indexWarcRecords(new ByteArrayInputStream(warc.toByteArray()), null, false).length());
+        assertEquals(truncated, ParserService.getStatistics().get("truncated").longValue());
+    }
+}